@@ -0,0 +1,141 @@
+package org.shortener.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.HibernateConfiguration;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.UrlShortenService;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers to run benchmarks against an embedded in-memory H2 database instead of Postgres.
+ */
+final class BenchmarkDatabase {
+
+    /**
+     * Number of URLs shortened per transaction when seeding the database
+     */
+    private static final int SEED_CHUNK_SIZE = 500;
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private BenchmarkDatabase() {
+        throw new IllegalStateException("BenchmarkDatabase should not be instantiated");
+    }
+
+    /**
+     * Build a SessionFactory from the application's configuration, pointed at a fresh in-memory H2 database.
+     *
+     * @param name Name of the in-memory database.
+     * @return Hibernate SessionFactory.
+     */
+    static SessionFactory buildSessionFactory(String name) {
+        return HibernateConfiguration.buildSessionFactory(
+                ApplicationProperties.getInstance()
+                                     .with("shortener.db.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1")
+                                     .with("shortener.db.username", "sa")
+                                     .with("shortener.db.password", "")
+                                     .with("shortener.db.schema-action", "create"));
+    }
+
+    /**
+     * Build a UrlShortenService backed by the given SessionFactory.
+     *
+     * @param sessionFactory Hibernate SessionFactory.
+     * @param cached         Whether resolves may be answered from the UrlCache.
+     * @param filtered       Whether lookups of URLs not stored may be skipped using a UrlExistenceFilter.
+     * @return UrlShortenService.
+     */
+    static UrlShortenService buildService(SessionFactory sessionFactory, boolean cached, boolean filtered) {
+        // Entries of a cache with no time to live expire immediately, so every lookup reaches the database
+        return buildService(sessionFactory, cached
+                                            ? new UrlCache(100_000, 1, 1, TimeUnit.HOURS)
+                                            : new UrlCache(1, 0, 0, TimeUnit.NANOSECONDS),
+                            filtered ? buildUrlExistenceFilter() : UrlExistenceFilter.disabled(),
+                            buildClickRecorder(sessionFactory));
+    }
+
+    /**
+     * Build a UrlShortenService backed by the given SessionFactory, UrlCache, UrlExistenceFilter and ClickRecorder.
+     *
+     * @param sessionFactory     Hibernate SessionFactory.
+     * @param urlCache           Cache of resolved shortened URLs.
+     * @param urlExistenceFilter Filter of stored URLs.
+     * @param clickRecorder      Recorder of clicks on resolved shortened URLs.
+     * @return UrlShortenService.
+     */
+    static UrlShortenService buildService(SessionFactory sessionFactory, UrlCache urlCache,
+                                          UrlExistenceFilter urlExistenceFilter, ClickRecorder clickRecorder) {
+        return new UrlShortenService(LoggerFactory.getLogger(BenchmarkDatabase.class),
+                                     new ShardRouter(sessionFactory),
+                                     null,
+                                     null,
+                                     new UrlDataEntityDAO(),
+                                     null,
+                                     urlCache,
+                                     urlExistenceFilter,
+                                     new SnowflakeShortCodeGenerator(1, new Base62Encoder()),
+                                     clickRecorder,
+                                     new MetricsRegistry());
+    }
+
+    /**
+     * Build a UrlExistenceFilter for a fresh database, which is warmed straight away as nothing is stored yet.
+     *
+     * @return UrlExistenceFilter.
+     */
+    static UrlExistenceFilter buildUrlExistenceFilter() {
+        UrlExistenceFilter filter = new UrlExistenceFilter(100_000, 0.01);
+        filter.markWarmed();
+        return filter;
+    }
+
+    /**
+     * Build a ClickRecorder backed by the given SessionFactory, which is never started so clicks are only counted in
+     * memory.
+     *
+     * @param sessionFactory Hibernate SessionFactory.
+     * @return ClickRecorder.
+     */
+    static ClickRecorder buildClickRecorder(SessionFactory sessionFactory) {
+        return new ClickRecorder(LoggerFactory.getLogger(BenchmarkDatabase.class), sessionFactory,
+                                 new ClickStatsDAO());
+    }
+
+    /**
+     * Shorten the given number of distinct URLs.
+     *
+     * @param urlShortenService Service to shorten the URLs with.
+     * @param count             Number of URLs to shorten.
+     * @return The shortened URLs.
+     * @throws SessionOpenException An error occurred communicating with the Database.
+     */
+    static List<String> seed(UrlShortenService urlShortenService, int count) throws SessionOpenException {
+        List<String> shortenedUrls = new ArrayList<>(count);
+        List<String> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+
+        for (int i = 0; i < count; i++) {
+            chunk.add("https://www.example.com/seed/" + i);
+            if (chunk.size() == SEED_CHUNK_SIZE || i == count - 1) {
+                shortenedUrls.addAll(urlShortenService.shortenUrls(chunk));
+                chunk.clear();
+            }
+        }
+
+        return shortenedUrls;
+    }
+}
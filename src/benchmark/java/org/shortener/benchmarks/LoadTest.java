@@ -0,0 +1,319 @@
+package org.shortener.benchmarks;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.shortener.WebappMain;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.server.NettyServer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load test of the server started by WebappMain, over HTTP against an embedded H2 database.
+ * Requests are sent open loop at a fixed rate, a mix of POST /api/urls with new URLs and GET /api/urls/{code} of
+ * seeded codes picked with a Zipfian distribution, so a few codes are hot and most are cold. Latency is measured from
+ * when each request was scheduled to be sent rather than when it was sent, so a stalled server is charged for every
+ * request it held up (no coordinated omission), and recorded in an HdrHistogram per endpoint.
+ * <p>
+ * Settings are read from system properties: loadtest.rate (requests per second), loadtest.duration-seconds,
+ * loadtest.warmup-seconds (not recorded), loadtest.shorten-ratio (share of POST requests), loadtest.keys (seeded codes),
+ * loadtest.zipf-exponent, loadtest.max-in-flight, loadtest.http-version (HTTP_1_1, or HTTP_2 to share connections over
+ * h2c) and loadtest.report (JSON report file). The server is configured as usual with shortener.* system properties,
+ * e.g. -Dshortener.filter.enabled=true.
+ */
+public class LoadTest {
+
+    /**
+     * URLs per seeding batch request
+     */
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    /**
+     * Percentiles reported for each endpoint
+     */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 100};
+
+    /**
+     * Name of each reported percentile
+     */
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999", "max"};
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private LoadTest() {
+        throw new IllegalStateException("LoadTest should not be instantiated");
+    }
+
+    /**
+     * Start the server, seed it, run the load and report the results.
+     *
+     * @param args Not used, see the class comment for settings.
+     * @throws IOException          If the server could not be seeded or the report could not be written.
+     * @throws InterruptedException If interrupted while waiting for requests.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "1000"));
+        long durationSeconds = Long.getLong("loadtest.duration-seconds", 60);
+        long warmupSeconds = Long.getLong("loadtest.warmup-seconds", 10);
+        double shortenRatio = Double.parseDouble(System.getProperty("loadtest.shorten-ratio", "0.1"));
+        int keys = Integer.getInteger("loadtest.keys", 10_000);
+        double zipfExponent = Double.parseDouble(System.getProperty("loadtest.zipf-exponent", "0.99"));
+        int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 1_000);
+        HttpClient.Version httpVersion = HttpClient.Version.valueOf(System.getProperty("loadtest.http-version",
+                                                                                      "HTTP_1_1"));
+        String report = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+        // An in-memory database unless one is given, and a free port, set before the configuration is first read
+        setDefault("shortener.db.url", "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1");
+        setDefault("shortener.db.username", "sa");
+        setDefault("shortener.db.password", "");
+        setDefault("shortener.db.schema-action", "create");
+        setDefault("shortener.server.port", "0");
+        // The click_stats upsert is Postgres syntax, so clicks are only counted in memory unless a database is given
+        setDefault("shortener.analytics.flush-interval-seconds", "86400");
+
+        WebappMain.warmUp(ApplicationProperties.getInstance());
+        NettyServer server = WebappMain.startServer(ApplicationProperties.getInstance());
+        try {
+            String baseUri = "http://127.0.0.1:" + server.getPort() + "/api/urls/";
+            HttpClient httpClient = HttpClient.newBuilder().version(httpVersion).build();
+
+            List<String> codes = seed(httpClient, baseUri, keys);
+            ZipfianSampler sampler = new ZipfianSampler(codes.size(), zipfExponent);
+            System.out.printf(Locale.ROOT, "Seeded %d codes, running %.0f requests/s for %d s after %d s of warm up%n",
+                              codes.size(), rate, durationSeconds, warmupSeconds);
+
+            Endpoint shorten = new Endpoint("POST /api/urls");
+            Endpoint resolve = new Endpoint("GET /api/urls/{code}");
+            long lagNanos = run(httpClient, baseUri, codes, sampler, shorten, resolve, rate, shortenRatio,
+                                maxInFlight, TimeUnit.SECONDS.toNanos(warmupSeconds),
+                                TimeUnit.SECONDS.toNanos(durationSeconds));
+
+            List<Endpoint> endpoints = List.of(shorten, resolve);
+            print(System.out, endpoints, durationSeconds, lagNanos);
+            writeReport(Path.of(report), endpoints, rate, durationSeconds, shortenRatio, keys, zipfExponent);
+            System.out.println("Report written to " + report);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Shorten distinct URLs through the batch endpoint.
+     *
+     * @return The codes of the shortened URLs.
+     */
+    private static List<String> seed(HttpClient httpClient, String baseUri, int keys)
+            throws IOException, InterruptedException {
+        List<String> codes = new ArrayList<>(keys);
+        while (codes.size() < keys) {
+            StringBuilder body = new StringBuilder();
+            for (int i = codes.size(); i < Math.min(keys, codes.size() + SEED_BATCH_SIZE); i++) {
+                body.append("https://www.example.com/seed/").append(i).append('\n');
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + "batch"))
+                                             .header("Content-Type", "text/plain")
+                                             .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                                             .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Seeding failed with status " + response.statusCode());
+            }
+            response.body().lines().forEach(link -> codes.add(link.substring(link.lastIndexOf('/') + 1)));
+        }
+        return codes;
+    }
+
+    /**
+     * Send requests open loop at the given rate, the first warmupNanos of them unrecorded, and wait for the last one.
+     *
+     * @return How far the sending fell behind schedule at most, in nanoseconds.
+     */
+    private static long run(HttpClient httpClient, String baseUri, List<String> codes, ZipfianSampler sampler,
+                            Endpoint shorten, Endpoint resolve, double rate, double shortenRatio, int maxInFlight,
+                            long warmupNanos, long durationNanos) throws InterruptedException {
+        Random random = new Random(42);
+        AtomicLong newUrlCounter = new AtomicLong();
+        // Bounds the requests awaiting an answer, waiting for a slot still counts against the requests held up
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long lagNanos = 0;
+
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * 1e9 / rate);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            lagNanos = Math.max(lagNanos, System.nanoTime() - intendedStart);
+
+            Endpoint endpoint;
+            HttpRequest request;
+            if (random.nextDouble() < shortenRatio) {
+                endpoint = shorten;
+                request = HttpRequest.newBuilder(URI.create(baseUri))
+                                     .header("Content-Type", "text/plain")
+                                     .POST(HttpRequest.BodyPublishers.ofString(
+                                             "https://www.example.com/load/" + newUrlCounter.incrementAndGet()))
+                                     .build();
+            } else {
+                endpoint = resolve;
+                request = HttpRequest.newBuilder(URI.create(baseUri + codes.get(sampler.next(random)))).GET().build();
+            }
+            boolean recorded = intendedStart >= measureStart;
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                      .whenComplete((response, e) -> {
+                          inFlight.release();
+                          if (recorded) {
+                              endpoint.record(System.nanoTime() - intendedStart,
+                                              e == null && response.statusCode() == 200);
+                          }
+                      });
+        }
+        inFlight.acquire(maxInFlight);
+        return lagNanos;
+    }
+
+    private static void print(PrintStream out, List<Endpoint> endpoints, long durationSeconds, long lagNanos) {
+        out.printf(Locale.ROOT, "%-22s %10s %8s %10s", "Endpoint", "Requests", "Errors", "Req/s");
+        for (String percentileName : PERCENTILE_NAMES) {
+            out.printf(Locale.ROOT, " %9s", percentileName + " ms");
+        }
+        out.println();
+        for (Endpoint endpoint : endpoints) {
+            Histogram latencies = endpoint.latencies;
+            out.printf(Locale.ROOT, "%-22s %10d %8d %10.1f", endpoint.name, latencies.getTotalCount(),
+                       endpoint.errors.sum(), (double) latencies.getTotalCount() / durationSeconds);
+            for (double percentile : PERCENTILES) {
+                out.printf(Locale.ROOT, " %9.2f", latencies.getValueAtPercentile(percentile) / 1e6);
+            }
+            out.println();
+        }
+        out.printf(Locale.ROOT, "Sending fell behind schedule by at most %.2f ms%n", lagNanos / 1e6);
+    }
+
+    private static void writeReport(Path report, List<Endpoint> endpoints, double rate, long durationSeconds,
+                                    double shortenRatio, int keys, double zipfExponent) throws IOException {
+        if (report.getParent() != null) {
+            Files.createDirectories(report.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write(String.format(Locale.ROOT, "{\"rate\":%s,\"durationSeconds\":%d,\"shortenRatio\":%s,"
+                                                    + "\"keys\":%d,\"zipfExponent\":%s,\"endpoints\":[",
+                                       rate, durationSeconds, shortenRatio, keys, zipfExponent));
+            for (int i = 0; i < endpoints.size(); i++) {
+                Endpoint endpoint = endpoints.get(i);
+                Histogram latencies = endpoint.latencies;
+                writer.write(String.format(Locale.ROOT, "%s{\"endpoint\":\"%s\",\"requests\":%d,\"errors\":%d,"
+                                                        + "\"throughput\":%.1f,\"latencyMs\":{",
+                                           i == 0 ? "" : ",", endpoint.name, latencies.getTotalCount(),
+                                           endpoint.errors.sum(),
+                                           (double) latencies.getTotalCount() / durationSeconds));
+                for (int p = 0; p < PERCENTILES.length; p++) {
+                    writer.write(String.format(Locale.ROOT, "%s\"%s\":%.3f", p == 0 ? "" : ",", PERCENTILE_NAMES[p],
+                                               latencies.getValueAtPercentile(PERCENTILES[p]) / 1e6));
+                }
+                writer.write("}}");
+            }
+            writer.write("]}\n");
+        }
+    }
+
+    /**
+     * Latencies and errors of one endpoint.
+     */
+    private static final class Endpoint {
+
+        private final String name;
+
+        /**
+         * Latencies in nanoseconds, from when each request was scheduled until its response was read
+         */
+        private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(10), 3);
+
+        /**
+         * Requests failing or answered with a status other than 200
+         */
+        private final LongAdder errors = new LongAdder();
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        private void record(long latencyNanos, boolean succeeded) {
+            latencies.recordValue(Math.min(latencyNanos, latencies.getHighestTrackableValue()));
+            if (!succeeded) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * Picks indexes from 0 (most popular) to size - 1 with probability proportional to 1 / (index + 1)^exponent.
+     */
+    static final class ZipfianSampler {
+
+        /**
+         * Cumulative probability of each index and every index before it
+         */
+        private final double[] cumulative;
+
+        ZipfianSampler(int size, double exponent) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < size; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(Random random) {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
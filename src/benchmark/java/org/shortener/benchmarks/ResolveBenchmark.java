@@ -0,0 +1,81 @@
+package org.shortener.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.services.UrlShortenService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks UrlShortenService.getOriginalUrl against an embedded H2 database, with and without the UrlCache and the
+ * UrlExistenceFilter.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ResolveBenchmark {
+
+    /**
+     * Number of mappings stored before measuring
+     */
+    @Param({"10000"})
+    public int mappings;
+
+    /**
+     * Whether resolves may be answered from the UrlCache
+     */
+    @Param({"false", "true"})
+    public boolean cached;
+
+    /**
+     * Whether lookups of codes not stored may be skipped using the UrlExistenceFilter
+     */
+    @Param({"false", "true"})
+    public boolean filtered;
+
+    private SessionFactory sessionFactory;
+
+    private UrlShortenService urlShortenService;
+
+    private String[] shortenedUrls;
+
+    @Setup
+    public void setUp() throws SessionOpenException {
+        sessionFactory = BenchmarkDatabase.buildSessionFactory("resolve");
+        urlShortenService = BenchmarkDatabase.buildService(sessionFactory, cached, filtered);
+        List<String> seeded = BenchmarkDatabase.seed(urlShortenService, mappings);
+        shortenedUrls = seeded.toArray(new String[0]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public String resolveExisting() throws SessionOpenException {
+        return urlShortenService.getOriginalUrl(shortenedUrls[ThreadLocalRandom.current().nextInt(mappings)]);
+    }
+
+    @Benchmark
+    public String resolveMissing() throws SessionOpenException {
+        return urlShortenService.getOriginalUrl("missing");
+    }
+}
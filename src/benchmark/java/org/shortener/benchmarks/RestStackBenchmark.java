@@ -0,0 +1,145 @@
+package org.shortener.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.jboss.resteasy.plugins.server.netty.NettyJaxrsServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.ExecutorConfiguration;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.handlers.RedirectHandler;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.resources.RedirectResource;
+import org.shortener.resources.UrlResource;
+import org.shortener.services.ClickStatsService;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlShortenService;
+import org.shortener.sharding.ShardRouter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks the full JAX-RS stack: HTTP requests over loopback to a NettyJaxrsServer serving UrlResource and
+ * RedirectResource, backed by an embedded H2 database. Redirects are measured with and without the RedirectHandler
+ * answering cached codes in front of RESTEasy.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RestStackBenchmark {
+
+    private static final int MAPPINGS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean redirectHandler;
+
+    private final AtomicLong newUrlCounter = new AtomicLong();
+
+    private SessionFactory sessionFactory;
+
+    private DatabaseCallExecutor databaseCallExecutor;
+
+    private NettyJaxrsServer server;
+
+    private HttpClient httpClient;
+
+    private String baseUri;
+
+    private String redirectUri;
+
+    private String[] shortenedUrls;
+
+    @Setup
+    public void setUp() throws SessionOpenException {
+        sessionFactory = BenchmarkDatabase.buildSessionFactory("rest");
+        UrlCache urlCache = new UrlCache(100_000, 1, 1, TimeUnit.HOURS);
+        ClickRecorder clickRecorder = BenchmarkDatabase.buildClickRecorder(sessionFactory);
+        UrlShortenService urlShortenService = BenchmarkDatabase.buildService(sessionFactory, urlCache,
+                                                                             UrlExistenceFilter.disabled(),
+                                                                             clickRecorder);
+        ClickStatsService clickStatsService = new ClickStatsService(new ShardRouter(sessionFactory),
+                                                                    new UrlDataEntityDAO(),
+                                                                    new ClickStatsDAO(), clickRecorder);
+        List<String> seeded = BenchmarkDatabase.seed(urlShortenService, MAPPINGS);
+        shortenedUrls = seeded.toArray(new String[0]);
+
+        server = new NettyJaxrsServer();
+        server.setRootResourcePath("/api");
+        server.setPort(0);
+        server.setSecurityDomain(null);
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        databaseCallExecutor = ExecutorConfiguration.buildDatabaseCallExecutor(properties);
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        server.getDeployment().getResources().add(new UrlResource(urlShortenService, clickStatsService, properties,
+                                                                  databaseCallExecutor, metricsRegistry));
+        server.getDeployment().getResources().add(new RedirectResource(urlShortenService, properties,
+                                                                       databaseCallExecutor, metricsRegistry));
+        if (redirectHandler) {
+            server.setHttpChannelHandlers(List.of(new RedirectHandler(urlCache, clickRecorder, "/api/",
+                                                                      Set.of("urls"), 302, null)));
+        }
+        server.start();
+
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        redirectUri = "http://127.0.0.1:" + server.getPort() + "/api/";
+        baseUri = redirectUri + "urls/";
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        databaseCallExecutor.close();
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public String resolve() throws IOException, InterruptedException {
+        String shortenedUrl = shortenedUrls[ThreadLocalRandom.current().nextInt(MAPPINGS)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + shortenedUrl)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @Benchmark
+    public int redirect() throws IOException, InterruptedException {
+        String shortenedUrl = shortenedUrls[ThreadLocalRandom.current().nextInt(MAPPINGS)];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(redirectUri + shortenedUrl)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    public String shorten() throws IOException, InterruptedException {
+        String originalUrl = "https://www.example.com/new/" + newUrlCounter.incrementAndGet();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri))
+                                         .header("Content-Type", "text/plain")
+                                         .POST(HttpRequest.BodyPublishers.ofString(originalUrl))
+                                         .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
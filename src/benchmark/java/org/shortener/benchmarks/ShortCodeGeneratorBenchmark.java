@@ -0,0 +1,35 @@
+package org.shortener.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks short code generation, shared between threads as it is in the application.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ShortCodeGeneratorBenchmark {
+
+    private final ShortCodeGenerator shortCodeGenerator = new SnowflakeShortCodeGenerator(1, new Base62Encoder());
+
+    @Benchmark
+    public String generate() {
+        return shortCodeGenerator.generate();
+    }
+}
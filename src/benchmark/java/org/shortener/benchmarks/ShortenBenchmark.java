@@ -0,0 +1,69 @@
+package org.shortener.benchmarks;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.services.UrlShortenService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks UrlShortenService.shortenUrl against an embedded H2 database, for new and already stored URLs, with and
+ * without the UrlExistenceFilter skipping the lookup of new URLs.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ShortenBenchmark {
+
+    private static final String EXISTING_URL = "https://www.example.com/seed/0";
+
+    /**
+     * Whether lookups of URLs not stored may be skipped using the UrlExistenceFilter
+     */
+    @Param({"false", "true"})
+    public boolean filtered;
+
+    private final AtomicLong newUrlCounter = new AtomicLong();
+
+    private SessionFactory sessionFactory;
+
+    private UrlShortenService urlShortenService;
+
+    @Setup
+    public void setUp() throws SessionOpenException {
+        sessionFactory = BenchmarkDatabase.buildSessionFactory("shorten");
+        urlShortenService = BenchmarkDatabase.buildService(sessionFactory, true, filtered);
+        BenchmarkDatabase.seed(urlShortenService, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public String shortenNewUrl() throws SessionOpenException {
+        return urlShortenService.shortenUrl("https://www.example.com/new/" + newUrlCounter.incrementAndGet());
+    }
+
+    @Benchmark
+    public String shortenExistingUrl() throws SessionOpenException {
+        return urlShortenService.shortenUrl(EXISTING_URL);
+    }
+}
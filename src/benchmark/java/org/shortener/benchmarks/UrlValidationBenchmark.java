@@ -0,0 +1,98 @@
+package org.shortener.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.resources.UrlResource;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlShortenService;
+import org.shortener.validators.UrlValidator;
+
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks the URL validation done by UrlResource.shortenUrl, with the service stubbed out so only the resource's
+ * own work is measured, and compares the UrlValidator it uses against the regular expression it replaced.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class UrlValidationBenchmark {
+
+    /**
+     * Regular expression UrlResource validated URLs with before the UrlValidator
+     */
+    private static final Pattern URL_PATTERN = Pattern.compile(
+            "^https?://(?:www\\.)?[-a-zA-Z0-9@:%._+~#=]{1,256}\\.[a-zA-Z0-9()]{1,6}\\b(?:[-a-zA-Z0-9()@:%_+.~#?&/=]*)"
+            + "$");
+
+    /**
+     * Kind of input posted to the resource, hostile inputs make the regular expression backtrack
+     */
+    @Param({"valid", "invalid", "long", "hostile"})
+    public String input;
+
+    private final UrlValidator urlValidator = new UrlValidator();
+
+    private UrlResource urlResource;
+
+    private String originalUrl;
+
+    @Setup
+    public void setUp() {
+        urlResource = new UrlResource(new StubUrlShortenService(), null, ApplicationProperties.getInstance(),
+                                      new DatabaseCallExecutor(false, 1), new MetricsRegistry());
+        originalUrl = switch (input) {
+            case "valid" -> "https://www.example.com/some/path?query=value";
+            case "invalid" -> "not a url at all";
+            case "long" -> "https://www.example.com/" + "segment/".repeat(250) + "end";
+            case "hostile" -> "https://" + "a.".repeat(1000) + "!";
+            default -> throw new IllegalArgumentException("Unknown input " + input);
+        };
+    }
+
+    @Benchmark
+    public Response shortenUrl() {
+        return urlResource.shortenUrl(originalUrl).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public boolean regex() {
+        return URL_PATTERN.matcher(originalUrl).matches();
+    }
+
+    @Benchmark
+    public String validator() {
+        return urlValidator.normalize(originalUrl);
+    }
+
+    /**
+     * UrlShortenService that never touches the database.
+     */
+    private static final class StubUrlShortenService extends UrlShortenService {
+
+        private StubUrlShortenService() {
+            super(null, null, null, null, null, null, null, null, null, null, new MetricsRegistry());
+        }
+
+        @Override
+        public String shortenUrl(String originalUrl) {
+            return "abc12345";
+        }
+    }
+}
@@ -1,27 +1,105 @@
 package org.shortener;
 
-import org.jboss.resteasy.plugins.server.netty.NettyJaxrsServer;
+import org.shortener.configurations.AnalyticsConfiguration;
 import org.shortener.configurations.ApplicationConfig;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.CacheConfiguration;
+import org.shortener.configurations.ExecutorConfiguration;
+import org.shortener.configurations.FilterConfiguration;
+import org.shortener.configurations.HibernateConfiguration;
+import org.shortener.configurations.MetricsConfiguration;
+import org.shortener.configurations.R2dbcConfiguration;
+import org.shortener.configurations.ResourceConfiguration;
+import org.shortener.configurations.WriteBehindConfiguration;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.handlers.RedirectHandler;
+import org.shortener.replication.ReplicaRouter;
+import org.shortener.resources.RedirectResource;
+import org.shortener.server.NettyServer;
+import org.shortener.startup.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Set;
 
 /**
- * Main class to launch the web application using NettyJaxrsServer.
+ * Main class to launch the web application using NettyServer.
  */
 public class WebappMain {
 
     /**
      * Main method to start the web application.
      *
-     * @param args Command line arguments (not used in this application).
+     * @param args Command line arguments (not used in this application, see application.properties for settings).
      */
     public static void main(String[] args) {
-        // Create an instance of NettyJaxrsServer
-        NettyJaxrsServer server = new NettyJaxrsServer();
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        warmUp(properties);
+        if (properties.getBoolean("shortener.startup.exit-after-warm-up")) {
+            // A training run, e.g. to dump the classes loaded into a CDS archive with -XX:ArchiveClassesAtExit
+            System.exit(0);
+        }
+        startServer(properties);
+    }
+
+    /**
+     * Build every application wide component and warm it up, so the first requests do not pay for it.
+     * The SessionFactories are built (running the schema action and validating the named queries), every connection
+     * pool is filled, and the most clicked mappings are cached.
+     *
+     * @param properties Configuration holding the start up settings.
+     */
+    public static void warmUp(ApplicationProperties properties) {
+        Logger logger = LoggerFactory.getLogger(WebappMain.class);
+        long start = System.nanoTime();
+
+        // Each component is otherwise built on first use, i.e. by the first request
+        ReplicaRouter replicaRouter = HibernateConfiguration.getReplicaRouter();
+        R2dbcConfiguration.getUrlLookupDAO();
+        ExecutorConfiguration.getDatabaseCallExecutor();
+        FilterConfiguration.getUrlExistenceFilter();
+        AnalyticsConfiguration.getClickRecorder();
+        WriteBehindConfiguration.getWriteBehindQueue();
+        ResourceConfiguration.getResources();
+
+        Warmup warmup = new Warmup(LoggerFactory.getLogger(Warmup.class), HibernateConfiguration.getShardRouter(),
+                                   replicaRouter == null
+                                   ? List.of()
+                                   : replicaRouter.getReplicas().stream().map(ReplicaRouter.Replica::getSessionFactory)
+                                                  .toList(),
+                                   new UrlDataEntityDAO(MetricsConfiguration.getMetricsRegistry()),
+                                   CacheConfiguration.getUrlCache());
+        warmup.fillConnectionPools(properties.getLong("shortener.startup.pool-fill-timeout-ms"));
+        int preloaded = warmup.preloadMostClickedUrls(properties.getInt("shortener.startup.preload-count"));
+        logger.info("Warmed up in {} ms, caching the {} most clicked URLs", (System.nanoTime() - start) / 1_000_000,
+                    preloaded);
+    }
+
+    /**
+     * Build and start the server serving the application.
+     *
+     * @param properties Configuration holding the server settings.
+     * @return The started server, listening on shortener.server.port.
+     */
+    public static NettyServer startServer(ApplicationProperties properties) {
+        // Redirect cached shortened URLs straight from Netty, everything else is dispatched to the resources
+        RedirectHandler redirectHandler = new RedirectHandler(CacheConfiguration.getUrlCache(),
+                                                              AnalyticsConfiguration.getClickRecorder(),
+                                                              "/api/",
+                                                              new ApplicationConfig().getResourcePaths(),
+                                                              RedirectResource.getRedirectStatus(properties),
+                                                              RedirectResource.getCacheControl(properties));
+
+        // Create the server, listening on shortener.server.port and tuned by the other shortener.server.* settings
+        NettyServer server = new NettyServer(LoggerFactory.getLogger(NettyServer.class), properties,
+                                             List.of(redirectHandler));
 
         // Set the root resource path for the REST API
         server.setRootResourcePath("/api");
 
-        // Set the port on which the server will listen
-        server.setPort(8080);
+        // Read the bodies of imports and batches as they are received, however large, rather than aggregate them
+        server.setStreamedRequestPaths(Set.of("/mappings", "/urls/batch"));
 
         // Set the security domain to null (no security domain)
         server.setSecurityDomain(null);
@@ -31,5 +109,6 @@ public class WebappMain {
 
         // Start the server
         server.start();
+        return server;
     }
 }
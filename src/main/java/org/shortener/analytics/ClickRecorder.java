@@ -0,0 +1,266 @@
+package org.shortener.analytics;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Records clicks on shortened URLs in memory and periodically flushes them to the click_stats table.
+ * Recording a click never blocks or touches the database, it only increments striped counters, so it is cheap enough
+ * for the redirect path (including the Netty IO threads). A background thread adds the clicks counted since the last
+ * flush to the stored stats in one batched upsert per interval, and per shard, each shortened URL's stats being stored
+ * on the shard of its mapping. Clicks not yet flushed when the process dies are lost,
+ * at most one flush interval's worth.
+ */
+public class ClickRecorder implements AutoCloseable {
+
+    /**
+     * Clicks counted per shortened URL
+     */
+    private final ConcurrentHashMap<String, PendingClicks> pendingClicks = new ConcurrentHashMap<>();
+
+    /**
+     * Serialises flushes from the background thread and from close
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Logger logger;
+    private final ShardRouter shardRouter;
+    private final ClickStatsDAO clickStatsDAO;
+
+    /**
+     * Source of the current time in milliseconds since the epoch
+     */
+    private final LongSupplier millisClock;
+
+    /**
+     * Thread flushing the clicks, null until started
+     */
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Constructs a new ClickRecorder.
+     *
+     * @param logger         Logger for flush failures.
+     * @param sessionFactory Hibernate session factory clicks are flushed through.
+     * @param clickStatsDAO  Data Access Object for the stored stats.
+     */
+    public ClickRecorder(Logger logger, SessionFactory sessionFactory, ClickStatsDAO clickStatsDAO) {
+        this(logger, new ShardRouter(sessionFactory), clickStatsDAO);
+    }
+
+    /**
+     * Constructs a new ClickRecorder flushing the clicks of each shortened URL to the shard of its mapping.
+     *
+     * @param logger        Logger for flush failures.
+     * @param shardRouter   Router to the Hibernate session factory of each shard.
+     * @param clickStatsDAO Data Access Object for the stored stats.
+     */
+    public ClickRecorder(Logger logger, ShardRouter shardRouter, ClickStatsDAO clickStatsDAO) {
+        this(logger, shardRouter, clickStatsDAO, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a new ClickRecorder with the provided clock, used for testing.
+     *
+     * @param logger        Logger for flush failures.
+     * @param shardRouter   Router to the Hibernate session factory of each shard.
+     * @param clickStatsDAO Data Access Object for the stored stats.
+     * @param millisClock   Source of the current time in milliseconds since the epoch.
+     */
+    ClickRecorder(Logger logger, ShardRouter shardRouter, ClickStatsDAO clickStatsDAO, LongSupplier millisClock) {
+        this.logger = logger;
+        this.shardRouter = shardRouter;
+        this.clickStatsDAO = clickStatsDAO;
+        this.millisClock = millisClock;
+    }
+
+    /**
+     * Start flushing the recorded clicks in the background.
+     *
+     * @param interval Time between flushes.
+     * @param unit     Unit of the interval.
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (flusher != null) {
+            throw new IllegalStateException("ClickRecorder already started");
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-stats-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, unit);
+    }
+
+    /**
+     * Record a click on a shortened URL.
+     *
+     * @param shortenedUrl The shortened URL that was clicked.
+     */
+    public void recordClick(String shortenedUrl) {
+        PendingClicks pending = pendingClicks.get(shortenedUrl);
+        if (pending == null) {
+            pending = pendingClicks.computeIfAbsent(shortenedUrl, key -> new PendingClicks());
+        }
+        long now = millisClock.getAsLong();
+        pending.add(1, now, now);
+    }
+
+    /**
+     * Get the clicks on a shortened URL that have been recorded but not flushed yet.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @return The unflushed clicks, with a count of 0 and no timestamps if there are none.
+     */
+    public ClickStatsEntity getUnflushedClicks(String shortenedUrl) {
+        PendingClicks pending = pendingClicks.get(shortenedUrl);
+        long clicks = pending == null ? 0 : pending.clicks.sum() - pending.flushedClicks;
+        if (clicks <= 0) {
+            return new ClickStatsEntity(shortenedUrl, 0, null, null);
+        }
+        return new ClickStatsEntity(shortenedUrl, clicks, Instant.ofEpochMilli(pending.firstClickedAt.get()),
+                                    Instant.ofEpochMilli(pending.lastClickedAt.get()));
+    }
+
+    /**
+     * Add the clicks recorded since the last flush to the stored stats, in one transaction per shard.
+     * If a shard cannot be reached its clicks stay pending and are retried on the next flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Integer, ShardClicks> clicksByShard = new TreeMap<>();
+
+            for (Map.Entry<String, PendingClicks> entry : pendingClicks.entrySet()) {
+                PendingClicks pending = entry.getValue();
+                long total = pending.clicks.sum();
+                if (total > pending.flushedClicks) {
+                    ShardClicks shardClicks = clicksByShard.computeIfAbsent(
+                            shardRouter.getShardOfShortenedUrl(entry.getKey()), shard -> new ShardClicks());
+                    shardClicks.clicks.add(new ClickStatsEntity(entry.getKey(), total - pending.flushedClicks,
+                                                                Instant.ofEpochMilli(pending.firstClickedAt.get()),
+                                                                Instant.ofEpochMilli(pending.lastClickedAt.get())));
+                    shardClicks.flushed.add(pending);
+                    shardClicks.flushedTotals.add(total);
+                } else {
+                    evictIdle(entry.getKey(), pending);
+                }
+            }
+
+            for (Map.Entry<Integer, ShardClicks> entry : clicksByShard.entrySet()) {
+                ShardClicks shardClicks = entry.getValue();
+                try {
+                    store(shardRouter.getShard(entry.getKey()), shardClicks.clicks);
+                } catch (RuntimeException e) {
+                    logger.warn("Could not flush click stats, retrying next interval", e);
+                    continue;
+                }
+                for (int i = 0; i < shardClicks.flushed.size(); i++) {
+                    shardClicks.flushed.get(i).flushedClicks = shardClicks.flushedTotals.get(i);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stop tracking a shortened URL that was not clicked since the last flush, so memory use stays bounded by the
+     * number of URLs clicked per interval. Clicks that reach the entry while it is being removed are carried over to a
+     * new entry, only one landing on it after the carry over is read can be lost.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @param pending      Its clicks, all of them already flushed.
+     */
+    private void evictIdle(String shortenedUrl, PendingClicks pending) {
+        if (!pendingClicks.remove(shortenedUrl, pending)) {
+            return;
+        }
+        long residual = pending.clicks.sum() - pending.flushedClicks;
+        if (residual > 0) {
+            pendingClicks.computeIfAbsent(shortenedUrl, key -> new PendingClicks())
+                         .add(residual, pending.firstClickedAt.get(), pending.lastClickedAt.get());
+        }
+    }
+
+    private void store(SessionFactory sessionFactory, List<ClickStatsEntity> clicks) {
+        Transaction transaction = null;
+        try (Session session = sessionFactory.openSession()) {
+            transaction = session.beginTransaction();
+            clickStatsDAO.addClicks(clicks, session);
+            transaction.commit();
+        } catch (RuntimeException e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stop flushing in the background and flush whatever is left.
+     */
+    @Override
+    public synchronized void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flush();
+    }
+
+    /**
+     * Clicks of the shortened URLs stored on one shard, being flushed.
+     */
+    private static final class ShardClicks {
+
+        private final List<ClickStatsEntity> clicks = new ArrayList<>();
+        private final List<PendingClicks> flushed = new ArrayList<>();
+        private final List<Long> flushedTotals = new ArrayList<>();
+    }
+
+    /**
+     * Clicks counted on one shortened URL.
+     */
+    private static final class PendingClicks {
+
+        private final LongAdder clicks = new LongAdder();
+        private final LongAccumulator firstClickedAt = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator lastClickedAt = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        /**
+         * Clicks already added to the stored stats, only written while holding the flush lock
+         */
+        private volatile long flushedClicks;
+
+        private void add(long count, long firstClickMillis, long lastClickMillis) {
+            firstClickedAt.accumulate(firstClickMillis);
+            lastClickedAt.accumulate(lastClickMillis);
+            clicks.add(count);
+        }
+    }
+}
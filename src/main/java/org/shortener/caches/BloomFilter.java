@@ -0,0 +1,147 @@
+package org.shortener.caches;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe Bloom filter over strings.
+ * Answers whether a string might have been added, with no false negatives and a false positive rate set by its size.
+ * Adding and checking never lock, bits are set with compare and swap on an array of longs.
+ */
+public class BloomFilter {
+
+    /**
+     * Bits of the filter, 64 per word
+     */
+    private final AtomicLongArray words;
+
+    /**
+     * Number of bits
+     */
+    private final long bitSize;
+
+    /**
+     * Number of bits set (and checked) per string
+     */
+    private final int hashCount;
+
+    /**
+     * Number of strings added, duplicates included
+     */
+    private final LongAdder addedCount = new LongAdder();
+
+    /**
+     * Constructs a new BloomFilter sized for the expected number of strings and false positive rate.
+     *
+     * @param expectedInsertions Number of strings expected to be added.
+     * @param falsePositiveRate  Acceptable probability of a string that was never added being reported as added,
+     *                           once the expected number of strings have been added.
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1");
+        }
+
+        double ln2 = Math.log(2);
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long wordCount = (bits + 63) / 64;
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter of " + bits + " bits is too large");
+        }
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bitSize = wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * ln2));
+    }
+
+    /**
+     * Add a string to the filter.
+     *
+     * @param value The string to add.
+     */
+    public void put(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+        addedCount.increment();
+    }
+
+    /**
+     * Check whether a string might have been added to the filter.
+     *
+     * @param value The string to check.
+     * @return false if the string was definitely never added, true if it probably was.
+     */
+    public boolean mightContain(String value) {
+        long hash1 = hash(value);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(hash1 + i * hash2, bitSize);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of bits in the filter.
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * @return The number of bits set per string.
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return The number of strings added, duplicates included.
+     */
+    public long getAddedCount() {
+        return addedCount.sum();
+    }
+
+    /**
+     * Estimate the current false positive rate from the number of strings added.
+     * Duplicates are counted as separate strings, so this overestimates when the same string is added repeatedly.
+     *
+     * @return The estimated probability of a string that was never added being reported as added.
+     */
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * getAddedCount() / bitSize), hashCount);
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the string's characters, finished with a mix so every bit depends on every character.
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
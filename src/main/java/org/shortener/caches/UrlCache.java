@@ -0,0 +1,291 @@
+package org.shortener.caches;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded in-memory read-through cache of shortened URL to original URL mappings.
+ * Mappings are immutable once written so cached entries never need invalidating, only evicting once the cache is
+ * full (oldest first) or once their time to live has passed. Misses are cached as well (for a shorter time) so that
+ * repeated lookups of unknown codes do not reach the database either, and are invalidated when mappings are imported
+ * rather than shortened here.
+ */
+public class UrlCache {
+
+    /**
+     * Cached entries keyed by shortened URL
+     */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Nodes of the keys in the order they were first cached, used to evict the oldest entries once the cache is full
+     */
+    private final Queue<Node> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Nodes in the queue whose entry has expired or been invalidated, removed from the queue once there are as many
+     * as live entries so the queue stays within twice the size of the cache
+     */
+    private final AtomicInteger removedNodes = new AtomicInteger();
+
+    /**
+     * Maximum number of entries held before the oldest are evicted
+     */
+    private final int maximumSize;
+
+    /**
+     * Time to live of a found mapping in nanoseconds
+     */
+    private final long timeToLiveNanos;
+
+    /**
+     * Time to live of a cached miss in nanoseconds
+     */
+    private final long missTimeToLiveNanos;
+
+    /**
+     * Source of the current time in nanoseconds
+     */
+    private final LongSupplier nanoClock;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructs a new UrlCache.
+     *
+     * @param maximumSize     Maximum number of entries held before the oldest are evicted.
+     * @param timeToLive      How long a found mapping stays cached.
+     * @param missTimeToLive  How long a miss stays cached.
+     * @param unit            Unit of both time to live values.
+     */
+    public UrlCache(int maximumSize, long timeToLive, long missTimeToLive, TimeUnit unit) {
+        this(maximumSize, timeToLive, missTimeToLive, unit, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new UrlCache with the provided clock, used for testing expiry.
+     *
+     * @param maximumSize     Maximum number of entries held before the oldest are evicted.
+     * @param timeToLive      How long a found mapping stays cached.
+     * @param missTimeToLive  How long a miss stays cached.
+     * @param unit            Unit of both time to live values.
+     * @param nanoClock       Source of the current time in nanoseconds.
+     */
+    UrlCache(int maximumSize, long timeToLive, long missTimeToLive, TimeUnit unit, LongSupplier nanoClock) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache maximum size must be positive");
+        }
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        this.missTimeToLiveNanos = unit.toNanos(missTimeToLive);
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Look up a shortened URL in the cache.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return The cached entry, null if the shortened URL is not cached (or its entry has expired).
+     */
+    public Entry get(String shortenedUrl) {
+        Entry entry = entries.get(shortenedUrl);
+
+        if (entry != null && entry.expiresAt - nanoClock.getAsLong() < 0) {
+            if (entries.remove(shortenedUrl, entry)) {
+                unlink(entry.node);
+            }
+            entry = null;
+        }
+
+        if (entry == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Look up a shortened URL in the cache, counting hits but not misses.
+     * Used by callers that fall back to the read-through lookup (which counts the miss) when nothing is cached.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return The cached entry, null if the shortened URL is not cached (or its entry has expired).
+     */
+    public Entry peek(String shortenedUrl) {
+        Entry entry = entries.get(shortenedUrl);
+
+        if (entry == null || entry.expiresAt - nanoClock.getAsLong() < 0) {
+            return null;
+        }
+        hitCount.increment();
+        return entry;
+    }
+
+    /**
+     * Cache a found mapping, replacing any cached miss for the shortened URL.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @param originalUrl  The original URL it maps to.
+     */
+    public void put(String shortenedUrl, String originalUrl) {
+        store(shortenedUrl, new Entry(originalUrl, nanoClock.getAsLong() + timeToLiveNanos));
+    }
+
+    /**
+     * Cache that a shortened URL does not exist.
+     *
+     * @param shortenedUrl The shortened URL that was not found.
+     */
+    public void putMissing(String shortenedUrl) {
+        store(shortenedUrl, new Entry(null, nanoClock.getAsLong() + missTimeToLiveNanos));
+    }
+
+    /**
+     * Remove any cached entry of a shortened URL, e.g. a cached miss of a URL that has since been stored.
+     *
+     * @param shortenedUrl The shortened URL.
+     */
+    public void invalidate(String shortenedUrl) {
+        Entry entry = entries.remove(shortenedUrl);
+        if (entry != null) {
+            unlink(entry.node);
+        }
+    }
+
+    private void store(String shortenedUrl, Entry entry) {
+        // A replaced entry keeps its place in the queue, a key cached again after leaving the cache gets a new one
+        entries.compute(shortenedUrl, (key, previous) -> {
+            if (previous == null) {
+                entry.node = new Node(key);
+                insertionOrder.add(entry.node);
+            } else {
+                entry.node = previous.node;
+            }
+            return entry;
+        });
+
+        while (entries.size() > maximumSize) {
+            Node oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (oldest.removed) {
+                removedNodes.decrementAndGet();
+            } else {
+                Entry evicted = entries.get(oldest.key);
+                if (evicted != null && evicted.node == oldest && entries.remove(oldest.key, evicted)) {
+                    evictionCount.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark the queue node of an entry that left the cache as removed, and drop the removed nodes from the queue once
+     * there are as many as live entries.
+     *
+     * @param node The node of the removed entry.
+     */
+    private void unlink(Node node) {
+        node.removed = true;
+        if (removedNodes.incrementAndGet() > entries.size()) {
+            removedNodes.set(0);
+            insertionOrder.removeIf(queued -> queued.removed);
+        }
+    }
+
+    /**
+     * @return The number of keys in the eviction queue, including those of entries that have since left the cache.
+     */
+    int getQueuedKeyCount() {
+        return insertionOrder.size();
+    }
+
+    /**
+     * @return The number of entries currently cached.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The number of lookups answered from the cache, including cached misses.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return The number of lookups that were not cached.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return The number of entries evicted to keep the cache within its maximum size.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * A cached lookup result.
+     */
+    public static final class Entry {
+
+        /**
+         * Original URL, null when the entry records a miss
+         */
+        private final String originalUrl;
+
+        /**
+         * Time in nanoseconds after which the entry is expired
+         */
+        private final long expiresAt;
+
+        /**
+         * Node of the key in the eviction queue, set when the entry is cached
+         */
+        private Node node;
+
+        private Entry(String originalUrl, long expiresAt) {
+            this.originalUrl = originalUrl;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Gets the cached original URL.
+         *
+         * @return The original URL, null if the entry records that the shortened URL does not exist.
+         */
+        public String getOriginalUrl() {
+            return originalUrl;
+        }
+    }
+
+    /**
+     * Place of a cached key in the eviction queue.
+     */
+    private static final class Node {
+
+        private final String key;
+
+        /**
+         * Whether the entry of the key has left the cache, other than by eviction
+         */
+        private volatile boolean removed;
+
+        private Node(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.shortener.caches;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.metrics.UrlExistenceFilterMXBean;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filters over the stored shortened URLs and original URL digests, used to skip database lookups whose answer
+ * is certainly "not stored": unknown codes (typos, bots scanning for codes) and original URLs shortened for the first
+ * time. Until the filters are warmed with every stored mapping they cannot tell a miss from a mapping they have not
+ * seen, so they report everything as possibly stored.
+ * Only mappings stored through this instance are added after warming, so the filter is only safe to enable when a
+ * single instance writes to the database.
+ */
+public class UrlExistenceFilter implements UrlExistenceFilterMXBean {
+
+    /**
+     * Filter over the stored shortened URLs, null when disabled
+     */
+    private final BloomFilter shortenedUrls;
+
+    /**
+     * Filter over the digests of the stored original URLs, null when disabled
+     */
+    private final BloomFilter originalUrlHashes;
+
+    /**
+     * Whether every stored mapping has been added
+     */
+    private volatile boolean warmed;
+
+    /**
+     * Number of lookups answered as "not stored" without querying the database
+     */
+    private final LongAdder skippedLookupCount = new LongAdder();
+
+    /**
+     * Constructs a new UrlExistenceFilter.
+     *
+     * @param expectedUrls      Number of mappings expected to be stored.
+     * @param falsePositiveRate Acceptable probability of a lookup still reaching the database for a URL that is not
+     *                          stored, once the expected number of mappings are stored.
+     */
+    public UrlExistenceFilter(long expectedUrls, double falsePositiveRate) {
+        this(new BloomFilter(expectedUrls, falsePositiveRate), new BloomFilter(expectedUrls, falsePositiveRate));
+    }
+
+    private UrlExistenceFilter(BloomFilter shortenedUrls, BloomFilter originalUrlHashes) {
+        this.shortenedUrls = shortenedUrls;
+        this.originalUrlHashes = originalUrlHashes;
+    }
+
+    /**
+     * Get a filter that reports every URL as possibly stored, so every lookup reaches the database.
+     *
+     * @return A disabled UrlExistenceFilter.
+     */
+    public static UrlExistenceFilter disabled() {
+        return new UrlExistenceFilter(null, null);
+    }
+
+    /**
+     * Add a stored mapping, as soon as it is committed.
+     *
+     * @param shortenedUrl    The shortened URL.
+     * @param originalUrlHash The digest of the original URL.
+     */
+    public void add(String shortenedUrl, String originalUrlHash) {
+        if (shortenedUrls != null) {
+            shortenedUrls.put(shortenedUrl);
+            originalUrlHashes.put(originalUrlHash);
+        }
+    }
+
+    /**
+     * Add every stored mapping by streaming the url_shorten table, then mark the filter as warmed.
+     * Mappings stored while the table is streamed must be added as they are committed, so that none are missed.
+     *
+     * @param sessionFactory   Hibernate session factory of the database holding the mappings.
+     * @param urlDataEntityDAO Data Access Object for URL data.
+     */
+    public void warm(SessionFactory sessionFactory, UrlDataEntityDAO urlDataEntityDAO) {
+        warm(List.of(sessionFactory), urlDataEntityDAO);
+    }
+
+    /**
+     * Add every stored mapping by streaming the url_shorten table of each shard in turn, then mark the filter as
+     * warmed once all of them have been streamed.
+     *
+     * @param shards           Hibernate session factory of each database holding mappings.
+     * @param urlDataEntityDAO Data Access Object for URL data.
+     */
+    public void warm(Collection<SessionFactory> shards, UrlDataEntityDAO urlDataEntityDAO) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        for (SessionFactory sessionFactory : shards) {
+            Transaction transaction = null;
+            try (Session session = sessionFactory.openSession()) {
+                session.setDefaultReadOnly(true);
+                transaction = session.beginTransaction();
+                urlDataEntityDAO.forEachStoredUrl(session, this::add);
+                transaction.commit();
+            } catch (RuntimeException e) {
+                if (transaction != null && transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+        markWarmed();
+    }
+
+    /**
+     * Mark the filter as holding every stored mapping, after which it starts reporting URLs as not stored.
+     */
+    public void markWarmed() {
+        warmed = shortenedUrls != null;
+    }
+
+    /**
+     * Check whether a shortened URL might be stored.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @return false if the shortened URL is certainly not stored.
+     */
+    public boolean mightContainShortenedUrl(String shortenedUrl) {
+        return mightContain(shortenedUrls, shortenedUrl);
+    }
+
+    /**
+     * Check whether an original URL might be stored.
+     *
+     * @param originalUrlHash The digest of the original URL.
+     * @return false if the original URL is certainly not stored.
+     */
+    public boolean mightContainOriginalUrlHash(String originalUrlHash) {
+        return mightContain(originalUrlHashes, originalUrlHash);
+    }
+
+    private boolean mightContain(BloomFilter filter, String value) {
+        if (!warmed || filter.mightContain(value)) {
+            return true;
+        }
+        skippedLookupCount.increment();
+        return false;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return shortenedUrls != null;
+    }
+
+    @Override
+    public boolean isWarmed() {
+        return warmed;
+    }
+
+    @Override
+    public long getMemoryBytes() {
+        return shortenedUrls == null ? 0 : (shortenedUrls.getBitSize() + originalUrlHashes.getBitSize()) / 8;
+    }
+
+    @Override
+    public long getShortenedUrlCount() {
+        return shortenedUrls == null ? 0 : shortenedUrls.getAddedCount();
+    }
+
+    @Override
+    public long getOriginalUrlCount() {
+        return originalUrlHashes == null ? 0 : originalUrlHashes.getAddedCount();
+    }
+
+    @Override
+    public double getShortenedUrlFalsePositiveRate() {
+        return shortenedUrls == null ? 1 : shortenedUrls.getExpectedFalsePositiveRate();
+    }
+
+    @Override
+    public double getOriginalUrlFalsePositiveRate() {
+        return originalUrlHashes == null ? 1 : originalUrlHashes.getExpectedFalsePositiveRate();
+    }
+
+    @Override
+    public long getSkippedLookupCount() {
+        return skippedLookupCount.sum();
+    }
+}
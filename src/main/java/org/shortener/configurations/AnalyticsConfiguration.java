@@ -0,0 +1,49 @@
+package org.shortener.configurations;
+
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.daos.ClickStatsDAO;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AnalyticsConfiguration class responsible for initializing and providing the ClickRecorder.
+ */
+public class AnalyticsConfiguration {
+
+    /**
+     * Static initialization of the ClickRecorder, shared by every request and flushing in the background
+     */
+    private static final ClickRecorder clickRecorder = buildClickRecorder(ApplicationProperties.getInstance());
+
+    /**
+     * Build a ClickRecorder flushing to the application's database, start it, and flush what is left on shutdown.
+     *
+     * @param properties Configuration holding the analytics settings.
+     * @return ClickRecorder.
+     */
+    private static ClickRecorder buildClickRecorder(ApplicationProperties properties) {
+        ClickRecorder recorder = new ClickRecorder(LoggerFactory.getLogger(ClickRecorder.class),
+                                                   HibernateConfiguration.getShardRouter(),
+                                                   new ClickStatsDAO());
+        recorder.start(properties.getLong("shortener.analytics.flush-interval-seconds"), TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::close, "click-stats-shutdown"));
+        return recorder;
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private AnalyticsConfiguration() {
+        throw new IllegalStateException("AnalyticsConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared ClickRecorder.
+     *
+     * @return ClickRecorder.
+     */
+    public static ClickRecorder getClickRecorder() {
+        return clickRecorder;
+    }
+}
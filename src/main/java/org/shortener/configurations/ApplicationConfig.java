@@ -1,26 +1,78 @@
 package org.shortener.configurations;
 
 
+import org.shortener.resources.MappingResource;
+import org.shortener.resources.MetricsResource;
+import org.shortener.resources.RedirectResource;
+import org.shortener.resources.UrlResource;
+
 import javax.ws.rs.ApplicationPath;
+import javax.ws.rs.Path;
 import javax.ws.rs.core.Application;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Configures the JAX-RS application and sets the base path for the REST API.
+ * Resources are registered as singletons rather than classes, so they are built once instead of on every request.
  */
 @ApplicationPath("/api")
 public class ApplicationConfig extends Application {
 
     /**
-     * Retrieves the set of resource classes to be registered in the JAX-RS application.
+     * Class of every resource of the application
+     */
+    private static final List<Class<?>> RESOURCE_CLASSES = List.of(UrlResource.class, RedirectResource.class,
+                                                                   MetricsResource.class, MappingResource.class);
+
+    /**
+     * Supplier of the resource instances, only called once the application is deployed
+     */
+    private final Supplier<Set<Object>> resources;
+
+    /**
+     * Constructs the application serving the resources wired by ResourceConfiguration.
+     */
+    public ApplicationConfig() {
+        this(ResourceConfiguration::getResources);
+    }
+
+    /**
+     * Constructs the application serving the given resources.
      *
-     * @return Set of resource classes.
+     * @param resources Supplier of the resource instances, one per class.
+     */
+    public ApplicationConfig(Supplier<Set<Object>> resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Retrieves the resource instances to be registered in the JAX-RS application, shared by every request.
+     *
+     * @return Set of resources.
      */
     @Override
-    public Set<Class<?>> getClasses() {
-        Set<Class<?>> classes = new HashSet<>();
-        classes.add(org.shortener.resources.UrlResource.class);
-        return classes;
+    public Set<Object> getSingletons() {
+        return resources.get();
+    }
+
+    /**
+     * Retrieves the first path segment of every resource class mounted at its own path, e.g. urls for /api/urls.
+     * A single segment path matching one of these is never a shortened URL.
+     *
+     * @return Set of path segments.
+     */
+    public Set<String> getResourcePaths() {
+        Set<String> paths = new HashSet<>();
+        for (Class<?> resourceClass : RESOURCE_CLASSES) {
+            Path path = resourceClass.getAnnotation(Path.class);
+            String segment = path == null ? "" : path.value().replaceAll("^/+|/.*$", "");
+            if (!segment.isEmpty()) {
+                paths.add(segment);
+            }
+        }
+        return paths;
     }
 }
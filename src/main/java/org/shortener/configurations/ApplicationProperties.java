@@ -0,0 +1,229 @@
+package org.shortener.configurations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Runtime configuration of the application.
+ * Each setting is resolved from, in order of precedence, a system property ({@code -Dshortener.db.url=...}), an
+ * environment variable named after the key in upper case with dots and dashes replaced by underscores
+ * ({@code SHORTENER_DB_URL}), and finally the defaults in the application.properties file on the classpath.
+ */
+public class ApplicationProperties {
+
+    /**
+     * Classpath resource holding the default value of every setting
+     */
+    private static final String DEFAULTS_RESOURCE = "/application.properties";
+
+    /**
+     * Static initialization of the configuration the application was started with
+     */
+    private static final ApplicationProperties instance = new ApplicationProperties(loadDefaults(),
+                                                                                    System.getenv(),
+                                                                                    System.getProperties());
+
+    /**
+     * Default values, lowest precedence
+     */
+    private final Properties defaults;
+
+    /**
+     * Environment variables, overriding the defaults
+     */
+    private final Map<String, String> environment;
+
+    /**
+     * System properties, and any explicit overrides, overriding everything else
+     */
+    private final Properties overrides;
+
+    /**
+     * Constructs a new ApplicationProperties from the given sources.
+     *
+     * @param defaults    Default values.
+     * @param environment Environment variables.
+     * @param overrides   System properties.
+     */
+    ApplicationProperties(Properties defaults, Map<String, String> environment, Properties overrides) {
+        this.defaults = defaults;
+        this.environment = environment;
+        this.overrides = overrides;
+    }
+
+    /**
+     * Get the configuration the application was started with.
+     *
+     * @return ApplicationProperties.
+     */
+    public static ApplicationProperties getInstance() {
+        return instance;
+    }
+
+    /**
+     * Load the default values from the classpath.
+     *
+     * @return The default values.
+     */
+    private static Properties loadDefaults() {
+        Properties properties = new Properties();
+        try (InputStream inputStream = ApplicationProperties.class.getResourceAsStream(DEFAULTS_RESOURCE)) {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + DEFAULTS_RESOURCE, e);
+        }
+        return properties;
+    }
+
+    /**
+     * Create a copy of this configuration with the given setting overridden, taking precedence over every source.
+     * Used to run the application against other databases or ports, e.g. in benchmarks.
+     *
+     * @param key   Key of the setting.
+     * @param value Value of the setting.
+     * @return A new ApplicationProperties.
+     */
+    public ApplicationProperties with(String key, String value) {
+        Properties copiedOverrides = new Properties();
+        copiedOverrides.putAll(overrides);
+        copiedOverrides.setProperty(key, value);
+        return new ApplicationProperties(defaults, environment, copiedOverrides);
+    }
+
+    /**
+     * Get a setting as a string.
+     *
+     * @param key Key of the setting.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException If the setting has no value in any source.
+     */
+    public String getString(String key) {
+        String value = overrides.getProperty(key);
+        if (value == null) {
+            value = environment.get(toEnvironmentVariableName(key));
+        }
+        if (value == null) {
+            value = defaults.getProperty(key);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("No value configured for " + key);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Get a setting as an int.
+     *
+     * @param key Key of the setting.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException If the setting has no value or is not a number.
+     */
+    public int getInt(String key) {
+        String value = getString(key);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + key + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * Get a setting as a long.
+     *
+     * @param key Key of the setting.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException If the setting has no value or is not a number.
+     */
+    public long getLong(String key) {
+        String value = getString(key);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + key + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * Get a setting as a double.
+     *
+     * @param key Key of the setting.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException If the setting has no value or is not a number.
+     */
+    public double getDouble(String key) {
+        String value = getString(key);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + key + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * Get a setting as a boolean.
+     *
+     * @param key Key of the setting.
+     * @return The value of the setting.
+     * @throws IllegalArgumentException If the setting has no value or is not true or false.
+     */
+    public boolean getBoolean(String key) {
+        String value = getString(key);
+        if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+            throw new IllegalArgumentException("Value of " + key + " is not true or false: " + value);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Get a setting as a comma separated list.
+     *
+     * @param key Key of the setting.
+     * @return The trimmed values of the setting, empty if it is blank.
+     * @throws IllegalArgumentException If the setting has no value in any source.
+     */
+    public List<String> getList(String key) {
+        return Arrays.stream(getString(key).split(","))
+                     .map(String::trim)
+                     .filter(value -> !value.isEmpty())
+                     .toList();
+    }
+
+    /**
+     * Get every setting whose key starts with the given prefix, from the defaults and system properties.
+     *
+     * @param prefix Prefix of the keys.
+     * @return Settings keyed by their full key, in key order.
+     */
+    public Map<String, String> getWithPrefix(String prefix) {
+        Map<String, String> settings = new TreeMap<>();
+        Map<Object, Object> sources = new HashMap<>(defaults);
+        sources.putAll(overrides);
+
+        for (Object key : sources.keySet()) {
+            if (key instanceof String name && name.startsWith(prefix)) {
+                settings.put(name, getString(name));
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Get the environment variable a setting can be provided in.
+     *
+     * @param key Key of the setting.
+     * @return Name of the environment variable.
+     */
+    static String toEnvironmentVariableName(String key) {
+        return key.toUpperCase(Locale.ROOT).replace('.', '_').replace('-', '_');
+    }
+}
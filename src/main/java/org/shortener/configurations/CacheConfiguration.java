@@ -0,0 +1,45 @@
+package org.shortener.configurations;
+
+import org.shortener.caches.UrlCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheConfiguration class responsible for initializing and providing the application wide UrlCache.
+ */
+public class CacheConfiguration {
+
+    /**
+     * Static initialization of the UrlCache, shared by every request
+     */
+    private static final UrlCache urlCache = buildUrlCache(ApplicationProperties.getInstance());
+
+    /**
+     * Build a UrlCache from the given configuration.
+     *
+     * @param properties Configuration holding the cache settings.
+     * @return UrlCache.
+     */
+    public static UrlCache buildUrlCache(ApplicationProperties properties) {
+        return new UrlCache(properties.getInt("shortener.cache.maximum-size"),
+                            properties.getLong("shortener.cache.ttl-seconds"),
+                            properties.getLong("shortener.cache.miss-ttl-seconds"),
+                            TimeUnit.SECONDS);
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private CacheConfiguration() {
+        throw new IllegalStateException("CacheConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared UrlCache.
+     *
+     * @return UrlCache.
+     */
+    public static UrlCache getUrlCache() {
+        return urlCache;
+    }
+}
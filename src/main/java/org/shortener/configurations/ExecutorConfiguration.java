@@ -0,0 +1,45 @@
+package org.shortener.configurations;
+
+import org.shortener.services.DatabaseCallExecutor;
+
+/**
+ * ExecutorConfiguration class responsible for initializing and providing the DatabaseCallExecutor.
+ */
+public class ExecutorConfiguration {
+
+    /**
+     * Static initialization of the DatabaseCallExecutor, shared by every request so the bound on concurrent database
+     * calls applies across the application
+     */
+    private static final DatabaseCallExecutor databaseCallExecutor =
+            buildDatabaseCallExecutor(ApplicationProperties.getInstance());
+
+    /**
+     * Build a DatabaseCallExecutor from the given configuration, bounded to the size of a single connection pool.
+     * The shards and read replicas each have a pool of shortener.db.pool-size connections, but every call may end up
+     * on the same one, the primary or one shard, so no more calls run at once than that pool holds.
+     *
+     * @param properties Configuration holding the server and pool settings.
+     * @return DatabaseCallExecutor.
+     */
+    public static DatabaseCallExecutor buildDatabaseCallExecutor(ApplicationProperties properties) {
+        return new DatabaseCallExecutor(properties.getBoolean("shortener.server.virtual-threads"),
+                                        properties.getInt("shortener.db.pool-size"));
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private ExecutorConfiguration() {
+        throw new IllegalStateException("ExecutorConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared DatabaseCallExecutor.
+     *
+     * @return DatabaseCallExecutor.
+     */
+    public static DatabaseCallExecutor getDatabaseCallExecutor() {
+        return databaseCallExecutor;
+    }
+}
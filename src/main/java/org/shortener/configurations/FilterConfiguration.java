@@ -0,0 +1,79 @@
+package org.shortener.configurations;
+
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * FilterConfiguration class responsible for initializing and providing the application wide UrlExistenceFilter.
+ */
+public class FilterConfiguration {
+
+    /**
+     * Static initialization of the UrlExistenceFilter, shared by every request and warmed in the background
+     */
+    private static final UrlExistenceFilter urlExistenceFilter =
+            buildUrlExistenceFilter(ApplicationProperties.getInstance());
+
+    /**
+     * Build the UrlExistenceFilter, disabled unless shortener.filter.enabled is set. When enabled, register its metrics
+     * and warm it from the application's database in the background, answering every lookup from the database until
+     * the warm up completes.
+     *
+     * @param properties Configuration holding the filter settings.
+     * @return UrlExistenceFilter.
+     */
+    private static UrlExistenceFilter buildUrlExistenceFilter(ApplicationProperties properties) {
+        if (!properties.getBoolean("shortener.filter.enabled")) {
+            return UrlExistenceFilter.disabled();
+        }
+
+        UrlExistenceFilter filter = new UrlExistenceFilter(properties.getLong("shortener.filter.expected-urls"),
+                                                           properties.getDouble("shortener.filter.false-positive-rate"));
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .registerMBean(filter, new ObjectName("org.shortener:type=UrlExistenceFilter"));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register URL existence filter metrics", e);
+        }
+
+        Thread warmer = new Thread(() -> warm(filter), "url-existence-filter-warmer");
+        warmer.setDaemon(true);
+        warmer.start();
+        return filter;
+    }
+
+    private static void warm(UrlExistenceFilter filter) {
+        Logger logger = LoggerFactory.getLogger(UrlExistenceFilter.class);
+        long start = System.nanoTime();
+        try {
+            filter.warm(HibernateConfiguration.getShardRouter().getShards(), new UrlDataEntityDAO());
+            logger.info("URL existence filter warmed with {} URLs in {} ms, using {} bytes with a false positive"
+                        + " rate of {}", filter.getShortenedUrlCount(), (System.nanoTime() - start) / 1_000_000,
+                        filter.getMemoryBytes(), filter.getShortenedUrlFalsePositiveRate());
+        } catch (RuntimeException e) {
+            logger.warn("Could not warm URL existence filter, every lookup will query the database", e);
+        }
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private FilterConfiguration() {
+        throw new IllegalStateException("FilterConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared UrlExistenceFilter.
+     *
+     * @return UrlExistenceFilter.
+     */
+    public static UrlExistenceFilter getUrlExistenceFilter() {
+        return urlExistenceFilter;
+    }
+}
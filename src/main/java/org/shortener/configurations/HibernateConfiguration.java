@@ -1,34 +1,234 @@
 package org.shortener.configurations;
 
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.zaxxer.hikari.HikariDataSource;
 import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.metrics.ConnectionPoolMetrics;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.replication.ReplicaRouter;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.LoggerFactory;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * HibernateConfiguration class responsible for initializing and providing a Hibernate SessionFactory.
+ * HibernateConfiguration class responsible for initializing and providing the Hibernate SessionFactory of each shard
+ * and read replica.
  */
 public class HibernateConfiguration {
 
     /**
-     * Static initialization of the Hibernate SessionFactory
+     * Prefix of the HikariCP settings that can be overridden with system properties
+     */
+    private static final String POOL_PROPERTY_PREFIX = "hibernate.hikari.";
+
+    /**
+     * Static initialization of the connection pool metrics, populated once the pool is started
+     */
+    private static final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics();
+
+    /**
+     * Number of second-level cache managers created, so each SessionFactory gets its own regions
+     */
+    private static final AtomicInteger cacheManagerCount = new AtomicInteger();
+
+    /**
+     * Build the application's shards from the configuration the application was started with, and track their
+     * connection pools.
+     *
+     * @return ShardRouter over the initialized SessionFactories.
+     * @throws HibernateException If an error occurs during SessionFactory creation.
+     */
+    private static ShardRouter buildApplicationShardRouter() {
+        ShardRouter builtShardRouter = buildShardRouter(ApplicationProperties.getInstance());
+        registerConnectionPoolMetrics(builtShardRouter);
+        return builtShardRouter;
+    }
+
+    /**
+     * Build a SessionFactory for each configured shard.
+     * With shortener.db.shard-urls empty there is a single shard, the database at shortener.db.url. Otherwise there is
+     * a shard per URL listed, each with its own connection pool of shortener.db.pool-size connections, sharing the
+     * remaining settings.
+     *
+     * @param properties Configuration holding the database connection, sharding and tuning settings.
+     * @return ShardRouter over the initialized SessionFactories.
+     * @throws HibernateException If an error occurs during SessionFactory creation.
+     */
+    public static ShardRouter buildShardRouter(ApplicationProperties properties) {
+        List<String> shardUrls = properties.getList("shortener.db.shard-urls");
+        if (shardUrls.isEmpty()) {
+            return new ShardRouter(List.of(buildSessionFactory(properties)),
+                                   ShortCodeConfiguration.buildEncoder(properties));
+        }
+
+        List<SessionFactory> shards = new ArrayList<>(shardUrls.size());
+        for (int i = 0; i < shardUrls.size(); i++) {
+            // Pools are named after their shard, so each gets its own HikariCP MBeans
+            shards.add(buildSessionFactory(properties.with("shortener.db.url", shardUrls.get(i))
+                                                     .with(POOL_PROPERTY_PREFIX + "poolName",
+                                                           "url-shortener-shard-" + i)));
+        }
+        return new ShardRouter(shards, ShortCodeConfiguration.buildEncoder(properties));
+    }
+
+    /**
+     * Build the application's read replicas from the configuration the application was started with, publish their
+     * health and start checking it.
+     *
+     * @return ReplicaRouter over the initialized SessionFactories, null if no replicas are configured.
+     * @throws IllegalStateException If replicas are configured together with shards.
+     * @throws HibernateException    If an error occurs during SessionFactory creation.
      */
-    private static final SessionFactory sessionFactory = buildSessionFactory();
+    private static ReplicaRouter buildApplicationReplicaRouter() {
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        if (properties.getList("shortener.db.replica-urls").isEmpty()) {
+            return null;
+        }
+        if (properties.getList("shortener.db.shard-urls").size() > 1) {
+            throw new IllegalStateException("shortener.db.replica-urls is not supported with shortener.db.shard-urls");
+        }
+
+        ReplicaRouter builtReplicaRouter = buildReplicaRouter(properties);
+        MetricsRegistry metricsRegistry = MetricsConfiguration.getMetricsRegistry();
+        for (ReplicaRouter.Replica replica : builtReplicaRouter.getReplicas()) {
+            String index = String.valueOf(replica.getIndex());
+            metricsRegistry.registerGauge("shortener_db_replica_healthy", "Whether each read replica is read from",
+                                          () -> replica.isHealthy() ? 1 : 0, "replica", index);
+            metricsRegistry.registerGauge("shortener_db_replica_latency_seconds",
+                                          "Smoothed latency of each read replica",
+                                          () -> replica.getLatencyNanos() / 1e9, "replica", index);
+        }
+        builtReplicaRouter.start(properties.getLong("shortener.db.replica-health-interval-ms"), TimeUnit.MILLISECONDS);
+        return builtReplicaRouter;
+    }
 
     /**
-     * Build and configure the Hibernate SessionFactory.
+     * Build a SessionFactory for each configured read replica of the database at shortener.db.url.
+     * Each replica gets its own read only connection pool of shortener.db.pool-size connections, and its schema is
+     * left alone as it follows the primary's.
      *
+     * @param properties Configuration holding the database connection, replica and tuning settings.
+     * @return ReplicaRouter over the initialized SessionFactories.
+     * @throws IllegalArgumentException If shortener.db.replica-selection is not round-robin or least-latency.
+     * @throws HibernateException       If an error occurs during SessionFactory creation.
+     */
+    public static ReplicaRouter buildReplicaRouter(ApplicationProperties properties) {
+        ReplicaRouter.Selection selection = ReplicaRouter.Selection.valueOf(
+                properties.getString("shortener.db.replica-selection").toUpperCase(Locale.ROOT).replace('-', '_'));
+        List<String> replicaUrls = properties.getList("shortener.db.replica-urls");
+        List<SessionFactory> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            replicas.add(buildSessionFactory(properties.with("shortener.db.url", replicaUrls.get(i))
+                                                       .with("shortener.db.schema-action", "none")
+                                                       .with(POOL_PROPERTY_PREFIX + "readOnly", "true")
+                                                       .with(POOL_PROPERTY_PREFIX + "poolName",
+                                                             "url-shortener-replica-" + i)));
+        }
+        return new ReplicaRouter(LoggerFactory.getLogger(ReplicaRouter.class), replicas, selection);
+    }
+
+    /**
+     * Build and configure a Hibernate SessionFactory.
+     *
+     * @param properties Configuration holding the database connection and tuning settings.
      * @return Initialized Hibernate SessionFactory.
      * @throws HibernateException If an error occurs during SessionFactory creation.
      */
-    private static SessionFactory buildSessionFactory() {
+    public static SessionFactory buildSessionFactory(ApplicationProperties properties) {
         try {
             // Create a new Configuration and configure it using the hibernate.cfg.xml file
-            return new Configuration().configure().buildSessionFactory();
+            Configuration configuration = new Configuration().configure();
+
+            // Apply the deployment specific settings
+            String poolSize = String.valueOf(properties.getInt("shortener.db.pool-size"));
+            configuration.setProperty("hibernate.connection.url", properties.getString("shortener.db.url"))
+                         .setProperty("hibernate.connection.username", properties.getString("shortener.db.username"))
+                         .setProperty("hibernate.connection.password", properties.getString("shortener.db.password"))
+                         .setProperty("hibernate.hbm2ddl.auto", properties.getString("shortener.db.schema-action"))
+                         .setProperty("hibernate.show_sql", properties.getString("shortener.db.show-sql"))
+                         .setProperty("hibernate.hikari.maximumPoolSize", poolSize)
+                         .setProperty("hibernate.hikari.minimumIdle", poolSize);
+
+            // Any other connection pool setting can be tuned too, e.g. -Dhibernate.hikari.connectionTimeout=1000
+            properties.getWithPrefix(POOL_PROPERTY_PREFIX).forEach(configuration::setProperty);
+
+            // The second-level cache regions are created up front so they are bounded, see buildCacheManager
+            configuration.getProperties().put("hibernate.javax.cache.cache_manager", buildCacheManager(properties));
+
+            return configuration.buildSessionFactory();
         } catch (HibernateException he) {
             throw new HibernateException(he);
         }
     }
 
+    /**
+     * Build the JCache manager holding the second-level cache regions of a SessionFactory.
+     * Caches created by Hibernate itself would be unbounded, so the region of UrlDataEntity is created here with the
+     * configured maximum size and TTL. Entries are stored by reference, Hibernate already caches a disassembled copy of
+     * each entity.
+     *
+     * @param properties Configuration holding the entity cache settings.
+     * @return CacheManager holding the region.
+     */
+    private static CacheManager buildCacheManager(ApplicationProperties properties) {
+        CaffeineConfiguration<Object, Object> regionConfiguration = new CaffeineConfiguration<>();
+        regionConfiguration.setMaximumSize(OptionalLong.of(properties.getLong("shortener.entity-cache.maximum-size")));
+        regionConfiguration.setExpireAfterWrite(OptionalLong.of(
+                TimeUnit.SECONDS.toNanos(properties.getLong("shortener.entity-cache.ttl-seconds"))));
+        regionConfiguration.setStoreByValue(false);
+
+        // A manager is shared by every caller using its URI, so each SessionFactory gets a new one
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                                           .getCacheManager(URI.create("shortener:entity-cache:"
+                                                                       + cacheManagerCount.incrementAndGet()),
+                                                            HibernateConfiguration.class.getClassLoader());
+        cacheManager.createCache(UrlDataEntity.CACHE_REGION, regionConfiguration);
+        return cacheManager;
+    }
+
+    /**
+     * Register the connection pool metrics with the HikariCP pool behind each SessionFactory, and publish them over
+     * JMX. The metrics add up the pools of every shard.
+     *
+     * @param builtShardRouter The shards whose pools should be tracked.
+     */
+    private static void registerConnectionPoolMetrics(ShardRouter builtShardRouter) {
+        for (SessionFactory builtSessionFactory : builtShardRouter.getShards()) {
+            ConnectionProvider connectionProvider = builtSessionFactory.unwrap(SessionFactoryImplementor.class)
+                                                                       .getServiceRegistry()
+                                                                       .getService(ConnectionProvider.class);
+            if (connectionProvider != null && connectionProvider.isUnwrappableAs(HikariDataSource.class)) {
+                connectionProvider.unwrap(HikariDataSource.class).setMetricsTrackerFactory(connectionPoolMetrics);
+            }
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .registerMBean(connectionPoolMetrics,
+                                            new ObjectName("org.shortener:type=ConnectionPoolMetrics"));
+        } catch (JMException e) {
+            throw new HibernateException("Could not register connection pool metrics", e);
+        }
+    }
+
     /**
      * Private constructor to hide implicit constructor and make instantiation impossible.
      */
@@ -37,11 +237,52 @@ public class HibernateConfiguration {
     }
 
     /**
-     * Get the initialized Hibernate SessionFactory.
+     * Get the router over the initialized Hibernate SessionFactory of each shard.
+     *
+     * @return ShardRouter.
+     */
+    public static ShardRouter getShardRouter() {
+        return ShardRouterHolder.shardRouter;
+    }
+
+    /**
+     * Get the router over the initialized Hibernate SessionFactory of each read replica.
+     *
+     * @return ReplicaRouter, null if every read goes to the primary.
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return ReplicaRouterHolder.replicaRouter;
+    }
+
+    /**
+     * Get the metrics of the connection pools behind the SessionFactories.
      *
-     * @return Hibernate SessionFactory.
+     * @return ConnectionPoolMetrics.
      */
-    public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+    public static ConnectionPoolMetrics getConnectionPoolMetrics() {
+        return connectionPoolMetrics;
+    }
+
+    /**
+     * Holder of the application's shards, so they are only built (and connect to the configured databases) on first
+     * use rather than whenever this class is loaded, e.g. to build a SessionFactory for another database.
+     */
+    private static final class ShardRouterHolder {
+
+        /**
+         * Static initialization of the Hibernate SessionFactory of each shard
+         */
+        private static final ShardRouter shardRouter = buildApplicationShardRouter();
+    }
+
+    /**
+     * Holder of the application's read replicas, built on first use like the shards.
+     */
+    private static final class ReplicaRouterHolder {
+
+        /**
+         * Static initialization of the Hibernate SessionFactory of each read replica
+         */
+        private static final ReplicaRouter replicaRouter = buildApplicationReplicaRouter();
     }
 }
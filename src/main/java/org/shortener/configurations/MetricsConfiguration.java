@@ -0,0 +1,112 @@
+package org.shortener.configurations;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.metrics.ConnectionPoolMetrics;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.DatabaseCallExecutor;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * MetricsConfiguration class responsible for initializing and providing the application wide MetricsRegistry.
+ */
+public class MetricsConfiguration {
+
+    /**
+     * Static initialization of the MetricsRegistry, shared by every request and served at /api/metrics
+     */
+    private static final MetricsRegistry metricsRegistry = buildMetricsRegistry();
+
+    /**
+     * Build the MetricsRegistry, publishing the counters the shared components already keep.
+     * Timers of the resources, services and DAOs are registered by those components as they are built.
+     *
+     * @return MetricsRegistry.
+     */
+    private static MetricsRegistry buildMetricsRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+
+        UrlCache urlCache = CacheConfiguration.getUrlCache();
+        registry.registerCounter("shortener_cache_requests_total", "Lookups of the URL cache by result",
+                                 urlCache::getHitCount, "result", "hit");
+        registry.registerCounter("shortener_cache_requests_total", "Lookups of the URL cache by result",
+                                 urlCache::getMissCount, "result", "miss");
+        registry.registerCounter("shortener_cache_evictions_total", "Entries evicted from the full URL cache",
+                                 urlCache::getEvictionCount);
+        registry.registerGauge("shortener_cache_size", "Entries held by the URL cache", urlCache::size);
+
+        UrlExistenceFilter urlExistenceFilter = FilterConfiguration.getUrlExistenceFilter();
+        registry.registerCounter("shortener_filter_skipped_lookups_total",
+                                 "Lookups answered by the URL existence filter without querying the database",
+                                 urlExistenceFilter::getSkippedLookupCount);
+
+        String region = UrlDataEntity.CACHE_REGION;
+        registry.registerCounter("shortener_entity_cache_requests_total",
+                                 "Lookups of the Hibernate second-level cache by region and result",
+                                 () -> getRegionStatistic(region, CacheRegionStatistics::getHitCount),
+                                 "region", region, "result", "hit");
+        registry.registerCounter("shortener_entity_cache_requests_total",
+                                 "Lookups of the Hibernate second-level cache by region and result",
+                                 () -> getRegionStatistic(region, CacheRegionStatistics::getMissCount),
+                                 "region", region, "result", "miss");
+        registry.registerCounter("shortener_entity_cache_puts_total",
+                                 "Entries put in the Hibernate second-level cache by region",
+                                 () -> getRegionStatistic(region, CacheRegionStatistics::getPutCount),
+                                 "region", region);
+
+        ConnectionPoolMetrics pool = HibernateConfiguration.getConnectionPoolMetrics();
+        registry.registerTimer("shortener_db_connection_acquire_seconds",
+                               "Time taken to acquire a connection from the pool",
+                               pool.getConnectionAcquisitionTimer());
+        registry.registerCounter("shortener_db_connection_timeouts_total",
+                                 "Connection requests that timed out waiting for the pool",
+                                 pool::getConnectionTimeoutCount);
+        registry.registerGauge("shortener_db_connections", "Connections of the pool by state",
+                               pool::getActiveConnections, "state", "active");
+        registry.registerGauge("shortener_db_connections", "Connections of the pool by state",
+                               pool::getIdleConnections, "state", "idle");
+        registry.registerGauge("shortener_db_connection_pending_threads", "Threads waiting for a connection",
+                               pool::getPendingThreads);
+
+        DatabaseCallExecutor databaseCallExecutor = ExecutorConfiguration.getDatabaseCallExecutor();
+        registry.registerGauge("shortener_db_call_queue_length", "Database calls waiting for a free slot",
+                               databaseCallExecutor::getQueueLength);
+        return registry;
+    }
+
+    /**
+     * Read a statistic of a second-level cache region, summed over the SessionFactory of every shard.
+     *
+     * @param region    Name of the region.
+     * @param statistic The statistic to read.
+     * @return The statistic's value, 0 if the region has not been created.
+     */
+    private static long getRegionStatistic(String region, ToLongFunction<CacheRegionStatistics> statistic) {
+        long value = 0;
+        for (SessionFactory shard : HibernateConfiguration.getShardRouter().getShards()) {
+            CacheRegionStatistics regionStatistics = shard.getStatistics().getCacheRegionStatistics(region);
+            value += regionStatistics == null ? 0 : statistic.applyAsLong(regionStatistics);
+        }
+        return value;
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private MetricsConfiguration() {
+        throw new IllegalStateException("MetricsConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared MetricsRegistry.
+     *
+     * @return MetricsRegistry.
+     */
+    public static MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+}
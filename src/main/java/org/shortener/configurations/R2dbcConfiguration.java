@@ -0,0 +1,106 @@
+package org.shortener.configurations;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.shortener.daos.R2dbcUrlLookupDAO;
+import org.shortener.daos.UrlLookupDAO;
+import org.shortener.metrics.MetricsRegistry;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.function.ToIntFunction;
+
+/**
+ * R2dbcConfiguration class responsible for initializing and providing the reactive UrlLookupDAO used to resolve
+ * shortened URLs without blocking a thread on the database.
+ */
+public class R2dbcConfiguration {
+
+    /**
+     * Static initialization of the UrlLookupDAO, null unless shortener.r2dbc.enabled is set
+     */
+    private static final UrlLookupDAO urlLookupDAO = buildApplicationUrlLookupDAO(ApplicationProperties.getInstance());
+
+    /**
+     * Build the application's UrlLookupDAO, and publish the metrics of its connection pool.
+     *
+     * @param properties Configuration holding the R2DBC settings.
+     * @return UrlLookupDAO, null if resolves should go through Hibernate.
+     * @throws IllegalStateException If the mappings are sharded, the R2DBC pool only connects to a single database.
+     */
+    private static UrlLookupDAO buildApplicationUrlLookupDAO(ApplicationProperties properties) {
+        if (!properties.getBoolean("shortener.r2dbc.enabled")) {
+            return null;
+        }
+        if (properties.getList("shortener.db.shard-urls").size() > 1) {
+            throw new IllegalStateException("shortener.r2dbc.enabled is not supported with shortener.db.shard-urls");
+        }
+
+        MetricsRegistry metricsRegistry = MetricsConfiguration.getMetricsRegistry();
+        ConnectionPool pool = buildConnectionPool(properties);
+        registerPoolGauge(metricsRegistry, pool, "acquired", PoolMetrics::acquiredSize);
+        registerPoolGauge(metricsRegistry, pool, "idle", PoolMetrics::idleSize);
+        registerPoolGauge(metricsRegistry, pool, "pending", PoolMetrics::pendingAcquireSize);
+
+        // Open the initial connections now rather than under the first lookups, if the database answers in time
+        try {
+            pool.warmup().block(Duration.ofMillis(properties.getLong("shortener.r2dbc.acquire-timeout-ms")));
+        } catch (RuntimeException e) {
+            LoggerFactory.getLogger(R2dbcConfiguration.class)
+                         .warn("Could not open the R2DBC connections up front, they are opened on first use", e);
+        }
+        return new R2dbcUrlLookupDAO(pool, metricsRegistry);
+    }
+
+    /**
+     * Build a pool of R2DBC connections from the given configuration, with the credentials of the Hibernate
+     * connections. The pool is separate from the JDBC pool, so shortener.db.pool-size does not bound it.
+     *
+     * @param properties Configuration holding the R2DBC and database settings.
+     * @return ConnectionPool, connecting on first use.
+     * @throws IllegalArgumentException If the URL is not a valid R2DBC URL.
+     */
+    public static ConnectionPool buildConnectionPool(ApplicationProperties properties) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(properties.getString("shortener.r2dbc.url"))
+                                                                   .mutate()
+                                                                   .option(ConnectionFactoryOptions.USER,
+                                                                           properties.getString("shortener.db.username"))
+                                                                   .option(ConnectionFactoryOptions.PASSWORD,
+                                                                           properties.getString("shortener.db.password"))
+                                                                   .build();
+        int poolSize = properties.getInt("shortener.r2dbc.pool-size");
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                                                             .name("url-shortener-r2dbc")
+                                                             .initialSize(poolSize)
+                                                             .maxSize(poolSize)
+                                                             .maxAcquireTime(Duration.ofMillis(
+                                                                     properties.getLong(
+                                                                             "shortener.r2dbc.acquire-timeout-ms")))
+                                                             .build());
+    }
+
+    private static void registerPoolGauge(MetricsRegistry metricsRegistry, ConnectionPool pool, String state,
+                                          ToIntFunction<PoolMetrics> metric) {
+        metricsRegistry.registerGauge("shortener_r2dbc_connections", "Connections of the R2DBC pool by state",
+                                      () -> pool.getMetrics().map(metric::applyAsInt).orElse(0), "state", state);
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private R2dbcConfiguration() {
+        throw new IllegalStateException("R2dbcConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared reactive UrlLookupDAO.
+     *
+     * @return UrlLookupDAO, null if resolves should go through Hibernate.
+     */
+    public static UrlLookupDAO getUrlLookupDAO() {
+        return urlLookupDAO;
+    }
+}
@@ -0,0 +1,125 @@
+package org.shortener.configurations;
+
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.daos.UrlLookupDAO;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.resources.MappingResource;
+import org.shortener.resources.MetricsResource;
+import org.shortener.resources.RedirectResource;
+import org.shortener.replication.ReplicaRouter;
+import org.shortener.resources.UrlResource;
+import org.shortener.services.ClickStatsService;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlShortenService;
+import org.shortener.services.UrlTransferService;
+import org.shortener.sharding.ShardRouter;
+import org.shortener.writebehind.WriteBehindQueue;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+
+/**
+ * ResourceConfiguration class wiring the services and resources of the application together, once.
+ * Every resource is a singleton sharing the same services, so requests allocate nothing to be served.
+ */
+public class ResourceConfiguration {
+
+    /**
+     * Build every resource over the given components.
+     *
+     * @param properties           Configuration holding the resource settings.
+     * @param shardRouter          Router to the session factory of the shard holding each mapping.
+     * @param replicaRouter        Router to the read replicas, null to read every resolve from the primary.
+     * @param writeBehindQueue     Queue new mappings are written behind through, null to wait for them to be stored.
+     * @param urlLookupDAO         Data Access Object looking up original URLs without blocking, null to use Hibernate.
+     * @param urlCache             Cache of resolved shortened URLs.
+     * @param urlExistenceFilter   Filter of stored URLs.
+     * @param shortCodeGenerator   Generator of the short codes.
+     * @param clickRecorder        Recorder of clicks on resolved shortened URLs.
+     * @param databaseCallExecutor Executor running the blocking calls to the services.
+     * @param metricsRegistry      Registry the latencies are recorded in.
+     * @return The resources, one instance each.
+     */
+    static Set<Object> buildResources(ApplicationProperties properties, ShardRouter shardRouter,
+                                      ReplicaRouter replicaRouter, WriteBehindQueue writeBehindQueue,
+                                      UrlLookupDAO urlLookupDAO, UrlCache urlCache,
+                                      UrlExistenceFilter urlExistenceFilter, ShortCodeGenerator shortCodeGenerator,
+                                      ClickRecorder clickRecorder, DatabaseCallExecutor databaseCallExecutor,
+                                      MetricsRegistry metricsRegistry) {
+        UrlDataEntityDAO urlDataEntityDAO = new UrlDataEntityDAO(metricsRegistry);
+
+        UrlShortenService urlShortenService = new UrlShortenService(LoggerFactory.getLogger(UrlShortenService.class),
+                                                                    shardRouter,
+                                                                    replicaRouter,
+                                                                    writeBehindQueue,
+                                                                    urlDataEntityDAO,
+                                                                    urlLookupDAO,
+                                                                    urlCache,
+                                                                    urlExistenceFilter,
+                                                                    shortCodeGenerator,
+                                                                    clickRecorder,
+                                                                    metricsRegistry);
+        ClickStatsService clickStatsService = new ClickStatsService(shardRouter,
+                                                                    urlDataEntityDAO,
+                                                                    new ClickStatsDAO(),
+                                                                    clickRecorder);
+        UrlTransferService urlTransferService = new UrlTransferService(
+                LoggerFactory.getLogger(UrlTransferService.class),
+                shardRouter,
+                urlDataEntityDAO,
+                urlCache,
+                urlExistenceFilter,
+                metricsRegistry);
+
+        return Set.of(new UrlResource(urlShortenService, clickStatsService, properties, databaseCallExecutor,
+                                      metricsRegistry),
+                      new RedirectResource(urlShortenService, properties, databaseCallExecutor, metricsRegistry),
+                      new MetricsResource(metricsRegistry),
+                      new MappingResource(urlTransferService, shardRouter, shortCodeGenerator, properties,
+                                          databaseCallExecutor));
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private ResourceConfiguration() {
+        throw new IllegalStateException("ResourceConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared resources.
+     *
+     * @return The resources, one instance each.
+     */
+    public static Set<Object> getResources() {
+        return ResourcesHolder.resources;
+    }
+
+    /**
+     * Holder of the application's resources, so they and the components under them are only built on first use rather
+     * than whenever this class is loaded, e.g. to build resources over other components.
+     */
+    private static final class ResourcesHolder {
+
+        /**
+         * Static initialization of the resources, built on first use over the application wide components
+         */
+        private static final Set<Object> resources =
+                buildResources(ApplicationProperties.getInstance(),
+                               HibernateConfiguration.getShardRouter(),
+                               HibernateConfiguration.getReplicaRouter(),
+                               WriteBehindConfiguration.getWriteBehindQueue(),
+                               R2dbcConfiguration.getUrlLookupDAO(),
+                               CacheConfiguration.getUrlCache(),
+                               FilterConfiguration.getUrlExistenceFilter(),
+                               ShortCodeConfiguration.getShortCodeGenerator(),
+                               AnalyticsConfiguration.getClickRecorder(),
+                               ExecutorConfiguration.getDatabaseCallExecutor(),
+                               MetricsConfiguration.getMetricsRegistry());
+    }
+}
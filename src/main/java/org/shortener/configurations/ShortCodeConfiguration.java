@@ -0,0 +1,54 @@
+package org.shortener.configurations;
+
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+
+/**
+ * ShortCodeConfiguration class responsible for initializing and providing the ShortCodeGenerator.
+ */
+public class ShortCodeConfiguration {
+
+    /**
+     * Static initialization of the ShortCodeGenerator, shared by every request so IDs are never issued twice
+     */
+    private static final ShortCodeGenerator shortCodeGenerator =
+            buildShortCodeGenerator(ApplicationProperties.getInstance());
+
+    /**
+     * Build a ShortCodeGenerator from the given configuration.
+     *
+     * @param properties Configuration holding the short code settings.
+     * @return ShortCodeGenerator.
+     */
+    public static ShortCodeGenerator buildShortCodeGenerator(ApplicationProperties properties) {
+        return new SnowflakeShortCodeGenerator(properties.getLong("shortener.code.node-id"), buildEncoder(properties));
+    }
+
+    /**
+     * Build the encoder of the short codes from the given configuration, which codes are decoded with too.
+     *
+     * @param properties Configuration holding the short code settings.
+     * @return Base62Encoder.
+     */
+    public static Base62Encoder buildEncoder(ApplicationProperties properties) {
+        return new Base62Encoder(properties.getString("shortener.code.alphabet"),
+                                 properties.getInt("shortener.code.min-length"));
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private ShortCodeConfiguration() {
+        throw new IllegalStateException("ShortCodeConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared ShortCodeGenerator.
+     *
+     * @return ShortCodeGenerator.
+     */
+    public static ShortCodeGenerator getShortCodeGenerator() {
+        return shortCodeGenerator;
+    }
+}
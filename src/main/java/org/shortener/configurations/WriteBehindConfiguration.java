@@ -0,0 +1,72 @@
+package org.shortener.configurations;
+
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.writebehind.WriteBehindJournal;
+import org.shortener.writebehind.WriteBehindQueue;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * WriteBehindConfiguration class responsible for initializing and providing the WriteBehindQueue.
+ */
+public class WriteBehindConfiguration {
+
+    /**
+     * Static initialization of the WriteBehindQueue, null unless write-behind is enabled
+     */
+    private static final WriteBehindQueue writeBehindQueue =
+            buildWriteBehindQueue(ApplicationProperties.getInstance());
+
+    /**
+     * Build the WriteBehindQueue, disabled unless shortener.write-behind.enabled is set. When enabled, open its journal,
+     * recovering the mappings left pending by the previous run, start writing, and write what is left on shutdown.
+     *
+     * @param properties Configuration holding the write-behind settings.
+     * @return WriteBehindQueue, null if disabled.
+     */
+    private static WriteBehindQueue buildWriteBehindQueue(ApplicationProperties properties) {
+        if (!properties.getBoolean("shortener.write-behind.enabled")) {
+            return null;
+        }
+
+        WriteBehindJournal journal;
+        try {
+            journal = new WriteBehindJournal(Path.of(properties.getString("shortener.write-behind.journal-path")),
+                                             properties.getInt("shortener.write-behind.journal-size-mb") * 1024 * 1024,
+                                             properties.getBoolean("shortener.write-behind.journal-sync"));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the write-behind journal", e);
+        }
+        WriteBehindQueue queue = new WriteBehindQueue(LoggerFactory.getLogger(WriteBehindQueue.class),
+                                                      HibernateConfiguration.getShardRouter(),
+                                                      new UrlDataEntityDAO(MetricsConfiguration.getMetricsRegistry()),
+                                                      CacheConfiguration.getUrlCache(),
+                                                      FilterConfiguration.getUrlExistenceFilter(),
+                                                      journal,
+                                                      properties.getInt("shortener.write-behind.capacity"),
+                                                      properties.getInt("shortener.write-behind.batch-size"),
+                                                      properties.getLong("shortener.write-behind.enqueue-timeout-ms"),
+                                                      MetricsConfiguration.getMetricsRegistry());
+        queue.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(queue::close, "write-behind-shutdown"));
+        return queue;
+    }
+
+    /**
+     * Private constructor to hide implicit constructor and make instantiation impossible.
+     */
+    private WriteBehindConfiguration() {
+        throw new IllegalStateException("WriteBehindConfiguration should not be instantiated");
+    }
+
+    /**
+     * Get the shared WriteBehindQueue.
+     *
+     * @return WriteBehindQueue, null if shortened URLs are stored before they are handed out.
+     */
+    public static WriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+}
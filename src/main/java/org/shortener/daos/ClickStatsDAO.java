@@ -0,0 +1,59 @@
+package org.shortener.daos;
+
+import org.hibernate.Session;
+import org.shortener.entities.ClickStatsEntity;
+
+import java.sql.PreparedStatement;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+/**
+ * Data Access Object (DAO) class for performing operations on ClickStatsEntity in the database.
+ */
+public class ClickStatsDAO {
+
+    /**
+     * Upsert adding clicks to a row, keeping the earliest first click and the latest last click
+     */
+    private static final String UPSERT_CLICKS =
+            "INSERT INTO click_stats (shortened_url, click_count, first_clicked_at, last_clicked_at)"
+            + " VALUES (?, ?, ?, ?)"
+            + " ON CONFLICT (shortened_url) DO UPDATE SET"
+            + " click_count = click_stats.click_count + EXCLUDED.click_count,"
+            + " first_clicked_at = LEAST(click_stats.first_clicked_at, EXCLUDED.first_clicked_at),"
+            + " last_clicked_at = GREATEST(click_stats.last_clicked_at, EXCLUDED.last_clicked_at)";
+
+    /**
+     * Add the given clicks to the stored stats as part of the session's current transaction, which the caller is
+     * responsible for committing. Every row is upserted in one JDBC batch, so there is no read before the write and
+     * concurrent flushes from several instances add up correctly.
+     *
+     * @param clicks Clicks to add, one per shortened URL.
+     * @throws jakarta.persistence.PersistenceException If the upsert fails.
+     */
+    public void addClicks(Collection<ClickStatsEntity> clicks, Session session) {
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_CLICKS)) {
+                for (ClickStatsEntity click : clicks) {
+                    statement.setString(1, click.getShortenedUrl());
+                    statement.setLong(2, click.getClickCount());
+                    statement.setObject(3, click.getFirstClickedAt().atOffset(ZoneOffset.UTC));
+                    statement.setObject(4, click.getLastClickedAt().atOffset(ZoneOffset.UTC));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Retrieve the stored stats of a shortened URL.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return The ClickStatsEntity of the shortened URL, null if none of its clicks have been stored.
+     * @throws RuntimeException If an error occurs during the retrieval process.
+     */
+    public ClickStatsEntity getClickStats(String shortenedUrl, Session session) {
+        return session.get(ClickStatsEntity.class, shortenedUrl);
+    }
+}
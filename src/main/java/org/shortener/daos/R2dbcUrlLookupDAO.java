@@ -0,0 +1,63 @@
+package org.shortener.daos;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.shortener.metrics.LatencyTimer;
+import org.shortener.metrics.MetricsRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Data Access Object (DAO) class looking up original URLs through a reactive R2DBC driver.
+ * Queries are written to the connection and answered by the driver's event loop, so no thread waits on the database
+ * while a lookup is in flight. Rows are read straight from the url_shorten table, bypassing Hibernate and its
+ * second-level cache.
+ */
+public class R2dbcUrlLookupDAO implements UrlLookupDAO {
+
+    /**
+     * Query of the original URL of a shortened URL, on the primary key holding the key of the shortened URL. The code
+     * is compared too, as codes keyed by a digest may share a key
+     */
+    static final String GET_ORIGINAL_URL_QUERY =
+            "SELECT originalUrl FROM url_shorten WHERE id = $1 AND shortenedUrl = $2";
+
+    /**
+     * Factory of connections, normally a pool
+     */
+    private final ConnectionFactory connectionFactory;
+
+    private final LatencyTimer getOriginalUrlTimer;
+
+    /**
+     * Constructs a new R2dbcUrlLookupDAO.
+     *
+     * @param connectionFactory Factory of the connections queries are run on, normally a pool.
+     * @param metricsRegistry   Registry the query latencies are recorded in.
+     */
+    public R2dbcUrlLookupDAO(ConnectionFactory connectionFactory, MetricsRegistry metricsRegistry) {
+        this.connectionFactory = connectionFactory;
+        this.getOriginalUrlTimer = metricsRegistry.timer(UrlDataEntityDAO.QUERY_TIMER,
+                                                         UrlDataEntityDAO.QUERY_TIMER_HELP,
+                                                         "query", "get_original_url_r2dbc");
+    }
+
+    @Override
+    public CompletionStage<String> getOriginalUrl(long key, String shortenedUrl) {
+        long start = System.nanoTime();
+        // The connection is released however the query ends, keys are unique so at most one row is read
+        return Mono.usingWhen(connectionFactory.create(),
+                              connection -> Flux.from(connection.createStatement(GET_ORIGINAL_URL_QUERY)
+                                                                .bind(0, key)
+                                                                .bind(1, shortenedUrl)
+                                                                .execute())
+                                                .flatMap(result -> result.map((row, metadata) -> row.get(0,
+                                                                                                         String.class)))
+                                                .singleOrEmpty(),
+                              Connection::close)
+                   .doFinally(signal -> getOriginalUrlTimer.recordSince(start))
+                   .toFuture();
+    }
+}
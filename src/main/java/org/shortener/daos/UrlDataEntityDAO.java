@@ -1,9 +1,21 @@
 package org.shortener.daos;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.shortener.entities.UrlDataEntity;
+import org.shortener.metrics.LatencyTimer;
+import org.shortener.metrics.MetricsRegistry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for performing operations on UrlDataEntity in the database.
@@ -11,37 +23,130 @@ import org.shortener.entities.UrlDataEntity;
 public class UrlDataEntityDAO {
 
     /**
-     * Save the given UrlDataEntity to the database.
+     * Number of rows fetched per round trip when streaming the table
+     */
+    private static final int STREAM_FETCH_SIZE = 10_000;
+
+    /**
+     * Name of the timer of query latencies, labelled by query
+     */
+    static final String QUERY_TIMER = "shortener_db_query_seconds";
+    /**
+     * Description of the timer of query latencies
+     */
+    static final String QUERY_TIMER_HELP = "Time taken to run database queries, by query";
+
+    private final LatencyTimer saveUrlTimer;
+    private final LatencyTimer saveUrlsTimer;
+    private final LatencyTimer getUrlFromShortenedUrlTimer;
+    private final LatencyTimer getUrlFromOriginalUrlTimer;
+    private final LatencyTimer getUrlsFromOriginalUrlsTimer;
+    private final LatencyTimer getStoredUrlsTimer;
+    private final LatencyTimer insertUrlsTimer;
+    private final LatencyTimer getMostClickedUrlsTimer;
+
+    /**
+     * Constructs a new UrlDataEntityDAO recording its query latencies in a registry of its own, used for testing.
+     */
+    public UrlDataEntityDAO() {
+        this(new MetricsRegistry());
+    }
+
+    /**
+     * Constructs a new UrlDataEntityDAO.
+     *
+     * @param metricsRegistry Registry the query latencies are recorded in.
+     */
+    public UrlDataEntityDAO(MetricsRegistry metricsRegistry) {
+        this.saveUrlTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP, "query", "save_url");
+        this.saveUrlsTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP, "query", "save_urls");
+        this.getUrlFromShortenedUrlTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP,
+                                                                 "query", "get_url_from_shortened_url");
+        this.getUrlFromOriginalUrlTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP,
+                                                                "query", "get_url_from_original_url");
+        this.getUrlsFromOriginalUrlsTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP,
+                                                                  "query", "get_urls_from_original_urls");
+        this.getStoredUrlsTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP, "query", "get_stored_urls");
+        this.insertUrlsTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP, "query", "insert_urls");
+        this.getMostClickedUrlsTimer = metricsRegistry.timer(QUERY_TIMER, QUERY_TIMER_HELP,
+                                                             "query", "get_most_clicked_urls");
+    }
+
+    /**
+     * Save the given UrlDataEntity as part of the session's current transaction, which the caller is responsible for
+     * committing.
      *
      * @param urlShorten The UrlDataEntity to be saved.
+     * @throws jakarta.persistence.PersistenceException If the insert violates a constraint or otherwise fails.
      */
     public void saveUrl(UrlDataEntity urlShorten, Session session) {
-        // Begin a transaction to ensure atomicity of the save operation
-        Transaction transaction = session.beginTransaction();
+        // Save the UrlDataEntity, flushing straight away so constraint violations surface here rather than on commit
+        long start = System.nanoTime();
+        try {
+            session.persist(urlShorten);
+            session.flush();
+        } finally {
+            saveUrlTimer.recordSince(start);
+        }
+    }
 
-        // Save the UrlDataEntity to the database
-        session.persist(urlShorten);
-        session.flush();
+    /**
+     * Save all the given UrlDataEntities as part of the session's current transaction.
+     * Inserts are flushed together so they are sent as JDBC batches, then the session is cleared so memory use does not
+     * grow with the number of entities saved.
+     *
+     * @param urlShortens The UrlDataEntities to be saved.
+     */
+    public void saveUrls(List<UrlDataEntity> urlShortens, Session session) {
+        long start = System.nanoTime();
+        try {
+            for (UrlDataEntity urlShorten : urlShortens) {
+                session.persist(urlShorten);
+            }
+            session.flush();
+            session.clear();
+        } finally {
+            saveUrlsTimer.recordSince(start);
+        }
+    }
 
-        // Commit the transaction, persisting the changes
-        transaction.commit();
+    /**
+     * Insert all the given UrlDataEntities through a stateless session, as part of its current transaction.
+     * Nothing is kept in memory or the second-level cache, the inserts are sent as JDBC batches.
+     *
+     * @param urlShortens The UrlDataEntities to be inserted.
+     * @throws jakarta.persistence.PersistenceException If an insert violates a constraint or otherwise fails.
+     */
+    public void insertUrls(List<UrlDataEntity> urlShortens, StatelessSession session) {
+        long start = System.nanoTime();
+        try {
+            for (UrlDataEntity urlShorten : urlShortens) {
+                session.insert(urlShorten);
+            }
+        } finally {
+            insertUrlsTimer.recordSince(start);
+        }
     }
 
     /**
      * Retrieve a UrlDataEntity based on its shortened URL.
      *
+     * @param key          The key of the shortened URL, see ShardRouter.
      * @param shortenedUrl The shortened URL to look up.
      * @return The UrlDataEntity associated with the shortened URL.
      * @throws RuntimeException If an error occurs during the retrieval process.
      */
-    public UrlDataEntity getUrlFromShortenedUrl(String shortenedUrl, Session session) {
-        // Create a parameterized query to retrieve a UrlDataEntity based on its shortened URL
-        Query<UrlDataEntity> query = session.createQuery("FROM UrlDataEntity WHERE shortenedUrl = :shortenedUrl",
-                                                         UrlDataEntity.class);
-        query.setParameter("shortenedUrl", shortenedUrl);
-
-        // Return the unique result (or null if not found)
-        return query.uniqueResult();
+    public UrlDataEntity getUrlFromShortenedUrl(long key, String shortenedUrl, Session session) {
+        // Load by the key of the code, so the entity is served from the second-level cache when it has been loaded
+        // before, falling back to a primary key lookup. Codes keyed by a digest may share a key with another code, so
+        // the entity found must also be for this code (returning null if not found)
+        long start = System.nanoTime();
+        try {
+            UrlDataEntity entity = session.get(UrlDataEntity.class, key);
+            return entity != null && shortenedUrl.equals(entity.getShortenedUrl()) ? entity : null;
+        } finally {
+            getUrlFromShortenedUrlTimer.recordSince(start);
+        }
     }
 
     /**
@@ -52,12 +157,159 @@ public class UrlDataEntityDAO {
      * @throws RuntimeException If an error occurs during the retrieval process.
      */
     public UrlDataEntity getUrlFromOriginalUrl(String originalUrl, Session session) {
-        // Create a parameterized query to retrieve a UrlDataEntity based on its original URL
-        Query<UrlDataEntity> query = session.createQuery("FROM UrlDataEntity WHERE originalUrl = :originalUrl",
-                                                         UrlDataEntity.class);
+        // Retrieve a UrlDataEntity based on its original URL, filtering on the indexed digest so the lookup does not
+        // scan the table
+        Query<UrlDataEntity> query = session.createNamedQuery(UrlDataEntity.FIND_BY_ORIGINAL_URL, UrlDataEntity.class);
+        query.setParameter("originalUrlHash", UrlDataEntity.hashOriginalUrl(originalUrl));
         query.setParameter("originalUrl", originalUrl);
 
         // Return the unique result (or null if not found)
-        return query.uniqueResult();
+        long start = System.nanoTime();
+        try {
+            return query.uniqueResult();
+        } finally {
+            getUrlFromOriginalUrlTimer.recordSince(start);
+        }
+    }
+
+    /**
+     * Retrieve all UrlDataEntities stored for any of the given original URLs in a single query.
+     *
+     * @param originalUrls The original URLs to look up.
+     * @return The UrlDataEntities found, in no particular order.
+     * @throws RuntimeException If an error occurs during the retrieval process.
+     */
+    public List<UrlDataEntity> getUrlsFromOriginalUrls(Collection<String> originalUrls, Session session) {
+        List<String> originalUrlHashes = originalUrls.stream().map(UrlDataEntity::hashOriginalUrl).toList();
+
+        Query<UrlDataEntity> query = session.createNamedQuery(UrlDataEntity.FIND_BY_ORIGINAL_URL_HASHES,
+                                                              UrlDataEntity.class);
+        query.setParameter("originalUrlHashes", originalUrlHashes);
+
+        long start = System.nanoTime();
+        try {
+            return query.getResultList();
+        } finally {
+            getUrlsFromOriginalUrlsTimer.recordSince(start);
+        }
+    }
+
+    /**
+     * Stream the shortened URL and original URL digest of every stored mapping, without loading the entities.
+     * Rows are fetched from the database in chunks, so the session must be in a transaction for the driver to use a
+     * cursor rather than reading the whole table into memory.
+     *
+     * @param consumer Called with the shortened URL and original URL digest of each mapping.
+     * @throws RuntimeException If an error occurs during the retrieval process.
+     */
+    public void forEachStoredUrl(Session session, BiConsumer<String, String> consumer) {
+        Query<Object[]> query = session.createNamedQuery(UrlDataEntity.FIND_STORED, Object[].class);
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        query.setReadOnly(true);
+
+        try (Stream<Object[]> rows = query.getResultStream()) {
+            rows.forEach(row -> consumer.accept((String) row[0], (String) row[1]));
+        }
+    }
+
+    /**
+     * Find the stored mappings that have any of the given shortened URL keys or original URL digests.
+     * Each is looked up with its own query on its own index, as an OR of the two would be a table scan on some
+     * databases. A mapping matching both is passed to the consumer twice, nothing is queried for an empty collection.
+     * Shortened URLs are looked up by key, so a mapping whose code shares the key of a given code is found too.
+     *
+     * @param keys              The keys of the shortened URLs to look up, see ShardRouter.
+     * @param originalUrlHashes The original URL digests to look up.
+     * @param consumer          Called with the shortened URL and original URL digest of each mapping found.
+     * @throws RuntimeException If an error occurs during the retrieval process.
+     */
+    public void forEachStoredUrl(Collection<Long> keys, Collection<String> originalUrlHashes,
+                                 StatelessSession session, BiConsumer<String, String> consumer) {
+        long start = System.nanoTime();
+        try {
+            forEachStoredUrl(UrlDataEntity.FIND_STORED_BY_KEYS, keys, session, consumer);
+            forEachStoredUrl(UrlDataEntity.FIND_STORED_BY_ORIGINAL_URL_HASHES, originalUrlHashes, session, consumer);
+        } finally {
+            getStoredUrlsTimer.recordSince(start);
+        }
+    }
+
+    private void forEachStoredUrl(String queryName, Collection<?> values, StatelessSession session,
+                                  BiConsumer<String, String> consumer) {
+        // An empty IN list is not valid SQL
+        if (values.isEmpty()) {
+            return;
+        }
+        Query<Object[]> query = session.createNamedQuery(queryName, Object[].class);
+        query.setParameter("values", values);
+        for (Object[] row : query.getResultList()) {
+            consumer.accept((String) row[0], (String) row[1]);
+        }
+    }
+
+    /**
+     * Scroll through the shortened URL and original URL of every stored mapping, in no particular order.
+     * A stateless session keeps nothing per row, and rows are fetched from the database in chunks, so memory use does
+     * not grow with the size of the table. The session must be in a transaction for the driver to use a cursor.
+     *
+     * @param consumer Called with the shortened URL and original URL of each mapping.
+     * @throws RuntimeException If an error occurs during the retrieval process, or thrown by the consumer.
+     */
+    public void forEachUrl(StatelessSession session, BiConsumer<String, String> consumer) {
+        Query<Object[]> query = session.createNamedQuery(UrlDataEntity.FIND_ALL, Object[].class);
+        query.setFetchSize(STREAM_FETCH_SIZE);
+        query.setReadOnly(true);
+
+        try (ScrollableResults<Object[]> rows = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                Object[] row = rows.get();
+                consumer.accept((String) row[0], (String) row[1]);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the shortened URL and original URL of the most clicked mappings, by the clicks stored so far.
+     * The click stats only hold the code, and the code column has no index, so rather than joining on it the most
+     * clicked codes are read first and their mappings then looked up by key, a primary key lookup.
+     * Mappings without stored clicks are left out, as are clicked codes with no mapping stored.
+     *
+     * @param limit             The most mappings to retrieve.
+     * @param keyOfShortenedUrl Gives the key of a shortened URL, see ShardRouter.
+     * @param consumer          Called with the shortened URL and original URL of each mapping, most clicked first.
+     * @throws RuntimeException If an error occurs during the retrieval process.
+     */
+    public void forEachMostClickedUrl(int limit, ToLongFunction<String> keyOfShortenedUrl, Session session,
+                                      BiConsumer<String, String> consumer) {
+        Query<String> codeQuery = session.createNamedQuery(UrlDataEntity.FIND_MOST_CLICKED, String.class);
+        codeQuery.setMaxResults(limit);
+        codeQuery.setReadOnly(true);
+
+        long start = System.nanoTime();
+        try {
+            List<String> shortenedUrls = codeQuery.getResultList();
+            // An empty IN list is not valid SQL
+            if (shortenedUrls.isEmpty()) {
+                return;
+            }
+
+            Query<Object[]> query = session.createNamedQuery(UrlDataEntity.FIND_BY_KEYS, Object[].class);
+            query.setParameter("keys", shortenedUrls.stream().map(keyOfShortenedUrl::applyAsLong).distinct().toList());
+            query.setReadOnly(true);
+            // Codes keyed by a digest may share a key with another code, so only the mappings of the clicked codes
+            // are kept, in the order of their clicks
+            Map<String, String> originalUrls = new HashMap<>();
+            for (Object[] row : query.getResultList()) {
+                originalUrls.put((String) row[0], (String) row[1]);
+            }
+            for (String shortenedUrl : shortenedUrls) {
+                String originalUrl = originalUrls.get(shortenedUrl);
+                if (originalUrl != null) {
+                    consumer.accept(shortenedUrl, originalUrl);
+                }
+            }
+        } finally {
+            getMostClickedUrlsTimer.recordSince(start);
+        }
     }
 }
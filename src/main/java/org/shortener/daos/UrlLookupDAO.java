@@ -0,0 +1,20 @@
+package org.shortener.daos;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Data Access Object (DAO) interface for looking up the original URL of a shortened URL without blocking the calling
+ * thread, the resolve path of UrlDataEntityDAO without the Hibernate session it needs.
+ */
+public interface UrlLookupDAO {
+
+    /**
+     * Look up the original URL of a shortened URL.
+     *
+     * @param key          The key of the shortened URL, see ShardRouter.
+     * @param shortenedUrl The shortened URL to look up.
+     * @return Stage completed with the original URL, or null if not found, once the database has answered. Completed
+     *         exceptionally if an error occurs during the retrieval process.
+     */
+    CompletionStage<String> getOriginalUrl(long key, String shortenedUrl);
+}
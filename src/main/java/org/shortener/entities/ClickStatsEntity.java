@@ -0,0 +1,101 @@
+package org.shortener.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Entity class representing the aggregated clicks of a shortened URL in the database.
+ * Rows are only ever written by ClickStatsDAO's native upsert, so the columns are named explicitly.
+ */
+@Entity
+@Table(name = "click_stats")
+public class ClickStatsEntity {
+
+    /**
+     * Shortened URL the clicks were on
+     */
+    @Id
+    @Column(name = "shortened_url", length = 16)
+    private String shortenedUrl;
+
+    /**
+     * Number of clicks
+     */
+    @Column(name = "click_count", nullable = false)
+    private long clickCount;
+
+    /**
+     * Time of the first click
+     */
+    @Column(name = "first_clicked_at", nullable = false)
+    private Instant firstClickedAt;
+
+    /**
+     * Time of the latest click
+     */
+    @Column(name = "last_clicked_at", nullable = false)
+    private Instant lastClickedAt;
+
+    /**
+     * Constructs a new `ClickStatsEntity`.
+     *
+     * @param shortenedUrl   The shortened URL the clicks were on.
+     * @param clickCount     The number of clicks.
+     * @param firstClickedAt The time of the first click, null if there were none.
+     * @param lastClickedAt  The time of the latest click, null if there were none.
+     */
+    public ClickStatsEntity(final String shortenedUrl, final long clickCount, final Instant firstClickedAt,
+                            final Instant lastClickedAt) {
+        this.shortenedUrl = shortenedUrl;
+        this.clickCount = clickCount;
+        this.firstClickedAt = firstClickedAt;
+        this.lastClickedAt = lastClickedAt;
+    }
+
+    /**
+     * Default constructor required by JPA.
+     */
+    public ClickStatsEntity() {
+
+    }
+
+    /**
+     * Gets the shortened URL.
+     *
+     * @return The shortened URL.
+     */
+    public String getShortenedUrl() {
+        return shortenedUrl;
+    }
+
+    /**
+     * Gets the number of clicks.
+     *
+     * @return The number of clicks.
+     */
+    public long getClickCount() {
+        return clickCount;
+    }
+
+    /**
+     * Gets the time of the first click.
+     *
+     * @return The time of the first click, null if there were none.
+     */
+    public Instant getFirstClickedAt() {
+        return firstClickedAt;
+    }
+
+    /**
+     * Gets the time of the latest click.
+     *
+     * @return The time of the latest click, null if there were none.
+     */
+    public Instant getLastClickedAt() {
+        return lastClickedAt;
+    }
+}
@@ -1,44 +1,144 @@
 package org.shortener.entities;
 
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.NamedQuery;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Immutable;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 /**
  * Entity class representing URL data in the database.
+ * Mappings are never changed once stored, so the entity is immutable (Hibernate keeps no snapshot of it for dirty
+ * checking) and cached read only in the second-level cache.
+ * Its ID is not drawn from a sequence but is the key of the shortened URL, the number a generated code encodes (see
+ * ShardRouter), so a code is looked up by primary key and no index on the code column is kept besides the primary
+ * key's.
+ * Its queries are named, so Hibernate parses and validates them once when the SessionFactory is built rather than on
+ * first use.
  */
 @Entity
-@Table(name = "url_shorten")
+@NamedQuery(name = UrlDataEntity.FIND_BY_ORIGINAL_URL,
+            query = "FROM UrlDataEntity WHERE originalUrlHash = :originalUrlHash AND originalUrl = :originalUrl")
+@NamedQuery(name = UrlDataEntity.FIND_BY_ORIGINAL_URL_HASHES,
+            query = "FROM UrlDataEntity WHERE originalUrlHash IN (:originalUrlHashes)")
+@NamedQuery(name = UrlDataEntity.FIND_STORED,
+            query = "SELECT shortenedUrl, originalUrlHash FROM UrlDataEntity")
+@NamedQuery(name = UrlDataEntity.FIND_STORED_BY_KEYS,
+            query = "SELECT shortenedUrl, originalUrlHash FROM UrlDataEntity WHERE id IN (:values)")
+@NamedQuery(name = UrlDataEntity.FIND_STORED_BY_ORIGINAL_URL_HASHES,
+            query = "SELECT shortenedUrl, originalUrlHash FROM UrlDataEntity WHERE originalUrlHash IN (:values)")
+@NamedQuery(name = UrlDataEntity.FIND_ALL,
+            query = "SELECT shortenedUrl, originalUrl FROM UrlDataEntity")
+@NamedQuery(name = UrlDataEntity.FIND_BY_KEYS,
+            query = "SELECT shortenedUrl, originalUrl FROM UrlDataEntity WHERE id IN (:keys)")
+@NamedQuery(name = UrlDataEntity.FIND_MOST_CLICKED,
+            query = "SELECT shortenedUrl FROM ClickStatsEntity ORDER BY clickCount DESC")
+@Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = UrlDataEntity.CACHE_REGION)
+@Table(name = "url_shorten",
+       indexes = {
+               @Index(name = "url_shorten_original_url_hash_idx", columnList = "originalUrlHash", unique = true)
+       })
 public class UrlDataEntity {
 
     /**
-     * Unique identifier for the URL data entity
+     * Second-level cache region holding the entities
+     */
+    public static final String CACHE_REGION = "url_shorten";
+
+    /**
+     * Query of the entity storing an original URL
+     */
+    public static final String FIND_BY_ORIGINAL_URL = "UrlDataEntity.findByOriginalUrl";
+
+    /**
+     * Query of the entities storing any of a list of original URL digests
+     */
+    public static final String FIND_BY_ORIGINAL_URL_HASHES = "UrlDataEntity.findByOriginalUrlHashes";
+
+    /**
+     * Query of the shortened URL and original URL digest of every mapping
+     */
+    public static final String FIND_STORED = "UrlDataEntity.findStored";
+
+    /**
+     * Query of the shortened URL and original URL digest of the mappings of any of a list of shortened URL keys
+     */
+    public static final String FIND_STORED_BY_KEYS = "UrlDataEntity.findStoredByKeys";
+
+    /**
+     * Query of the shortened URL and original URL digest of the mappings of any of a list of original URL digests
+     */
+    public static final String FIND_STORED_BY_ORIGINAL_URL_HASHES = "UrlDataEntity.findStoredByOriginalUrlHashes";
+
+    /**
+     * Query of the shortened URL and original URL of every mapping
+     */
+    public static final String FIND_ALL = "UrlDataEntity.findAll";
+
+    /**
+     * Query of the shortened URL and original URL of the mappings of any of a list of shortened URL keys
+     */
+    public static final String FIND_BY_KEYS = "UrlDataEntity.findByKeys";
+
+    /**
+     * Query of the shortened URLs with stored clicks, most clicked first
+     */
+    public static final String FIND_MOST_CLICKED = "UrlDataEntity.findMostClicked";
+
+    /**
+     * Longest shortened URL accepted
+     */
+    public static final int MAX_SHORTENED_URL_LENGTH = 16;
+
+    /**
+     * Unique identifier for the URL data entity, the key of its shortened URL. It is assigned rather than generated, so
+     * inserts can still be sent to the database in JDBC batches
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     /**
      * Original URL before shortening
      */
+    @Column(nullable = false, length = 2048)
     private String originalUrl;
 
+    /**
+     * Hex encoded SHA-256 digest of the original URL, indexed in place of the (potentially very long) URL itself
+     */
+    @Column(nullable = false, length = 64)
+    private String originalUrlHash;
+
     /**
      * Shortened URL
      */
+    @Column(nullable = false, length = MAX_SHORTENED_URL_LENGTH)
     private String shortenedUrl;
 
     /**
-     * Constructs a new `UrlDataEntity` with the specified original URL and shortened URL.
+     * Constructs a new `UrlDataEntity` with the specified original URL, shortened URL and its key.
      *
      * @param originalUrl  The original URL before shortening.
      * @param shortenedUrl The shortened URL.
+     * @param id           The key of the shortened URL.
      */
-    public UrlDataEntity(final String originalUrl, final String shortenedUrl) {
+    public UrlDataEntity(final String originalUrl, final String shortenedUrl, final long id) {
         this.originalUrl = originalUrl;
+        this.originalUrlHash = hashOriginalUrl(originalUrl);
         this.shortenedUrl = shortenedUrl;
+        this.id = id;
     }
 
     /**
@@ -48,6 +148,35 @@ public class UrlDataEntity {
 
     }
 
+    /**
+     * Calculate the digest stored alongside an original URL, used to look the URL up by index.
+     *
+     * @param originalUrl The original URL.
+     * @return Hex encoded SHA-256 digest of the URL, null if the URL is null.
+     */
+    public static String hashOriginalUrl(String originalUrl) {
+        if (originalUrl == null) {
+            return null;
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(originalUrl.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Gets the key of the shortened URL, the ID of the entity.
+     *
+     * @return The key of the shortened URL.
+     */
+    public Long getId() {
+        return id;
+    }
+
     /**
      * Gets the original URL before shortening.
      *
@@ -57,6 +186,15 @@ public class UrlDataEntity {
         return originalUrl;
     }
 
+    /**
+     * Gets the digest of the original URL.
+     *
+     * @return The hex encoded SHA-256 digest of the original URL.
+     */
+    public String getOriginalUrlHash() {
+        return originalUrlHash;
+    }
+
     /**
      * Gets the shortened URL.
      *
@@ -0,0 +1,160 @@
+package org.shortener.generators;
+
+import java.util.Arrays;
+
+/**
+ * Encodes non-negative numbers as base 62 strings over an alphabet of permitted characters, and decodes them back.
+ * Every number has exactly one encoding and every encoding decodes to exactly one number: codes are padded with zero
+ * digits to the minimum length, and a code longer than that never starts with a zero digit.
+ */
+public class Base62Encoder {
+
+    /**
+     * Characters permitted in short codes, in digit order
+     */
+    public static final String DEFAULT_ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    /**
+     * Maximum number of digits of an encoded value, enough for Long.MAX_VALUE
+     */
+    private static final int MAX_LENGTH = 11;
+
+    /**
+     * Characters used for each digit value
+     */
+    private final char[] alphabet;
+
+    /**
+     * Value of each character of the alphabet, indexed by character, -1 for characters outside the alphabet
+     */
+    private final byte[] digitValues;
+
+    /**
+     * Minimum length of encoded values, shorter values are left padded with zero digits
+     */
+    private final int minLength;
+
+    /**
+     * Constructs a new Base62Encoder using the {@link #DEFAULT_ALPHABET}.
+     */
+    public Base62Encoder() {
+        this(DEFAULT_ALPHABET, 1);
+    }
+
+    /**
+     * Constructs a new Base62Encoder using the provided alphabet.
+     *
+     * @param alphabet  62 distinct characters, in digit order.
+     * @param minLength Minimum length of encoded values, shorter values are left padded with zero digits.
+     */
+    public Base62Encoder(String alphabet, int minLength) {
+        if (alphabet.length() != 62 || alphabet.chars().distinct().count() != 62) {
+            throw new IllegalArgumentException("Alphabet must contain exactly 62 distinct characters");
+        }
+        if (minLength < 1 || minLength > MAX_LENGTH) {
+            throw new IllegalArgumentException("Minimum length must be between 1 and " + MAX_LENGTH);
+        }
+        this.alphabet = alphabet.toCharArray();
+        this.digitValues = new byte[alphabet.chars().max().getAsInt() + 1];
+        Arrays.fill(digitValues, (byte) -1);
+        for (int i = 0; i < this.alphabet.length; i++) {
+            digitValues[this.alphabet[i]] = (byte) i;
+        }
+        this.minLength = minLength;
+    }
+
+    /**
+     * Get the character of a digit.
+     *
+     * @param value The digit's value, from 0 to 61.
+     * @return The character of the alphabet at that index.
+     */
+    public char getDigit(int value) {
+        return alphabet[value];
+    }
+
+    /**
+     * Get the value of a character as a digit.
+     *
+     * @param c The character.
+     * @return Its index in the alphabet, -1 if it is not in the alphabet.
+     */
+    public int getDigitValue(char c) {
+        return c < digitValues.length ? digitValues[c] : -1;
+    }
+
+    /**
+     * Encode the given number.
+     *
+     * @param value The non-negative number to encode.
+     * @return The base 62 representation of the number, padded to the minimum length.
+     */
+    public String encode(long value) {
+        char[] digits = new char[MAX_LENGTH];
+        int position = encode(value, digits);
+        return new String(digits, position, digits.length - position);
+    }
+
+    /**
+     * Encode the given number after a prefix character, building the string in one go.
+     *
+     * @param prefix The character the code starts with, not part of the encoding.
+     * @param value  The non-negative number to encode.
+     * @return The prefix followed by the base 62 representation of the number, padded to the minimum length.
+     */
+    public String encode(char prefix, long value) {
+        char[] digits = new char[MAX_LENGTH + 1];
+        int position = encode(value, digits);
+        digits[--position] = prefix;
+        return new String(digits, position, digits.length - position);
+    }
+
+    /**
+     * Decode a code, or the part of it after a prefix, back into the number it encodes.
+     *
+     * @param code  The code.
+     * @param start Index the encoding starts at, the characters before it are not decoded.
+     * @return The number, -1 if the characters from start are not the encoding of any number: shorter than the minimum
+     *         length, longer with a leading zero digit, too large for a long or with characters outside the alphabet.
+     */
+    public long decode(CharSequence code, int start) {
+        int length = code.length() - start;
+        if (length < minLength || length > MAX_LENGTH || length > minLength && code.charAt(start) == alphabet[0]) {
+            return -1;
+        }
+
+        long value = 0;
+        for (int i = start; i < code.length(); i++) {
+            int digit = getDigitValue(code.charAt(i));
+            if (digit < 0 || value > (Long.MAX_VALUE - digit) / 62) {
+                return -1;
+            }
+            value = value * 62 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Write the digits of a number at the end of an array.
+     *
+     * @param value  The non-negative number to encode.
+     * @param digits Array of at least MAX_LENGTH characters.
+     * @return Index of the first digit written.
+     */
+    private int encode(long value, char[] digits) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be encoded");
+        }
+
+        int position = digits.length;
+        do {
+            digits[--position] = alphabet[(int) (value % 62)];
+            value /= 62;
+        } while (value > 0);
+
+        while (digits.length - position < minLength) {
+            digits[--position] = alphabet[0];
+        }
+        return position;
+    }
+}
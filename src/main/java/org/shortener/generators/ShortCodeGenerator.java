@@ -0,0 +1,32 @@
+package org.shortener.generators;
+
+/**
+ * Generates the short codes handed out for shortened URLs.
+ * Implementations must guarantee every generated code is unique without looking it up in the database.
+ * Codes are the base 62 encoding of a key, which mappings are stored under.
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * Generate a new short code.
+     *
+     * @return A short code that has never been generated before.
+     */
+    String generate();
+
+    /**
+     * Generate the key of a new short code, for callers encoding it themselves.
+     *
+     * @return A non-negative key that has never been generated before.
+     */
+    long generateKey();
+
+    /**
+     * Tell whether a key may still be generated, by this or any other node, so a mapping imported under it could take
+     * the key of a new code.
+     *
+     * @param key The non-negative key.
+     * @return True if the key may be generated in future.
+     */
+    boolean mayGenerateKey(long key);
+}
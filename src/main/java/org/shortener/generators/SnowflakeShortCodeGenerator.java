@@ -0,0 +1,122 @@
+package org.shortener.generators;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates short codes from Snowflake style 63 bit IDs, made up of a millisecond timestamp, the ID of the node
+ * generating it and a per millisecond sequence number, encoded in base 62.
+ * As long as every node is given its own node ID, codes are unique without any lookup or coordination.
+ */
+public class SnowflakeShortCodeGenerator implements ShortCodeGenerator {
+
+    /**
+     * Custom epoch (2024-01-01T00:00:00Z) timestamps are measured from, giving 69 years of IDs
+     */
+    static final long EPOCH_MILLIS = 1_704_067_200_000L;
+
+    /**
+     * Number of bits holding the node ID
+     */
+    static final int NODE_ID_BITS = 10;
+
+    /**
+     * Number of bits holding the sequence number within a millisecond
+     */
+    static final int SEQUENCE_BITS = 12;
+
+    /**
+     * Largest node ID that can be configured
+     */
+    public static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+
+    /**
+     * Node ID shifted into position, ready to be combined into IDs
+     */
+    private final long shiftedNodeId;
+
+    /**
+     * Last issued timestamp and sequence number, packed as {@code timestamp << SEQUENCE_BITS | sequence}
+     */
+    private final AtomicLong lastTimestampAndSequence = new AtomicLong();
+
+    /**
+     * Source of the current time in milliseconds
+     */
+    private final LongSupplier millisClock;
+
+    /**
+     * Encoder used to turn IDs into codes
+     */
+    private final Base62Encoder encoder;
+
+    /**
+     * Constructs a new SnowflakeShortCodeGenerator.
+     *
+     * @param nodeId  ID of this node, unique across every node sharing the database.
+     * @param encoder Encoder used to turn IDs into codes.
+     */
+    public SnowflakeShortCodeGenerator(long nodeId, Base62Encoder encoder) {
+        this(nodeId, encoder, System::currentTimeMillis);
+    }
+
+    /**
+     * Constructs a new SnowflakeShortCodeGenerator with the provided clock, used for testing.
+     *
+     * @param nodeId      ID of this node, unique across every node sharing the database.
+     * @param encoder     Encoder used to turn IDs into codes.
+     * @param millisClock Source of the current time in milliseconds.
+     */
+    SnowflakeShortCodeGenerator(long nodeId, Base62Encoder encoder, LongSupplier millisClock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.shiftedNodeId = nodeId << SEQUENCE_BITS;
+        this.encoder = encoder;
+        this.millisClock = millisClock;
+    }
+
+    @Override
+    public String generate() {
+        return encoder.encode(nextId());
+    }
+
+    @Override
+    public long generateKey() {
+        return nextId();
+    }
+
+    /**
+     * Every node generates IDs from the current time on, so an ID of a later millisecond than this node has reached
+     * may still be generated. Assumes the clocks of the nodes agree.
+     */
+    @Override
+    public boolean mayGenerateKey(long key) {
+        long now = Math.max(millisClock.getAsLong() - EPOCH_MILLIS,
+                            lastTimestampAndSequence.get() >>> SEQUENCE_BITS);
+        return key >>> (NODE_ID_BITS + SEQUENCE_BITS) >= now;
+    }
+
+    /**
+     * Issue the next ID.
+     * Lock free: the timestamp and sequence are claimed together with a single compare and set. If the sequence of
+     * the current millisecond is exhausted it carries into the timestamp, borrowing the next millisecond rather than
+     * spinning, and a clock moving backwards keeps issuing from the last timestamp, so IDs never repeat.
+     *
+     * @return A unique ID.
+     */
+    long nextId() {
+        long now = millisClock.getAsLong() - EPOCH_MILLIS;
+
+        while (true) {
+            long last = lastTimestampAndSequence.get();
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+
+            if (lastTimestampAndSequence.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | shiftedNodeId | sequence;
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Netty handler redirecting shortened URLs held in the UrlCache straight from the IO thread, without dispatching the
+ * request through RESTEasy. Requests it cannot answer from the cache, and every other request, are passed on
+ * unchanged to RESTEasy, where RedirectResource looks the code up in the database (and caches it for next time).
+ * The handler never blocks, so it is safe to run on the event loop.
+ */
+@ChannelHandler.Sharable
+public class RedirectHandler extends ChannelInboundHandlerAdapter {
+
+    /**
+     * Body of the response to codes cached as missing, matching RedirectResource
+     */
+    private static final byte[] NOT_FOUND_BODY = "Data not found in the database".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Cache of resolved shortened URLs.
+     */
+    private final UrlCache urlCache;
+    /**
+     * Recorder of clicks on redirected shortened URLs.
+     */
+    private final ClickRecorder clickRecorder;
+    /**
+     * Path before the shortened URL, e.g. /api/
+     */
+    private final String pathPrefix;
+    /**
+     * Paths after the prefix served by other resources, never treated as shortened URLs
+     */
+    private final Set<String> reservedPaths;
+    /**
+     * Status of the redirects
+     */
+    private final HttpResponseStatus redirectStatus;
+    /**
+     * Cache-Control header of the redirects, null for none
+     */
+    private final String cacheControl;
+
+    /**
+     * Constructs a new RedirectHandler.
+     *
+     * @param urlCache       Cache of resolved shortened URLs.
+     * @param clickRecorder  Recorder of clicks on redirected shortened URLs.
+     * @param pathPrefix     Path before the shortened URL, e.g. /api/.
+     * @param reservedPaths  Paths after the prefix served by other resources, e.g. metrics for /api/metrics.
+     * @param redirectStatus Status of the redirects.
+     * @param cacheControl   Cache-Control header of the redirects, null for none.
+     */
+    public RedirectHandler(UrlCache urlCache, ClickRecorder clickRecorder, String pathPrefix,
+                           Set<String> reservedPaths, int redirectStatus, String cacheControl) {
+        this.urlCache = urlCache;
+        this.clickRecorder = clickRecorder;
+        this.pathPrefix = pathPrefix;
+        this.reservedPaths = reservedPaths;
+        this.redirectStatus = HttpResponseStatus.valueOf(redirectStatus);
+        this.cacheControl = cacheControl;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof FullHttpRequest request) {
+            String shortenedUrl = getShortenedUrl(request);
+            UrlCache.Entry entry = shortenedUrl == null ? null : urlCache.peek(shortenedUrl);
+
+            if (entry != null) {
+                FullHttpResponse response;
+                if (entry.getOriginalUrl() != null) {
+                    clickRecorder.recordClick(shortenedUrl);
+                    response = redirect(request, entry.getOriginalUrl());
+                } else {
+                    response = notFound(request);
+                }
+                boolean keepAlive = HttpUtil.isKeepAlive(request);
+                request.release();
+                write(ctx, response, keepAlive);
+                return;
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * Get the shortened URL a request is for.
+     *
+     * @param request The request.
+     * @return The shortened URL, null if the request is not a redirect request.
+     */
+    private String getShortenedUrl(FullHttpRequest request) {
+        if (!HttpMethod.GET.equals(request.method()) && !HttpMethod.HEAD.equals(request.method())) {
+            return null;
+        }
+
+        String uri = request.uri();
+        if (!uri.startsWith(pathPrefix)) {
+            return null;
+        }
+        int end = uri.indexOf('?', pathPrefix.length());
+        if (end < 0) {
+            end = uri.length();
+        }
+        // Only single segment paths are codes, and anything percent encoded is left to RESTEasy to decode
+        for (int i = pathPrefix.length(); i < end; i++) {
+            char c = uri.charAt(i);
+            if (c == '/' || c == '%') {
+                return null;
+            }
+        }
+        if (end == pathPrefix.length()) {
+            return null;
+        }
+        String shortenedUrl = uri.substring(pathPrefix.length(), end);
+        return reservedPaths.contains(shortenedUrl) ? null : shortenedUrl;
+    }
+
+    private FullHttpResponse redirect(FullHttpRequest request, String originalUrl) {
+        FullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(), redirectStatus);
+        response.headers().set(HttpHeaderNames.LOCATION, originalUrl);
+        if (cacheControl != null) {
+            response.headers().set(HttpHeaderNames.CACHE_CONTROL, cacheControl);
+        }
+        HttpUtil.setContentLength(response, 0);
+        return response;
+    }
+
+    private FullHttpResponse notFound(FullHttpRequest request) {
+        ByteBuf body = HttpMethod.HEAD.equals(request.method())
+                       ? Unpooled.EMPTY_BUFFER
+                       : Unpooled.wrappedBuffer(NOT_FOUND_BODY);
+        FullHttpResponse response = new DefaultFullHttpResponse(request.protocolVersion(),
+                                                                HttpResponseStatus.NOT_FOUND,
+                                                                body);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, HttpHeaderValues.TEXT_PLAIN);
+        HttpUtil.setContentLength(response, NOT_FOUND_BODY.length);
+        return response;
+    }
+
+    private static void write(ChannelHandlerContext ctx, FullHttpResponse response, boolean keepAlive) {
+        if (keepAlive) {
+            if (response.protocolVersion().equals(HttpVersion.HTTP_1_0)) {
+                response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            }
+            ctx.writeAndFlush(response);
+        } else {
+            response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            ChannelFuture future = ctx.writeAndFlush(response);
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+}
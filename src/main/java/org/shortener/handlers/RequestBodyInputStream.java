@@ -0,0 +1,169 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+
+/**
+ * InputStream of a request body that is still being received, fed a chunk at a time on the IO thread and read by the
+ * thread running the resource method.
+ * Reading from the connection is paused while more than a limit of the body waits to be read, and resumed once the
+ * reader has caught up, so the body is never held in memory whatever its size. On an HTTP/2 stream this holds back
+ * the stream's flow control window rather than the whole connection.
+ */
+public class RequestBodyInputStream extends InputStream {
+
+    /**
+     * Channel the body is received on
+     */
+    private final Channel channel;
+    /**
+     * Bytes waiting to be read from which reading from the channel is paused
+     */
+    private final int maxQueuedBytes;
+
+    /**
+     * Chunks received and not yet read, their readable bytes the part not yet read
+     */
+    private final ArrayDeque<ByteBuf> chunks = new ArrayDeque<>();
+    private int queuedBytes;
+    /**
+     * Whether reading from the channel is paused by this stream
+     */
+    private boolean paused;
+    /**
+     * Whether the last chunk of the body was received
+     */
+    private boolean ended;
+    /**
+     * Whether the connection was closed before the last chunk was received
+     */
+    private boolean aborted;
+    private boolean closed;
+
+    /**
+     * Constructs a new RequestBodyInputStream.
+     *
+     * @param channel        Channel the body is received on.
+     * @param maxQueuedBytes Bytes waiting to be read from which reading from the channel is paused.
+     */
+    public RequestBodyInputStream(Channel channel, int maxQueuedBytes) {
+        this.channel = channel;
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    /**
+     * Add a chunk of the body, taking it over. Called on the IO thread.
+     *
+     * @param chunk The chunk, released once read.
+     */
+    synchronized void add(ByteBuf chunk) {
+        if (closed || aborted || !chunk.isReadable()) {
+            chunk.release();
+            return;
+        }
+        chunks.add(chunk);
+        queuedBytes += chunk.readableBytes();
+        if (queuedBytes >= maxQueuedBytes && !paused) {
+            paused = true;
+            channel.config().setAutoRead(false);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Mark the body as received in full, the reader gets the end of the stream once it has read every chunk.
+     */
+    synchronized void end() {
+        ended = true;
+        // Nothing more of the body is to be held back, and the next request is not read until this one is served
+        resume();
+        notifyAll();
+    }
+
+    /**
+     * Mark the body as cut short by the connection closing, the reader gets an IOException.
+     */
+    synchronized void abort() {
+        if (!ended) {
+            aborted = true;
+            releaseChunks();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuf chunk;
+        while ((chunk = chunks.peek()) == null) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            } else if (aborted) {
+                throw new IOException("Connection closed before the request body was received");
+            } else if (ended) {
+                return -1;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the request body");
+            }
+        }
+
+        int read = Math.min(len, chunk.readableBytes());
+        chunk.readBytes(b, off, read);
+        if (!chunk.isReadable()) {
+            chunks.poll().release();
+        }
+        queuedBytes -= read;
+        if (queuedBytes <= maxQueuedBytes / 2) {
+            resume();
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized int available() {
+        return queuedBytes;
+    }
+
+    /**
+     * Close the stream, dropping the rest of the body as it is received.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        releaseChunks();
+        resume();
+        notifyAll();
+    }
+
+    private void resume() {
+        if (paused) {
+            paused = false;
+            channel.config().setAutoRead(true);
+        }
+    }
+
+    private void releaseChunks() {
+        chunks.forEach(ByteBuf::release);
+        chunks.clear();
+        queuedBytes = 0;
+    }
+}
@@ -0,0 +1,131 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.ArrayDeque;
+
+/**
+ * Netty handler turning responses written in chunks, as RESTEasy writes every response, into a single FullHttpResponse
+ * with a Content-Length when the body turns out to be smaller than a limit. Small responses then take a single write,
+ * and the HttpContentCompressor after it, which can only tell the size of full responses, leaves them uncompressed.
+ * Larger bodies are passed on in chunks as soon as the limit is reached, so they are still streamed. Responses to HEAD
+ * requests have no body to tell the length of, so they are passed on as written, which takes tracking the method of
+ * each request received.
+ * Chunks held back are taken over by the handler and their writes reported done straight away, as the writer may wait
+ * for them before writing the rest. The handler keeps state per response, so it must not be shared between channels.
+ */
+public class SmallResponseAggregator extends ChannelDuplexHandler {
+
+    /**
+     * Body size from which a response is passed on in chunks
+     */
+    private final int maxBytes;
+    /**
+     * Methods of the requests received and not yet responded to, in order
+     */
+    private final ArrayDeque<HttpMethod> methods = new ArrayDeque<>();
+
+    /**
+     * Head of the response being held back, null if none
+     */
+    private HttpResponse response;
+    /**
+     * Body of the response being held back
+     */
+    private CompositeByteBuf content;
+    /**
+     * Whether the chunks of the current response are passed on, as its body reached the limit
+     */
+    private boolean streaming;
+
+    /**
+     * Constructs a new SmallResponseAggregator.
+     *
+     * @param maxBytes Body size from which a response is passed on in chunks.
+     */
+    public SmallResponseAggregator(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest request) {
+            methods.add(request.method());
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (streaming) {
+            streaming = !(msg instanceof LastHttpContent);
+            ctx.write(msg, promise);
+        } else if (response == null) {
+            if (!(msg instanceof HttpResponse httpResponse)
+                || httpResponse.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                // Interim responses, e.g. 100 Continue, come before the response to the request
+                ctx.write(msg, promise);
+            } else if (HttpMethod.HEAD.equals(methods.poll())) {
+                streaming = !(msg instanceof LastHttpContent);
+                ctx.write(msg, promise);
+            } else if (!(msg instanceof FullHttpResponse)) {
+                response = httpResponse;
+                content = ctx.alloc().compositeBuffer();
+                promise.setSuccess();
+            } else {
+                ctx.write(msg, promise);
+            }
+        } else if (msg instanceof HttpContent httpContent) {
+            content.addComponent(true, httpContent.content().retain());
+            if (msg instanceof LastHttpContent last) {
+                FullHttpResponse fullResponse = new DefaultFullHttpResponse(response.protocolVersion(),
+                                                                            response.status(), content,
+                                                                            response.headers(),
+                                                                            last.trailingHeaders());
+                fullResponse.headers().remove(HttpHeaderNames.TRANSFER_ENCODING);
+                HttpUtil.setContentLength(fullResponse, content.readableBytes());
+                httpContent.release();
+                reset();
+                ctx.write(fullResponse, promise);
+            } else if (content.readableBytes() >= maxBytes) {
+                httpContent.release();
+                ctx.write(response);
+                ctx.write(new DefaultHttpContent(content), promise);
+                reset();
+                streaming = true;
+            } else {
+                httpContent.release();
+                promise.setSuccess();
+            }
+        } else {
+            ctx.write(msg, promise);
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        if (content != null) {
+            content.release();
+            reset();
+        }
+    }
+
+    private void reset() {
+        response = null;
+        content = null;
+    }
+}
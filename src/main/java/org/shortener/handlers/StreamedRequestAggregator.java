@@ -0,0 +1,73 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.Set;
+
+/**
+ * HttpObjectAggregator passing on the POST requests to a few paths, e.g. bulk imports, as they are received: their
+ * head first, then their body in chunks, so the body can be read while it is still arriving whatever its size. Every
+ * other request is aggregated into a FullHttpRequest of at most maxContentLength bytes.
+ * The handler keeps state per request, so it must not be shared between channels.
+ */
+public class StreamedRequestAggregator extends HttpObjectAggregator {
+
+    /**
+     * Paths, without the query, of the requests passed on as they are received
+     */
+    private final Set<String> streamedPaths;
+
+    /**
+     * Whether the body of the current request is passed on in chunks
+     */
+    private boolean streaming;
+
+    /**
+     * Constructs a new StreamedRequestAggregator.
+     *
+     * @param maxContentLength Largest body of an aggregated request, larger ones are refused.
+     * @param streamedPaths    Paths, e.g. /api/mappings, of the POST requests passed on as they are received.
+     */
+    public StreamedRequestAggregator(int maxContentLength, Set<String> streamedPaths) {
+        super(maxContentLength);
+        this.streamedPaths = streamedPaths;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (streaming) {
+            streaming = !(msg instanceof LastHttpContent);
+            ctx.fireChannelRead(msg);
+        } else if (msg instanceof HttpRequest request && !(msg instanceof FullHttpRequest) && isStreamed(request)) {
+            streaming = true;
+            if (HttpUtil.is100ContinueExpected(request)) {
+                // The aggregator answers the expectation of the requests it aggregates, RESTEasy never does
+                ctx.writeAndFlush(new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.CONTINUE,
+                                                              Unpooled.EMPTY_BUFFER));
+                request.headers().remove(HttpHeaderNames.EXPECT);
+            }
+            ctx.fireChannelRead(msg);
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    private boolean isStreamed(HttpRequest request) {
+        if (!HttpMethod.POST.equals(request.method())) {
+            return false;
+        }
+        String uri = request.uri();
+        int end = uri.indexOf('?');
+        return streamedPaths.contains(end < 0 ? uri : uri.substring(0, end));
+    }
+}
@@ -0,0 +1,99 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.plugins.server.netty.NettyHttpRequest;
+import org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder;
+
+import java.util.List;
+
+/**
+ * RESTEasy's request decoder, also taking the requests the StreamedRequestAggregator passes on as they are received.
+ * Such a request is dispatched as soon as its head arrives, with a RequestBodyInputStream as its body, and the chunks
+ * of the body that follow are fed to the stream instead of being passed on. Aggregated requests are decoded as before.
+ * The handler keeps state per request, so it must not be shared between channels.
+ */
+public class StreamedRequestDecoder extends RestEasyHttpRequestDecoder {
+
+    /**
+     * Bytes of a streamed body waiting to be read from which reading from the connection is paused
+     */
+    private final int maxQueuedBytes;
+
+    /**
+     * Body of the streamed request being received, null if none
+     */
+    private RequestBodyInputStream body;
+
+    /**
+     * Constructs a new StreamedRequestDecoder.
+     *
+     * @param dispatcher           Dispatcher of the JAX-RS application.
+     * @param servletMappingPrefix Root resource path, e.g. /api.
+     * @param protocol             Protocol the requests are received over.
+     * @param maxQueuedBytes       Bytes of a streamed body waiting to be read from which reading is paused.
+     */
+    public StreamedRequestDecoder(SynchronousDispatcher dispatcher, String servletMappingPrefix, Protocol protocol,
+                                  int maxQueuedBytes) {
+        super(dispatcher, servletMappingPrefix, protocol);
+        this.maxQueuedBytes = maxQueuedBytes;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (body != null && msg instanceof HttpContent content) {
+            body.add(content.content());
+            if (msg instanceof LastHttpContent) {
+                body.end();
+                body = null;
+            }
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpRequest request, List<Object> out) throws Exception {
+        if (request instanceof FullHttpRequest) {
+            super.decode(ctx, request, out);
+            return;
+        }
+
+        // RESTEasy only dispatches requests holding their body, so the head is decoded with an empty one in its place
+        FullHttpRequest head = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(),
+                                                          Unpooled.EMPTY_BUFFER, request.headers(),
+                                                          EmptyHttpHeaders.INSTANCE);
+        head.setDecoderResult(request.decoderResult());
+        super.decode(ctx, head, out);
+        if (!out.isEmpty() && out.get(out.size() - 1) instanceof NettyHttpRequest nettyHttpRequest) {
+            body = new RequestBodyInputStream(ctx.channel(), maxQueuedBytes);
+            nettyHttpRequest.setInputStream(body);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        abortBody();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        abortBody();
+        super.handlerRemoved(ctx);
+    }
+
+    private void abortBody() {
+        if (body != null) {
+            body.abort();
+            body = null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.shortener.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Collects HikariCP connection pool metrics: how long threads wait to acquire a connection, how often they time out,
+ * and the current number of active, idle and pending connections.
+ * Registered with the pool as its MetricsTrackerFactory, so Hikari reports every acquisition to it. When registered
+ * with several pools, e.g. one per shard, the metrics add up all of them.
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, IMetricsTracker, ConnectionPoolMetricsMXBean {
+
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder acquiredTotalNanos = new LongAdder();
+    private final LongAccumulator acquiredMaxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * Distribution of the time taken to acquire a connection
+     */
+    private final LatencyTimer acquisitionTimer = new LatencyTimer();
+
+    /**
+     * Snapshots of the connection counts of each pool, provided by Hikari once the tracker is registered
+     */
+    private final List<PoolStats> poolStats = new CopyOnWriteArrayList<>();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats.add(poolStats);
+        return this;
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquiredCount.increment();
+        acquiredTotalNanos.add(elapsedAcquiredNanos);
+        acquiredMaxNanos.accumulate(elapsedAcquiredNanos);
+        acquisitionTimer.record(elapsedAcquiredNanos);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        timeoutCount.increment();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return sum(PoolStats::getActiveConnections);
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return sum(PoolStats::getIdleConnections);
+    }
+
+    @Override
+    public int getTotalConnections() {
+        return sum(PoolStats::getTotalConnections);
+    }
+
+    @Override
+    public int getPendingThreads() {
+        return sum(PoolStats::getPendingThreads);
+    }
+
+    @Override
+    public long getConnectionAcquiredCount() {
+        return acquiredCount.sum();
+    }
+
+    @Override
+    public long getConnectionAcquiredTotalNanos() {
+        return acquiredTotalNanos.sum();
+    }
+
+    @Override
+    public long getConnectionAcquiredMaxNanos() {
+        return acquiredMaxNanos.get();
+    }
+
+    @Override
+    public long getConnectionTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    private int sum(ToIntFunction<PoolStats> stat) {
+        int sum = 0;
+        for (PoolStats stats : poolStats) {
+            sum += stat.applyAsInt(stats);
+        }
+        return sum;
+    }
+
+    /**
+     * Get the distribution of the time taken to acquire a connection, for publishing alongside the other metrics.
+     *
+     * @return LatencyTimer.
+     */
+    public LatencyTimer getConnectionAcquisitionTimer() {
+        return acquisitionTimer;
+    }
+}
@@ -0,0 +1,23 @@
+package org.shortener.metrics;
+
+/**
+ * JMX view of the connection pool metrics, published alongside HikariCP's own pool MBean.
+ */
+public interface ConnectionPoolMetricsMXBean {
+
+    int getActiveConnections();
+
+    int getIdleConnections();
+
+    int getTotalConnections();
+
+    int getPendingThreads();
+
+    long getConnectionAcquiredCount();
+
+    long getConnectionAcquiredTotalNanos();
+
+    long getConnectionAcquiredMaxNanos();
+
+    long getConnectionTimeoutCount();
+}
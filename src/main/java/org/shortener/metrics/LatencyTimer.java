@@ -0,0 +1,79 @@
+package org.shortener.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of an operation into an HdrHistogram, cheap enough to time every call on the hot path.
+ * Recording never locks: values go into a Recorder, whose histogram is swapped out whenever a snapshot is
+ * taken, so quantiles cover the time since the previous snapshot while the count and total cover the whole run.
+ */
+public class LatencyTimer {
+
+    /**
+     * Significant decimal digits kept for each value, 2 keeps quantiles within 1% using a few KB per timer
+     */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /**
+     * Histogram of the latencies recorded since the last snapshot
+     */
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * Histogram handed back to the recorder to be reused by the next snapshot, guarded by this
+     */
+    private Histogram recycledHistogram;
+
+    /**
+     * Record the latency of one call.
+     *
+     * @param nanos The latency in nanoseconds, negative values are recorded as 0.
+     */
+    public void record(long nanos) {
+        long latency = Math.max(0, nanos);
+        recorder.recordValue(latency);
+        count.increment();
+        totalNanos.add(latency);
+    }
+
+    /**
+     * Record the latency of a call started at the given time.
+     *
+     * @param startNanos Value of System.nanoTime() when the call started.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return The number of latencies recorded.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The sum of the latencies recorded, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Take the histogram of the latencies recorded since the previous snapshot, and start a new one.
+     *
+     * @return A copy of the histogram, owned by the caller.
+     */
+    public synchronized Histogram takeSnapshot() {
+        Histogram interval = recorder.getIntervalHistogram(recycledHistogram);
+        Histogram snapshot = interval.copy();
+        recycledHistogram = interval;
+        return snapshot;
+    }
+}
@@ -0,0 +1,223 @@
+package org.shortener.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the application's metrics, written out in the Prometheus text exposition format.
+ * Metrics are grouped in families sharing a name, each member told apart by its labels, given as alternating label
+ * names and values. Looking a metric up again returns the one already registered, so components built per request
+ * share their timers and counters.
+ */
+public class MetricsRegistry {
+
+    /**
+     * Quantiles reported for every timer
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    /**
+     * Metric families keyed by name
+     */
+    private final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+    /**
+     * Get the timer with the given name and labels, registering it first if needed.
+     * Timers are reported as summaries in seconds.
+     *
+     * @param name   Name of the metric, ending in _seconds.
+     * @param help   Description of the metric.
+     * @param labels Alternating label names and values.
+     * @return The registered LatencyTimer.
+     */
+    public LatencyTimer timer(String name, String help, String... labels) {
+        return (LatencyTimer) family(name, help, Type.SUMMARY).metrics.computeIfAbsent(formatLabels(labels),
+                                                                                      key -> new LatencyTimer());
+    }
+
+    /**
+     * Get the counter with the given name and labels, registering it first if needed.
+     *
+     * @param name   Name of the metric, ending in _total.
+     * @param help   Description of the metric.
+     * @param labels Alternating label names and values.
+     * @return The registered counter.
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) family(name, help, Type.COUNTER).metrics.computeIfAbsent(formatLabels(labels),
+                                                                                   key -> new LongAdder());
+    }
+
+    /**
+     * Register a timer owned by another component, replacing any registered with the same name and labels.
+     *
+     * @param name   Name of the metric, ending in _seconds.
+     * @param help   Description of the metric.
+     * @param timer  The timer.
+     * @param labels Alternating label names and values.
+     */
+    public void registerTimer(String name, String help, LatencyTimer timer, String... labels) {
+        family(name, help, Type.SUMMARY).metrics.put(formatLabels(labels), timer);
+    }
+
+    /**
+     * Register a counter read from another component, e.g. one it already keeps in a LongAdder.
+     *
+     * @param name   Name of the metric, ending in _total.
+     * @param help   Description of the metric.
+     * @param value  Source of the counter's current value.
+     * @param labels Alternating label names and values.
+     */
+    public void registerCounter(String name, String help, LongSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Register a gauge read from another component.
+     *
+     * @param name   Name of the metric.
+     * @param help   Description of the metric.
+     * @param value  Source of the gauge's current value.
+     * @param labels Alternating label names and values.
+     */
+    public void registerGauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Write every metric in the Prometheus text exposition format, families in name order.
+     * Timer quantiles cover the time since the previous scrape.
+     *
+     * @param out Where to append the metrics.
+     */
+    public void writePrometheus(StringBuilder out) {
+        for (Family family : new TreeMap<>(families).values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.exposedName).append('\n');
+
+            for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics).entrySet()) {
+                String labels = metric.getKey();
+                switch (metric.getValue()) {
+                    case LatencyTimer timer -> writeTimer(out, family.name, labels, timer);
+                    case LongAdder counter -> writeSample(out, family.name, labels, counter.sum());
+                    case LongSupplier counter -> writeSample(out, family.name, labels, counter.getAsLong());
+                    case DoubleSupplier gauge -> writeSample(out, family.name, labels, gauge.getAsDouble());
+                    default -> throw new IllegalStateException("Unknown metric " + metric.getValue());
+                }
+            }
+        }
+    }
+
+    private static void writeTimer(StringBuilder out, String name, String labels, LatencyTimer timer) {
+        Histogram histogram = timer.takeSnapshot();
+        for (double quantile : QUANTILES) {
+            String quantileLabel = "quantile=\"" + quantile + "\"";
+            out.append(name).append('{');
+            if (!labels.isEmpty()) {
+                out.append(labels).append(',');
+            }
+            out.append(quantileLabel).append("} ");
+            out.append(histogram.getTotalCount() == 0
+                       ? "NaN"
+                       : Double.toString(histogram.getValueAtPercentile(quantile * 100) / NANOS_PER_SECOND));
+            out.append('\n');
+        }
+        writeSample(out, name + "_sum", labels, timer.getTotalNanos() / NANOS_PER_SECOND);
+        writeSample(out, name + "_count", labels, timer.getCount());
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, long value) {
+        appendName(out, name, labels).append(' ').append(value).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String labels, double value) {
+        appendName(out, name, labels).append(' ').append(value).append('\n');
+    }
+
+    private static StringBuilder appendName(StringBuilder out, String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out;
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /**
+     * Format labels as they appear between the braces of a sample.
+     *
+     * @param labels Alternating label names and values.
+     * @return The formatted labels, empty if there are none.
+     */
+    private static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                formatted.append(',');
+            }
+            formatted.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> formatted.append("\\\\");
+                    case '"' -> formatted.append("\\\"");
+                    case '\n' -> formatted.append("\\n");
+                    default -> formatted.append(c);
+                }
+            }
+            formatted.append('"');
+        }
+        return formatted.toString();
+    }
+
+    /**
+     * Type of a metric family, named as in the exposition format.
+     */
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String exposedName;
+
+        Type(String exposedName) {
+            this.exposedName = exposedName;
+        }
+    }
+
+    /**
+     * Metrics sharing a name, keyed by their formatted labels.
+     */
+    private static final class Family {
+
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.shortener.metrics;
+
+/**
+ * JMX view of the URL existence filter's size, accuracy and effect.
+ */
+public interface UrlExistenceFilterMXBean {
+
+    boolean isEnabled();
+
+    boolean isWarmed();
+
+    long getMemoryBytes();
+
+    long getShortenedUrlCount();
+
+    long getOriginalUrlCount();
+
+    double getShortenedUrlFalsePositiveRate();
+
+    double getOriginalUrlFalsePositiveRate();
+
+    long getSkippedLookupCount();
+}
@@ -0,0 +1,237 @@
+package org.shortener.replication;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the read replica resolves are read from, skipping replicas that failed their last health check or query.
+ * Replicas are checked in the background by validating a connection, which also measures their latency for
+ * {@link Selection#LEAST_LATENCY}. When no replica is healthy the caller reads from the primary instead.
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    /**
+     * How the replica of each read is picked among the healthy ones.
+     */
+    public enum Selection {
+
+        /**
+         * Each replica in turn
+         */
+        ROUND_ROBIN,
+
+        /**
+         * The replica with the lowest smoothed latency
+         */
+        LEAST_LATENCY
+    }
+
+    /**
+     * Seconds a health check waits for a replica to validate a connection
+     */
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Weight of the newest sample in the smoothed latency of a replica
+     */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final Logger logger;
+    private final List<Replica> replicas;
+    private final Selection selection;
+
+    /**
+     * Index of the next replica to read from with round robin selection
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Thread checking the health of the replicas, null until started
+     */
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * Constructs a new ReplicaRouter, every replica being considered healthy until it fails.
+     *
+     * @param logger    Logger for replicas changing health.
+     * @param replicas  Hibernate session factory of each read replica.
+     * @param selection How the replica of each read is picked.
+     */
+    public ReplicaRouter(Logger logger, List<SessionFactory> replicas, Selection selection) {
+        this.logger = logger;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica(i, replicas.get(i)));
+        }
+        this.selection = selection;
+    }
+
+    /**
+     * @return Every replica, healthy or not.
+     */
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Pick the replica to read from.
+     *
+     * @return A healthy replica, null if there is none and the primary should be read from.
+     */
+    public Replica select() {
+        if (selection == Selection.LEAST_LATENCY) {
+            Replica fastest = null;
+            for (Replica replica : replicas) {
+                if (replica.healthy && (fastest == null || replica.latencyNanos < fastest.latencyNanos)) {
+                    fastest = replica;
+                }
+            }
+            return fastest;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check every replica by validating one of its connections, marking it healthy and recording its latency if it
+     * answers in time, unhealthy otherwise.
+     */
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            long start = System.nanoTime();
+            boolean valid;
+            try (Session session = replica.sessionFactory.openSession()) {
+                valid = session.doReturningWork(connection -> connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS));
+            } catch (RuntimeException e) {
+                logger.debug("Health check of read replica {} failed", replica.index, e);
+                valid = false;
+            }
+            if (valid) {
+                replica.recordSuccess(System.nanoTime() - start);
+            } else {
+                replica.recordFailure();
+            }
+        }
+    }
+
+    /**
+     * Start checking the health of the replicas in the background.
+     *
+     * @param interval Time between checks.
+     * @param unit     Unit of the interval.
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (healthChecker != null) {
+            throw new IllegalStateException("ReplicaRouter already started");
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-checker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, interval, unit);
+    }
+
+    /**
+     * Stop checking the health of the replicas.
+     */
+    @Override
+    public synchronized void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+            healthChecker = null;
+        }
+    }
+
+    /**
+     * A read replica and what is known of its health.
+     */
+    public final class Replica {
+
+        private final int index;
+        private final SessionFactory sessionFactory;
+
+        /**
+         * Whether the last health check or query on the replica succeeded
+         */
+        private volatile boolean healthy = true;
+
+        /**
+         * Exponentially smoothed latency of health checks and queries, 0 until the first sample
+         */
+        private volatile double latencyNanos;
+
+        private Replica(int index, SessionFactory sessionFactory) {
+            this.index = index;
+            this.sessionFactory = sessionFactory;
+        }
+
+        /**
+         * @return Index of the replica in the configured list.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Hibernate session factory of the replica.
+         */
+        public SessionFactory getSessionFactory() {
+            return sessionFactory;
+        }
+
+        /**
+         * @return Whether the replica can be read from.
+         */
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        /**
+         * @return Smoothed latency of the replica in nanoseconds, 0 until it has answered.
+         */
+        public double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * Record that the replica answered, marking it healthy.
+         *
+         * @param nanos Time the replica took to answer.
+         */
+        public void recordSuccess(long nanos) {
+            // Samples race only with each other, and losing one of two concurrent samples is harmless
+            double latency = latencyNanos;
+            latencyNanos = latency == 0 ? nanos : latency + LATENCY_SMOOTHING * (nanos - latency);
+            if (!healthy) {
+                healthy = true;
+                logger.info("Read replica {} is healthy again", index);
+            }
+        }
+
+        /**
+         * Record that the replica failed, so it is skipped until it passes a health check.
+         */
+        public void recordFailure() {
+            if (healthy) {
+                healthy = false;
+                logger.warn("Read replica {} is unhealthy, reading from the other replicas or the primary", index);
+            }
+        }
+    }
+}
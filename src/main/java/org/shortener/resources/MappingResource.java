@@ -0,0 +1,306 @@
+package org.shortener.resources;
+
+import org.shortener.configurations.ApplicationConfig;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlTransferService;
+import org.shortener.sharding.ShardRouter;
+import org.shortener.validators.UrlValidator;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * JAX-RS resource class for bulk export and import of mappings as CSV, one {@code shortened_url,original_url} row per
+ * mapping after a header row.
+ * Both directions are streamed, so any number of mappings can be moved without holding them in memory.
+ */
+@Path("/mappings")
+public class MappingResource {
+
+    /**
+     * Media type of exported and imported mappings
+     */
+    static final String TEXT_CSV = "text/csv";
+    /**
+     * First row of an export, optional on import
+     */
+    static final String CSV_HEADER = "shortened_url,original_url";
+
+    /**
+     * Service to perform the exports and imports.
+     */
+    private final UrlTransferService urlTransferService;
+    /**
+     * Router telling which shortened URLs are valid and the key each is stored under.
+     */
+    private final ShardRouter shardRouter;
+    /**
+     * Generator of new codes, whose keys imported codes must not take.
+     */
+    private final ShortCodeGenerator shortCodeGenerator;
+    /**
+     * Executor running the blocking calls to the service.
+     */
+    private final DatabaseCallExecutor databaseCallExecutor;
+    /**
+     * Number of rows of an import saved (and committed) together
+     */
+    private final int chunkSize;
+    /**
+     * Paths served by resources, which can not be used as shortened URLs
+     */
+    private final Set<String> reservedPaths;
+    /**
+     * Validator putting imported URLs in canonical form
+     */
+    private final UrlValidator urlValidator = new UrlValidator();
+
+    /**
+     * Constructs a new MappingResource with the provided service, configuration and {@code DatabaseCallExecutor}.
+     *
+     * @param urlTransferService   The export and import service.
+     * @param shardRouter          Router of the shortened URLs imported.
+     * @param shortCodeGenerator   Generator of new codes, whose keys imported codes must not take.
+     * @param properties           Configuration holding the import settings.
+     * @param databaseCallExecutor Executor running the blocking calls to the service.
+     */
+    public MappingResource(final UrlTransferService urlTransferService, final ShardRouter shardRouter,
+                           final ShortCodeGenerator shortCodeGenerator, final ApplicationProperties properties,
+                           final DatabaseCallExecutor databaseCallExecutor) {
+        this.urlTransferService = urlTransferService;
+        this.shardRouter = shardRouter;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.databaseCallExecutor = databaseCallExecutor;
+        this.chunkSize = properties.getInt("shortener.transfer.chunk-size");
+        this.reservedPaths = new ApplicationConfig().getResourcePaths();
+    }
+
+    /**
+     * Endpoint exporting every stored mapping using a GET request.
+     *
+     * @return Response streaming the mappings as CSV.
+     */
+    @GET
+    @Produces(TEXT_CSV)
+    public Response exportMappings() {
+        StreamingOutput mappings = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+
+            try {
+                databaseCallExecutor.call(() -> urlTransferService.exportUrls((shortenedUrl, originalUrl) -> {
+                    try {
+                        writeCsvRow(shortenedUrl, originalUrl, writer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            } catch (SessionOpenException e) {
+                // Headers have already been sent, so all that can be done is abort the response
+                throw new IOException("Error exporting mappings", e);
+            }
+            writer.flush();
+        };
+
+        return Response.ok(mappings)
+                       .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"mappings.csv\"")
+                       .build();
+    }
+
+    /**
+     * Endpoint importing mappings using a POST request, e.g. the body of an export.
+     * Rows are read and saved in chunks, each chunk in its own transaction, and a progress line is streamed back after
+     * each chunk with the number of rows read, imported, skipped (shortened or original URL already stored) and invalid
+     * so far. If the import fails part way the chunks already saved stay saved, and posting the same body again
+     * skips them.
+     *
+     * @param mappings CSV rows of shortened URL and original URL.
+     * @return Response streaming the progress of the import.
+     */
+    @POST
+    @Consumes(TEXT_CSV)
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response importMappings(InputStream mappings) {
+        StreamingOutput progress = outputStream -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(mappings, StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            ImportProgress importProgress = new ImportProgress();
+            List<UrlDataEntity> chunk = new ArrayList<>(chunkSize);
+
+            String line = reader.readLine();
+            if (line != null && line.trim().equals(CSV_HEADER)) {
+                line = reader.readLine();
+            }
+            for (; line != null; line = reader.readLine()) {
+                importProgress.read++;
+                UrlDataEntity mapping = parseCsvRow(line);
+                if (mapping == null) {
+                    importProgress.invalid++;
+                    continue;
+                }
+                chunk.add(mapping);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, importProgress, writer);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty() || importProgress.reportedRead != importProgress.read) {
+                importChunk(chunk, importProgress, writer);
+            }
+        };
+
+        return Response.ok(progress).build();
+    }
+
+    /**
+     * Save a chunk of an import and write a progress line.
+     *
+     * @param chunk          Valid mappings of the import.
+     * @param importProgress Progress of the import, updated with the chunk.
+     * @param writer         Writer for the response body.
+     * @throws IOException If the response could not be written, or the chunk could not be saved to the database.
+     */
+    private void importChunk(List<UrlDataEntity> chunk, ImportProgress importProgress, Writer writer)
+            throws IOException {
+        if (!chunk.isEmpty()) {
+            int imported;
+            try {
+                imported = databaseCallExecutor.call(() -> urlTransferService.importUrls(chunk));
+            } catch (SessionOpenException e) {
+                // Headers have already been sent for earlier chunks, so all that can be done is abort the response
+                throw new IOException("Error importing mappings", e);
+            }
+            importProgress.imported += imported;
+            importProgress.skipped += chunk.size() - imported;
+        }
+
+        writer.write("read=" + importProgress.read + " imported=" + importProgress.imported
+                     + " skipped=" + importProgress.skipped + " invalid=" + importProgress.invalid + "\n");
+        writer.flush();
+        importProgress.reportedRead = importProgress.read;
+    }
+
+    /**
+     * Write a mapping as a CSV row, quoting fields holding commas, quotes or line breaks.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @param originalUrl  The original URL.
+     * @param writer       Writer for the response body.
+     * @throws IOException If the row could not be written.
+     */
+    static void writeCsvRow(String shortenedUrl, String originalUrl, Writer writer) throws IOException {
+        writeCsvField(shortenedUrl, writer);
+        writer.write(',');
+        writeCsvField(originalUrl, writer);
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(String field, Writer writer) throws IOException {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            writer.write(field);
+        } else {
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Parse a CSV row of an import into a mapping.
+     *
+     * @param line The row, without its line break.
+     * @return The mapping with its original URL in canonical form, null if the row is malformed, its shortened or
+     *         original URL could not be served, or its shortened URL is stored under a key that may still be generated.
+     */
+    UrlDataEntity parseCsvRow(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                // Quoted field, ending at a quote that is not doubled
+                for (i++; ; i++) {
+                    if (i >= line.length()) {
+                        return null;
+                    } else if (line.charAt(i) != '"') {
+                        field.append(line.charAt(i));
+                    } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        i++;
+                        break;
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    return null;
+                }
+            } else {
+                int end = line.indexOf(',', i);
+                end = end < 0 ? line.length() : end;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString().trim());
+            field.setLength(0);
+            if (i >= line.length()) {
+                break;
+            }
+            i++;
+        }
+
+        if (fields.size() != 2) {
+            return null;
+        }
+        String shortenedUrl = fields.get(0);
+        String originalUrl = urlValidator.normalize(fields.get(1));
+        if (!shardRouter.isValidShortenedUrl(shortenedUrl) || reservedPaths.contains(shortenedUrl)
+            || originalUrl == null) {
+            return null;
+        }
+        long key = shardRouter.getKeyOfShortenedUrl(shortenedUrl);
+        if (key >= 0 && shortCodeGenerator.mayGenerateKey(key)) {
+            // A code of the same form as generated ones would take the key of a code generated later
+            return null;
+        }
+        return new UrlDataEntity(originalUrl, shortenedUrl, key);
+    }
+
+    /**
+     * Running totals of an import.
+     */
+    private static final class ImportProgress {
+        private long read;
+        private long imported;
+        private long skipped;
+        private long invalid;
+        /**
+         * Rows read when the last progress line was written
+         */
+        private long reportedRead = -1;
+    }
+}
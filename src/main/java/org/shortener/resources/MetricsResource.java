@@ -0,0 +1,46 @@
+package org.shortener.resources;
+
+import org.shortener.metrics.MetricsRegistry;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * JAX-RS resource exposing the application's metrics for Prometheus to scrape.
+ */
+@Path("/metrics")
+public class MetricsResource {
+
+    /**
+     * Content type of the Prometheus text exposition format
+     */
+    static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Registry of the metrics to expose.
+     */
+    private final MetricsRegistry metricsRegistry;
+
+    /**
+     * Constructs a new MetricsResource exposing the given registry.
+     *
+     * @param metricsRegistry Registry of the metrics to expose.
+     */
+    public MetricsResource(final MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    /**
+     * Endpoint for scraping the metrics using a GET request.
+     *
+     * @return Every metric in the Prometheus text exposition format.
+     */
+    @GET
+    @Produces(PROMETHEUS_CONTENT_TYPE)
+    public String getMetrics() {
+        StringBuilder metrics = new StringBuilder(4096);
+        metricsRegistry.writePrometheus(metrics);
+        return metrics.toString();
+    }
+}
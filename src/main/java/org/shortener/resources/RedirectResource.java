@@ -0,0 +1,128 @@
+package org.shortener.resources;
+
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.metrics.LatencyTimer;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlShortenService;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * JAX-RS resource class redirecting shortened URLs to their original URL.
+ * Cached codes are normally redirected by the RedirectHandler in front of RESTEasy, so this resource serves the codes
+ * that have to be looked up in the database.
+ */
+@Path("/")
+@Produces(MediaType.TEXT_PLAIN)
+public class RedirectResource {
+
+    /**
+     * HTTP statuses that can be used to redirect
+     */
+    private static final Set<Integer> REDIRECT_STATUSES = Set.of(301, 302, 303, 307, 308);
+
+    /**
+     * Service to perform URL retrieval operations.
+     */
+    private final UrlShortenService urlShortenService;
+    /**
+     * Executor running the blocking calls to the service.
+     */
+    private final DatabaseCallExecutor databaseCallExecutor;
+    /**
+     * Status of the redirects
+     */
+    private final int redirectStatus;
+    /**
+     * Cache-Control header of the redirects, null for none
+     */
+    private final String cacheControl;
+    /**
+     * Latency of redirects served by this resource
+     */
+    private final LatencyTimer redirectTimer;
+
+    /**
+     * Constructs a new RedirectResource with the provided {@code UrlShortenService}, configuration,
+     * {@code DatabaseCallExecutor} and {@code MetricsRegistry}.
+     *
+     * @param urlShortenService    The URL shortening service.
+     * @param properties           Configuration holding the redirect settings.
+     * @param databaseCallExecutor Executor running the blocking calls to the service.
+     * @param metricsRegistry      Registry the request latencies are recorded in.
+     */
+    public RedirectResource(final UrlShortenService urlShortenService, final ApplicationProperties properties,
+                            final DatabaseCallExecutor databaseCallExecutor, final MetricsRegistry metricsRegistry) {
+        this.urlShortenService = urlShortenService;
+        this.databaseCallExecutor = databaseCallExecutor;
+        this.redirectStatus = getRedirectStatus(properties);
+        this.cacheControl = getCacheControl(properties);
+        this.redirectTimer = metricsRegistry.timer(UrlResource.REQUEST_TIMER, UrlResource.REQUEST_TIMER_HELP,
+                                                   "endpoint", "redirect");
+    }
+
+    /**
+     * Get the configured redirect status.
+     *
+     * @param properties Configuration holding the redirect settings.
+     * @return HTTP status of the redirects.
+     * @throws IllegalArgumentException If the configured status is not a redirect.
+     */
+    public static int getRedirectStatus(ApplicationProperties properties) {
+        int status = properties.getInt("shortener.redirect.status");
+        if (!REDIRECT_STATUSES.contains(status)) {
+            throw new IllegalArgumentException("shortener.redirect.status must be one of " + REDIRECT_STATUSES);
+        }
+        return status;
+    }
+
+    /**
+     * Get the configured Cache-Control header of redirects.
+     *
+     * @param properties Configuration holding the redirect settings.
+     * @return The header value, null if redirects should not carry one.
+     */
+    public static String getCacheControl(ApplicationProperties properties) {
+        String value = properties.getString("shortener.redirect.cache-control");
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Endpoint redirecting a shortened URL to its original URL using a GET request.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return Response redirecting to the original URL, once it has been looked up.
+     */
+    @GET
+    @Path("/{shortenedUrl}")
+    public CompletionStage<Response> redirect(@PathParam("shortenedUrl") String shortenedUrl) {
+        long start = System.nanoTime();
+        return UrlResource.lookUpOriginalUrl(urlShortenService, databaseCallExecutor, shortenedUrl)
+                                   .handle((originalUrl, e) -> {
+                                       if (e != null) {
+                                           return UrlResource.databaseErrorResponse(e);
+                                       } else if (originalUrl != null) {
+                                           // Set as a header rather than with location(URI), the URL was validated
+                                           // when shortened
+                                           return Response.status(redirectStatus)
+                                                          .header(HttpHeaders.LOCATION, originalUrl)
+                                                          .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                                                          .build();
+                                       } else {
+                                           return Response.status(Response.Status.NOT_FOUND)
+                                                          .entity("Data not found in the database")
+                                                          .build();
+                                       }
+                                   })
+                                   .whenComplete((response, e) -> redirectTimer.recordSince(start));
+    }
+}
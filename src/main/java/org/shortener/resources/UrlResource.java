@@ -1,10 +1,14 @@
 package org.shortener.resources;
 
-import org.shortener.configurations.HibernateConfiguration;
-import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.entities.ClickStatsEntity;
 import org.shortener.exceptions.SessionOpenException;
+import org.shortener.metrics.LatencyTimer;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.ClickStatsService;
+import org.shortener.services.DatabaseCallExecutor;
 import org.shortener.services.UrlShortenService;
-import org.slf4j.LoggerFactory;
+import org.shortener.validators.UrlValidator;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -14,7 +18,21 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.regex.Pattern;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
 /**
  * JAX-RS resource class for handling URL shortening and retrieval operations.
@@ -25,88 +43,264 @@ import java.util.regex.Pattern;
 public class UrlResource {
 
     /**
-     * The start of the link to be returned (Should realistically be extracted to a external config file to be set at
-     * run, see spring version for this concept in action)
+     * Name of the timer of request latencies, labelled by endpoint
      */
-    private static final String BEGINNING_LINK = "http://127.0.0.1:8080/api/urls/";
+    static final String REQUEST_TIMER = "shortener_request_seconds";
+    /**
+     * Description of the timer of request latencies
+     */
+    static final String REQUEST_TIMER_HELP = "Time taken to answer requests, by endpoint";
+
     /**
      * Service to perform URL shortening and retrieval operations.
      */
     private final UrlShortenService urlShortenService;
     /**
-     * Pattern used to validate inputted data is a URL.
+     * Service to read the click stats of shortened URLs.
+     */
+    private final ClickStatsService clickStatsService;
+    /**
+     * Executor running the blocking calls to the service.
+     */
+    private final DatabaseCallExecutor databaseCallExecutor;
+    /**
+     * The start of the link to be returned
+     */
+    private final String beginningLink;
+    /**
+     * Number of lines of a batch request shortened (and committed) together before their results are streamed back
+     */
+    private final int batchChunkSize;
+    /**
+     * Validator putting inputted URLs in canonical form
+     */
+    private final UrlValidator urlValidator = new UrlValidator();
+    /**
+     * Latency of shorten requests
+     */
+    private final LatencyTimer shortenTimer;
+    /**
+     * Latency of lookups of original URLs
      */
-    private final Pattern urlPattern = Pattern.compile(
-            "^https?://(?:www\\.)?[-a-zA-Z0-9@:%._+~#=]{1,256}\\.[a-zA-Z0-9()]{1,6}\\b(?:[-a-zA-Z0-9()@:%_+.~#?&/=]*)"
-            + "$");
+    private final LatencyTimer resolveTimer;
 
     /**
-     * Constructs a new UrlResource with the provided {@code UrlShortenService}.
+     * Constructs a new UrlResource with the provided services, configuration, {@code DatabaseCallExecutor} and
+     * {@code MetricsRegistry}.
      *
-     * @param urlShortenService The URL shortening service.
+     * @param urlShortenService    The URL shortening service.
+     * @param clickStatsService    The click stats service.
+     * @param properties           Configuration holding the link prefix and batch settings.
+     * @param databaseCallExecutor Executor running the blocking calls to the services.
+     * @param metricsRegistry      Registry the request latencies are recorded in.
      */
-    public UrlResource(final UrlShortenService urlShortenService) {
+    public UrlResource(final UrlShortenService urlShortenService, final ClickStatsService clickStatsService,
+                       final ApplicationProperties properties, final DatabaseCallExecutor databaseCallExecutor,
+                       final MetricsRegistry metricsRegistry) {
         this.urlShortenService = urlShortenService;
+        this.clickStatsService = clickStatsService;
+        this.databaseCallExecutor = databaseCallExecutor;
+        this.beginningLink = properties.getString("shortener.link.prefix");
+        this.batchChunkSize = properties.getInt("shortener.batch.chunk-size");
+        this.shortenTimer = metricsRegistry.timer(REQUEST_TIMER, REQUEST_TIMER_HELP, "endpoint", "shorten");
+        this.resolveTimer = metricsRegistry.timer(REQUEST_TIMER, REQUEST_TIMER_HELP, "endpoint", "resolve");
     }
 
     /**
-     * Default constructor initializing the resource with default dependencies.
-     * Used for production and non-testing scenarios.
+     * Endpoint for shortening a URL using a POST request.
+     * The URL is shortened in canonical form, so equivalent URLs get the same shortened URL.
+     *
+     * @param originalUrl The original URL to be shortened.
+     * @return Response containing the shortened URL, once the URL has been saved.
      */
-    public UrlResource() {
-        this.urlShortenService = new UrlShortenService(LoggerFactory.getLogger(UrlResource.class),
-                                                       HibernateConfiguration.getSessionFactory(),
-                                                       new UrlDataEntityDAO());
+    @POST
+    public CompletionStage<Response> shortenUrl(String originalUrl) {
+        String normalizedUrl = urlValidator.normalize(originalUrl);
+        if (normalizedUrl != null) {
+            long start = System.nanoTime();
+            return databaseCallExecutor.submit(() -> urlShortenService.shortenUrl(normalizedUrl))
+                                       .handle((shortenedUrl, e) -> e == null
+                                                                    ? Response.ok(beginningLink + shortenedUrl).build()
+                                                                    : databaseErrorResponse(e))
+                                       .whenComplete((response, e) -> shortenTimer.recordSince(start));
+        } else {
+            return CompletableFuture.completedFuture(
+                    Response.status(Response.Status.BAD_REQUEST)
+                            .entity("Data to be shortened did not match expectations of a URL.")
+                            .build());
+
+        }
     }
 
     /**
-     * Endpoint for shortening a URL using a POST request.
+     * Endpoint for shortening many URLs in one POST request.
+     * The request body holds one URL per line, the response body holds the shortened URL for each line in the same
+     * order, or an empty line where the line did not match expectations of a URL. Lines are read, shortened and
+     * written back in chunks, each chunk saved in its own transaction, so memory use stays flat however large the
+     * batch is.
      *
-     * @param originalUrl The original URL to be shortened.
-     * @return Response containing the shortened URL.
+     * @param originalUrls Newline delimited original URLs to be shortened.
+     * @return Response streaming the shortened URLs.
      */
     @POST
-    public Response shortenUrl(String originalUrl) {
-        if (urlPattern.matcher(originalUrl).matches()) {
-            try {
-                String shortenedUrl = urlShortenService.shortenUrl(originalUrl);
-                return Response.ok(BEGINNING_LINK + shortenedUrl).build();
-            } catch (SessionOpenException e) {
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                               .entity("Error communicating with database")
-                               .build();
+    @Path("/batch")
+    public Response shortenUrls(InputStream originalUrls) {
+        StreamingOutput shortenedUrls = outputStream -> {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(originalUrls, StandardCharsets.UTF_8));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            List<String> chunk = new ArrayList<>(batchChunkSize);
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line.trim());
+                if (chunk.size() == batchChunkSize) {
+                    writeShortenedChunk(chunk, writer);
+                    chunk.clear();
+                }
             }
-        } else {
-            return Response.status(Response.Status.BAD_REQUEST)
-                           .entity("Data to be shortened did not match expectations of a URL.")
-                           .build();
+            if (!chunk.isEmpty()) {
+                writeShortenedChunk(chunk, writer);
+            }
+        };
+
+        return Response.ok(shortenedUrls).build();
+    }
 
+    /**
+     * Shorten the valid URLs of a chunk of a batch request and write a result line for every line of the chunk.
+     *
+     * @param chunk  Lines of the batch request.
+     * @param writer Writer for the response body.
+     * @throws IOException If the response could not be written, or the chunk could not be saved to the database.
+     */
+    private void writeShortenedChunk(List<String> chunk, Writer writer) throws IOException {
+        boolean[] valid = new boolean[chunk.size()];
+        List<String> validUrls = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            String normalizedUrl = urlValidator.normalize(chunk.get(i));
+            valid[i] = normalizedUrl != null;
+            if (valid[i]) {
+                validUrls.add(normalizedUrl);
+            }
+        }
+
+        Iterator<String> shortenedUrls;
+        try {
+            shortenedUrls = validUrls.isEmpty()
+                            ? validUrls.iterator()
+                            : databaseCallExecutor.call(() -> urlShortenService.shortenUrls(validUrls)).iterator();
+        } catch (SessionOpenException e) {
+            // Headers have already been sent for earlier chunks, so all that can be done is abort the response
+            throw new IOException("Error communicating with database", e);
+        }
+
+        for (boolean isValid : valid) {
+            if (isValid) {
+                writer.write(beginningLink);
+                writer.write(shortenedUrls.next());
+            }
+            writer.write('\n');
         }
+        writer.flush();
     }
 
     /**
      * Endpoint for retrieving the original URL using a GET request with a shortened URL parameter.
+     * With R2DBC enabled no thread waits while the database is queried, the response is completed by the driver.
      *
      * @param shortenedUrl The shortened URL to look up.
-     * @return Response containing the original URL.
+     * @return Response containing the original URL, once it has been looked up.
      */
     @GET
     @Path("/{shortenedUrl}")
-    public Response getOriginalUrl(@PathParam("shortenedUrl") String shortenedUrl) {
-        try {
-            String originalUrl = urlShortenService.getOriginalUrl(shortenedUrl);
+    public CompletionStage<Response> getOriginalUrl(@PathParam("shortenedUrl") String shortenedUrl) {
+        long start = System.nanoTime();
+        return lookUpOriginalUrl(urlShortenService, databaseCallExecutor, shortenedUrl)
+                                   .handle((originalUrl, e) -> {
+                                       if (e != null) {
+                                           return databaseErrorResponse(e);
+                                       } else if (originalUrl != null) {
+                                           return Response.ok(originalUrl).build();
+                                       } else {
+                                           return Response.status(Response.Status.NOT_FOUND)
+                                                          .entity("Data not found in the database")
+                                                          .build();
+                                       }
+                                   })
+                                   .whenComplete((response, e) -> resolveTimer.recordSince(start));
+    }
 
-            if (originalUrl != null) {
-                return Response.ok(originalUrl).build();
-            } else {
-                return Response.status(Response.Status.NOT_FOUND).entity("Data not found in the database").build();
+    /**
+     * Look up the original URL of a shortened URL, without blocking when the service supports it and otherwise through
+     * the executor running blocking database calls.
+     *
+     * @param urlShortenService    The URL shortening service.
+     * @param databaseCallExecutor Executor running the blocking calls to the service.
+     * @param shortenedUrl         The shortened URL to look up.
+     * @return Stage completed with the original URL, or null if not found.
+     */
+    static CompletionStage<String> lookUpOriginalUrl(UrlShortenService urlShortenService,
+                                                     DatabaseCallExecutor databaseCallExecutor, String shortenedUrl) {
+        return urlShortenService.isNonBlockingLookupEnabled()
+               ? urlShortenService.getOriginalUrlAsync(shortenedUrl)
+               : databaseCallExecutor.submit(() -> urlShortenService.getOriginalUrl(shortenedUrl));
+    }
 
-            }
-        } catch (SessionOpenException e) {
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                           .entity("Error communicating with database")
-                           .build();
+    /**
+     * Endpoint for retrieving the click stats of a shortened URL using a GET request.
+     * The stats include clicks recorded on this instance that have not been flushed to the database yet.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return Response containing the click count and the times of the first and latest clicks, one per line.
+     */
+    @GET
+    @Path("/{shortenedUrl}/stats")
+    public CompletionStage<Response> getClickStats(@PathParam("shortenedUrl") String shortenedUrl) {
+        return databaseCallExecutor.submit(() -> clickStatsService.getClickStats(shortenedUrl))
+                                   .handle((clickStats, e) -> {
+                                       if (e != null) {
+                                           return databaseErrorResponse(e);
+                                       } else if (clickStats != null) {
+                                           return Response.ok(formatClickStats(clickStats)).build();
+                                       } else {
+                                           return Response.status(Response.Status.NOT_FOUND)
+                                                          .entity("Data not found in the database")
+                                                          .build();
+                                       }
+                                   });
+    }
 
+    /**
+     * Format click stats as the body of a response.
+     *
+     * @param clickStats The click stats.
+     * @return The click count, and the times of the first and latest clicks if there were any, one per line.
+     */
+    private static String formatClickStats(ClickStatsEntity clickStats) {
+        StringBuilder body = new StringBuilder("clicks=").append(clickStats.getClickCount()).append('\n');
+        if (clickStats.getFirstClickedAt() != null) {
+            body.append("firstClickedAt=").append(clickStats.getFirstClickedAt()).append('\n');
+            body.append("lastClickedAt=").append(clickStats.getLastClickedAt()).append('\n');
+        }
+        return body.toString();
+    }
+
+    /**
+     * Build the response to a failed database call.
+     *
+     * @param e What the call threw.
+     * @return Response reporting the error communicating with the database.
+     * @throws CompletionException If the call failed for any other reason, to be handled by RESTEasy.
+     */
+    static Response databaseErrorResponse(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (!(cause instanceof SessionOpenException)) {
+            throw e instanceof CompletionException completionException
+                  ? completionException
+                  : new CompletionException(cause);
         }
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                       .entity("Error communicating with database")
+                       .build();
     }
 }
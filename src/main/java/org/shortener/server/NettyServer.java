@@ -0,0 +1,377 @@
+package org.shortener.server;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AsciiString;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.plugins.server.embedded.EmbeddedJaxrsServer;
+import org.jboss.resteasy.plugins.server.embedded.SecurityDomain;
+import org.jboss.resteasy.plugins.server.netty.RequestDispatcher;
+import org.jboss.resteasy.plugins.server.netty.RequestHandler;
+import org.jboss.resteasy.plugins.server.netty.RestEasyHttpRequestDecoder;
+import org.jboss.resteasy.plugins.server.netty.RestEasyHttpResponseEncoder;
+import org.jboss.resteasy.spi.ResteasyDeployment;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.handlers.SmallResponseAggregator;
+import org.shortener.handlers.StreamedRequestAggregator;
+import org.shortener.handlers.StreamedRequestDecoder;
+import org.slf4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Netty server running the JAX-RS application, in place of RESTEasy's NettyJaxrsServer, whose bootstrap is fixed to
+ * the NIO transport, a single event loop group and HTTP/1.1.
+ * Connections are accepted on their own event loop and served on the native epoll transport when available (on
+ * Linux), with pooled buffers, and kept alive until idle. Clients may speak HTTP/2 over cleartext (h2c), by upgrading
+ * an HTTP/1.1 request or with prior knowledge, so many requests share a connection. Responses are compressed when
+ * the client accepts it, unless their body is too small for compression to pay off, e.g. redirects.
+ * Requests are aggregated up to shortener.server.max-request-bytes, except POST requests to the streamed request paths
+ * (e.g. bulk imports), which are dispatched as soon as their head arrives and read while their body is received.
+ * Every request, on an HTTP/1.1 connection or an HTTP/2 stream, goes through the same handlers: the HTTP channel
+ * handlers (e.g. the RedirectHandler) on the IO thread, then RESTEasy's, which run the resource methods on the
+ * executor threads.
+ */
+public class NettyServer implements EmbeddedJaxrsServer {
+
+    /**
+     * Longest request line, header block and chunk of the HTTP/1.1 decoder, as in NettyJaxrsServer
+     */
+    private static final int MAX_INITIAL_LINE_LENGTH = 4096;
+    private static final int MAX_HEADER_SIZE = 8192;
+    private static final int MAX_CHUNK_SIZE = 8192;
+
+    /**
+     * Bytes of a streamed request body received ahead of the resource reading them, from which reading is paused
+     */
+    private static final int MAX_QUEUED_BODY_BYTES = 65536;
+
+    /**
+     * Handler closing connections once the IdleStateHandler before it has seen them idle
+     */
+    private static final ChannelHandler IDLE_CONNECTION_CLOSER = new IdleConnectionCloser();
+
+    private final Logger logger;
+    private final List<ChannelHandler> httpChannelHandlers;
+    private final int port;
+    private final int bossThreads;
+    private final int ioWorkerThreads;
+    private final int executorThreads;
+    private final boolean nativeTransport;
+    private final int backlog;
+    private final int maxRequestBytes;
+    private final int idleTimeoutSeconds;
+    private final boolean http2Enabled;
+    private final int http2MaxConcurrentStreams;
+    private final int compressionMinBytes;
+
+    private ResteasyDeployment deployment = new ResteasyDeployment();
+    private String root = "";
+    private Set<String> streamedRequestPaths = Set.of();
+    private SecurityDomain domain;
+
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private EventExecutorGroup executorGroup;
+    private Channel serverChannel;
+    private ChannelGroup connections;
+    /**
+     * Streamed request paths under the root resource path, e.g. /api/mappings
+     */
+    private Set<String> streamedPaths;
+
+    /**
+     * Constructs a new NettyServer, configured by the shortener.server.* settings.
+     *
+     * @param logger              Logger for the start of the server.
+     * @param properties          Configuration holding the server settings.
+     * @param httpChannelHandlers Sharable handlers every request goes through before RESTEasy, aggregated unless
+     *                            streamed.
+     */
+    public NettyServer(Logger logger, ApplicationProperties properties, List<ChannelHandler> httpChannelHandlers) {
+        this.logger = logger;
+        this.httpChannelHandlers = httpChannelHandlers;
+        this.port = properties.getInt("shortener.server.port");
+        this.bossThreads = properties.getInt("shortener.server.boss-threads");
+        this.ioWorkerThreads = properties.getInt("shortener.server.io-worker-threads");
+        this.executorThreads = properties.getInt("shortener.server.executor-threads");
+        this.nativeTransport = properties.getBoolean("shortener.server.native-transport");
+        this.backlog = properties.getInt("shortener.server.backlog");
+        this.maxRequestBytes = properties.getInt("shortener.server.max-request-bytes");
+        this.idleTimeoutSeconds = properties.getInt("shortener.server.idle-timeout-seconds");
+        this.http2Enabled = properties.getBoolean("shortener.server.http2.enabled");
+        this.http2MaxConcurrentStreams = properties.getInt("shortener.server.http2.max-concurrent-streams");
+        this.compressionMinBytes = properties.getInt("shortener.server.compression-min-bytes");
+    }
+
+    @Override
+    public void setRootResourcePath(String rootResourcePath) {
+        if (rootResourcePath == null || rootResourcePath.equals("/")) {
+            root = "";
+        } else {
+            root = rootResourcePath.startsWith("/") ? rootResourcePath : "/" + rootResourcePath;
+        }
+    }
+
+    /**
+     * Set the paths, under the root resource path, of the POST requests whose bodies are read while they are received
+     * rather than aggregated first, so their size is not limited by shortener.server.max-request-bytes.
+     *
+     * @param streamedRequestPaths Paths, e.g. /mappings, matched without the query.
+     */
+    public void setStreamedRequestPaths(Set<String> streamedRequestPaths) {
+        this.streamedRequestPaths = streamedRequestPaths;
+    }
+
+    @Override
+    public ResteasyDeployment getDeployment() {
+        return deployment;
+    }
+
+    @Override
+    public void setDeployment(ResteasyDeployment deployment) {
+        this.deployment = deployment;
+    }
+
+    @Override
+    public void setSecurityDomain(SecurityDomain domain) {
+        this.domain = domain;
+    }
+
+    /**
+     * Start the deployment and listen on shortener.server.port.
+     */
+    @Override
+    public void start() {
+        deployment.start();
+        RequestDispatcher dispatcher = new RequestDispatcher((SynchronousDispatcher) deployment.getDispatcher(),
+                                                             deployment.getProviderFactory(), domain);
+        streamedPaths = streamedRequestPaths.stream().map(path -> root + path).collect(Collectors.toSet());
+
+        // 0 IO workers leaves Netty's default of twice the number of cores in place
+        boolean epoll = nativeTransport && Epoll.isAvailable();
+        bossGroup = epoll ? new EpollEventLoopGroup(bossThreads) : new NioEventLoopGroup(bossThreads);
+        workerGroup = epoll ? new EpollEventLoopGroup(ioWorkerThreads) : new NioEventLoopGroup(ioWorkerThreads);
+        executorGroup = new DefaultEventExecutorGroup(executorThreads);
+        connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, backlog)
+                .option(ChannelOption.SO_REUSEADDR, true)
+                // Pooled buffers, direct unless the platform cannot release them without the GC
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        connections.add(channel);
+                        initConnection(channel.pipeline(), dispatcher);
+                    }
+                });
+        serverChannel = bootstrap.bind(port).syncUninterruptibly().channel();
+        logger.info("Listening on port {} with the {} transport, HTTP/2 {}", getPort(), epoll ? "epoll" : "NIO",
+                    http2Enabled ? "enabled" : "disabled");
+    }
+
+    /**
+     * Stop listening and shut the event loops down, closing every connection, then stop the deployment.
+     */
+    @Override
+    public void stop() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+            serverChannel = null;
+        }
+        if (bossGroup != null) {
+            // Events of closed connections pass from the event loops to the executor threads and back,
+            // so the executor threads are drained while the event loops still run
+            connections.close().awaitUninterruptibly();
+            executorGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+            Future<?> bossShutdown = bossGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+            workerGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS).syncUninterruptibly();
+            bossShutdown.syncUninterruptibly();
+            bossGroup = null;
+            // Nothing dispatches to the resources any more, so they can be released
+            deployment.stop();
+        }
+    }
+
+    /**
+     * Get the port the server listens on, which is only known once started when shortener.server.port is 0.
+     *
+     * @return The port, -1 if the server is not started.
+     */
+    public int getPort() {
+        return serverChannel == null ? -1 : ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    private void initConnection(ChannelPipeline pipeline, RequestDispatcher dispatcher) {
+        if (idleTimeoutSeconds > 0) {
+            pipeline.addLast(new IdleStateHandler(0, 0, idleTimeoutSeconds), IDLE_CONNECTION_CLOSER);
+        }
+        HttpServerCodec httpServerCodec = new HttpServerCodec(MAX_INITIAL_LINE_LENGTH, MAX_HEADER_SIZE,
+                                                              MAX_CHUNK_SIZE);
+        if (!http2Enabled) {
+            pipeline.addLast(httpServerCodec);
+            addHttpHandlers(pipeline, dispatcher);
+            return;
+        }
+
+        // The connection either starts with the HTTP/2 preface, or as HTTP/1.1 and possibly asks to upgrade. The
+        // HTTP/1.1 handlers are only added once an HTTP/1.1 request is passed on, so HTTP/2 connections go without
+        HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(
+                httpServerCodec,
+                protocol -> AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                            ? new Http2ServerUpgradeCodec(http2FrameCodec(), http2MultiplexHandler(dispatcher))
+                            : null,
+                maxRequestBytes);
+        pipeline.addLast(new CleartextHttp2ServerUpgradeHandler(httpServerCodec, upgradeHandler,
+                                                                new Http2Handlers(dispatcher)));
+        pipeline.addLast(new Http1Handlers(dispatcher));
+    }
+
+    private Http2FrameCodec http2FrameCodec() {
+        return Http2FrameCodecBuilder.forServer()
+                                     .initialSettings(Http2Settings.defaultSettings()
+                                                                   .maxConcurrentStreams(http2MaxConcurrentStreams))
+                                     .build();
+    }
+
+    private Http2MultiplexHandler http2MultiplexHandler(RequestDispatcher dispatcher) {
+        // Each stream is a child channel of its own, its frames translated to and from HTTP/1.1 messages
+        return new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+            @Override
+            protected void initChannel(Http2StreamChannel channel) {
+                channel.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(true));
+                addHttpHandlers(channel.pipeline(), dispatcher);
+            }
+        });
+    }
+
+    private void addHttpHandlers(ChannelPipeline pipeline, RequestDispatcher dispatcher) {
+        if (compressionMinBytes >= 0) {
+            pipeline.addLast(new HttpContentCompressor(compressionMinBytes, StandardCompressionOptions.gzip(),
+                                                       StandardCompressionOptions.deflate()));
+        }
+        if (compressionMinBytes > 0) {
+            // RESTEasy writes every response in chunks, so the compressor only knows the size of those made whole
+            pipeline.addLast(new SmallResponseAggregator(compressionMinBytes));
+        }
+        pipeline.addLast(new StreamedRequestAggregator(maxRequestBytes, streamedPaths));
+        pipeline.addLast(httpChannelHandlers.toArray(ChannelHandler[]::new));
+        pipeline.addLast(new StreamedRequestDecoder(dispatcher.getDispatcher(), root,
+                                                    RestEasyHttpRequestDecoder.Protocol.HTTP, MAX_QUEUED_BODY_BYTES));
+        pipeline.addLast(new RestEasyHttpResponseEncoder());
+        pipeline.addLast(executorGroup, new RequestHandler(dispatcher));
+    }
+
+    /**
+     * Handler adding the HTTP/2 handlers in its place, on a connection starting with the HTTP/2 preface.
+     */
+    private final class Http2Handlers extends ChannelHandlerAdapter {
+
+        private final RequestDispatcher dispatcher;
+
+        private Http2Handlers(RequestDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            ctx.pipeline().addAfter(ctx.name(), null, http2MultiplexHandler(dispatcher))
+               .addAfter(ctx.name(), null, http2FrameCodec())
+               .remove(this);
+        }
+    }
+
+    /**
+     * Handler adding the HTTP/1.1 handlers in its place on the first HTTP/1.1 request of a connection.
+     * Connections starting with the HTTP/2 preface remove it straight away, upgraded connections never pass it a
+     * request.
+     */
+    private final class Http1Handlers extends ChannelInboundHandlerAdapter {
+
+        private final RequestDispatcher dispatcher;
+
+        private Http1Handlers(RequestDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpMessage) {
+                // This handler is last, so the handlers added follow it and get the request once it is removed
+                addHttpHandlers(ctx.pipeline(), dispatcher);
+                ctx.pipeline().remove(this);
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (evt instanceof CleartextHttp2ServerUpgradeHandler.PriorKnowledgeUpgradeEvent) {
+                ctx.pipeline().remove(this);
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+    }
+
+    /**
+     * Handler closing a connection on any IdleStateEvent, whatever protocol it speaks.
+     */
+    @ChannelHandler.Sharable
+    private static final class IdleConnectionCloser extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (evt instanceof IdleStateEvent) {
+                ctx.close();
+            } else {
+                ctx.fireUserEventTriggered(evt);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.shortener.services;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.sharding.ShardRouter;
+
+import java.time.Instant;
+
+/**
+ * Service class for reading the click stats of shortened URLs.
+ */
+public class ClickStatsService {
+
+    /**
+     * Router to the Hibernate session factory of the shard holding each mapping and its click stats
+     */
+    private final ShardRouter shardRouter;
+
+    /**
+     * Data Access Object for URL data
+     */
+    private final UrlDataEntityDAO urlDataEntityDAO;
+
+    /**
+     * Data Access Object for the stored click stats
+     */
+    private final ClickStatsDAO clickStatsDAO;
+
+    /**
+     * Recorder holding the clicks not flushed to the database yet
+     */
+    private final ClickRecorder clickRecorder;
+
+    public ClickStatsService(ShardRouter shardRouter, UrlDataEntityDAO urlDataEntityDAO, ClickStatsDAO clickStatsDAO,
+                             ClickRecorder clickRecorder) {
+        this.shardRouter = shardRouter;
+        this.urlDataEntityDAO = urlDataEntityDAO;
+        this.clickStatsDAO = clickStatsDAO;
+        this.clickRecorder = clickRecorder;
+    }
+
+    /**
+     * Retrieve the click stats of the given shortened URL, the stored stats plus any clicks not flushed yet.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return The click stats, null if the shortened URL does not exist.
+     * @throws SessionOpenException An error occurred communicating with the Database.
+     */
+    public ClickStatsEntity getClickStats(String shortenedUrl) throws SessionOpenException {
+        ClickStatsEntity stored;
+        try (Session session = shardRouter.forShortenedUrl(shortenedUrl).openSession()) {
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            Transaction transaction = session.beginTransaction();
+            stored = clickStatsDAO.getClickStats(shortenedUrl, session);
+            long key = shardRouter.getKeyOfShortenedUrl(shortenedUrl);
+            if (stored == null && urlDataEntityDAO.getUrlFromShortenedUrl(key, shortenedUrl, session) == null) {
+                transaction.commit();
+                return null;
+            }
+            transaction.commit();
+        } catch (Exception e) {
+            throw new SessionOpenException("Error getting click stats of queried string: " + shortenedUrl, e);
+        }
+
+        ClickStatsEntity unflushed = clickRecorder.getUnflushedClicks(shortenedUrl);
+        if (stored == null) {
+            return unflushed;
+        }
+        if (unflushed.getClickCount() == 0) {
+            return stored;
+        }
+        return new ClickStatsEntity(shortenedUrl,
+                                    stored.getClickCount() + unflushed.getClickCount(),
+                                    earliest(stored.getFirstClickedAt(), unflushed.getFirstClickedAt()),
+                                    latest(stored.getLastClickedAt(), unflushed.getLastClickedAt()));
+    }
+
+    private static Instant earliest(Instant first, Instant second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static Instant latest(Instant first, Instant second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -0,0 +1,125 @@
+package org.shortener.services;
+
+import org.shortener.exceptions.SessionOpenException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs blocking database calls on behalf of the resources.
+ * By default calls run on the thread that submits them, a RESTEasy worker thread. With virtual threads enabled each
+ * call runs on its own virtual thread instead, so a slow database or client only parks a cheap virtual thread and the
+ * worker threads are free to take the next request. Either way, the number of calls running at once is bounded by a
+ * semaphore sized to a connection pool, so excess calls wait (unmounted, when virtual) for a permit rather than
+ * timing out waiting for a connection.
+ */
+public class DatabaseCallExecutor implements AutoCloseable {
+
+    /**
+     * Executor running calls on virtual threads, null when calls run on the submitting thread
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Permits to run a call, one per pooled connection
+     */
+    private final Semaphore permits;
+
+    /**
+     * Constructs a new DatabaseCallExecutor.
+     *
+     * @param virtualThreads Whether calls run on virtual threads.
+     * @param maxConcurrentCalls Maximum number of calls running at once, the size of a connection pool.
+     */
+    public DatabaseCallExecutor(boolean virtualThreads, int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Maximum concurrent database calls must be positive");
+        }
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Run a call, on a virtual thread if enabled.
+     *
+     * @param call The call to run.
+     * @param <T>  Type of the result.
+     * @return Stage completed with the result of the call, or exceptionally with what the call threw.
+     */
+    public <T> CompletionStage<T> submit(DatabaseCall<T> call) {
+        if (executor == null) {
+            try {
+                return CompletableFuture.completedFuture(call(call));
+            } catch (SessionOpenException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(call);
+            } catch (SessionOpenException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Run a call on the current thread, waiting for a permit first.
+     *
+     * @param call The call to run.
+     * @param <T>  Type of the result.
+     * @return The result of the call.
+     * @throws SessionOpenException If the call failed, or was interrupted waiting for a permit.
+     */
+    public <T> T call(DatabaseCall<T> call) throws SessionOpenException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionOpenException("Interrupted waiting for a database connection");
+        }
+        try {
+            return call.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return The number of calls waiting for a permit.
+     */
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Stop accepting calls, letting the running ones finish.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A blocking call to the database.
+     *
+     * @param <T> Type of the result.
+     */
+    @FunctionalInterface
+    public interface DatabaseCall<T> {
+
+        /**
+         * Make the call.
+         *
+         * @return The result.
+         * @throws SessionOpenException An error occurred communicating with the Database.
+         */
+        T call() throws SessionOpenException;
+    }
+}
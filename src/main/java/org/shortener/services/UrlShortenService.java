@@ -1,24 +1,47 @@
 package org.shortener.services;
 
+import jakarta.persistence.PersistenceException;
+import org.hibernate.FlushMode;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
 import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.daos.UrlLookupDAO;
 import org.shortener.entities.UrlDataEntity;
 import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.metrics.LatencyTimer;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.replication.ReplicaRouter;
+import org.shortener.sharding.ShardRouter;
+import org.shortener.writebehind.WriteBehindQueue;
 import org.slf4j.Logger;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Service class for URL shortening and retrieval operations.
  */
 public class UrlShortenService {
+
     /**
-     * Characters permitted for generating short URLs (Should realistically be extracted to a external config file to
-     * be set at run, see spring version for this concept in action)
+     * Number of keys tried to save a new mapping under before giving up
      */
-    private static final String PERMITTED_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final int MAX_SAVE_ATTEMPTS = 2;
 
     /**
      * SLF4J logger for logging messages
@@ -26,9 +49,19 @@ public class UrlShortenService {
     private final Logger logger;
 
     /**
-     * Hibernate session factory for database interactions
+     * Router to the Hibernate session factory of the shard holding each mapping
+     */
+    private final ShardRouter shardRouter;
+
+    /**
+     * Router to the read replicas resolves are read from, null if every read goes to the primary
+     */
+    private final ReplicaRouter replicaRouter;
+
+    /**
+     * Queue new mappings are written behind through, null if shortening waits for the mapping to be stored
      */
-    private final SessionFactory sessionFactory;
+    private final WriteBehindQueue writeBehindQueue;
 
     /**
      * Data Access Object for URL data
@@ -36,18 +69,88 @@ public class UrlShortenService {
     private final UrlDataEntityDAO urlDataEntityDAO;
 
     /**
-     * Random number generator for short URL generation
+     * Data Access Object looking up original URLs without blocking, null if lookups go through Hibernate
+     */
+    private final UrlLookupDAO urlLookupDAO;
+
+    /**
+     * Read-through cache of shortened URL to original URL mappings
+     */
+    private final UrlCache urlCache;
+
+    /**
+     * Filter telling which shortened and original URLs are certainly not stored
+     */
+    private final UrlExistenceFilter urlExistenceFilter;
+
+    /**
+     * Generator of unique short codes
+     */
+    private final ShortCodeGenerator shortCodeGenerator;
+
+    /**
+     * Recorder of clicks on resolved shortened URLs
      */
-    private final Random randomGenerator = new Random();
+    private final ClickRecorder clickRecorder;
 
-    public UrlShortenService(Logger logger, SessionFactory factory, UrlDataEntityDAO dataEntityDAO) {
+    /**
+     * Latency of opening sessions
+     */
+    private final LatencyTimer sessionOpenTimer;
+
+    /**
+     * Number of mappings created
+     */
+    private final LongAdder createdCount;
+
+    /**
+     * Number of resolves read from the primary after a read replica missed or failed
+     */
+    private final LongAdder replicaFallbackCount;
+
+    /**
+     * Constructs a new UrlShortenService.
+     *
+     * @param logger             Logger for shortening and resolving.
+     * @param shardRouter        Router to the session factory of the shard holding each mapping.
+     * @param replicaRouter      Router to the read replicas, null to read every resolve from the primary.
+     * @param writeBehindQueue   Queue new mappings are written behind through, null to wait for them to be stored.
+     * @param dataEntityDAO      Data Access Object for URL data.
+     * @param urlLookupDAO       Data Access Object looking up original URLs without blocking, null to use Hibernate.
+     * @param urlCache           Read-through cache of shortened URL to original URL mappings.
+     * @param urlExistenceFilter Filter telling which shortened and original URLs are certainly not stored.
+     * @param shortCodeGenerator Generator of unique short codes.
+     * @param clickRecorder      Recorder of clicks on resolved shortened URLs.
+     * @param metricsRegistry    Registry the service's metrics are registered in.
+     */
+    public UrlShortenService(Logger logger, ShardRouter shardRouter, ReplicaRouter replicaRouter,
+                             WriteBehindQueue writeBehindQueue, UrlDataEntityDAO dataEntityDAO,
+                             UrlLookupDAO urlLookupDAO, UrlCache urlCache, UrlExistenceFilter urlExistenceFilter,
+                             ShortCodeGenerator shortCodeGenerator, ClickRecorder clickRecorder,
+                             MetricsRegistry metricsRegistry) {
         this.logger = logger;
-        this.sessionFactory = factory;
+        this.shardRouter = shardRouter;
+        this.replicaRouter = replicaRouter;
+        this.writeBehindQueue = writeBehindQueue;
         this.urlDataEntityDAO = dataEntityDAO;
+        this.urlLookupDAO = urlLookupDAO;
+        this.urlCache = urlCache;
+        this.urlExistenceFilter = urlExistenceFilter;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.clickRecorder = clickRecorder;
+        this.sessionOpenTimer = metricsRegistry.timer("shortener_db_session_open_seconds",
+                                                      "Time taken to open a Hibernate session");
+        this.createdCount = metricsRegistry.counter("shortener_urls_created_total", "Shortened URLs created");
+        this.replicaFallbackCount = metricsRegistry.counter("shortener_db_replica_fallbacks_total",
+                                                            "Resolves read from the primary after a read replica"
+                                                            + " missed or failed");
     }
 
     /**
      * Shorten the given original URL.
+     * The lookup and insert share one session, connection and transaction on the shard the original URL is stored on,
+     * and the lookup is skipped when the existence filter shows the original URL is certainly not stored. With a
+     * WriteBehindQueue the new mapping is written behind instead, see {@link #shortenUrlBehind(String, String, int)}.
      *
      * @param originalUrl The original URL to be shortened.
      * @return The shortened URL.
@@ -56,29 +159,67 @@ public class UrlShortenService {
     public String shortenUrl(String originalUrl) throws SessionOpenException {
 
         Transaction transaction = null;
+        String originalUrlHash = UrlDataEntity.hashOriginalUrl(originalUrl);
+        int shard = shardRouter.getShardOfOriginalUrlHash(originalUrlHash);
+        if (writeBehindQueue != null) {
+            return shortenUrlBehind(originalUrl, originalUrlHash, shard);
+        }
 
-        try (Session session = sessionFactory.openSession()) {
+        try (Session session = openSession(shardRouter.getShard(shard))) {
             transaction = session.beginTransaction();
             String shortenedUrl;
-            UrlDataEntity alreadyStoredEntity = urlDataEntityDAO.getUrlFromOriginalUrl(originalUrl, session);
+            UrlDataEntity alreadyStoredEntity = urlExistenceFilter.mightContainOriginalUrlHash(originalUrlHash)
+                                                ? urlDataEntityDAO.getUrlFromOriginalUrl(originalUrl, session)
+                                                : null;
+            boolean created = false;
             if (alreadyStoredEntity == null) {
-                shortenedUrl = generateShortUrl();
+                shortenedUrl = null;
+                for (int attempt = 1; shortenedUrl == null; attempt++) {
+                    // Generated codes are guaranteed unique, so no lookup is needed before saving
+                    long key = shortCodeGenerator.generateKey();
+                    String newShortenedUrl = shardRouter.getShortenedUrl(shard, key);
+                    try {
+                        urlDataEntityDAO.saveUrl(new UrlDataEntity(originalUrl, newShortenedUrl, key), session);
+                        created = true;
+                        shortenedUrl = newShortenedUrl;
+                        urlCache.put(shortenedUrl, originalUrl);
+                        logger.debug("Shortened URL created: {}", shortenedUrl);
+                    } catch (PersistenceException e) {
+                        if (!isConstraintViolation(e)) {
+                            throw e;
+                        }
 
-                // Naive implementation to ensure shortened url is unique
-                while (getOriginalUrl(shortenedUrl) != null) {
-                    shortenedUrl = generateShortUrl();
+                        // The unique index on the original URL digest is the source of truth, if another request
+                        // stored the same URL between the lookup above and this insert then return the code it stored
+                        // instead. The failed insert has aborted the transaction, so look it up in a new one
+                        transaction.rollback();
+                        session.clear();
+                        transaction = session.beginTransaction();
+                        UrlDataEntity concurrentlyStoredEntity = urlDataEntityDAO.getUrlFromOriginalUrl(originalUrl,
+                                                                                                        session);
+                        if (concurrentlyStoredEntity != null) {
+                            shortenedUrl = concurrentlyStoredEntity.getShortenedUrl();
+                            logger.debug("Got concurrently stored shortened URL: {}", shortenedUrl);
+                        } else if (attempt >= MAX_SAVE_ATTEMPTS) {
+                            throw e;
+                        } else {
+                            // Otherwise the key was taken, e.g. by a mapping imported before imports of keys that may
+                            // still be generated were refused, so save under a new one
+                            logger.warn("Key of new shortened URL {} already stored, generating another",
+                                        newShortenedUrl);
+                        }
+                    }
                 }
-
-                UrlDataEntity urlDataEntity = new UrlDataEntity(originalUrl, shortenedUrl);
-
-                urlDataEntityDAO.saveUrl(urlDataEntity, sessionFactory.openSession());
-                logger.info("Shortened URL created: {}", shortenedUrl);
             } else {
                 shortenedUrl = alreadyStoredEntity.getShortenedUrl();
-                logger.info("Got existing shortened URL: {}", shortenedUrl);
+                logger.debug("Got existing shortened URL: {}", shortenedUrl);
             }
 
             transaction.commit();
+            if (created) {
+                urlExistenceFilter.add(shortenedUrl, originalUrlHash);
+                createdCount.increment();
+            }
             return shortenedUrl;
         } catch (Exception e) {
             if (transaction != null) {
@@ -89,21 +230,217 @@ public class UrlShortenService {
     }
 
     /**
-     * Retrieve the original URL corresponding to the given shortened URL.
+     * Shorten the given original URL without waiting for a new mapping to be stored.
+     * A pending mapping of the URL is handed out again, and a stored one is looked up unless the existence filter
+     * shows the URL is certainly not stored. Otherwise a new code is queued to be written behind, which does not touch
+     * the database at all.
+     *
+     * @param originalUrl     The original URL to be shortened.
+     * @param originalUrlHash The hex encoded digest of the original URL.
+     * @param shard           Index of the shard the original URL is stored on.
+     * @return The shortened URL, resolvable straight away.
+     * @throws SessionOpenException An error occurred communicating with the Database, or the queue stayed full.
+     */
+    private String shortenUrlBehind(String originalUrl, String originalUrlHash, int shard)
+            throws SessionOpenException {
+        String shortenedUrl = writeBehindQueue.getPendingShortenedUrl(originalUrlHash);
+        if (shortenedUrl != null) {
+            return shortenedUrl;
+        }
+
+        if (urlExistenceFilter.mightContainOriginalUrlHash(originalUrlHash)) {
+            try (Session session = openSession(shardRouter.getShard(shard))) {
+                session.setDefaultReadOnly(true);
+                Transaction transaction = session.beginTransaction();
+                UrlDataEntity alreadyStoredEntity = urlDataEntityDAO.getUrlFromOriginalUrl(originalUrl, session);
+                transaction.commit();
+                if (alreadyStoredEntity != null) {
+                    logger.debug("Got existing shortened URL: {}", alreadyStoredEntity.getShortenedUrl());
+                    return alreadyStoredEntity.getShortenedUrl();
+                }
+            } catch (Exception e) {
+                throw new SessionOpenException("Error shortening URL:" + originalUrl, e);
+            }
+        }
+
+        long key = shortCodeGenerator.generateKey();
+        String newShortenedUrl = shardRouter.getShortenedUrl(shard, key);
+        shortenedUrl = writeBehindQueue.enqueue(new UrlDataEntity(originalUrl, newShortenedUrl, key));
+        if (shortenedUrl.equals(newShortenedUrl)) {
+            createdCount.increment();
+            logger.debug("Shortened URL queued: {}", shortenedUrl);
+        }
+        return shortenedUrl;
+    }
+
+    /**
+     * Shorten a batch of original URLs, in a single transaction per shard.
+     * URLs already stored are found with one query per shard, skipped when the existence filter shows none of them
+     * are stored, and every new mapping is inserted in JDBC batches. URLs another request stores in the meantime get
+     * the codes it stored, as in {@link #shortenUrl(String)}.
+     *
+     * @param originalUrls The original URLs to be shortened, duplicates are allowed.
+     * @return The shortened URLs, in the same order as the original URLs.
+     * @throws SessionOpenException An error occurred communicating with the Database, nothing in the batch was saved
+     *                              on the failing shard. Shards are saved in order, so the URLs of earlier shards may
+     *                              have been saved, shortening the batch again returns their stored codes.
+     */
+    public List<String> shortenUrls(List<String> originalUrls) throws SessionOpenException {
+        Map<Integer, List<String>> originalUrlsByShard = new TreeMap<>();
+        if (shardRouter.getShardCount() == 1) {
+            originalUrlsByShard.put(0, originalUrls);
+        } else {
+            for (String originalUrl : originalUrls) {
+                int shard = shardRouter.getShardOfOriginalUrlHash(UrlDataEntity.hashOriginalUrl(originalUrl));
+                originalUrlsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(originalUrl);
+            }
+        }
+
+        Map<String, String> shortenedUrls = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> shardUrls : originalUrlsByShard.entrySet()) {
+            shortenUrls(shardUrls.getKey(), shardUrls.getValue(), shortenedUrls);
+        }
+
+        List<String> result = new ArrayList<>(originalUrls.size());
+        for (String originalUrl : originalUrls) {
+            result.add(shortenedUrls.get(originalUrl));
+        }
+        return result;
+    }
+
+    /**
+     * Shorten the original URLs of a batch stored on one shard, in a single transaction.
+     *
+     * @param shard         Index of the shard the original URLs are stored on.
+     * @param originalUrls  The original URLs to be shortened, duplicates are allowed.
+     * @param shortenedUrls Map the shortened URL of each original URL is added to.
+     * @throws SessionOpenException An error occurred communicating with the Database, nothing was saved.
+     */
+    private void shortenUrls(int shard, List<String> originalUrls, Map<String, String> shortenedUrls)
+            throws SessionOpenException {
+
+        Transaction transaction = null;
+
+        try (Session session = openSession(shardRouter.getShard(shard))) {
+            transaction = session.beginTransaction();
+            List<String> possiblyStoredUrls = new ArrayList<>();
+            for (String originalUrl : originalUrls) {
+                String originalUrlHash = UrlDataEntity.hashOriginalUrl(originalUrl);
+                String pendingShortenedUrl = writeBehindQueue == null
+                                             ? null
+                                             : writeBehindQueue.getPendingShortenedUrl(originalUrlHash);
+                if (pendingShortenedUrl != null) {
+                    shortenedUrls.put(originalUrl, pendingShortenedUrl);
+                } else if (urlExistenceFilter.mightContainOriginalUrlHash(originalUrlHash)) {
+                    possiblyStoredUrls.add(originalUrl);
+                }
+            }
+            if (!possiblyStoredUrls.isEmpty()) {
+                for (UrlDataEntity alreadyStoredEntity : urlDataEntityDAO.getUrlsFromOriginalUrls(possiblyStoredUrls,
+                                                                                                  session)) {
+                    shortenedUrls.put(alreadyStoredEntity.getOriginalUrl(), alreadyStoredEntity.getShortenedUrl());
+                }
+            }
+
+            List<UrlDataEntity> newEntities = new ArrayList<>();
+            for (String originalUrl : originalUrls) {
+                if (!shortenedUrls.containsKey(originalUrl)) {
+                    long key = shortCodeGenerator.generateKey();
+                    String shortenedUrl = shardRouter.getShortenedUrl(shard, key);
+                    shortenedUrls.put(originalUrl, shortenedUrl);
+                    newEntities.add(new UrlDataEntity(originalUrl, shortenedUrl, key));
+                }
+            }
+
+            try {
+                urlDataEntityDAO.saveUrls(newEntities, session);
+            } catch (PersistenceException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+
+                // As in shortenUrl, another request stored some of the URLs between the lookup above and the inserts.
+                // The failed inserts have aborted the transaction, so return the codes it stored and save the rest in
+                // a new one
+                transaction.rollback();
+                session.clear();
+                transaction = session.beginTransaction();
+                List<String> newOriginalUrls = new ArrayList<>(newEntities.size());
+                for (UrlDataEntity newEntity : newEntities) {
+                    newOriginalUrls.add(newEntity.getOriginalUrl());
+                }
+                List<UrlDataEntity> concurrentlyStoredEntities =
+                        urlDataEntityDAO.getUrlsFromOriginalUrls(newOriginalUrls, session);
+                if (concurrentlyStoredEntities.isEmpty()) {
+                    throw e;
+                }
+                Set<String> concurrentlyStoredUrls = new HashSet<>();
+                for (UrlDataEntity concurrentlyStoredEntity : concurrentlyStoredEntities) {
+                    concurrentlyStoredUrls.add(concurrentlyStoredEntity.getOriginalUrl());
+                    shortenedUrls.put(concurrentlyStoredEntity.getOriginalUrl(),
+                                      concurrentlyStoredEntity.getShortenedUrl());
+                }
+                newEntities.removeIf(newEntity -> concurrentlyStoredUrls.contains(newEntity.getOriginalUrl()));
+                logger.debug("Got {} concurrently stored shortened URLs", concurrentlyStoredUrls.size());
+                urlDataEntityDAO.saveUrls(newEntities, session);
+            }
+            transaction.commit();
+
+            for (UrlDataEntity newEntity : newEntities) {
+                urlCache.put(newEntity.getShortenedUrl(), newEntity.getOriginalUrl());
+                urlExistenceFilter.add(newEntity.getShortenedUrl(), newEntity.getOriginalUrlHash());
+            }
+            createdCount.add(newEntities.size());
+            logger.debug("Shortened batch of {} URLs, {} newly created", originalUrls.size(), newEntities.size());
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            throw new SessionOpenException("Error shortening batch of " + originalUrls.size() + " URLs", e);
+        }
+    }
+
+    /**
+     * Retrieve the original URL corresponding to the given shortened URL, recording a click on it if found.
+     * The mapping is read from a read replica when there is a healthy one, and from the primary otherwise, by the key
+     * the code decodes to. Codes that could never be stored are answered without looking them up.
      *
      * @param shortenedUrl The shortened URL to look up.
      * @return The original URL, null if data is not found.
      * @throws SessionOpenException An error occurred communicating with the Database.
      */
     public String getOriginalUrl(String shortenedUrl) throws SessionOpenException {
-        try (Session session = sessionFactory.openSession()) {
-            session.beginTransaction();
-            UrlDataEntity entity = urlDataEntityDAO.getUrlFromShortenedUrl(shortenedUrl, session);
+        UrlCache.Entry cached = urlCache.get(shortenedUrl);
+        if (cached != null) {
+            if (cached.getOriginalUrl() != null) {
+                clickRecorder.recordClick(shortenedUrl);
+            }
+            return cached.getOriginalUrl();
+        }
+        String pendingOriginalUrl = getPendingOriginalUrl(shortenedUrl);
+        if (pendingOriginalUrl != null) {
+            clickRecorder.recordClick(shortenedUrl);
+            return pendingOriginalUrl;
+        }
+        if (!shardRouter.isValidShortenedUrl(shortenedUrl)
+            || !urlExistenceFilter.mightContainShortenedUrl(shortenedUrl)) {
+            return null;
+        }
+
+        try {
+            long key = shardRouter.getKeyOfShortenedUrl(shortenedUrl);
+            UrlDataEntity entity = findUrlOnReplica(key, shortenedUrl);
+            if (entity == null) {
+                entity = findUrl(shardRouter.forShortenedUrl(shortenedUrl), key, shortenedUrl);
+            }
 
             if (entity != null) {
+                urlCache.put(shortenedUrl, entity.getOriginalUrl());
+                clickRecorder.recordClick(shortenedUrl);
                 return entity.getOriginalUrl();
             }
 
+            urlCache.putMissing(shortenedUrl);
             return null;
         } catch (Exception e) {
             throw new SessionOpenException("Error getting original URL from queried string: " + shortenedUrl, e);
@@ -111,18 +448,154 @@ public class UrlShortenService {
     }
 
     /**
-     * Generate a random short URL string of length 8.
+     * @param shortenedUrl A shortened URL.
+     * @return Its original URL if the mapping is waiting to be written behind, null otherwise.
+     */
+    private String getPendingOriginalUrl(String shortenedUrl) {
+        return writeBehindQueue == null ? null : writeBehindQueue.getPendingOriginalUrl(shortenedUrl);
+    }
+
+    /**
+     * Look up a shortened URL on a healthy read replica, if there is one.
+     * Mappings are never modified, so a mapping found on a replica is current. A replica may not have caught up with a
+     * mapping just stored on the primary though, so a miss or a failing replica is not an answer: null is returned for
+     * the caller to read the primary, which keeps a shortened URL resolvable as soon as it has been handed out.
      *
-     * @return Randomly generated short URL.
+     * @param key          The key of the shortened URL.
+     * @param shortenedUrl The shortened URL to look up.
+     * @return The mapping, null if there is no healthy replica or it was not found on the replica.
      */
-    private String generateShortUrl() {
-        StringBuilder shortUrlBuilder = new StringBuilder();
+    private UrlDataEntity findUrlOnReplica(long key, String shortenedUrl) {
+        ReplicaRouter.Replica replica = replicaRouter == null ? null : replicaRouter.select();
+        if (replica == null) {
+            return null;
+        }
 
-        for (int i = 0; i < 8; i++) {
-            int randomIndex = randomGenerator.nextInt(PERMITTED_CHARS.length());
-            shortUrlBuilder.append(PERMITTED_CHARS.charAt(randomIndex));
+        long start = System.nanoTime();
+        try {
+            UrlDataEntity entity = findUrl(replica.getSessionFactory(), key, shortenedUrl);
+            replica.recordSuccess(System.nanoTime() - start);
+            if (entity == null) {
+                replicaFallbackCount.increment();
+            }
+            return entity;
+        } catch (RuntimeException e) {
+            logger.debug("Read replica {} failed to resolve {}", replica.getIndex(), shortenedUrl, e);
+            replica.recordFailure();
+            replicaFallbackCount.increment();
+            return null;
         }
+    }
 
-        return shortUrlBuilder.toString();
+    /**
+     * Look up a shortened URL in a read only session.
+     *
+     * @param sessionFactory Session factory of the database to read.
+     * @param key            The key of the shortened URL.
+     * @param shortenedUrl   The shortened URL to look up.
+     * @return The mapping, null if not found.
+     */
+    private UrlDataEntity findUrl(SessionFactory sessionFactory, long key, String shortenedUrl) {
+        try (Session session = openSession(sessionFactory)) {
+            // Loaded entities are never modified, so skip snapshotting them for dirty checking and never flush
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            Transaction transaction = session.beginTransaction();
+            UrlDataEntity entity = urlDataEntityDAO.getUrlFromShortenedUrl(key, shortenedUrl, session);
+            transaction.commit();
+            return entity;
+        }
+    }
+
+    /**
+     * @return Whether original URLs can be retrieved without blocking, with {@link #getOriginalUrlAsync(String)}.
+     */
+    public boolean isNonBlockingLookupEnabled() {
+        return urlLookupDAO != null;
+    }
+
+    /**
+     * Retrieve the original URL corresponding to the given shortened URL without blocking the calling thread,
+     * recording a click on it if found.
+     * Cached codes, codes that could never be stored and codes certainly not stored are answered straight away. The
+     * rest are looked up by key through the non-blocking UrlLookupDAO, and the stage is completed on its thread once
+     * the database has answered.
+     *
+     * @param shortenedUrl The shortened URL to look up.
+     * @return Stage completed with the original URL, or null if data is not found. Completed exceptionally with a
+     *         SessionOpenException if an error occurred communicating with the Database.
+     * @throws IllegalStateException If the service has no UrlLookupDAO.
+     */
+    public CompletionStage<String> getOriginalUrlAsync(String shortenedUrl) {
+        if (urlLookupDAO == null) {
+            throw new IllegalStateException("Non-blocking lookups are not enabled");
+        }
+        UrlCache.Entry cached = urlCache.get(shortenedUrl);
+        if (cached != null) {
+            if (cached.getOriginalUrl() != null) {
+                clickRecorder.recordClick(shortenedUrl);
+            }
+            return CompletableFuture.completedFuture(cached.getOriginalUrl());
+        }
+        String pendingOriginalUrl = getPendingOriginalUrl(shortenedUrl);
+        if (pendingOriginalUrl != null) {
+            clickRecorder.recordClick(shortenedUrl);
+            return CompletableFuture.completedFuture(pendingOriginalUrl);
+        }
+        if (!shardRouter.isValidShortenedUrl(shortenedUrl)
+            || !urlExistenceFilter.mightContainShortenedUrl(shortenedUrl)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletionStage<String> lookup;
+        try {
+            lookup = urlLookupDAO.getOriginalUrl(shardRouter.getKeyOfShortenedUrl(shortenedUrl), shortenedUrl);
+        } catch (RuntimeException e) {
+            lookup = CompletableFuture.failedFuture(e);
+        }
+        return lookup.handle((originalUrl, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                throw new CompletionException(new SessionOpenException(
+                        "Error getting original URL from queried string: " + shortenedUrl, cause));
+            }
+            if (originalUrl != null) {
+                urlCache.put(shortenedUrl, originalUrl);
+                clickRecorder.recordClick(shortenedUrl);
+            } else {
+                urlCache.putMissing(shortenedUrl);
+            }
+            return originalUrl;
+        });
+    }
+
+    /**
+     * Open a session, recording how long it took.
+     *
+     * @param sessionFactory Session factory of the shard or replica to open the session on.
+     * @return The new session.
+     */
+    private Session openSession(SessionFactory sessionFactory) {
+        long start = System.nanoTime();
+        try {
+            return sessionFactory.openSession();
+        } finally {
+            sessionOpenTimer.recordSince(start);
+        }
+    }
+
+    /**
+     * Check whether an exception was caused by a database constraint being violated.
+     *
+     * @param exception The exception to check.
+     * @return true if a ConstraintViolationException is in the cause chain.
+     */
+    private static boolean isConstraintViolation(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,226 @@
+package org.shortener.services;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Service class for bulk export and import of mappings, e.g. to back up or migrate them.
+ * Both go through stateless sessions, so nothing is held in a persistence context or the second-level cache and memory
+ * use does not grow with the number of mappings moved. An imported mapping is stored on the shard its shortened URL
+ * routes to, so with several shards it is only imported if that is also the shard of its original URL. Otherwise the
+ * original URL could be stored on two shards, and shortening it again would not find the imported code.
+ */
+public class UrlTransferService {
+
+    /**
+     * Number of mappings between progress log messages
+     */
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+
+    /**
+     * SLF4J logger for logging messages
+     */
+    private final Logger logger;
+
+    /**
+     * Router to the Hibernate session factory of the shard holding each mapping
+     */
+    private final ShardRouter shardRouter;
+
+    /**
+     * Data Access Object for URL data
+     */
+    private final UrlDataEntityDAO urlDataEntityDAO;
+
+    /**
+     * Read-through cache of shortened URL to original URL mappings
+     */
+    private final UrlCache urlCache;
+
+    /**
+     * Filter telling which shortened and original URLs are certainly not stored
+     */
+    private final UrlExistenceFilter urlExistenceFilter;
+
+    /**
+     * Number of mappings exported
+     */
+    private final LongAdder exportedCount;
+
+    /**
+     * Number of mappings imported
+     */
+    private final LongAdder importedCount;
+
+    public UrlTransferService(Logger logger, ShardRouter shardRouter, UrlDataEntityDAO dataEntityDAO,
+                              UrlCache urlCache, UrlExistenceFilter urlExistenceFilter,
+                              MetricsRegistry metricsRegistry) {
+        this.logger = logger;
+        this.shardRouter = shardRouter;
+        this.urlDataEntityDAO = dataEntityDAO;
+        this.urlCache = urlCache;
+        this.urlExistenceFilter = urlExistenceFilter;
+        this.exportedCount = metricsRegistry.counter("shortener_urls_exported_total", "Mappings exported");
+        this.importedCount = metricsRegistry.counter("shortener_urls_imported_total", "Mappings imported");
+    }
+
+    /**
+     * Export every stored mapping, in no particular order.
+     * Each shard's table is read through a single cursor in one read only transaction, one shard after the other, so
+     * the export of each shard is a consistent snapshot.
+     *
+     * @param consumer Called with the shortened URL and original URL of each mapping.
+     * @return The number of mappings exported.
+     * @throws SessionOpenException An error occurred communicating with the Database, or thrown by the consumer.
+     */
+    public long exportUrls(BiConsumer<String, String> consumer) throws SessionOpenException {
+        long[] exported = new long[1];
+        for (SessionFactory shard : shardRouter.getShards()) {
+            exportUrls(shard, consumer, exported);
+        }
+
+        logger.info("Export finished, {} mappings exported", exported[0]);
+        return exported[0];
+    }
+
+    private void exportUrls(SessionFactory shard, BiConsumer<String, String> consumer, long[] exported)
+            throws SessionOpenException {
+
+        Transaction transaction = null;
+
+        try (StatelessSession session = shard.openStatelessSession()) {
+            transaction = session.beginTransaction();
+            urlDataEntityDAO.forEachUrl(session, (shortenedUrl, originalUrl) -> {
+                consumer.accept(shortenedUrl, originalUrl);
+                exportedCount.increment();
+                if (++exported[0] % PROGRESS_INTERVAL == 0) {
+                    logger.info("Exported {} mappings", exported[0]);
+                }
+            });
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new SessionOpenException("Error exporting mappings", e);
+        }
+    }
+
+    /**
+     * Import a chunk of mappings in a single transaction per shard.
+     * Mappings whose shortened URL or original URL is already stored (or earlier in the chunk) are skipped, so a failed
+     * import can be retried from the start, as are mappings whose shortened URL routes to another shard than their
+     * original URL. Stored mappings are found with one query, skipped when the existence filter
+     * shows none of the chunk is stored, and the rest are inserted in JDBC batches.
+     *
+     * @param mappings The mappings to import, keyed by {@link ShardRouter#getKeyOfShortenedUrl(String)}.
+     * @return The number of mappings imported, the rest were skipped.
+     * @throws SessionOpenException An error occurred communicating with the Database, nothing in the chunk was saved on
+     *                              the failing shard. This includes a URL being shortened at the same time as it is
+     *                              imported.
+     */
+    public int importUrls(List<UrlDataEntity> mappings) throws SessionOpenException {
+        if (shardRouter.getShardCount() == 1) {
+            return importUrls(shardRouter.getShard(0), mappings);
+        }
+
+        Map<Integer, List<UrlDataEntity>> mappingsByShard = new TreeMap<>();
+        int misrouted = 0;
+        for (UrlDataEntity mapping : mappings) {
+            int shard = shardRouter.getShardOfShortenedUrl(mapping.getShortenedUrl());
+            if (shard == shardRouter.getShardOfOriginalUrlHash(mapping.getOriginalUrlHash())) {
+                mappingsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(mapping);
+            } else {
+                misrouted++;
+            }
+        }
+        if (misrouted > 0) {
+            logger.warn("Skipped {} mappings whose shortened URL routes to another shard than their original URL",
+                        misrouted);
+        }
+        int imported = 0;
+        for (Map.Entry<Integer, List<UrlDataEntity>> shardMappings : mappingsByShard.entrySet()) {
+            imported += importUrls(shardRouter.getShard(shardMappings.getKey()), shardMappings.getValue());
+        }
+        return imported;
+    }
+
+    private int importUrls(SessionFactory shard, List<UrlDataEntity> mappings) throws SessionOpenException {
+
+        Transaction transaction = null;
+
+        try (StatelessSession session = shard.openStatelessSession()) {
+            transaction = session.beginTransaction();
+            // Codes are compared by key, so a code sharing the key of a stored one is skipped rather than failing the
+            // insert
+            Set<Long> storedKeys = new HashSet<>();
+            Set<String> storedOriginalUrlHashes = new HashSet<>();
+            List<Long> possiblyStoredKeys = new ArrayList<>();
+            List<String> possiblyStoredOriginalUrlHashes = new ArrayList<>();
+            for (UrlDataEntity mapping : mappings) {
+                if (urlExistenceFilter.mightContainShortenedUrl(mapping.getShortenedUrl())) {
+                    possiblyStoredKeys.add(mapping.getId());
+                }
+                if (urlExistenceFilter.mightContainOriginalUrlHash(mapping.getOriginalUrlHash())) {
+                    possiblyStoredOriginalUrlHashes.add(mapping.getOriginalUrlHash());
+                }
+            }
+            urlDataEntityDAO.forEachStoredUrl(possiblyStoredKeys, possiblyStoredOriginalUrlHashes, session,
+                                              (shortenedUrl, originalUrlHash) -> {
+                                                  storedKeys.add(shardRouter.getKeyOfShortenedUrl(shortenedUrl));
+                                                  storedOriginalUrlHashes.add(originalUrlHash);
+                                              });
+
+            List<UrlDataEntity> newEntities = new ArrayList<>(mappings.size());
+            for (UrlDataEntity mapping : mappings) {
+                if (!storedKeys.contains(mapping.getId())
+                    && !storedOriginalUrlHashes.contains(mapping.getOriginalUrlHash())) {
+                    storedKeys.add(mapping.getId());
+                    storedOriginalUrlHashes.add(mapping.getOriginalUrlHash());
+                    newEntities.add(mapping);
+                }
+            }
+
+            urlDataEntityDAO.insertUrls(newEntities, session);
+            transaction.commit();
+
+            for (UrlDataEntity newEntity : newEntities) {
+                // Drop any cached miss, rather than caching every imported mapping and evicting popular ones
+                urlCache.invalidate(newEntity.getShortenedUrl());
+                urlExistenceFilter.add(newEntity.getShortenedUrl(), newEntity.getOriginalUrlHash());
+            }
+            long previouslyImported = importedCount.sum();
+            long nowImported = previouslyImported + newEntities.size();
+            importedCount.add(newEntities.size());
+            if (previouslyImported / PROGRESS_INTERVAL != nowImported / PROGRESS_INTERVAL) {
+                logger.info("Imported {} mappings", nowImported);
+            }
+            logger.debug("Imported chunk of {} mappings, {} skipped", mappings.size(),
+                         mappings.size() - newEntities.size());
+            return newEntities.size();
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new SessionOpenException("Error importing chunk of " + mappings.size() + " mappings", e);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.shortener.sharding;
+
+import org.hibernate.SessionFactory;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.generators.Base62Encoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Routes mappings to the database (shard) holding them, each shard having its own SessionFactory.
+ * A mapping is stored on the shard chosen by the digest of its original URL, so every lookup of an original URL for
+ * deduplication goes to a single shard. Codes generated for a shard start with the character of the alphabet whose
+ * index is the shard, so resolving a code also goes to a single shard without a lookup. With a single shard nothing
+ * is added to codes, and every mapping is routed to it.
+ * A mapping is stored under the key its code encodes, so generated codes (and any code of the same form) are looked up
+ * by the number they were generated from without a digest or an index on the code. The key is only unique per shard.
+ */
+public class ShardRouter {
+
+    /**
+     * SessionFactory of each shard, indexed by shard
+     */
+    private final List<SessionFactory> shards;
+
+    /**
+     * Encoder of the short codes, the first character of a code generated for shard i is the digit of value i
+     */
+    private final Base62Encoder encoder;
+
+    /**
+     * Constructs a new ShardRouter routing every mapping to a single database, with codes over the default alphabet.
+     *
+     * @param sessionFactory SessionFactory of the database.
+     */
+    public ShardRouter(SessionFactory sessionFactory) {
+        this(List.of(sessionFactory), new Base62Encoder());
+    }
+
+    /**
+     * Constructs a new ShardRouter.
+     *
+     * @param shards  SessionFactory of each shard, the order must never change once mappings are stored.
+     * @param encoder Encoder of the short codes, the alphabet holding at least as many characters as there are shards.
+     * @throws IllegalArgumentException If there are no shards, or more shards than characters in the alphabet.
+     */
+    public ShardRouter(List<SessionFactory> shards, Base62Encoder encoder) {
+        if (shards.isEmpty() || shards.size() > 62) {
+            throw new IllegalArgumentException("Number of shards must be between 1 and 62");
+        }
+        this.shards = List.copyOf(shards);
+        this.encoder = encoder;
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return The SessionFactory of every shard, indexed by shard.
+     */
+    public List<SessionFactory> getShards() {
+        return shards;
+    }
+
+    /**
+     * Get the SessionFactory of a shard.
+     *
+     * @param shard Index of the shard.
+     * @return SessionFactory.
+     */
+    public SessionFactory getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Get the shard an original URL is stored on, and so where new codes for it are generated.
+     *
+     * @param originalUrlHash The hex encoded digest of the original URL.
+     * @return Index of the shard.
+     */
+    public int getShardOfOriginalUrlHash(String originalUrlHash) {
+        if (shards.size() == 1) {
+            return 0;
+        }
+        // The digest is uniformly distributed, so its first 32 bits are too
+        return Integer.remainderUnsigned(Integer.parseUnsignedInt(originalUrlHash, 0, 8, 16), shards.size());
+    }
+
+    /**
+     * Get the shard a shortened URL is stored on.
+     * Codes generated by this application are routed by their first character. Imported codes may start with any
+     * character, they are routed the same way and stored on the shard they are routed to.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @return Index of the shard.
+     */
+    public int getShardOfShortenedUrl(String shortenedUrl) {
+        if (shards.size() == 1) {
+            return 0;
+        }
+        int index = encoder.getDigitValue(shortenedUrl.charAt(0));
+        return (index < 0 ? shortenedUrl.charAt(0) : index) % shards.size();
+    }
+
+    /**
+     * Encode a generated key as the code of a mapping stored on a shard.
+     *
+     * @param shard Index of the shard the code is stored on.
+     * @param key   The generated key.
+     * @return The code, prefixed with the shard's character if there is more than one shard.
+     */
+    public String getShortenedUrl(int shard, long key) {
+        return shards.size() == 1 ? encoder.encode(key) : encoder.encode(encoder.getDigit(shard), key);
+    }
+
+    /**
+     * Get the key a shortened URL is stored under, decoding it in a single pass.
+     * A code generated by {@link #getShortenedUrl(int, long)}, or any code of the same form, is stored under the key
+     * it encodes. Any other code, e.g. imported with a '-' or '_', or with the character of another shard, is stored
+     * under a negative key taken from its digest, so it never takes the key of a generated code. Two such codes may
+     * in rare cases share a key, so lookups by key also compare the code.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @return The key of the shortened URL.
+     */
+    public long getKeyOfShortenedUrl(String shortenedUrl) {
+        long key = -1;
+        if (shards.size() == 1) {
+            key = encoder.decode(shortenedUrl, 0);
+        } else if (!shortenedUrl.isEmpty() && encoder.getDigitValue(shortenedUrl.charAt(0)) >= 0
+                   && encoder.getDigitValue(shortenedUrl.charAt(0)) < shards.size()) {
+            key = encoder.decode(shortenedUrl, 1);
+        }
+        return key >= 0 ? key : getDigestKeyOfShortenedUrl(shortenedUrl);
+    }
+
+    /**
+     * Check whether a shortened URL could be stored at all, so it can be rejected without looking it up.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @return Whether the shortened URL is 1 to 16 characters of the alphabet, ASCII letters, digits, '-' or '_'.
+     */
+    public boolean isValidShortenedUrl(String shortenedUrl) {
+        if (shortenedUrl == null || shortenedUrl.isEmpty()
+            || shortenedUrl.length() > UrlDataEntity.MAX_SHORTENED_URL_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < shortenedUrl.length(); i++) {
+            char c = shortenedUrl.charAt(i);
+            if (encoder.getDigitValue(c) < 0 && !(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z')
+                && !(c >= '0' && c <= '9') && c != '-' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long getDigestKeyOfShortenedUrl(String shortenedUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long bits = ByteBuffer.wrap(digest.digest(shortenedUrl.getBytes(StandardCharsets.UTF_8))).getLong();
+            return -1 - (bits & Long.MAX_VALUE);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @param originalUrlHash The hex encoded digest of an original URL.
+     * @return SessionFactory of the shard the original URL is stored on.
+     */
+    public SessionFactory forOriginalUrlHash(String originalUrlHash) {
+        return shards.get(getShardOfOriginalUrlHash(originalUrlHash));
+    }
+
+    /**
+     * @param shortenedUrl A shortened URL.
+     * @return SessionFactory of the shard the shortened URL is stored on.
+     */
+    public SessionFactory forShortenedUrl(String shortenedUrl) {
+        return shards.get(getShardOfShortenedUrl(shortenedUrl));
+    }
+}
@@ -0,0 +1,128 @@
+package org.shortener.startup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.shortener.caches.UrlCache;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Work done on start up, before the server accepts requests, so the first requests are served as fast as later ones.
+ * Every connection pool is filled rather than growing under the first requests, and the most clicked mappings are
+ * loaded into the UrlCache rather than missing it once each.
+ */
+public class Warmup {
+
+    /**
+     * Time between checks of whether the connection pools are full
+     */
+    private static final long POOL_POLL_MILLIS = 10;
+
+    private final Logger logger;
+    private final ShardRouter shardRouter;
+    private final List<SessionFactory> replicas;
+    private final UrlDataEntityDAO urlDataEntityDAO;
+    private final UrlCache urlCache;
+
+    /**
+     * Constructs a new Warmup.
+     *
+     * @param logger           Logger for the progress of the warm up.
+     * @param shardRouter      Router to the Hibernate session factory of each shard.
+     * @param replicas         Hibernate session factory of each read replica, whose pools are filled too.
+     * @param urlDataEntityDAO Data Access Object for URL data.
+     * @param urlCache         Cache the most clicked mappings are loaded into.
+     */
+    public Warmup(Logger logger, ShardRouter shardRouter, List<SessionFactory> replicas,
+                  UrlDataEntityDAO urlDataEntityDAO, UrlCache urlCache) {
+        this.logger = logger;
+        this.shardRouter = shardRouter;
+        this.replicas = replicas;
+        this.urlDataEntityDAO = urlDataEntityDAO;
+        this.urlCache = urlCache;
+    }
+
+    /**
+     * Wait for the HikariCP pool behind every shard and replica to open all of its connections.
+     * The pools open their connections in the background as soon as they are built, so this only waits for them.
+     *
+     * @param timeoutMillis Longest time to wait in total, after which the pools keep filling while requests are served.
+     * @return Whether every pool was full in time.
+     */
+    public boolean fillConnectionPools(long timeoutMillis) {
+        List<SessionFactory> sessionFactories = new ArrayList<>(shardRouter.getShards());
+        sessionFactories.addAll(replicas);
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+
+        for (SessionFactory sessionFactory : sessionFactories) {
+            HikariDataSource dataSource = getHikariDataSource(sessionFactory);
+            if (dataSource == null) {
+                continue;
+            }
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            while (pool.getTotalConnections() < dataSource.getMinimumIdle()) {
+                if (System.nanoTime() >= deadline) {
+                    logger.warn("Connection pool {} opened {} of {} connections before the warm up timed out",
+                                dataSource.getPoolName(), pool.getTotalConnections(), dataSource.getMinimumIdle());
+                    return false;
+                }
+                try {
+                    Thread.sleep(POOL_POLL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Load the most clicked mappings of every shard into the UrlCache, by the clicks stored so far.
+     *
+     * @param count The most mappings to load per shard.
+     * @return The number of mappings loaded.
+     */
+    public int preloadMostClickedUrls(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+
+        int[] loaded = new int[1];
+        for (SessionFactory sessionFactory : shardRouter.getShards()) {
+            try (Session session = sessionFactory.openSession()) {
+                session.setDefaultReadOnly(true);
+                Transaction transaction = session.beginTransaction();
+                urlDataEntityDAO.forEachMostClickedUrl(count, shardRouter::getKeyOfShortenedUrl, session,
+                                                       (shortenedUrl, originalUrl) -> {
+                                                           urlCache.put(shortenedUrl, originalUrl);
+                                                           loaded[0]++;
+                                                       });
+                transaction.commit();
+            } catch (RuntimeException e) {
+                // The cache fills on demand anyway, so a failed preload only makes the first resolves slower
+                logger.warn("Could not preload the most clicked URLs, they are cached on first resolve", e);
+            }
+        }
+        return loaded[0];
+    }
+
+    private static HikariDataSource getHikariDataSource(SessionFactory sessionFactory) {
+        ConnectionProvider connectionProvider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                                                              .getServiceRegistry()
+                                                              .getService(ConnectionProvider.class);
+        if (connectionProvider != null && connectionProvider.isUnwrappableAs(HikariDataSource.class)) {
+            return connectionProvider.unwrap(HikariDataSource.class);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,327 @@
+package org.shortener.validators;
+
+import java.util.Locale;
+
+/**
+ * Validates URLs submitted for shortening and puts them in a canonical form, so equivalent URLs are stored (and
+ * deduplicated) as the same string.
+ * URLs are checked in a single pass over their characters with no backtracking, so the cost is linear in the length
+ * of the input whatever it holds, and inputs longer than the maximum length are rejected before being read. A URL
+ * already in canonical form is returned as is, without being copied.
+ * <p>
+ * Accepted URLs are absolute http or https URLs with no user info, whose host is a domain name of at least two labels
+ * or an IPv4 address, followed by an optional port, path, query and fragment made of the characters RFC 3986 permits.
+ * Canonicalisation lower cases the scheme and host, removes the scheme's default port, adds the root path when the
+ * path is empty, upper cases percent encoded octets and decodes those of unreserved characters. Paths are otherwise
+ * left as they are, e.g. a trailing slash is significant to the server and kept.
+ */
+public class UrlValidator {
+
+    /**
+     * Default maximum length of a URL, the length of the column it is stored in
+     */
+    public static final int DEFAULT_MAX_LENGTH = 2048;
+
+    /**
+     * Maximum length of a domain name
+     */
+    private static final int MAX_HOST_LENGTH = 253;
+
+    /**
+     * Maximum length of a label of a domain name
+     */
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    /**
+     * ASCII characters permitted as they are in the path, query and fragment: unreserved characters, sub-delimiters,
+     * colon, at sign, slash and question mark
+     */
+    private static final boolean[] PATH_CHARACTERS = new boolean[128];
+
+    /**
+     * ASCII characters that are unreserved, so never need percent encoding
+     */
+    private static final boolean[] UNRESERVED_CHARACTERS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED_CHARACTERS[c] = true;
+            UNRESERVED_CHARACTERS[Character.toUpperCase(c)] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED_CHARACTERS[c] = true;
+        }
+        for (char c : "-._~".toCharArray()) {
+            UNRESERVED_CHARACTERS[c] = true;
+        }
+        System.arraycopy(UNRESERVED_CHARACTERS, 0, PATH_CHARACTERS, 0, 128);
+        for (char c : "!$&'()*+,;=:@/?".toCharArray()) {
+            PATH_CHARACTERS[c] = true;
+        }
+    }
+
+    /**
+     * Maximum length of accepted URLs, before and after canonicalisation
+     */
+    private final int maxLength;
+
+    /**
+     * Constructs a new UrlValidator accepting URLs of up to {@link #DEFAULT_MAX_LENGTH} characters.
+     */
+    public UrlValidator() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Constructs a new UrlValidator.
+     *
+     * @param maxLength Maximum length of accepted URLs, before and after canonicalisation.
+     */
+    public UrlValidator(int maxLength) {
+        if (maxLength <= 0) {
+            throw new IllegalArgumentException("Maximum length must be positive");
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Validate a URL and put it in canonical form.
+     *
+     * @param url The URL to validate.
+     * @return The canonical form of the URL, the same string if it is already canonical, null if it is not valid.
+     */
+    public String normalize(String url) {
+        if (url == null || url.length() > maxLength) {
+            return null;
+        }
+        int length = url.length();
+        Output output = new Output(url);
+
+        // Scheme
+        int i;
+        int defaultPort;
+        if (url.regionMatches(true, 0, "https://", 0, 8)) {
+            i = 8;
+            defaultPort = 443;
+        } else if (url.regionMatches(true, 0, "http://", 0, 7)) {
+            i = 7;
+            defaultPort = 80;
+        } else {
+            return null;
+        }
+        if (!url.startsWith(defaultPort == 443 ? "https" : "http")) {
+            output.replace(0, i - 3, defaultPort == 443 ? "https" : "http");
+        }
+
+        // Host, labels of letters, digits, hyphens and underscores separated by dots
+        int hostStart = i;
+        int labelStart = i;
+        int labelCount = 0;
+        boolean numericLabels = true;
+        boolean upperCase = false;
+        for (; i < length; i++) {
+            char c = url.charAt(i);
+            if (i - hostStart > MAX_HOST_LENGTH) {
+                return null;
+            } else if (c == '.' || c == ':' || c == '/' || c == '?' || c == '#') {
+                if (!isValidLabel(url, labelStart, i)) {
+                    return null;
+                }
+                labelCount++;
+                numericLabels &= isNumeric(url, labelStart, i);
+                if (c != '.') {
+                    break;
+                }
+                labelStart = i + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                upperCase = true;
+            } else if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return null;
+            }
+        }
+        if (i == length) {
+            if (!isValidLabel(url, labelStart, i)) {
+                return null;
+            }
+            labelCount++;
+            numericLabels &= isNumeric(url, labelStart, i);
+        }
+        int hostEnd = i;
+        if (labelCount < 2 || hostEnd - hostStart > MAX_HOST_LENGTH) {
+            return null;
+        }
+        boolean validHost = numericLabels
+                            ? isValidIpv4Address(url, hostStart, hostEnd)
+                            : isValidTopLevelLabel(url, labelStart, hostEnd);
+        if (!validHost) {
+            return null;
+        }
+        if (upperCase) {
+            output.replace(hostStart, hostEnd, url.substring(hostStart, hostEnd).toLowerCase(Locale.ROOT));
+        }
+
+        // Port, removed if it is the scheme's default
+        if (i < length && url.charAt(i) == ':') {
+            int portStart = i;
+            int port = 0;
+            for (i++; i < length && url.charAt(i) >= '0' && url.charAt(i) <= '9'; i++) {
+                port = port * 10 + url.charAt(i) - '0';
+                if (port > 65535) {
+                    return null;
+                }
+            }
+            if (i == portStart + 1 || port == 0) {
+                return null;
+            }
+            if (port == defaultPort) {
+                output.replace(portStart, i, "");
+            } else if (url.charAt(portStart + 1) == '0') {
+                output.replace(portStart + 1, i, Integer.toString(port));
+            }
+        }
+
+        // Path, query and fragment
+        if (i == length || url.charAt(i) != '/') {
+            if (i < length && url.charAt(i) != '?' && url.charAt(i) != '#') {
+                return null;
+            }
+            output.replace(i, i, "/");
+        }
+        boolean inFragment = false;
+        while (i < length) {
+            char c = url.charAt(i);
+            if (c == '%') {
+                int high = i + 1 < length ? hexValue(url.charAt(i + 1)) : -1;
+                int low = i + 2 < length ? hexValue(url.charAt(i + 2)) : -1;
+                if (high < 0 || low < 0) {
+                    return null;
+                }
+                int octet = high << 4 | low;
+                if (octet < 128 && UNRESERVED_CHARACTERS[octet]) {
+                    output.replace(i, i + 3, String.valueOf((char) octet));
+                } else if (url.charAt(i + 1) >= 'a' || url.charAt(i + 2) >= 'a') {
+                    output.replace(i + 1, i + 3, url.substring(i + 1, i + 3).toUpperCase(Locale.ROOT));
+                }
+                i += 3;
+            } else if (c == '#' && !inFragment) {
+                inFragment = true;
+                i++;
+            } else if (c < 128 && PATH_CHARACTERS[c]) {
+                i++;
+            } else {
+                return null;
+            }
+        }
+
+        String normalized = output.finish();
+        return normalized.length() <= maxLength ? normalized : null;
+    }
+
+    /**
+     * Value of an ASCII hex digit, -1 if the character is not one.
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * Check a label of a domain name, or an octet of an IPv4 address.
+     */
+    private static boolean isValidLabel(String url, int start, int end) {
+        return end > start && end - start <= MAX_LABEL_LENGTH && url.charAt(start) != '-'
+               && url.charAt(end - 1) != '-';
+    }
+
+    private static boolean isNumeric(String url, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (url.charAt(i) < '0' || url.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check the last label of a domain name, which must start with a letter and hold no underscores.
+     */
+    private static boolean isValidTopLevelLabel(String url, int start, int end) {
+        char first = Character.toLowerCase(url.charAt(start));
+        if (end - start < 2 || first < 'a' || first > 'z') {
+            return false;
+        }
+        int underscore = url.indexOf('_', start);
+        return underscore < 0 || underscore >= end;
+    }
+
+    /**
+     * Check a host of numeric labels is a dotted quad of octets with no leading zeros, which some clients read as
+     * octal.
+     */
+    private static boolean isValidIpv4Address(String url, int start, int end) {
+        int octets = 0;
+        int octetStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || url.charAt(i) == '.') {
+                int octetLength = i - octetStart;
+                if (octetLength > 3 || octetLength > 1 && url.charAt(octetStart) == '0'
+                    || Integer.parseInt(url, octetStart, i, 10) > 255) {
+                    return false;
+                }
+                octets++;
+                octetStart = i + 1;
+            }
+        }
+        return octets == 4;
+    }
+
+    /**
+     * Copy of the URL being validated, only allocated once a part of it is replaced.
+     */
+    private static final class Output {
+
+        private final String url;
+
+        /**
+         * The canonical URL up to {@link #copied}, null while nothing has been replaced
+         */
+        private StringBuilder builder;
+
+        /**
+         * Index of the URL up to which it has been copied to the builder
+         */
+        private int copied;
+
+        private Output(String url) {
+            this.url = url;
+        }
+
+        /**
+         * Replace part of the URL, calls must be made in order of position.
+         *
+         * @param start       Index of the first character replaced.
+         * @param end         Index after the last character replaced, the same as start to insert.
+         * @param replacement The replacement.
+         */
+        private void replace(int start, int end, String replacement) {
+            if (builder == null) {
+                builder = new StringBuilder(url.length() + 1);
+            }
+            builder.append(url, copied, start).append(replacement);
+            copied = end;
+        }
+
+        /**
+         * @return The canonical URL.
+         */
+        private String finish() {
+            return builder == null ? url : builder.append(url, copied, url.length()).toString();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.shortener.writebehind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only journal of the mappings handed out but not yet stored, in a memory-mapped file used as a ring buffer.
+ * Each record is written before its shortened URL is returned and is committed once its mapping is stored, so on
+ * start up the records after the last commit are exactly the mappings that may not have reached the database.
+ * Positions grow forever and are mapped onto the ring, each record holding its own position so stale records of an
+ * earlier lap are never mistaken for new ones. A record's header is written after its payload, so a record cut short
+ * by a crash is never read back.
+ * Writes reach the page cache as soon as they are made, and so survive the process crashing. Surviving the machine
+ * crashing needs every write to be forced to disk, which is far slower.
+ */
+public class WriteBehindJournal implements AutoCloseable {
+
+    /**
+     * Bytes of the file header, holding the committed position
+     */
+    static final int HEADER_SIZE = Long.BYTES;
+
+    /**
+     * Bytes of a record header, holding the record's position and the length of its payload
+     */
+    static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Bytes of the ring holding the records
+     */
+    private final int capacity;
+
+    /**
+     * Whether every write is forced to disk
+     */
+    private final boolean sync;
+
+    /**
+     * Position the next record is written at
+     */
+    private long appendPosition;
+
+    /**
+     * Position up to which every record has been stored
+     */
+    private long committedPosition;
+
+    /**
+     * Open a journal, creating the file if it does not exist.
+     *
+     * @param path Path of the file.
+     * @param size Size of the file in bytes, which must not change while records are pending.
+     * @param sync Whether to force every write to disk, so records also survive the machine crashing.
+     * @throws IOException If the file could not be opened or mapped.
+     */
+    public WriteBehindJournal(Path path, int size, boolean sync) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.capacity = size - HEADER_SIZE;
+        this.sync = sync;
+        this.committedPosition = buffer.getLong(0);
+        this.appendPosition = committedPosition;
+    }
+
+    /**
+     * Read back the records after the last commit, and continue appending after them.
+     *
+     * @return The records not yet committed, oldest first.
+     */
+    public synchronized List<Entry> recover() {
+        List<Entry> entries = new ArrayList<>();
+        long position = committedPosition;
+        while (position + RECORD_HEADER_SIZE - committedPosition <= capacity) {
+            ByteBuffer header = ByteBuffer.wrap(read(position, RECORD_HEADER_SIZE));
+            long recordPosition = header.getLong();
+            int length = header.getInt();
+            if (recordPosition != position || length <= 0
+                || position + RECORD_HEADER_SIZE + length - committedPosition > capacity) {
+                break;
+            }
+            String payload = new String(read(position + RECORD_HEADER_SIZE, length), StandardCharsets.UTF_8);
+            int separator = payload.indexOf('\n');
+            position += RECORD_HEADER_SIZE + length;
+            entries.add(new Entry(payload.substring(0, separator), payload.substring(separator + 1), position));
+        }
+        appendPosition = position;
+        return entries;
+    }
+
+    /**
+     * Append a mapping.
+     *
+     * @param shortenedUrl The shortened URL.
+     * @param originalUrl  The original URL.
+     * @return The entry appended, null if there is no room left until earlier records are committed.
+     */
+    public synchronized Entry append(String shortenedUrl, String originalUrl) {
+        byte[] payload = (shortenedUrl + '\n' + originalUrl).getBytes(StandardCharsets.UTF_8);
+        long end = appendPosition + RECORD_HEADER_SIZE + payload.length;
+        if (end - committedPosition > capacity) {
+            return null;
+        }
+
+        write(appendPosition + RECORD_HEADER_SIZE, payload);
+        write(appendPosition, ByteBuffer.allocate(RECORD_HEADER_SIZE)
+                                        .putLong(appendPosition)
+                                        .putInt(payload.length)
+                                        .array());
+        appendPosition = end;
+        if (sync) {
+            buffer.force();
+        }
+        return new Entry(shortenedUrl, originalUrl, end);
+    }
+
+    /**
+     * Mark every record up to a position as stored, freeing their room.
+     *
+     * @param position End position of the last stored record.
+     */
+    public synchronized void commit(long position) {
+        if (position > committedPosition) {
+            committedPosition = position;
+            buffer.putLong(0, position);
+            if (sync) {
+                buffer.force();
+            }
+        }
+    }
+
+    /**
+     * @return Bytes taken by records not yet committed.
+     */
+    public synchronized long getPendingBytes() {
+        return appendPosition - committedPosition;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void write(long position, byte[] bytes) {
+        int offset = (int) (position % capacity);
+        int firstPart = Math.min(bytes.length, capacity - offset);
+        buffer.put(HEADER_SIZE + offset, bytes, 0, firstPart);
+        buffer.put(HEADER_SIZE, bytes, firstPart, bytes.length - firstPart);
+    }
+
+    private byte[] read(long position, int length) {
+        byte[] bytes = new byte[length];
+        int offset = (int) (position % capacity);
+        int firstPart = Math.min(length, capacity - offset);
+        buffer.get(HEADER_SIZE + offset, bytes, 0, firstPart);
+        buffer.get(HEADER_SIZE, bytes, firstPart, length - firstPart);
+        return bytes;
+    }
+
+    /**
+     * A mapping in the journal.
+     */
+    public static final class Entry {
+
+        private final String shortenedUrl;
+        private final String originalUrl;
+
+        /**
+         * Position just past the record, committing it commits every record before it too
+         */
+        private final long endPosition;
+
+        Entry(String shortenedUrl, String originalUrl, long endPosition) {
+            this.shortenedUrl = shortenedUrl;
+            this.originalUrl = originalUrl;
+            this.endPosition = endPosition;
+        }
+
+        public String getShortenedUrl() {
+            return shortenedUrl;
+        }
+
+        public String getOriginalUrl() {
+            return originalUrl;
+        }
+
+        public long getEndPosition() {
+            return endPosition;
+        }
+    }
+}
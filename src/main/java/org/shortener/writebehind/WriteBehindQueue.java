@@ -0,0 +1,361 @@
+package org.shortener.writebehind;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mappings handed out before they are stored, and the background writer storing them.
+ * A shortened URL is journaled and added to the pending mappings before it is returned, and the resolve path reads
+ * the pending mappings before the database, so it resolves straight away. The writer drains the mappings in JDBC
+ * batches, one transaction per shard, and only drops a mapping from the pending ones once it is committed and cached.
+ * When the writer falls behind (or the database is down) the bounded queue fills up and shortening waits for room, up
+ * to a timeout.
+ * Like the existence filter, this is only safe when a single instance writes to the database: a URL shortened by
+ * another instance while it is pending here ends up with two codes, and the one written last is dropped.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    /**
+     * Longest wait between retries of a batch that failed to be stored
+     */
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final Logger logger;
+    private final ShardRouter shardRouter;
+    private final UrlDataEntityDAO urlDataEntityDAO;
+    private final UrlCache urlCache;
+    private final UrlExistenceFilter urlExistenceFilter;
+    private final WriteBehindJournal journal;
+
+    /**
+     * Mappings per batch written
+     */
+    private final int batchSize;
+
+    /**
+     * Longest time shortening waits for room in the queue
+     */
+    private final long enqueueTimeoutMillis;
+
+    /**
+     * Original URL of each pending shortened URL
+     */
+    private final ConcurrentHashMap<String, String> pendingOriginalUrls = new ConcurrentHashMap<>();
+
+    /**
+     * Shortened URL of each pending original URL digest
+     */
+    private final ConcurrentHashMap<String, String> pendingShortenedUrls = new ConcurrentHashMap<>();
+
+    /**
+     * Journaled mappings waiting to be written, in journal order
+     */
+    private final LinkedBlockingQueue<WriteBehindJournal.Entry> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Lock held to append a mapping to the journal and queue it, so both hold the mappings in the same order
+     */
+    private final Object appendLock = new Object();
+
+    /**
+     * Room left in the queue
+     */
+    private final Semaphore room;
+
+    private final LongAdder writtenCount;
+    private final LongAdder droppedCount;
+
+    /**
+     * Thread writing the pending mappings, null until started
+     */
+    private Thread writer;
+
+    private volatile boolean closing;
+
+    /**
+     * Constructs a new WriteBehindQueue, adding the mappings left in the journal by the previous run.
+     *
+     * @param logger               Logger for write failures.
+     * @param shardRouter          Router to the Hibernate session factory of the shard of each mapping.
+     * @param urlDataEntityDAO     Data Access Object for URL data.
+     * @param urlCache             Cache written mappings are added to.
+     * @param urlExistenceFilter   Filter written mappings are added to.
+     * @param journal              Journal of the pending mappings.
+     * @param capacity             Most mappings pending at once.
+     * @param batchSize            Mappings per batch written.
+     * @param enqueueTimeoutMillis Longest time shortening waits for room in the queue.
+     * @param metricsRegistry      Registry the queue's metrics are published in.
+     */
+    public WriteBehindQueue(Logger logger, ShardRouter shardRouter, UrlDataEntityDAO urlDataEntityDAO,
+                            UrlCache urlCache, UrlExistenceFilter urlExistenceFilter, WriteBehindJournal journal,
+                            int capacity, int batchSize, long enqueueTimeoutMillis, MetricsRegistry metricsRegistry) {
+        this.logger = logger;
+        this.shardRouter = shardRouter;
+        this.urlDataEntityDAO = urlDataEntityDAO;
+        this.urlCache = urlCache;
+        this.urlExistenceFilter = urlExistenceFilter;
+        this.journal = journal;
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.writtenCount = metricsRegistry.counter("shortener_write_behind_written_total",
+                                                    "Pending mappings written to the database");
+        this.droppedCount = metricsRegistry.counter("shortener_write_behind_dropped_total",
+                                                    "Pending mappings dropped as their URL was stored with another"
+                                                    + " code");
+        metricsRegistry.registerGauge("shortener_write_behind_pending", "Mappings waiting to be written",
+                                      queue::size);
+
+        List<WriteBehindJournal.Entry> recovered = journal.recover();
+        for (WriteBehindJournal.Entry entry : recovered) {
+            pendingOriginalUrls.put(entry.getShortenedUrl(), entry.getOriginalUrl());
+            pendingShortenedUrls.put(UrlDataEntity.hashOriginalUrl(entry.getOriginalUrl()), entry.getShortenedUrl());
+            queue.add(entry);
+        }
+        // Recovered mappings may take more than the capacity, shortening then waits until they are written
+        this.room = new Semaphore(capacity - recovered.size());
+        if (!recovered.isEmpty()) {
+            logger.info("Recovered {} pending mappings from the write-behind journal", recovered.size());
+        }
+    }
+
+    /**
+     * @param shortenedUrl A shortened URL.
+     * @return Its original URL if the mapping is pending, null otherwise.
+     */
+    public String getPendingOriginalUrl(String shortenedUrl) {
+        return pendingOriginalUrls.get(shortenedUrl);
+    }
+
+    /**
+     * @param originalUrlHash The hex encoded digest of an original URL.
+     * @return Its shortened URL if the mapping is pending, null otherwise.
+     */
+    public String getPendingShortenedUrl(String originalUrlHash) {
+        return pendingShortenedUrls.get(originalUrlHash);
+    }
+
+    /**
+     * Journal a new mapping and queue it to be written, waiting for room if the queue is full.
+     *
+     * @param mapping The mapping, its shortened URL must not have been handed out before.
+     * @return The shortened URL to hand out, that of the mapping or of a pending mapping of the same original URL.
+     * @throws SessionOpenException If there was no room in the queue or journal before the timeout.
+     */
+    public String enqueue(UrlDataEntity mapping) throws SessionOpenException {
+        try {
+            if (!room.tryAcquire(enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SessionOpenException("Write-behind queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SessionOpenException("Interrupted waiting for room in the write-behind queue", e);
+        }
+
+        // The shortened URL resolves before any caller can be handed it, the new one has never been handed out
+        pendingOriginalUrls.put(mapping.getShortenedUrl(), mapping.getOriginalUrl());
+        String pendingShortenedUrl = pendingShortenedUrls.putIfAbsent(mapping.getOriginalUrlHash(),
+                                                                      mapping.getShortenedUrl());
+        if (pendingShortenedUrl != null) {
+            pendingOriginalUrls.remove(mapping.getShortenedUrl());
+            room.release();
+            return pendingShortenedUrl;
+        }
+
+        // The writer commits a batch by the end of its last record, which must not pass a record yet to be written
+        WriteBehindJournal.Entry entry;
+        synchronized (appendLock) {
+            entry = journal.append(mapping.getShortenedUrl(), mapping.getOriginalUrl());
+            if (entry != null) {
+                queue.add(entry);
+            }
+        }
+        if (entry == null) {
+            pendingShortenedUrls.remove(mapping.getOriginalUrlHash());
+            pendingOriginalUrls.remove(mapping.getShortenedUrl());
+            room.release();
+            throw new SessionOpenException("Write-behind journal is full");
+        }
+        return mapping.getShortenedUrl();
+    }
+
+    /**
+     * Start writing the pending mappings in the background.
+     */
+    public synchronized void start() {
+        if (writer != null) {
+            throw new IllegalStateException("WriteBehindQueue already started");
+        }
+        writer = new Thread(this::writeLoop, "write-behind-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Write the pending mappings until closed, retrying a failed batch until it is stored.
+     */
+    private void writeLoop() {
+        List<WriteBehindJournal.Entry> batch = new ArrayList<>(batchSize);
+        long retryDelayMillis = 100;
+        while (!closing || !queue.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    WriteBehindJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                write(batch);
+                batch.clear();
+                retryDelayMillis = 100;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SessionOpenException e) {
+                if (closing) {
+                    logger.warn("Could not write {} pending mappings, they are kept in the write-behind journal",
+                                batch.size() + queue.size(), e);
+                    return;
+                }
+                logger.warn("Could not write {} pending mappings, retrying in {} ms", batch.size(),
+                            retryDelayMillis, e);
+                try {
+                    Thread.sleep(retryDelayMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                retryDelayMillis = Math.min(retryDelayMillis * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Store a batch of pending mappings, in one transaction per shard, then commit them in the journal.
+     * Stored mappings are cached before they stop being pending, so resolves never miss them in between.
+     * Mappings already stored, e.g. written before a crash but not yet committed in the journal, are skipped, so
+     * writing a batch again is harmless.
+     *
+     * @param batch Journaled mappings, in journal order.
+     * @throws SessionOpenException An error occurred communicating with the Database.
+     */
+    void write(List<WriteBehindJournal.Entry> batch) throws SessionOpenException {
+        Map<Integer, List<UrlDataEntity>> mappingsByShard = new TreeMap<>();
+        for (WriteBehindJournal.Entry entry : batch) {
+            mappingsByShard.computeIfAbsent(shardRouter.getShardOfShortenedUrl(entry.getShortenedUrl()),
+                                            shard -> new ArrayList<>())
+                           .add(new UrlDataEntity(entry.getOriginalUrl(), entry.getShortenedUrl(),
+                                                  shardRouter.getKeyOfShortenedUrl(entry.getShortenedUrl())));
+        }
+        for (Map.Entry<Integer, List<UrlDataEntity>> shardMappings : mappingsByShard.entrySet()) {
+            write(shardMappings.getKey(), shardMappings.getValue());
+        }
+
+        for (WriteBehindJournal.Entry entry : batch) {
+            pendingShortenedUrls.remove(UrlDataEntity.hashOriginalUrl(entry.getOriginalUrl()),
+                                        entry.getShortenedUrl());
+            pendingOriginalUrls.remove(entry.getShortenedUrl());
+        }
+        journal.commit(batch.get(batch.size() - 1).getEndPosition());
+        room.release(batch.size());
+    }
+
+    private void write(int shard, List<UrlDataEntity> mappings) throws SessionOpenException {
+
+        Transaction transaction = null;
+
+        try (StatelessSession session = shardRouter.getShard(shard).openStatelessSession()) {
+            transaction = session.beginTransaction();
+            List<Long> keys = new ArrayList<>(mappings.size());
+            List<String> originalUrlHashes = new ArrayList<>(mappings.size());
+            for (UrlDataEntity mapping : mappings) {
+                keys.add(mapping.getId());
+                originalUrlHashes.add(mapping.getOriginalUrlHash());
+            }
+            Map<String, String> storedShortenedUrls = new HashMap<>();
+            Set<Long> storedKeys = new HashSet<>();
+            urlDataEntityDAO.forEachStoredUrl(keys, originalUrlHashes, session,
+                                              (shortenedUrl, originalUrlHash) -> {
+                                                  storedShortenedUrls.put(originalUrlHash, shortenedUrl);
+                                                  storedKeys.add(shardRouter.getKeyOfShortenedUrl(shortenedUrl));
+                                              });
+
+            List<UrlDataEntity> newEntities = new ArrayList<>(mappings.size());
+            List<UrlDataEntity> storedEntities = new ArrayList<>(mappings.size());
+            for (UrlDataEntity mapping : mappings) {
+                String storedShortenedUrl = storedShortenedUrls.get(mapping.getOriginalUrlHash());
+                if (storedShortenedUrl == null && storedKeys.add(mapping.getId())) {
+                    newEntities.add(mapping);
+                    storedEntities.add(mapping);
+                } else if (mapping.getShortenedUrl().equals(storedShortenedUrl)) {
+                    storedEntities.add(mapping);
+                } else if (storedShortenedUrl == null) {
+                    droppedCount.increment();
+                    logger.error("Dropped pending shortened URL {}, its key was stored for another shortened URL",
+                                 mapping.getShortenedUrl());
+                } else {
+                    droppedCount.increment();
+                    logger.error("Dropped pending shortened URL {}, its URL was stored as {} by another writer",
+                                 mapping.getShortenedUrl(), storedShortenedUrl);
+                }
+            }
+            urlDataEntityDAO.insertUrls(newEntities, session);
+            transaction.commit();
+
+            for (UrlDataEntity storedEntity : storedEntities) {
+                urlCache.put(storedEntity.getShortenedUrl(), storedEntity.getOriginalUrl());
+                urlExistenceFilter.add(storedEntity.getShortenedUrl(), storedEntity.getOriginalUrlHash());
+            }
+            writtenCount.add(newEntities.size());
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new SessionOpenException("Error writing " + mappings.size() + " pending mappings", e);
+        }
+    }
+
+    /**
+     * Stop the writer once it has written whatever is pending, and close the journal.
+     */
+    @Override
+    public synchronized void close() {
+        closing = true;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Could not close the write-behind journal", e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.shortener.analytics;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClickRecorderTest {
+
+    private final static String SHORTENED_CHARS = "abc12345";
+    private final static String OTHER_SHORTENED_CHARS = "def67890";
+
+    @Mock
+    private Logger mockLogger;
+
+    @Mock
+    private SessionFactory mockSessionFactory;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Transaction mockTransaction;
+
+    @Mock
+    private ClickStatsDAO mockClickStatsDAO;
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    private final List<List<ClickStatsEntity>> flushes = new ArrayList<>();
+
+    private ClickRecorder clickRecorder;
+
+    @BeforeEach
+    void setUp() {
+        clickRecorder = new ClickRecorder(mockLogger, new ShardRouter(mockSessionFactory), mockClickStatsDAO,
+                                          clock::get);
+        lenient().when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        lenient().when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        lenient().doAnswer(this::recordFlush).when(mockClickStatsDAO).addClicks(any(), eq(mockSession));
+    }
+
+    private Object recordFlush(InvocationOnMock invocation) {
+        List<ClickStatsEntity> clicks = new ArrayList<>(invocation.<Collection<ClickStatsEntity>>getArgument(0));
+        clicks.sort(Comparator.comparing(ClickStatsEntity::getShortenedUrl));
+        flushes.add(clicks);
+        return null;
+    }
+
+    @Test
+    void testFlushAddsClicksSinceLastFlush() {
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clock.set(2_000);
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clickRecorder.recordClick(OTHER_SHORTENED_CHARS);
+
+        clickRecorder.flush();
+        clock.set(3_000);
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clickRecorder.flush();
+
+        assertEquals(2, flushes.size());
+        assertClicks(flushes.get(0).get(0), SHORTENED_CHARS, 2, 1_000, 2_000);
+        assertClicks(flushes.get(0).get(1), OTHER_SHORTENED_CHARS, 1, 2_000, 2_000);
+        assertEquals(1, flushes.get(1).size());
+        assertEquals(1, flushes.get(1).get(0).getClickCount());
+        verify(mockTransaction, times(2)).commit();
+        verify(mockSession, times(2)).close();
+    }
+
+    @Test
+    void testFlushPerShard() {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        Session otherSession = mock(Session.class);
+        when(otherSessionFactory.openSession()).thenReturn(otherSession);
+        when(otherSession.beginTransaction()).thenReturn(mock(Transaction.class));
+        doThrow(new HibernateException("Testing")).when(mockClickStatsDAO).addClicks(any(), eq(otherSession));
+        ClickRecorder shardedRecorder = new ClickRecorder(mockLogger,
+                                                          new ShardRouter(List.of(mockSessionFactory,
+                                                                                  otherSessionFactory),
+                                                                          new Base62Encoder()),
+                                                          mockClickStatsDAO, clock::get);
+        shardedRecorder.recordClick(SHORTENED_CHARS);
+        shardedRecorder.recordClick(OTHER_SHORTENED_CHARS);
+
+        shardedRecorder.flush();
+
+        // Codes starting with a are stored on the first shard, with b (or d, wrapping around) on the second
+        assertEquals(1, flushes.size());
+        assertClicks(flushes.get(0).get(0), SHORTENED_CHARS, 1, 1_000, 1_000);
+        assertEquals(0, shardedRecorder.getUnflushedClicks(SHORTENED_CHARS).getClickCount());
+        assertEquals(1, shardedRecorder.getUnflushedClicks(OTHER_SHORTENED_CHARS).getClickCount());
+        verify(mockLogger).warn(anyString(), any(HibernateException.class));
+    }
+
+    @Test
+    void testFlushWithoutClicks() {
+        clickRecorder.flush();
+
+        verifyNoInteractions(mockSessionFactory);
+    }
+
+    @Test
+    void testFailedFlushRetried() {
+        doThrow(new HibernateException("Testing")).doAnswer(this::recordFlush)
+                                                  .when(mockClickStatsDAO).addClicks(any(), eq(mockSession));
+        when(mockTransaction.isActive()).thenReturn(true);
+        clickRecorder.recordClick(SHORTENED_CHARS);
+
+        clickRecorder.flush();
+
+        verify(mockTransaction).rollback();
+        verify(mockLogger).warn(anyString(), any(HibernateException.class));
+        assertEquals(1, clickRecorder.getUnflushedClicks(SHORTENED_CHARS).getClickCount());
+
+        clickRecorder.flush();
+        assertEquals(1, flushes.size());
+        assertEquals(1, flushes.get(0).get(0).getClickCount());
+        assertEquals(0, clickRecorder.getUnflushedClicks(SHORTENED_CHARS).getClickCount());
+    }
+
+    @Test
+    void testGetUnflushedClicks() {
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clock.set(2_000);
+        clickRecorder.recordClick(SHORTENED_CHARS);
+
+        assertClicks(clickRecorder.getUnflushedClicks(SHORTENED_CHARS), SHORTENED_CHARS, 2, 1_000, 2_000);
+
+        ClickStatsEntity none = clickRecorder.getUnflushedClicks(OTHER_SHORTENED_CHARS);
+        assertEquals(0, none.getClickCount());
+        assertNull(none.getFirstClickedAt());
+    }
+
+    @Test
+    void testIdleEntriesEvictedAndRecreated() {
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clickRecorder.flush();
+        // Nothing clicked since the last flush, so the entry is dropped
+        clickRecorder.flush();
+        clock.set(5_000);
+        clickRecorder.recordClick(SHORTENED_CHARS);
+        clickRecorder.flush();
+
+        assertEquals(2, flushes.size());
+        assertClicks(flushes.get(1).get(0), SHORTENED_CHARS, 1, 5_000, 5_000);
+    }
+
+    @Test
+    void testCloseFlushesRemainingClicks() {
+        clickRecorder.recordClick(SHORTENED_CHARS);
+
+        clickRecorder.close();
+
+        assertEquals(1, flushes.size());
+    }
+
+    private static void assertClicks(ClickStatsEntity clicks, String shortenedUrl, long count, long firstMillis,
+                                     long lastMillis) {
+        assertEquals(shortenedUrl, clicks.getShortenedUrl());
+        assertEquals(count, clicks.getClickCount());
+        assertEquals(Instant.ofEpochMilli(firstMillis), clicks.getFirstClickedAt());
+        assertEquals(Instant.ofEpochMilli(lastMillis), clicks.getLastClickedAt());
+    }
+}
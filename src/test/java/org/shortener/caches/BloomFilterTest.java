@@ -0,0 +1,68 @@
+package org.shortener.caches;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final int INSERTIONS = 10_000;
+
+    @Test
+    void testNoFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            bloomFilter.put("code" + i);
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(bloomFilter.mightContain("code" + i));
+        }
+        assertEquals(INSERTIONS, bloomFilter.getAddedCount());
+    }
+
+    @Test
+    void testFalsePositiveRateNearTarget() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            bloomFilter.put("code" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (bloomFilter.mightContain("missing" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < INSERTIONS * 0.02, "False positives: " + falsePositives);
+        assertTrue(bloomFilter.getExpectedFalsePositiveRate() < 0.011);
+    }
+
+    @Test
+    void testSizing() {
+        BloomFilter bloomFilter = new BloomFilter(1_000_000, 0.01);
+
+        // About 9.6 bits and 7 hashes per string at a 1% false positive rate
+        assertEquals(9_585_088, bloomFilter.getBitSize());
+        assertEquals(7, bloomFilter.getHashCount());
+    }
+
+    @Test
+    void testEmptyFilterContainsNothing() {
+        BloomFilter bloomFilter = new BloomFilter(100, 0.01);
+
+        assertFalse(bloomFilter.mightContain("code"));
+        assertEquals(0, bloomFilter.getExpectedFalsePositiveRate());
+    }
+
+    @Test
+    void testInvalidSizing() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
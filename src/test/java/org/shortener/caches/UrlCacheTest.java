@@ -0,0 +1,153 @@
+package org.shortener.caches;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UrlCacheTest {
+
+    private final static String ORIGINAL_URL = "http://example.com";
+    private final static String SHORTENED_CHARS = "abc12345";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final UrlCache urlCache = new UrlCache(2, 10, 1, TimeUnit.NANOSECONDS, clock::get);
+
+    @Test
+    void testPutAndGet() {
+        urlCache.put(SHORTENED_CHARS, ORIGINAL_URL);
+
+        UrlCache.Entry entry = urlCache.get(SHORTENED_CHARS);
+
+        assertNotNull(entry);
+        assertEquals(ORIGINAL_URL, entry.getOriginalUrl());
+        assertEquals(1, urlCache.getHitCount());
+        assertEquals(0, urlCache.getMissCount());
+    }
+
+    @Test
+    void testGetUncached() {
+        assertNull(urlCache.get(SHORTENED_CHARS));
+        assertEquals(1, urlCache.getMissCount());
+    }
+
+    @Test
+    void testPeekCountsHitsOnly() {
+        assertNull(urlCache.peek(SHORTENED_CHARS));
+        urlCache.put(SHORTENED_CHARS, ORIGINAL_URL);
+
+        UrlCache.Entry entry = urlCache.peek(SHORTENED_CHARS);
+
+        assertNotNull(entry);
+        assertEquals(ORIGINAL_URL, entry.getOriginalUrl());
+        assertEquals(1, urlCache.getHitCount());
+        assertEquals(0, urlCache.getMissCount());
+    }
+
+    @Test
+    void testPutMissing() {
+        urlCache.putMissing(SHORTENED_CHARS);
+
+        UrlCache.Entry entry = urlCache.get(SHORTENED_CHARS);
+
+        assertNotNull(entry);
+        assertNull(entry.getOriginalUrl());
+    }
+
+    @Test
+    void testPutReplacesMissing() {
+        urlCache.putMissing(SHORTENED_CHARS);
+        urlCache.put(SHORTENED_CHARS, ORIGINAL_URL);
+
+        assertEquals(ORIGINAL_URL, urlCache.get(SHORTENED_CHARS).getOriginalUrl());
+        assertEquals(1, urlCache.size());
+    }
+
+    @Test
+    void testInvalidate() {
+        urlCache.putMissing(SHORTENED_CHARS);
+        urlCache.invalidate(SHORTENED_CHARS);
+
+        assertNull(urlCache.get(SHORTENED_CHARS));
+        assertEquals(0, urlCache.size());
+    }
+
+    @Test
+    void testEntriesExpire() {
+        urlCache.put(SHORTENED_CHARS, ORIGINAL_URL);
+        urlCache.putMissing("missing");
+
+        clock.set(5);
+        assertNull(urlCache.get("missing"));
+        assertNotNull(urlCache.get(SHORTENED_CHARS));
+
+        clock.set(11);
+        assertNull(urlCache.get(SHORTENED_CHARS));
+        assertEquals(0, urlCache.size());
+    }
+
+    @Test
+    void testOldestEntryEvictedWhenFull() {
+        urlCache.put("first", ORIGINAL_URL);
+        urlCache.put("second", ORIGINAL_URL);
+        urlCache.put("third", ORIGINAL_URL);
+
+        assertNull(urlCache.get("first"));
+        assertNotNull(urlCache.get("second"));
+        assertNotNull(urlCache.get("third"));
+        assertEquals(1, urlCache.getEvictionCount());
+    }
+
+    @Test
+    void testReloadedEntryEvictedByItsNewAge() {
+        UrlCache longLivedCache = new UrlCache(2, 1_000_000, 1, TimeUnit.NANOSECONDS, clock::get);
+        longLivedCache.putMissing("hot");
+        longLivedCache.put("older", ORIGINAL_URL);
+
+        // The hot miss expires and is cached again many times, each time becoming the newest entry
+        for (int i = 0; i < 1000; i++) {
+            clock.addAndGet(2);
+            assertNull(longLivedCache.get("hot"));
+            longLivedCache.putMissing("hot");
+        }
+        assertTrue(longLivedCache.getQueuedKeyCount() <= 4);
+
+        longLivedCache.put("newest", ORIGINAL_URL);
+
+        assertNotNull(longLivedCache.peek("hot"));
+        assertNull(longLivedCache.peek("older"));
+        assertNotNull(longLivedCache.peek("newest"));
+        assertEquals(1, longLivedCache.getEvictionCount());
+    }
+
+    @Test
+    void testInvalidatedEntryNotEvictedWhenCachedAgain() {
+        urlCache.put("first", ORIGINAL_URL);
+        urlCache.put("second", ORIGINAL_URL);
+        for (int i = 0; i < 1000; i++) {
+            urlCache.invalidate("first");
+            urlCache.put("first", ORIGINAL_URL);
+        }
+        assertTrue(urlCache.getQueuedKeyCount() <= 4);
+
+        urlCache.put("third", ORIGINAL_URL);
+
+        // second is now the oldest entry, not the first one cached again after it
+        assertNull(urlCache.peek("second"));
+        assertNotNull(urlCache.peek("first"));
+        assertNotNull(urlCache.peek("third"));
+        assertEquals(1, urlCache.getEvictionCount());
+    }
+
+    @Test
+    void testInvalidMaximumSize() {
+        assertThrows(IllegalArgumentException.class, () -> new UrlCache(0, 1, 1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,140 @@
+package org.shortener.caches;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.invocation.InvocationOnMock;
+import org.shortener.daos.UrlDataEntityDAO;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UrlExistenceFilterTest {
+
+    private final static String SHORTENED_CHARS = "abc12345";
+    private final static String ORIGINAL_URL_HASH = "hash";
+
+    @Mock
+    private SessionFactory mockSessionFactory;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Transaction mockTransaction;
+
+    @Mock
+    private UrlDataEntityDAO mockUrlDataEntityDAO;
+
+    private final UrlExistenceFilter urlExistenceFilter = new UrlExistenceFilter(100, 0.01);
+
+    @Test
+    void testEverythingMightBeStoredUntilWarmed() {
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        assertTrue(urlExistenceFilter.mightContainOriginalUrlHash(ORIGINAL_URL_HASH));
+        assertEquals(0, urlExistenceFilter.getSkippedLookupCount());
+    }
+
+    @Test
+    void testAddedUrlsMightBeStoredOnceWarmed() {
+        urlExistenceFilter.add(SHORTENED_CHARS, ORIGINAL_URL_HASH);
+        urlExistenceFilter.markWarmed();
+
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        assertTrue(urlExistenceFilter.mightContainOriginalUrlHash(ORIGINAL_URL_HASH));
+        assertFalse(urlExistenceFilter.mightContainShortenedUrl("missing"));
+        assertFalse(urlExistenceFilter.mightContainOriginalUrlHash("missing"));
+        assertEquals(2, urlExistenceFilter.getSkippedLookupCount());
+        assertEquals(1, urlExistenceFilter.getShortenedUrlCount());
+    }
+
+    @Test
+    void testWarmAddsStoredUrls() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        doAnswer(UrlExistenceFilterTest::streamStoredUrl).when(mockUrlDataEntityDAO)
+                                                         .forEachStoredUrl(eq(mockSession), any());
+
+        urlExistenceFilter.warm(mockSessionFactory, mockUrlDataEntityDAO);
+
+        verify(mockSession).setDefaultReadOnly(true);
+        verify(mockTransaction).commit();
+        verify(mockSession).close();
+        assertTrue(urlExistenceFilter.isWarmed());
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        assertFalse(urlExistenceFilter.mightContainShortenedUrl("missing"));
+    }
+
+    @Test
+    void testWarmStreamsEveryShard() {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        Session otherSession = mock(Session.class);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(otherSessionFactory.openSession()).thenReturn(otherSession);
+        when(otherSession.beginTransaction()).thenReturn(mock(Transaction.class));
+        doAnswer(UrlExistenceFilterTest::streamStoredUrl).when(mockUrlDataEntityDAO).forEachStoredUrl(any(), any());
+
+        urlExistenceFilter.warm(List.of(mockSessionFactory, otherSessionFactory), mockUrlDataEntityDAO);
+
+        verify(mockUrlDataEntityDAO).forEachStoredUrl(eq(mockSession), any());
+        verify(mockUrlDataEntityDAO).forEachStoredUrl(eq(otherSession), any());
+        verify(otherSession).close();
+        assertTrue(urlExistenceFilter.isWarmed());
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+    }
+
+    @Test
+    void testWarmFailureLeavesFilterUnwarmed() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockTransaction.isActive()).thenReturn(true);
+        doThrow(new HibernateException("Testing")).when(mockUrlDataEntityDAO)
+                                                  .forEachStoredUrl(eq(mockSession), any());
+
+        assertThrows(HibernateException.class,
+                     () -> urlExistenceFilter.warm(mockSessionFactory, mockUrlDataEntityDAO));
+
+        verify(mockTransaction).rollback();
+        assertFalse(urlExistenceFilter.isWarmed());
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl("missing"));
+    }
+
+    @Test
+    void testDisabledFilterNeverSkipsLookups() {
+        UrlExistenceFilter disabled = UrlExistenceFilter.disabled();
+
+        disabled.warm(mockSessionFactory, mockUrlDataEntityDAO);
+        disabled.markWarmed();
+
+        verifyNoInteractions(mockSessionFactory);
+        assertFalse(disabled.isEnabled());
+        assertTrue(disabled.mightContainShortenedUrl("missing"));
+        assertEquals(0, disabled.getMemoryBytes());
+    }
+
+    private static Object streamStoredUrl(InvocationOnMock invocation) {
+        BiConsumer<String, String> consumer = invocation.getArgument(1);
+        consumer.accept(SHORTENED_CHARS, ORIGINAL_URL_HASH);
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package org.shortener.configurations;
+
+import org.hibernate.SessionFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.ResteasyDeployment;
+import org.junit.jupiter.api.Test;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.resources.MappingResource;
+import org.shortener.resources.MetricsResource;
+import org.shortener.resources.RedirectResource;
+import org.shortener.resources.UrlResource;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.LoggerFactory;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URISyntaxException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ApplicationConfigTest {
+
+    @Test
+    void testGetResourcePaths() {
+        assertEquals(Set.of("urls", "metrics", "mappings"), new ApplicationConfig().getResourcePaths());
+    }
+
+    @Test
+    void testResourcesAreBuiltOnce() throws URISyntaxException, UnsupportedEncodingException {
+        AtomicInteger builds = new AtomicInteger();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("test_requests_total", "Requests").increment();
+        ApplicationConfig applicationConfig = new ApplicationConfig(() -> {
+            builds.incrementAndGet();
+            return Set.of(new MetricsResource(metricsRegistry));
+        });
+        ResteasyDeployment deployment = new ResteasyDeployment();
+        deployment.setApplication(applicationConfig);
+        deployment.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                MockHttpResponse response = new MockHttpResponse();
+                deployment.getDispatcher().invoke(MockHttpRequest.get("/metrics"), response);
+
+                assertEquals(200, response.getStatus());
+                assertTrue(response.getContentAsString().contains("test_requests_total 1"));
+            }
+        } finally {
+            deployment.stop();
+        }
+
+        assertEquals(1, builds.get());
+        assertTrue(applicationConfig.getClasses().isEmpty());
+    }
+
+    @Test
+    void testCompositionRootRegistersEachResourceOnce() {
+        // The composition root is built over components of its own, none of them opening a database connection
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        ShardRouter shardRouter = new ShardRouter(mock(SessionFactory.class));
+        try (ClickRecorder clickRecorder = new ClickRecorder(LoggerFactory.getLogger(ClickRecorder.class),
+                                                             shardRouter, new ClickStatsDAO());
+             DatabaseCallExecutor databaseCallExecutor = new DatabaseCallExecutor(false, 1)) {
+            Set<Object> resources = ResourceConfiguration.buildResources(
+                    properties, shardRouter, null, null, null, new UrlCache(100, 1, 1, TimeUnit.MINUTES),
+                    UrlExistenceFilter.disabled(), new SnowflakeShortCodeGenerator(0, new Base62Encoder()),
+                    clickRecorder, databaseCallExecutor, new MetricsRegistry());
+            ApplicationConfig applicationConfig = new ApplicationConfig(() -> resources);
+            Set<Object> singletons = applicationConfig.getSingletons();
+
+            assertEquals(Set.of(UrlResource.class, RedirectResource.class, MetricsResource.class,
+                                MappingResource.class),
+                         singletons.stream().map(Object::getClass).collect(Collectors.toSet()));
+            assertEquals(4, singletons.size());
+            assertTrue(applicationConfig.getClasses().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.shortener.configurations;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApplicationPropertiesTest {
+
+    private final static String KEY = "shortener.server.port";
+
+    @Test
+    void testDefaultValue() {
+        ApplicationProperties properties = new ApplicationProperties(defaults(KEY, "8080"), Map.of(), new Properties());
+
+        assertEquals(8080, properties.getInt(KEY));
+    }
+
+    @Test
+    void testEnvironmentOverridesDefault() {
+        ApplicationProperties properties = new ApplicationProperties(defaults(KEY, "8080"),
+                                                                     Map.of("SHORTENER_SERVER_PORT", "9090"),
+                                                                     new Properties());
+
+        assertEquals(9090, properties.getInt(KEY));
+    }
+
+    @Test
+    void testSystemPropertyOverridesEnvironment() {
+        ApplicationProperties properties = new ApplicationProperties(defaults(KEY, "8080"),
+                                                                     Map.of("SHORTENER_SERVER_PORT", "9090"),
+                                                                     defaults(KEY, "7070"));
+
+        assertEquals(7070, properties.getInt(KEY));
+    }
+
+    @Test
+    void testWithOverridesEverything() {
+        ApplicationProperties properties = new ApplicationProperties(defaults(KEY, "8080"), Map.of(),
+                                                                     defaults(KEY, "7070"));
+
+        assertEquals(6060, properties.with(KEY, "6060").getInt(KEY));
+        assertEquals(7070, properties.getInt(KEY));
+    }
+
+    @Test
+    void testMissingValue() {
+        ApplicationProperties properties = new ApplicationProperties(new Properties(), Map.of(), new Properties());
+
+        assertThrows(IllegalArgumentException.class, () -> properties.getString(KEY));
+    }
+
+    @Test
+    void testInvalidValues() {
+        ApplicationProperties properties = new ApplicationProperties(defaults(KEY, "not-a-number"), Map.of(),
+                                                                     new Properties());
+
+        assertThrows(IllegalArgumentException.class, () -> properties.getInt(KEY));
+        assertThrows(IllegalArgumentException.class, () -> properties.getLong(KEY));
+        assertThrows(IllegalArgumentException.class, () -> properties.getDouble(KEY));
+        assertThrows(IllegalArgumentException.class, () -> properties.getBoolean(KEY));
+    }
+
+    @Test
+    void testGetBoolean() {
+        ApplicationProperties properties = new ApplicationProperties(defaults("enabled", "TRUE"), Map.of(),
+                                                                     defaults("disabled", " false "));
+
+        assertTrue(properties.getBoolean("enabled"));
+        assertFalse(properties.getBoolean("disabled"));
+    }
+
+    @Test
+    void testGetList() {
+        Properties defaults = defaults("urls", " first , second,,");
+        defaults.setProperty("empty", " ");
+        ApplicationProperties properties = new ApplicationProperties(defaults, Map.of(), new Properties());
+
+        assertEquals(List.of("first", "second"), properties.getList("urls"));
+        assertEquals(List.of(), properties.getList("empty"));
+    }
+
+    @Test
+    void testGetWithPrefix() {
+        Properties defaults = defaults("hibernate.hikari.poolName", "pool");
+        defaults.setProperty("hibernate.show_sql", "false");
+        ApplicationProperties properties = new ApplicationProperties(defaults, Map.of(),
+                                                                     defaults("hibernate.hikari.connectionTimeout",
+                                                                              "1000"));
+
+        assertEquals(Map.of("hibernate.hikari.poolName", "pool", "hibernate.hikari.connectionTimeout", "1000"),
+                     properties.getWithPrefix("hibernate.hikari."));
+    }
+
+    @Test
+    void testToEnvironmentVariableName() {
+        assertEquals("SHORTENER_DB_SCHEMA_ACTION", ApplicationProperties.toEnvironmentVariableName(
+                "shortener.db.schema-action"));
+    }
+
+    @Test
+    void testBundledDefaultsComplete() {
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+
+        assertEquals("update", properties.getString("shortener.db.schema-action"));
+        assertFalse(properties.getBoolean("shortener.db.show-sql"));
+        assertEquals(8080, properties.getInt("shortener.server.port"));
+    }
+
+    private static Properties defaults(String key, String value) {
+        Properties properties = new Properties();
+        properties.setProperty(key, value);
+        return properties;
+    }
+}
@@ -0,0 +1,53 @@
+package org.shortener.configurations;
+
+import org.junit.jupiter.api.Test;
+import org.shortener.services.DatabaseCallExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExecutorConfigurationTest {
+
+    @Test
+    void testConcurrentCallsBoundedToOnePoolWithReplicas() throws InterruptedException {
+        // Two replica pools next to the primary, with every call going to the busy primary
+        ApplicationProperties properties = ApplicationProperties.getInstance()
+                                                                .with("shortener.server.virtual-threads", "true")
+                                                                .with("shortener.db.pool-size", "2")
+                                                                .with("shortener.db.replica-urls",
+                                                                      "jdbc:h2:mem:a,jdbc:h2:mem:b");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (DatabaseCallExecutor executor = ExecutorConfiguration.buildDatabaseCallExecutor(properties)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return running.decrementAndGet();
+                }).toCompletableFuture());
+            }
+
+            while (executor.getQueueLength() < 4) {
+                Thread.sleep(1);
+            }
+            assertEquals(2, running.get());
+            release.countDown();
+            futures.forEach(CompletableFuture::join);
+        }
+
+        assertEquals(2, maxRunning.get());
+    }
+}
@@ -0,0 +1,72 @@
+package org.shortener.daos;
+
+import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.entities.ClickStatsEntity;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClickStatsDAOTest {
+
+    private final static String SHORTENED_CHARS = "abc12345";
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Connection mockConnection;
+
+    @Mock
+    private PreparedStatement mockStatement;
+
+    @InjectMocks
+    private ClickStatsDAO clickStatsDAO;
+
+    @Test
+    void testAddClicks() throws SQLException {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Work.class).execute(mockConnection);
+            return null;
+        }).when(mockSession).doWork(any(Work.class));
+        when(mockConnection.prepareStatement(startsWith("INSERT INTO click_stats"))).thenReturn(mockStatement);
+        Instant first = Instant.ofEpochSecond(10);
+        Instant last = Instant.ofEpochSecond(20);
+
+        clickStatsDAO.addClicks(List.of(new ClickStatsEntity(SHORTENED_CHARS, 3, first, last),
+                                        new ClickStatsEntity("other", 1, last, last)), mockSession);
+
+        verify(mockStatement).setString(1, SHORTENED_CHARS);
+        verify(mockStatement).setLong(2, 3);
+        verify(mockStatement).setObject(3, first.atOffset(ZoneOffset.UTC));
+        verify(mockStatement, times(2)).addBatch();
+        verify(mockStatement, times(1)).executeBatch();
+        verify(mockStatement).close();
+    }
+
+    @Test
+    void testGetClickStats() {
+        ClickStatsEntity clickStats = new ClickStatsEntity(SHORTENED_CHARS, 1, Instant.EPOCH, Instant.EPOCH);
+        when(mockSession.get(ClickStatsEntity.class, SHORTENED_CHARS)).thenReturn(clickStats);
+
+        assertSame(clickStats, clickStatsDAO.getClickStats(SHORTENED_CHARS, mockSession));
+    }
+}
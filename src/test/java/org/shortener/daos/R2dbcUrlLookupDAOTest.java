@@ -0,0 +1,92 @@
+package org.shortener.daos;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.R2dbcConfiguration;
+import org.shortener.metrics.MetricsRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class R2dbcUrlLookupDAOTest {
+
+    private final static String ORIGINAL_URL = "http://example.com/";
+    private final static long KEY = 42;
+    private final static String SHORTENED_CHARS = "abc12345";
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private ConnectionPool pool;
+
+    private R2dbcUrlLookupDAO urlLookupDAO;
+
+    @BeforeEach
+    void setUp() {
+        // An in-memory H2 database stands in for Postgres, kept open between connections until the test drops it
+        pool = R2dbcConfiguration.buildConnectionPool(
+                ApplicationProperties.getInstance()
+                                     .with("shortener.r2dbc.url", "r2dbc:h2:mem:///lookup;DB_CLOSE_DELAY=-1")
+                                     .with("shortener.r2dbc.pool-size", "2")
+                                     .with("shortener.db.username", "sa")
+                                     .with("shortener.db.password", ""));
+        execute("CREATE TABLE url_shorten (id BIGINT PRIMARY KEY, originalUrl VARCHAR(2048) NOT NULL,"
+                + " originalUrlHash VARCHAR(64) NOT NULL, shortenedUrl VARCHAR(16) NOT NULL)");
+        execute("INSERT INTO url_shorten VALUES (" + KEY + ", '"
+                + ORIGINAL_URL + "', 'hash', '" + SHORTENED_CHARS + "')");
+        urlLookupDAO = new R2dbcUrlLookupDAO(pool, metricsRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        execute("DROP ALL OBJECTS");
+        pool.dispose();
+    }
+
+    @Test
+    void testGetOriginalUrl() {
+        assertEquals(ORIGINAL_URL, urlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS).toCompletableFuture().join());
+        assertEquals(1, metricsRegistry.timer("shortener_db_query_seconds", "", "query", "get_original_url_r2dbc")
+                                       .getCount());
+    }
+
+    @Test
+    void testGetOriginalUrlNotFound() {
+        assertNull(urlLookupDAO.getOriginalUrl(KEY + 1, "missing").toCompletableFuture().join());
+    }
+
+    @Test
+    void testGetOriginalUrlOfOtherCodeWithSameKey() {
+        execute("UPDATE url_shorten SET shortenedUrl = 'other'");
+
+        assertNull(urlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS).toCompletableFuture().join());
+    }
+
+    @Test
+    void testGetOriginalUrlThrowing() {
+        execute("DROP TABLE url_shorten");
+
+        CompletableFuture<String> result = urlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS).toCompletableFuture();
+
+        assertThrows(CompletionException.class, result::join);
+        assertEquals(2, pool.getMetrics().orElseThrow().idleSize());
+    }
+
+    private void execute(String sql) {
+        Mono.usingWhen(pool.create(),
+                       connection -> Flux.from(connection.createStatement(sql).execute())
+                                         .flatMap(result -> result.getRowsUpdated())
+                                         .then(),
+                       Connection::close)
+            .block();
+    }
+}
@@ -1,18 +1,31 @@
 package org.shortener.daos;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
 import org.hibernate.query.Query;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.shortener.entities.UrlDataEntity;
+import org.shortener.metrics.MetricsRegistry;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -22,57 +35,214 @@ class UrlDataEntityDAOTest {
     @Mock
     private Session mockSession;
 
-    @Mock
-    private Transaction mockTransaction;
-
     @Mock
     private Query<UrlDataEntity> mockQuery;
 
+    @Spy
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
     @InjectMocks
     private UrlDataEntityDAO urlDataEntityDAO;
 
     @Test
     void testSaveUrl() {
-        UrlDataEntity urlDataEntity = new UrlDataEntity(null, null);
-        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        UrlDataEntity urlDataEntity = new UrlDataEntity(null, null, 0);
 
         urlDataEntityDAO.saveUrl(urlDataEntity, mockSession);
 
         verify(mockSession).persist(urlDataEntity);
         verify(mockSession).flush();
-        verify(mockTransaction).commit();
+        verify(mockSession, never()).beginTransaction();
+        assertEquals(1, metricsRegistry.timer("shortener_db_query_seconds", "", "query", "save_url").getCount());
+    }
+
+    @Test
+    void testSaveUrls() {
+        UrlDataEntity first = new UrlDataEntity(null, null, 0);
+        UrlDataEntity second = new UrlDataEntity(null, null, 0);
+
+        urlDataEntityDAO.saveUrls(List.of(first, second), mockSession);
+
+        verify(mockSession).persist(first);
+        verify(mockSession).persist(second);
+        verify(mockSession).flush();
+        verify(mockSession).clear();
     }
 
     @Test
     void testGetUrlFromShortenedUrl() {
         String shortenedUrl = "example-shortened-url";
-        UrlDataEntity expectedEntity = new UrlDataEntity(null, shortenedUrl);
-        setUpQueryMocking(shortenedUrl, expectedEntity);
+        UrlDataEntity expectedEntity = new UrlDataEntity(null, shortenedUrl, 42);
+        when(mockSession.get(UrlDataEntity.class, 42L)).thenReturn(expectedEntity);
 
-        UrlDataEntity result = urlDataEntityDAO.getUrlFromShortenedUrl(shortenedUrl, mockSession);
+        UrlDataEntity result = urlDataEntityDAO.getUrlFromShortenedUrl(42, shortenedUrl, mockSession);
 
-        verify(mockSession).createQuery(anyString(), eq(UrlDataEntity.class));
-        verify(mockQuery).setParameter(anyString(), eq(shortenedUrl));
-        verify(mockQuery).uniqueResult();
+        verify(mockSession, never()).createNamedQuery(anyString(), eq(UrlDataEntity.class));
         assertEquals(expectedEntity, result);
+        assertEquals(1, metricsRegistry.timer("shortener_db_query_seconds", "", "query", "get_url_from_shortened_url")
+                                       .getCount());
+    }
+
+    @Test
+    void testGetUrlFromShortenedUrlOfOtherCodeWithSameKey() {
+        String shortenedUrl = "example-shortened-url";
+        when(mockSession.get(UrlDataEntity.class, 42L)).thenReturn(new UrlDataEntity(null, "other-shortened-url", 42));
+
+        assertNull(urlDataEntityDAO.getUrlFromShortenedUrl(42, shortenedUrl, mockSession));
     }
 
     @Test
     void testGetUrlFromOriginalUrl() {
         String originalUrl = "example-original-url";
-        UrlDataEntity expectedEntity = new UrlDataEntity(originalUrl, null);
+        UrlDataEntity expectedEntity = new UrlDataEntity(originalUrl, null, 0);
         setUpQueryMocking(originalUrl, expectedEntity);
 
+        when(mockQuery.setParameter(anyString(), eq(UrlDataEntity.hashOriginalUrl(originalUrl)))).thenReturn(mockQuery);
+
         UrlDataEntity result = urlDataEntityDAO.getUrlFromOriginalUrl(originalUrl, mockSession);
 
-        verify(mockSession).createQuery(anyString(), eq(UrlDataEntity.class));
+        verify(mockSession).createNamedQuery(UrlDataEntity.FIND_BY_ORIGINAL_URL, UrlDataEntity.class);
+        verify(mockQuery).setParameter("originalUrlHash", UrlDataEntity.hashOriginalUrl(originalUrl));
         verify(mockQuery).setParameter(anyString(), eq(originalUrl));
         verify(mockQuery).uniqueResult();
         assertEquals(expectedEntity, result);
     }
 
+    @Test
+    void testGetUrlsFromOriginalUrls() {
+        String originalUrl = "example-original-url";
+        List<UrlDataEntity> expectedEntities = List.of(new UrlDataEntity(originalUrl, null, 0));
+        List<String> expectedHashes = List.of(UrlDataEntity.hashOriginalUrl(originalUrl));
+        when(mockSession.createNamedQuery(anyString(), eq(UrlDataEntity.class))).thenReturn(mockQuery);
+        when(mockQuery.setParameter(anyString(), eq(expectedHashes))).thenReturn(mockQuery);
+        when(mockQuery.getResultList()).thenReturn(expectedEntities);
+
+        List<UrlDataEntity> result = urlDataEntityDAO.getUrlsFromOriginalUrls(List.of(originalUrl), mockSession);
+
+        verify(mockQuery).setParameter("originalUrlHashes", expectedHashes);
+        assertEquals(expectedEntities, result);
+    }
+
+    @Test
+    void testForEachStoredUrl() {
+        @SuppressWarnings("unchecked")
+        Query<Object[]> mockRowQuery = mock(Query.class);
+        when(mockSession.createNamedQuery(anyString(), eq(Object[].class))).thenReturn(mockRowQuery);
+        when(mockRowQuery.getResultStream()).thenReturn(Stream.of(new Object[]{"code", "hash"},
+                                                                  new Object[]{"other", "otherHash"}));
+        Map<String, String> stored = new LinkedHashMap<>();
+
+        urlDataEntityDAO.forEachStoredUrl(mockSession, stored::put);
+
+        verify(mockRowQuery).setFetchSize(anyInt());
+        verify(mockRowQuery).setReadOnly(true);
+        assertEquals(Map.of("code", "hash", "other", "otherHash"), stored);
+    }
+
+    @Test
+    void testInsertUrls() {
+        StatelessSession mockStatelessSession = mock(StatelessSession.class);
+        UrlDataEntity first = new UrlDataEntity(null, null, 0);
+        UrlDataEntity second = new UrlDataEntity(null, null, 0);
+
+        urlDataEntityDAO.insertUrls(List.of(first, second), mockStatelessSession);
+
+        verify(mockStatelessSession).insert(first);
+        verify(mockStatelessSession).insert(second);
+        assertEquals(1, metricsRegistry.timer("shortener_db_query_seconds", "", "query", "insert_urls").getCount());
+    }
+
+    @Test
+    void testForEachStoredUrlOfValues() {
+        StatelessSession mockStatelessSession = mock(StatelessSession.class);
+        @SuppressWarnings("unchecked")
+        Query<Object[]> mockRowQuery = mock(Query.class);
+        when(mockStatelessSession.createNamedQuery(anyString(), eq(Object[].class))).thenReturn(mockRowQuery);
+        when(mockRowQuery.getResultList()).thenReturn(List.<Object[]>of(new Object[]{"code", "hash"}));
+        Map<String, String> stored = new LinkedHashMap<>();
+
+        urlDataEntityDAO.forEachStoredUrl(List.of(42L), List.of(), mockStatelessSession, stored::put);
+
+        verify(mockStatelessSession).createNamedQuery(UrlDataEntity.FIND_STORED_BY_KEYS, Object[].class);
+        verify(mockStatelessSession, never()).createNamedQuery(UrlDataEntity.FIND_STORED_BY_ORIGINAL_URL_HASHES,
+                                                               Object[].class);
+        verify(mockRowQuery).setParameter("values", List.of(42L));
+        assertEquals(Map.of("code", "hash"), stored);
+    }
+
+    @Test
+    void testForEachStoredUrlOfNoValues() {
+        StatelessSession mockStatelessSession = mock(StatelessSession.class);
+
+        urlDataEntityDAO.forEachStoredUrl(List.of(), List.of(), mockStatelessSession, (code, hash) -> {
+        });
+
+        verify(mockStatelessSession, never()).createNamedQuery(anyString(), eq(Object[].class));
+    }
+
+    @Test
+    void testForEachUrl() {
+        StatelessSession mockStatelessSession = mock(StatelessSession.class);
+        @SuppressWarnings("unchecked")
+        Query<Object[]> mockRowQuery = mock(Query.class);
+        @SuppressWarnings("unchecked")
+        ScrollableResults<Object[]> mockRows = mock(ScrollableResults.class);
+        when(mockStatelessSession.createNamedQuery(anyString(), eq(Object[].class))).thenReturn(mockRowQuery);
+        when(mockRowQuery.scroll(ScrollMode.FORWARD_ONLY)).thenReturn(mockRows);
+        when(mockRows.next()).thenReturn(true, true, false);
+        when(mockRows.get()).thenReturn(new Object[]{"code", "http://example.com"},
+                                        new Object[]{"other", "http://example.org"});
+        Map<String, String> exported = new LinkedHashMap<>();
+
+        urlDataEntityDAO.forEachUrl(mockStatelessSession, exported::put);
+
+        verify(mockRowQuery).setFetchSize(anyInt());
+        verify(mockRows).close();
+        assertEquals(Map.of("code", "http://example.com", "other", "http://example.org"), exported);
+    }
+
+    @Test
+    void testForEachMostClickedUrl() {
+        @SuppressWarnings("unchecked")
+        Query<String> mockCodeQuery = mock(Query.class);
+        @SuppressWarnings("unchecked")
+        Query<Object[]> mockRowQuery = mock(Query.class);
+        when(mockSession.createNamedQuery(UrlDataEntity.FIND_MOST_CLICKED, String.class)).thenReturn(mockCodeQuery);
+        when(mockCodeQuery.getResultList()).thenReturn(List.of("hot", "warm", "gone"));
+        when(mockSession.createNamedQuery(UrlDataEntity.FIND_BY_KEYS, Object[].class)).thenReturn(mockRowQuery);
+        // "other" shares the key of "warm", and "gone" has no mapping
+        when(mockRowQuery.getResultList()).thenReturn(List.of(new Object[]{"other", "http://example.net"},
+                                                              new Object[]{"warm", "http://example.org"},
+                                                              new Object[]{"hot", "http://example.com"}));
+        Map<String, Long> keys = Map.of("hot", 1L, "warm", 2L, "gone", 3L);
+        Map<String, String> mostClicked = new LinkedHashMap<>();
+
+        urlDataEntityDAO.forEachMostClickedUrl(2, keys::get, mockSession, mostClicked::put);
+
+        verify(mockCodeQuery).setMaxResults(2);
+        verify(mockRowQuery).setParameter("keys", List.of(1L, 2L, 3L));
+        assertEquals(List.of("hot", "warm"), List.copyOf(mostClicked.keySet()));
+        assertEquals("http://example.org", mostClicked.get("warm"));
+        assertEquals(1, metricsRegistry.timer("shortener_db_query_seconds", "", "query", "get_most_clicked_urls")
+                                       .getCount());
+    }
+
+    @Test
+    void testForEachMostClickedUrlWithoutClicks() {
+        @SuppressWarnings("unchecked")
+        Query<String> mockCodeQuery = mock(Query.class);
+        when(mockSession.createNamedQuery(UrlDataEntity.FIND_MOST_CLICKED, String.class)).thenReturn(mockCodeQuery);
+        when(mockCodeQuery.getResultList()).thenReturn(List.of());
+        Map<String, String> mostClicked = new LinkedHashMap<>();
+
+        urlDataEntityDAO.forEachMostClickedUrl(2, code -> 0L, mockSession, mostClicked::put);
+
+        verify(mockSession, never()).createNamedQuery(UrlDataEntity.FIND_BY_KEYS, Object[].class);
+        assertEquals(Map.of(), mostClicked);
+    }
+
     private void setUpQueryMocking(String url, UrlDataEntity expectedEntity) {
-        when(mockSession.createQuery(anyString(), eq(UrlDataEntity.class))).thenReturn(mockQuery);
+        when(mockSession.createNamedQuery(anyString(), eq(UrlDataEntity.class))).thenReturn(mockQuery);
         when(mockQuery.setParameter(anyString(), eq(url))).thenReturn(mockQuery);
         when(mockQuery.uniqueResult()).thenReturn(expectedEntity);
     }
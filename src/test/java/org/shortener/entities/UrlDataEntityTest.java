@@ -12,10 +12,12 @@ class UrlDataEntityTest {
         String originalUrl = "http://example.com";
         String shortenedUrl = "abc123";
 
-        UrlDataEntity urlDataEntity = new UrlDataEntity(originalUrl, shortenedUrl);
+        UrlDataEntity urlDataEntity = new UrlDataEntity(originalUrl, shortenedUrl, 42);
 
         assertEquals(originalUrl, urlDataEntity.getOriginalUrl());
+        assertEquals(UrlDataEntity.hashOriginalUrl(originalUrl), urlDataEntity.getOriginalUrlHash());
         assertEquals(shortenedUrl, urlDataEntity.getShortenedUrl());
+        assertEquals(42L, urlDataEntity.getId());
     }
 
     @Test
@@ -24,5 +26,13 @@ class UrlDataEntityTest {
 
         assertNull(urlDataEntity.getOriginalUrl());
         assertNull(urlDataEntity.getShortenedUrl());
+        assertNull(urlDataEntity.getId());
+    }
+
+    @Test
+    void testHashOriginalUrl() {
+        assertEquals("f0e6a6a97042a4f1f1c87f5f7d44315b2d852c2df5c7991cc66241bf7072d1c4",
+                     UrlDataEntity.hashOriginalUrl("http://example.com"));
+        assertNull(UrlDataEntity.hashOriginalUrl(null));
     }
 }
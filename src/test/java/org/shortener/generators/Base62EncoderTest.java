@@ -0,0 +1,97 @@
+package org.shortener.generators;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class Base62EncoderTest {
+
+    private final Base62Encoder encoder = new Base62Encoder();
+
+    @Test
+    void testEncodeZero() {
+        assertEquals("a", encoder.encode(0));
+    }
+
+    @Test
+    void testEncodeMultipleDigits() {
+        assertEquals("ba", encoder.encode(62));
+        assertEquals("99", encoder.encode(62 * 62 - 1));
+    }
+
+    @Test
+    void testEncodeMaxValue() {
+        assertEquals(11, encoder.encode(Long.MAX_VALUE).length());
+    }
+
+    @Test
+    void testEncodePadsToMinLength() {
+        Base62Encoder paddingEncoder = new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 4);
+
+        assertEquals("aaba", paddingEncoder.encode(62));
+        assertEquals(11, paddingEncoder.encode(Long.MAX_VALUE).length());
+    }
+
+    @Test
+    void testEncodeWithPrefix() {
+        Base62Encoder paddingEncoder = new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 4);
+
+        assertEquals("caaba", paddingEncoder.encode('c', 62));
+        assertEquals(12, paddingEncoder.encode('c', Long.MAX_VALUE).length());
+    }
+
+    @Test
+    void testDecodeReversesEncode() {
+        Base62Encoder paddingEncoder = new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 4);
+
+        for (long value : new long[]{0, 1, 61, 62, 62 * 62 * 62 * 62 - 1, 62 * 62 * 62 * 62, Long.MAX_VALUE}) {
+            assertEquals(value, encoder.decode(encoder.encode(value), 0));
+            assertEquals(value, paddingEncoder.decode(paddingEncoder.encode(value), 0));
+            assertEquals(value, paddingEncoder.decode(paddingEncoder.encode('c', value), 1));
+        }
+        assertEquals(62, encoder.decode("ba", 0));
+    }
+
+    @Test
+    void testDecodeRejectsWhatIsNeverEncoded() {
+        Base62Encoder paddingEncoder = new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 4);
+
+        // Too short, a leading zero digit past the minimum length, outside the alphabet and too large for a long
+        assertEquals(-1, paddingEncoder.decode("aba", 0));
+        assertEquals(-1, paddingEncoder.decode("aaaba", 0));
+        assertEquals(-1, encoder.decode("ab", 0));
+        assertEquals(-1, encoder.decode("a-b", 0));
+        assertEquals(-1, encoder.decode("9999999999999", 0));
+        assertEquals(-1, encoder.decode("l" + "a".repeat(10), 0));
+        assertEquals(-1, encoder.decode("", 0));
+    }
+
+    @Test
+    void testDigitsOfCustomAlphabet() {
+        String alphabet = "~!" + Base62Encoder.DEFAULT_ALPHABET.substring(2);
+        Base62Encoder customEncoder = new Base62Encoder(alphabet, 1);
+
+        assertEquals('~', customEncoder.getDigit(0));
+        assertEquals(1, customEncoder.getDigitValue('!'));
+        assertEquals(-1, customEncoder.getDigitValue('a'));
+        assertEquals(62, customEncoder.decode(customEncoder.encode(62), 0));
+    }
+
+    @Test
+    void testEncodeNegative() {
+        assertThrows(IllegalArgumentException.class, () -> encoder.encode(-1));
+    }
+
+    @Test
+    void testInvalidAlphabet() {
+        assertThrows(IllegalArgumentException.class, () -> new Base62Encoder("abc", 1));
+        assertThrows(IllegalArgumentException.class, () -> new Base62Encoder("a".repeat(62), 1));
+    }
+
+    @Test
+    void testInvalidMinLength() {
+        assertThrows(IllegalArgumentException.class, () -> new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Base62Encoder(Base62Encoder.DEFAULT_ALPHABET, 12));
+    }
+}
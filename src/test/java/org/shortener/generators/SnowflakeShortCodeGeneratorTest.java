@@ -0,0 +1,104 @@
+package org.shortener.generators;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeShortCodeGeneratorTest {
+
+    private final AtomicLong clock = new AtomicLong(SnowflakeShortCodeGenerator.EPOCH_MILLIS + 1000);
+
+    @Test
+    void testIdsIncreaseWithinMillisecond() {
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, new Base62Encoder(), clock::get);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertEquals(first + 1, second);
+    }
+
+    @Test
+    void testIdsUniqueWhenClockMovesBackwards() {
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, new Base62Encoder(), clock::get);
+
+        long first = generator.nextId();
+        clock.addAndGet(-500);
+        long second = generator.nextId();
+
+        assertTrue(second > first);
+    }
+
+    @Test
+    void testSequenceExhaustionBorrowsNextMillisecond() {
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(0, new Base62Encoder(), clock::get);
+        Set<Long> ids = new HashSet<>();
+
+        for (int i = 0; i < (1 << SnowflakeShortCodeGenerator.SEQUENCE_BITS) + 10; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertEquals((1 << SnowflakeShortCodeGenerator.SEQUENCE_BITS) + 10, ids.size());
+    }
+
+    @Test
+    void testMayGenerateKeysFromCurrentMillisecond() {
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, new Base62Encoder(), clock::get);
+        long first = generator.nextId();
+        SnowflakeShortCodeGenerator otherNode = new SnowflakeShortCodeGenerator(2, new Base62Encoder(), clock::get);
+
+        assertTrue(generator.mayGenerateKey(first));
+        assertTrue(generator.mayGenerateKey(otherNode.nextId()));
+        assertTrue(generator.mayGenerateKey(Long.MAX_VALUE));
+        clock.addAndGet(1);
+        assertFalse(generator.mayGenerateKey(first));
+        assertFalse(generator.mayGenerateKey(0));
+    }
+
+    @Test
+    void testNodesGenerateDistinctCodes() {
+        SnowflakeShortCodeGenerator first = new SnowflakeShortCodeGenerator(1, new Base62Encoder(), clock::get);
+        SnowflakeShortCodeGenerator second = new SnowflakeShortCodeGenerator(2, new Base62Encoder(), clock::get);
+
+        assertNotEquals(first.generate(), second.generate());
+    }
+
+    @Test
+    void testConcurrentGenerationUnique() {
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(3, new Base62Encoder());
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> codes.add(generator.generate()));
+
+        assertEquals(100_000, codes.size());
+    }
+
+    @Test
+    void testCodeEncodesKey() {
+        AtomicLong clock = new AtomicLong(SnowflakeShortCodeGenerator.EPOCH_MILLIS + 1000);
+        Base62Encoder encoder = new Base62Encoder();
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, encoder, clock::get);
+
+        long key = generator.generateKey();
+
+        assertEquals(key + 1, encoder.decode(generator.generate(), 0));
+    }
+
+    @Test
+    void testInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeShortCodeGenerator(-1, new Base62Encoder()));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new SnowflakeShortCodeGenerator(SnowflakeShortCodeGenerator.MAX_NODE_ID + 1,
+                                                           new Base62Encoder()));
+    }
+}
@@ -0,0 +1,133 @@
+package org.shortener.handlers;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import org.junit.jupiter.api.Test;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class RedirectHandlerTest {
+
+    private final static String ORIGINAL_URL = "http://example.com";
+    private final static String SHORTENED_URL = "abc12345";
+
+    private final UrlCache urlCache = new UrlCache(100, 1, 1, TimeUnit.MINUTES);
+
+    private final ClickRecorder clickRecorder = mock(ClickRecorder.class);
+
+    private final EmbeddedChannel channel = new EmbeddedChannel(new RedirectHandler(urlCache, clickRecorder, "/api/",
+                                                                                    Set.of("metrics"), 302,
+                                                                                    "max-age=60"));
+
+    @Test
+    void testRedirectCached() {
+        urlCache.put(SHORTENED_URL, ORIGINAL_URL);
+        FullHttpRequest request = request(HttpMethod.GET, "/api/" + SHORTENED_URL + "?utm=1");
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.FOUND, response.status());
+        assertEquals(ORIGINAL_URL, response.headers().get(HttpHeaderNames.LOCATION));
+        assertEquals("max-age=60", response.headers().get(HttpHeaderNames.CACHE_CONTROL));
+        assertEquals("0", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertNull(channel.readInbound());
+        assertEquals(0, request.refCnt());
+        assertTrue(channel.isOpen());
+        verify(clickRecorder).recordClick(SHORTENED_URL);
+        response.release();
+    }
+
+    @Test
+    void testNotFoundCachedMissing() {
+        urlCache.putMissing(SHORTENED_URL);
+
+        channel.writeInbound(request(HttpMethod.GET, "/api/" + SHORTENED_URL));
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.NOT_FOUND, response.status());
+        assertEquals("Data not found in the database", response.content().toString(StandardCharsets.UTF_8));
+        verifyNoInteractions(clickRecorder);
+        response.release();
+    }
+
+    @Test
+    void testReservedPathPassedOn() {
+        urlCache.putMissing("metrics");
+        FullHttpRequest request = request(HttpMethod.GET, "/api/metrics");
+
+        channel.writeInbound(request);
+
+        assertSame(request, channel.readInbound());
+        assertNull(channel.readOutbound());
+        request.release();
+    }
+
+    @Test
+    void testUncachedPassedOn() {
+        FullHttpRequest request = request(HttpMethod.GET, "/api/" + SHORTENED_URL);
+
+        channel.writeInbound(request);
+
+        assertSame(request, channel.readInbound());
+        assertNull(channel.readOutbound());
+        assertEquals(0, urlCache.getMissCount());
+        request.release();
+    }
+
+    @Test
+    void testOtherRequestsPassedOn() {
+        urlCache.put(SHORTENED_URL, ORIGINAL_URL);
+        FullHttpRequest post = request(HttpMethod.POST, "/api/" + SHORTENED_URL);
+        FullHttpRequest nested = request(HttpMethod.GET, "/api/urls/" + SHORTENED_URL);
+        FullHttpRequest otherPrefix = request(HttpMethod.GET, "/" + SHORTENED_URL);
+
+        channel.writeInbound(post, nested, otherPrefix);
+
+        assertSame(post, channel.readInbound());
+        assertSame(nested, channel.readInbound());
+        assertSame(otherPrefix, channel.readInbound());
+        assertNull(channel.readOutbound());
+        post.release();
+        nested.release();
+        otherPrefix.release();
+    }
+
+    @Test
+    void testConnectionClosedWithoutKeepAlive() {
+        urlCache.put(SHORTENED_URL, ORIGINAL_URL);
+        FullHttpRequest request = request(HttpMethod.GET, "/api/" + SHORTENED_URL);
+        request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+
+        channel.writeInbound(request);
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpHeaderValues.CLOSE.toString(), response.headers().get(HttpHeaderNames.CONNECTION));
+        assertFalse(channel.isOpen());
+        response.release();
+    }
+
+    private static FullHttpRequest request(HttpMethod method, String uri) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+    }
+}
@@ -0,0 +1,104 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestBodyInputStreamTest {
+
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+
+    @Test
+    void testReadsChunksInOrder() throws IOException {
+        RequestBodyInputStream body = new RequestBodyInputStream(channel, 1024);
+
+        body.add(chunk("first "));
+        body.add(Unpooled.EMPTY_BUFFER);
+        body.add(chunk("second"));
+        body.end();
+
+        assertEquals("first second", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(-1, body.read());
+    }
+
+    @Test
+    void testWaitsForChunks() throws Exception {
+        RequestBodyInputStream body = new RequestBodyInputStream(channel, 1024);
+        CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return body.readAllBytes();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        body.add(chunk("late"));
+        assertFalse(read.isDone());
+        body.end();
+
+        assertEquals("late", new String(read.get(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testPausesReadingWhileBehind() throws IOException {
+        RequestBodyInputStream body = new RequestBodyInputStream(channel, 10);
+        ByteBuf first = chunk("12345");
+        ByteBuf second = chunk("67890");
+
+        body.add(first);
+        assertTrue(channel.config().isAutoRead());
+        body.add(second);
+        assertFalse(channel.config().isAutoRead());
+
+        assertEquals(5, body.read(new byte[5]));
+        assertEquals(0, first.refCnt());
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(5, body.available());
+        body.end();
+        assertEquals("67890", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(0, second.refCnt());
+    }
+
+    @Test
+    void testAbortFailsRead() {
+        RequestBodyInputStream body = new RequestBodyInputStream(channel, 1024);
+        ByteBuf chunk = chunk("cut");
+
+        body.add(chunk);
+        body.abort();
+
+        assertThrows(IOException.class, body::read);
+        assertEquals(0, chunk.refCnt());
+    }
+
+    @Test
+    void testCloseDropsRestOfBody() {
+        RequestBodyInputStream body = new RequestBodyInputStream(channel, 4);
+        ByteBuf queued = chunk("queued");
+        ByteBuf dropped = chunk("dropped");
+
+        body.add(queued);
+        assertFalse(channel.config().isAutoRead());
+        body.close();
+        body.add(dropped);
+
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(0, queued.refCnt());
+        assertEquals(0, dropped.refCnt());
+        assertThrows(IOException.class, body::read);
+    }
+
+    private static ByteBuf chunk(String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+    }
+}
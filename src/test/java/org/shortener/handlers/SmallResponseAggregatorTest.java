@@ -0,0 +1,161 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmallResponseAggregatorTest {
+
+    @Test
+    void testAggregatesSmallResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(1024));
+
+        ChannelFuture headWrite = channel.write(chunkedResponse());
+        ChannelFuture contentWrite = channel.write(content("short"));
+        assertTrue(headWrite.isSuccess());
+        assertTrue(contentWrite.isSuccess());
+        assertNull(channel.readOutbound());
+        channel.writeAndFlush(new DefaultLastHttpContent(Unpooled.copiedBuffer(" body", StandardCharsets.UTF_8)));
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.OK, response.status());
+        assertEquals("short body", response.content().toString(StandardCharsets.UTF_8));
+        assertEquals("10", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertFalse(response.headers().contains(HttpHeaderNames.TRANSFER_ENCODING));
+        assertEquals("text/plain", response.headers().get(HttpHeaderNames.CONTENT_TYPE));
+        response.release();
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testStreamsLargeResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(8));
+
+        channel.write(chunkedResponse());
+        channel.write(content("first"));
+        channel.write(content("second"));
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+
+        HttpResponse head = channel.readOutbound();
+        assertFalse(head instanceof FullHttpResponse);
+        assertEquals(HttpHeaderValues.CHUNKED.toString(), head.headers().get(HttpHeaderNames.TRANSFER_ENCODING));
+        HttpContent body = channel.readOutbound();
+        assertEquals("firstsecond", body.content().toString(StandardCharsets.UTF_8));
+        body.release();
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+
+        // The next response is held back again
+        channel.write(chunkedResponse());
+        channel.writeAndFlush(new DefaultLastHttpContent(Unpooled.copiedBuffer("ok", StandardCharsets.UTF_8)));
+        FullHttpResponse next = channel.readOutbound();
+        assertEquals("ok", next.content().toString(StandardCharsets.UTF_8));
+        next.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testPassesFullResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(1024));
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FOUND);
+
+        channel.writeAndFlush(response);
+
+        assertSame(response, channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testReleasesHeldBackContentOnClose() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(1024));
+        HttpContent content = content("held");
+
+        channel.write(chunkedResponse());
+        channel.write(content);
+        channel.finishAndReleaseAll();
+
+        assertEquals(0, content.refCnt());
+    }
+
+    @Test
+    void testPassesResponseToHeadRequest() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(1024));
+        HttpResponse head = chunkedResponse();
+        head.headers().remove(HttpHeaderNames.TRANSFER_ENCODING);
+
+        channel.writeInbound(request(HttpMethod.HEAD));
+        channel.writeInbound(request(HttpMethod.GET));
+        channel.write(head);
+        channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+
+        assertSame(head, channel.readOutbound());
+        assertFalse(head.headers().contains(HttpHeaderNames.CONTENT_LENGTH));
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, channel.readOutbound());
+
+        // The response to the pipelined GET request is held back again
+        channel.write(chunkedResponse());
+        channel.writeAndFlush(new DefaultLastHttpContent(Unpooled.copiedBuffer("ok", StandardCharsets.UTF_8)));
+        FullHttpResponse next = channel.readOutbound();
+        assertEquals("2", next.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        next.release();
+        assertEquals(HttpMethod.HEAD, channel.<HttpRequest>readInbound().method());
+        assertEquals(HttpMethod.GET, channel.<HttpRequest>readInbound().method());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testPassesInterimResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new SmallResponseAggregator(1024));
+        FullHttpResponse interim = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE);
+
+        channel.writeInbound(request(HttpMethod.HEAD));
+        channel.writeAndFlush(interim);
+        HttpResponse head = chunkedResponse();
+        channel.writeAndFlush(head);
+
+        // The interim response does not take the place of the response to the HEAD request
+        assertSame(interim, channel.readOutbound());
+        assertSame(head, channel.readOutbound());
+        assertEquals(HttpMethod.HEAD, channel.<HttpRequest>readInbound().method());
+        assertFalse(channel.finish());
+    }
+
+    private static HttpResponse chunkedResponse() {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+        response.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        return response;
+    }
+
+    private static HttpRequest request(HttpMethod method) {
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, method, "/api/text");
+    }
+
+    private static HttpContent content(String text) {
+        return new DefaultHttpContent(Unpooled.copiedBuffer(text, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,85 @@
+package org.shortener.handlers;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StreamedRequestAggregatorTest {
+
+    private final EmbeddedChannel channel =
+            new EmbeddedChannel(new StreamedRequestAggregator(1024, Set.of("/api/mappings")));
+
+    @Test
+    void testPassesOnStreamedRequest() {
+        HttpRequest head = request(HttpMethod.POST, "/api/mappings?dry-run");
+        HttpContent content = content("a,b\n");
+        LastHttpContent last = new DefaultLastHttpContent();
+
+        channel.writeInbound(head, content, last);
+
+        assertSame(head, channel.readInbound());
+        assertSame(content, channel.readInbound());
+        assertSame(last, channel.readInbound());
+        content.release();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testAggregatesOtherRequests() {
+        // The path alone does not make a request streamed, and a streamed request does not affect the next one
+        channel.writeInbound(request(HttpMethod.POST, "/api/mappings"), new DefaultLastHttpContent());
+        channel.readInbound();
+        channel.readInbound();
+        channel.writeInbound(request(HttpMethod.GET, "/api/mappings"), content("body"), new DefaultLastHttpContent());
+
+        FullHttpRequest aggregated = channel.readInbound();
+        assertEquals("body", aggregated.content().toString(StandardCharsets.UTF_8));
+        aggregated.release();
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    void testAnswersExpectContinue() {
+        HttpRequest head = request(HttpMethod.POST, "/api/mappings");
+        head.headers().set(HttpHeaderNames.EXPECT, HttpHeaderValues.CONTINUE);
+
+        channel.writeInbound(head);
+
+        FullHttpResponse response = channel.readOutbound();
+        assertEquals(HttpResponseStatus.CONTINUE, response.status());
+        assertFalse(head.headers().contains(HttpHeaderNames.EXPECT));
+        assertInstanceOf(HttpRequest.class, channel.readInbound());
+        response.release();
+    }
+
+    private static HttpRequest request(HttpMethod method, String uri) {
+        return new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+    }
+
+    private static HttpContent content(String text) {
+        return new DefaultHttpContent(Unpooled.copiedBuffer(text, StandardCharsets.UTF_8));
+    }
+}
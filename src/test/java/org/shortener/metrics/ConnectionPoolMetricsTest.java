@@ -0,0 +1,74 @@
+package org.shortener.metrics;
+
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ConnectionPoolMetricsTest {
+
+    private final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics();
+
+    @Test
+    void testRecordConnectionAcquired() {
+        connectionPoolMetrics.recordConnectionAcquiredNanos(100);
+        connectionPoolMetrics.recordConnectionAcquiredNanos(300);
+
+        assertEquals(2, connectionPoolMetrics.getConnectionAcquiredCount());
+        assertEquals(400, connectionPoolMetrics.getConnectionAcquiredTotalNanos());
+        assertEquals(300, connectionPoolMetrics.getConnectionAcquiredMaxNanos());
+        assertEquals(2, connectionPoolMetrics.getConnectionAcquisitionTimer().getCount());
+    }
+
+    @Test
+    void testRecordConnectionTimeout() {
+        connectionPoolMetrics.recordConnectionTimeout();
+
+        assertEquals(1, connectionPoolMetrics.getConnectionTimeoutCount());
+    }
+
+    @Test
+    void testPoolStatsBeforeRegistration() {
+        assertEquals(0, connectionPoolMetrics.getActiveConnections());
+        assertEquals(0, connectionPoolMetrics.getIdleConnections());
+    }
+
+    @Test
+    void testPoolStatsAfterRegistration() {
+        PoolStats poolStats = new PoolStats(0) {
+            @Override
+            protected void update() {
+                totalConnections = 20;
+                activeConnections = 3;
+                idleConnections = 17;
+                pendingThreads = 1;
+            }
+        };
+
+        assertSame(connectionPoolMetrics, connectionPoolMetrics.create("pool", poolStats));
+        assertEquals(20, connectionPoolMetrics.getTotalConnections());
+        assertEquals(3, connectionPoolMetrics.getActiveConnections());
+        assertEquals(17, connectionPoolMetrics.getIdleConnections());
+        assertEquals(1, connectionPoolMetrics.getPendingThreads());
+    }
+
+    @Test
+    void testPoolStatsOfSeveralPools() {
+        connectionPoolMetrics.create("first", poolStats(2, 1));
+        connectionPoolMetrics.create("second", poolStats(3, 4));
+
+        assertEquals(5, connectionPoolMetrics.getActiveConnections());
+        assertEquals(5, connectionPoolMetrics.getIdleConnections());
+    }
+
+    private static PoolStats poolStats(int active, int idle) {
+        return new PoolStats(0) {
+            @Override
+            protected void update() {
+                activeConnections = active;
+                idleConnections = idle;
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package org.shortener.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LatencyTimerTest {
+
+    private final LatencyTimer latencyTimer = new LatencyTimer();
+
+    @Test
+    void testRecord() {
+        latencyTimer.record(1_000);
+        latencyTimer.record(3_000);
+        latencyTimer.record(-5);
+
+        assertEquals(3, latencyTimer.getCount());
+        assertEquals(4_000, latencyTimer.getTotalNanos());
+    }
+
+    @Test
+    void testSnapshotCoversTimeSincePreviousSnapshot() {
+        latencyTimer.record(1_000);
+        latencyTimer.record(2_000);
+
+        Histogram first = latencyTimer.takeSnapshot();
+        latencyTimer.record(100_000);
+        Histogram second = latencyTimer.takeSnapshot();
+
+        assertEquals(2, first.getTotalCount());
+        assertEquals(2_000, first.getMaxValue(), 20);
+        assertEquals(1, second.getTotalCount());
+        assertEquals(100_000, second.getValueAtPercentile(50), 1_000);
+        assertEquals(0, latencyTimer.takeSnapshot().getTotalCount());
+        assertEquals(3, latencyTimer.getCount());
+    }
+}
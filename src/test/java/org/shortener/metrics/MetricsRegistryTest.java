@@ -0,0 +1,75 @@
+package org.shortener.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @Test
+    void testLookupsReturnRegisteredMetric() {
+        LatencyTimer timer = metricsRegistry.timer("latency_seconds", "Latency", "endpoint", "a");
+
+        assertSame(timer, metricsRegistry.timer("latency_seconds", "Latency", "endpoint", "a"));
+        assertSame(metricsRegistry.counter("calls_total", "Calls"), metricsRegistry.counter("calls_total", "Calls"));
+    }
+
+    @Test
+    void testWriteCounterAndGauge() {
+        metricsRegistry.counter("calls_total", "Calls made", "result", "ok").add(3);
+        metricsRegistry.registerCounter("calls_total", "Calls made", () -> 1, "result", "error");
+        metricsRegistry.registerGauge("size", "Current size", () -> 2.5);
+
+        assertEquals("""
+                     # HELP calls_total Calls made
+                     # TYPE calls_total counter
+                     calls_total{result="error"} 1
+                     calls_total{result="ok"} 3
+                     # HELP size Current size
+                     # TYPE size gauge
+                     size 2.5
+                     """, write());
+    }
+
+    @Test
+    void testWriteTimer() {
+        LatencyTimer timer = metricsRegistry.timer("latency_seconds", "Latency", "endpoint", "a");
+        timer.record(2_000_000);
+        timer.record(2_000_000);
+
+        String metrics = write();
+
+        assertTrue(metrics.contains("# TYPE latency_seconds summary\n"), metrics);
+        assertTrue(metrics.contains("latency_seconds{endpoint=\"a\",quantile=\"0.5\"} 0.002"), metrics);
+        assertTrue(metrics.contains("latency_seconds_sum{endpoint=\"a\"} 0.004\n"), metrics);
+        assertTrue(metrics.contains("latency_seconds_count{endpoint=\"a\"} 2\n"), metrics);
+        // Quantiles cover the time since the previous scrape, while the count and sum keep growing
+        assertTrue(write().contains("latency_seconds{endpoint=\"a\",quantile=\"0.99\"} NaN\n"));
+    }
+
+    @Test
+    void testLabelValuesEscaped() {
+        metricsRegistry.counter("calls_total", "Calls", "path", "a\"b\\c\n");
+
+        assertTrue(write().contains("calls_total{path=\"a\\\"b\\\\c\\n\"} 0\n"));
+    }
+
+    @Test
+    void testInvalidRegistrations() {
+        metricsRegistry.counter("calls_total", "Calls");
+
+        assertThrows(IllegalArgumentException.class, () -> metricsRegistry.timer("calls_total", "Calls"));
+        assertThrows(IllegalArgumentException.class, () -> metricsRegistry.counter("other_total", "Other", "label"));
+    }
+
+    private String write() {
+        StringBuilder out = new StringBuilder();
+        metricsRegistry.writePrometheus(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package org.shortener.replication;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.Logger;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRouterTest {
+
+    @Mock
+    private Logger mockLogger;
+
+    @Mock
+    private SessionFactory firstReplica;
+
+    @Mock
+    private SessionFactory secondReplica;
+
+    @Mock
+    private Session mockSession;
+
+    @Test
+    void testRoundRobinSkipsUnhealthyReplicas() {
+        ReplicaRouter replicaRouter = new ReplicaRouter(mockLogger, List.of(firstReplica, secondReplica),
+                                                        ReplicaRouter.Selection.ROUND_ROBIN);
+
+        assertSame(firstReplica, replicaRouter.select().getSessionFactory());
+        assertSame(secondReplica, replicaRouter.select().getSessionFactory());
+        assertSame(firstReplica, replicaRouter.select().getSessionFactory());
+
+        replicaRouter.getReplicas().get(0).recordFailure();
+
+        assertSame(secondReplica, replicaRouter.select().getSessionFactory());
+        assertSame(secondReplica, replicaRouter.select().getSessionFactory());
+    }
+
+    @Test
+    void testLeastLatencyPicksFastestHealthyReplica() {
+        ReplicaRouter replicaRouter = new ReplicaRouter(mockLogger, List.of(firstReplica, secondReplica),
+                                                        ReplicaRouter.Selection.LEAST_LATENCY);
+        replicaRouter.getReplicas().get(0).recordSuccess(5_000_000);
+        replicaRouter.getReplicas().get(1).recordSuccess(1_000_000);
+
+        assertSame(secondReplica, replicaRouter.select().getSessionFactory());
+
+        replicaRouter.getReplicas().get(1).recordFailure();
+
+        assertSame(firstReplica, replicaRouter.select().getSessionFactory());
+    }
+
+    @Test
+    void testNoHealthyReplica() {
+        ReplicaRouter replicaRouter = new ReplicaRouter(mockLogger, List.of(firstReplica),
+                                                        ReplicaRouter.Selection.ROUND_ROBIN);
+
+        replicaRouter.getReplicas().get(0).recordFailure();
+
+        assertNull(replicaRouter.select());
+        verify(mockLogger).warn("Read replica {} is unhealthy, reading from the other replicas or the primary", 0);
+    }
+
+    @Test
+    void testLatencyIsSmoothed() {
+        ReplicaRouter.Replica replica = new ReplicaRouter(mockLogger, List.of(firstReplica),
+                                                          ReplicaRouter.Selection.LEAST_LATENCY).getReplicas().get(0);
+
+        replica.recordSuccess(1_000);
+        replica.recordSuccess(2_000);
+
+        assertEquals(1_200, replica.getLatencyNanos(), 0.001);
+    }
+
+    @Test
+    void testCheckHealth() {
+        ReplicaRouter replicaRouter = new ReplicaRouter(mockLogger, List.of(firstReplica, secondReplica),
+                                                        ReplicaRouter.Selection.ROUND_ROBIN);
+        ReplicaRouter.Replica first = replicaRouter.getReplicas().get(0);
+        ReplicaRouter.Replica second = replicaRouter.getReplicas().get(1);
+        first.recordFailure();
+        when(firstReplica.openSession()).thenReturn(mockSession);
+        when(mockSession.doReturningWork(any())).thenReturn(true);
+        when(secondReplica.openSession()).thenThrow(new HibernateException("Testing"));
+
+        replicaRouter.checkHealth();
+
+        assertTrue(first.isHealthy());
+        assertTrue(first.getLatencyNanos() > 0);
+        assertFalse(second.isHealthy());
+        verify(mockSession).close();
+        verify(mockLogger).info("Read replica {} is healthy again", 0);
+    }
+}
@@ -0,0 +1,152 @@
+package org.shortener.resources;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlTransferService;
+import org.shortener.sharding.ShardRouter;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MappingResourceTest {
+
+    private final static String ORIGINAL_URL = "http://example.com/";
+    private final static String SHORTENED_CHARS = "abc12345";
+
+    private final UrlTransferService transferService = mock(UrlTransferService.class);
+
+    private final SnowflakeShortCodeGenerator shortCodeGenerator = new SnowflakeShortCodeGenerator(1,
+                                                                                                   new Base62Encoder());
+
+    private final ShardRouter shardRouter = new ShardRouter(mock(SessionFactory.class));
+
+    private final MappingResource mappingResource =
+            new MappingResource(transferService, shardRouter, shortCodeGenerator,
+                                ApplicationProperties.getInstance().with("shortener.transfer.chunk-size", "2"),
+                                new DatabaseCallExecutor(false, 1));
+
+    @Test
+    void testExportMappings() throws SessionOpenException, IOException {
+        doAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            consumer.accept(SHORTENED_CHARS, ORIGINAL_URL);
+            consumer.accept("quoted", "http://example.com/a,\"b\"");
+            return 2L;
+        }).when(transferService).exportUrls(any());
+
+        Response response = mappingResource.exportMappings();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("shortened_url,original_url\n"
+                     + SHORTENED_CHARS + "," + ORIGINAL_URL + "\n"
+                     + "quoted,\"http://example.com/a,\"\"b\"\"\"\n",
+                     writeEntity(response));
+    }
+
+    @Test
+    void testExportMappingsThrowingException() throws SessionOpenException {
+        when(transferService.exportUrls(any())).thenThrow(new SessionOpenException("Example exception"));
+
+        Response response = mappingResource.exportMappings();
+
+        assertThrows(IOException.class, () -> writeEntity(response));
+    }
+
+    @Test
+    void testImportMappings() throws SessionOpenException, IOException {
+        when(transferService.importUrls(anyList())).thenReturn(2, 0);
+
+        Response response = mappingResource.importMappings(asBody("shortened_url,original_url\n"
+                                                                  + SHORTENED_CHARS + "," + ORIGINAL_URL + "\n"
+                                                                  + "not a code," + ORIGINAL_URL + "\n"
+                                                                  + "other,\"" + ORIGINAL_URL + "other\"\n"
+                                                                  + "third," + ORIGINAL_URL + "third\n"));
+
+        assertEquals("read=3 imported=2 skipped=0 invalid=1\nread=4 imported=2 skipped=1 invalid=1\n",
+                     writeEntity(response));
+    }
+
+    @Test
+    void testImportMappingsOnlyInvalidData() throws SessionOpenException, IOException {
+        Response response = mappingResource.importMappings(asBody("urls," + ORIGINAL_URL + "\n"));
+
+        assertEquals("read=1 imported=0 skipped=0 invalid=1\n", writeEntity(response));
+        verify(transferService, never()).importUrls(anyList());
+    }
+
+    @Test
+    void testImportMappingsThrowingException() throws SessionOpenException {
+        when(transferService.importUrls(anyList())).thenThrow(new SessionOpenException("Example exception"));
+
+        Response response = mappingResource.importMappings(asBody(SHORTENED_CHARS + "," + ORIGINAL_URL + "\n"));
+
+        assertThrows(IOException.class, () -> writeEntity(response));
+    }
+
+    @Test
+    void testParseCsvRow() {
+        UrlDataEntity mapping = mappingResource.parseCsvRow(SHORTENED_CHARS + ", " + ORIGINAL_URL);
+        assertNotNull(mapping);
+        assertEquals(SHORTENED_CHARS, mapping.getShortenedUrl());
+        assertEquals(ORIGINAL_URL, mapping.getOriginalUrl());
+
+        UrlDataEntity quoted = mappingResource.parseCsvRow("\"" + SHORTENED_CHARS + "\",\"HTTP://EXAMPLE.COM\"");
+        assertNotNull(quoted);
+        assertEquals(ORIGINAL_URL, quoted.getOriginalUrl());
+
+        assertNull(mappingResource.parseCsvRow(SHORTENED_CHARS));
+        assertNull(mappingResource.parseCsvRow(SHORTENED_CHARS + "," + ORIGINAL_URL + ",extra"));
+        assertNull(mappingResource.parseCsvRow("\"" + SHORTENED_CHARS + "," + ORIGINAL_URL));
+        assertNull(mappingResource.parseCsvRow("abcdefghijklmnopq," + ORIGINAL_URL));
+        assertNull(mappingResource.parseCsvRow("metrics," + ORIGINAL_URL));
+        assertNull(mappingResource.parseCsvRow(SHORTENED_CHARS + ",not-a-url"));
+    }
+
+    @Test
+    void testParseCsvRowRejectsKeysStillGenerated() {
+        // Long.MAX_VALUE, and a code an hour after one just generated, may both be generated later
+        long nextHourKey = shardRouter.getKeyOfShortenedUrl(shortCodeGenerator.generate()) + (3_600_000L << 22);
+        assertNull(mappingResource.parseCsvRow("k9viXaIfiWh," + ORIGINAL_URL));
+        assertNull(mappingResource.parseCsvRow(shardRouter.getShortenedUrl(0, nextHourKey) + "," + ORIGINAL_URL));
+
+        // Codes of other forms are stored under a digest key, which is never generated
+        UrlDataEntity digestKeyed = mappingResource.parseCsvRow("k9viXaIfiWh-," + ORIGINAL_URL);
+        assertNotNull(digestKeyed);
+        assertTrue(digestKeyed.getId() < 0);
+    }
+
+    private static ByteArrayInputStream asBody(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String writeEntity(Response response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+}
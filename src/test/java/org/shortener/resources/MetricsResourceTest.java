@@ -0,0 +1,19 @@
+package org.shortener.resources;
+
+import org.junit.jupiter.api.Test;
+import org.shortener.metrics.MetricsRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetricsResourceTest {
+
+    @Test
+    void testGetMetrics() {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("calls_total", "Calls").increment();
+
+        String metrics = new MetricsResource(metricsRegistry).getMetrics();
+
+        assertEquals("# HELP calls_total Calls\n# TYPE calls_total counter\ncalls_total 1\n", metrics);
+    }
+}
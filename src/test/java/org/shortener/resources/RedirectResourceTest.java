@@ -0,0 +1,104 @@
+package org.shortener.resources;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.DatabaseCallExecutor;
+import org.shortener.services.UrlShortenService;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RedirectResourceTest {
+
+    private final static String ORIGINAL_URL = "http://example.com";
+    private final static String SHORTENED_URL = "abc12345";
+
+    private final UrlShortenService shortenService = mock(UrlShortenService.class);
+
+    @Test
+    void testRedirect() throws SessionOpenException {
+        RedirectResource redirectResource = newRedirectResource(ApplicationProperties.getInstance());
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(ORIGINAL_URL);
+
+        Response response = redirectResource.redirect(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.FOUND.getStatusCode(), response.getStatus());
+        assertEquals(ORIGINAL_URL, response.getHeaderString(HttpHeaders.LOCATION));
+        assertEquals("private, max-age=300", response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void testRedirectConfigured() throws SessionOpenException {
+        RedirectResource redirectResource = newRedirectResource(
+                ApplicationProperties.getInstance()
+                                     .with("shortener.redirect.status", "301")
+                                     .with("shortener.redirect.cache-control", ""));
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(ORIGINAL_URL);
+
+        Response response = redirectResource.redirect(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.MOVED_PERMANENTLY.getStatusCode(), response.getStatus());
+        assertEquals(ORIGINAL_URL, response.getHeaderString(HttpHeaders.LOCATION));
+        assertNull(response.getHeaderString(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    void testInvalidRedirectStatus() {
+        ApplicationProperties properties = ApplicationProperties.getInstance().with("shortener.redirect.status", "200");
+
+        assertThrows(IllegalArgumentException.class, () -> newRedirectResource(properties));
+    }
+
+    @Test
+    void testRedirectNonBlocking() throws SessionOpenException {
+        RedirectResource redirectResource = newRedirectResource(ApplicationProperties.getInstance());
+        when(shortenService.isNonBlockingLookupEnabled()).thenReturn(true);
+        when(shortenService.getOriginalUrlAsync(SHORTENED_URL))
+                .thenReturn(CompletableFuture.completedFuture(ORIGINAL_URL));
+
+        Response response = redirectResource.redirect(SHORTENED_URL).toCompletableFuture().join();
+
+        verify(shortenService, never()).getOriginalUrl(SHORTENED_URL);
+        assertEquals(Response.Status.FOUND.getStatusCode(), response.getStatus());
+        assertEquals(ORIGINAL_URL, response.getHeaderString(HttpHeaders.LOCATION));
+    }
+
+    @Test
+    void testRedirectNotFound() throws SessionOpenException {
+        RedirectResource redirectResource = newRedirectResource(ApplicationProperties.getInstance());
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(null);
+
+        Response response = redirectResource.redirect(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    @Test
+    void testRedirectThrowingException() throws SessionOpenException {
+        RedirectResource redirectResource = newRedirectResource(ApplicationProperties.getInstance());
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenThrow(new SessionOpenException("Example exception"));
+
+        Response response = redirectResource.redirect(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    }
+
+    private RedirectResource newRedirectResource(ApplicationProperties properties) {
+        return new RedirectResource(shortenService, properties, new DatabaseCallExecutor(false, 1),
+                                    new MetricsRegistry());
+    }
+}
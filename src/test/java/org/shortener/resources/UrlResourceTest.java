@@ -3,13 +3,31 @@ package org.shortener.resources;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.configurations.ApplicationProperties;
 import org.shortener.exceptions.SessionOpenException;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.ClickStatsService;
+import org.shortener.services.DatabaseCallExecutor;
 import org.shortener.services.UrlShortenService;
 
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -17,31 +35,43 @@ import static org.mockito.Mockito.when;
 @ExtendWith(MockitoExtension.class)
 class UrlResourceTest {
 
-    private final static String ORIGINAL_URL = "http://example.com";
+    private final static String ORIGINAL_URL = "http://example.com/";
     private final static String SHORTENED_URL = "http://short.url";
     private final static String NOT_A_URL = "not-a-url";
     private static final String BEGINNING_LINK = "http://127.0.0.1:8080/api/urls/";
 
+    private final ClickStatsService clickStatsService = mock(ClickStatsService.class);
 
     @Test
     void testShortenUrlValidData() throws SessionOpenException {
         UrlShortenService shortenService = mock(UrlShortenService.class);
-        UrlResource urlResource = new UrlResource(shortenService);
+        UrlResource urlResource = newUrlResource(shortenService);
         when(shortenService.shortenUrl(ORIGINAL_URL)).thenReturn(SHORTENED_URL);
 
-        Response response = urlResource.shortenUrl(ORIGINAL_URL);
+        Response response = urlResource.shortenUrl(ORIGINAL_URL).toCompletableFuture().join();
 
         verify(shortenService, times(1)).shortenUrl(ORIGINAL_URL);
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
         assertEquals(BEGINNING_LINK+ SHORTENED_URL, response.getEntity());
     }
 
+    @Test
+    void testShortenUrlNormalized() throws SessionOpenException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        when(shortenService.shortenUrl(ORIGINAL_URL)).thenReturn(SHORTENED_URL);
+
+        Response response = urlResource.shortenUrl("HTTP://Example.com:80").toCompletableFuture().join();
+
+        assertEquals(BEGINNING_LINK + SHORTENED_URL, response.getEntity());
+    }
+
     @Test
     void testShortenUrlInvalidData() throws SessionOpenException {
         UrlShortenService shortenService = mock(UrlShortenService.class);
-        UrlResource urlResource = new UrlResource(shortenService);
+        UrlResource urlResource = newUrlResource(shortenService);
 
-        Response response = urlResource.shortenUrl(NOT_A_URL);
+        Response response = urlResource.shortenUrl(NOT_A_URL).toCompletableFuture().join();
 
         verify(shortenService, times(0)).shortenUrl(NOT_A_URL);
         assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
@@ -50,10 +80,10 @@ class UrlResourceTest {
     @Test
     void testGetOriginalUrl() throws SessionOpenException {
         UrlShortenService shortenService = mock(UrlShortenService.class);
-        UrlResource urlResource = new UrlResource(shortenService);
+        UrlResource urlResource = newUrlResource(shortenService);
         when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(ORIGINAL_URL);
 
-        Response response = urlResource.getOriginalUrl(SHORTENED_URL);
+        Response response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture().join();
 
         verify(shortenService, times(1)).getOriginalUrl(SHORTENED_URL);
         assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
@@ -63,25 +93,170 @@ class UrlResourceTest {
     @Test
     void testGetOriginalUrlThrowingException() throws SessionOpenException {
         UrlShortenService shortenService = mock(UrlShortenService.class);
-        UrlResource urlResource = new UrlResource(shortenService);
+        UrlResource urlResource = newUrlResource(shortenService);
         when(shortenService.getOriginalUrl(SHORTENED_URL)).thenThrow(new SessionOpenException("Example exception"));
 
-        Response response = urlResource.getOriginalUrl(SHORTENED_URL);
+        Response response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture().join();
 
         verify(shortenService, times(1)).getOriginalUrl(SHORTENED_URL);
         assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
     }
 
+    @Test
+    void testGetOriginalUrlOnVirtualThread() throws SessionOpenException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(ORIGINAL_URL);
+
+        try (DatabaseCallExecutor virtualThreadExecutor = new DatabaseCallExecutor(true, 1)) {
+            UrlResource urlResource = new UrlResource(shortenService, clickStatsService,
+                                                      ApplicationProperties.getInstance(), virtualThreadExecutor,
+                                                      new MetricsRegistry());
+
+            Response response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture().join();
+
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertEquals(ORIGINAL_URL, response.getEntity());
+        }
+    }
+
+    @Test
+    void testGetOriginalUrlThrowingUnexpectedException() throws SessionOpenException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        when(shortenService.getOriginalUrl(SHORTENED_URL)).thenThrow(new IllegalStateException("Example exception"));
+
+        CompletableFuture<Response> response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture();
+
+        CompletionException e = assertThrows(CompletionException.class, response::join);
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+    }
+
+    @Test
+    void testGetOriginalUrlNonBlocking() throws SessionOpenException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        when(shortenService.isNonBlockingLookupEnabled()).thenReturn(true);
+        when(shortenService.getOriginalUrlAsync(SHORTENED_URL)).thenReturn(lookup);
+
+        CompletableFuture<Response> response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture();
+        assertFalse(response.isDone());
+        lookup.complete(ORIGINAL_URL);
+
+        verify(shortenService, never()).getOriginalUrl(SHORTENED_URL);
+        assertEquals(Response.Status.OK.getStatusCode(), response.join().getStatus());
+        assertEquals(ORIGINAL_URL, response.join().getEntity());
+    }
+
+    @Test
+    void testGetOriginalUrlNonBlockingThrowingException() {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        when(shortenService.isNonBlockingLookupEnabled()).thenReturn(true);
+        when(shortenService.getOriginalUrlAsync(SHORTENED_URL))
+                .thenReturn(CompletableFuture.failedFuture(new SessionOpenException("Example exception")));
+
+        Response response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+    }
+
     @Test
     void testGetOriginalUrlReturningNull() throws SessionOpenException {
         UrlShortenService shortenService = mock(UrlShortenService.class);
-        UrlResource urlResource = new UrlResource(shortenService);
+        UrlResource urlResource = newUrlResource(shortenService);
         when(shortenService.getOriginalUrl(SHORTENED_URL)).thenReturn(null);
 
-        Response response = urlResource.getOriginalUrl(SHORTENED_URL);
+        Response response = urlResource.getOriginalUrl(SHORTENED_URL).toCompletableFuture().join();
 
         verify(shortenService, times(1)).getOriginalUrl(SHORTENED_URL);
         assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
     }
 
+    @Test
+    void testShortenUrls() throws SessionOpenException, IOException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        when(shortenService.shortenUrls(List.of(ORIGINAL_URL, ORIGINAL_URL + "other")))
+                .thenReturn(List.of(SHORTENED_URL, SHORTENED_URL + "2"));
+
+        Response response = urlResource.shortenUrls(asBody(ORIGINAL_URL + "\n" + NOT_A_URL + "\n"
+                                                           + "HTTP://EXAMPLE.COM/other\n"));
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals(BEGINNING_LINK + SHORTENED_URL + "\n\n" + BEGINNING_LINK + SHORTENED_URL + "2\n",
+                     writeEntity(response));
+    }
+
+    @Test
+    void testShortenUrlsOnlyInvalidData() throws SessionOpenException, IOException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+
+        Response response = urlResource.shortenUrls(asBody(NOT_A_URL));
+
+        assertEquals("\n", writeEntity(response));
+        verify(shortenService, times(0)).shortenUrls(List.of());
+    }
+
+    @Test
+    void testShortenUrlsThrowingException() throws SessionOpenException {
+        UrlShortenService shortenService = mock(UrlShortenService.class);
+        UrlResource urlResource = newUrlResource(shortenService);
+        when(shortenService.shortenUrls(List.of(ORIGINAL_URL))).thenThrow(new SessionOpenException("Example exception"));
+
+        Response response = urlResource.shortenUrls(asBody(ORIGINAL_URL));
+
+        assertThrows(IOException.class, () -> writeEntity(response));
+    }
+
+    @Test
+    void testGetClickStats() throws SessionOpenException {
+        UrlResource urlResource = newUrlResource(mock(UrlShortenService.class));
+        when(clickStatsService.getClickStats(SHORTENED_URL))
+                .thenReturn(new ClickStatsEntity(SHORTENED_URL, 3, Instant.ofEpochSecond(10),
+                                                 Instant.ofEpochSecond(20)));
+
+        Response response = urlResource.getClickStats(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        assertEquals("clicks=3\nfirstClickedAt=1970-01-01T00:00:10Z\nlastClickedAt=1970-01-01T00:00:20Z\n",
+                     response.getEntity());
+    }
+
+    @Test
+    void testGetClickStatsNoClicks() throws SessionOpenException {
+        UrlResource urlResource = newUrlResource(mock(UrlShortenService.class));
+        when(clickStatsService.getClickStats(SHORTENED_URL)).thenReturn(new ClickStatsEntity(SHORTENED_URL, 0, null,
+                                                                                              null));
+
+        Response response = urlResource.getClickStats(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals("clicks=0\n", response.getEntity());
+    }
+
+    @Test
+    void testGetClickStatsNotFound() throws SessionOpenException {
+        UrlResource urlResource = newUrlResource(mock(UrlShortenService.class));
+        when(clickStatsService.getClickStats(SHORTENED_URL)).thenReturn(null);
+
+        Response response = urlResource.getClickStats(SHORTENED_URL).toCompletableFuture().join();
+
+        assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+    }
+
+    private static ByteArrayInputStream asBody(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String writeEntity(Response response) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private UrlResource newUrlResource(UrlShortenService shortenService) {
+        return new UrlResource(shortenService, clickStatsService, ApplicationProperties.getInstance(),
+                               new DatabaseCallExecutor(false, 1), new MetricsRegistry());
+    }
 }
@@ -0,0 +1,236 @@
+package org.shortener.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.jboss.resteasy.spi.ResteasyDeployment;
+import org.junit.jupiter.api.Test;
+import org.shortener.configurations.ApplicationProperties;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.net.http.HttpRequest.BodyPublishers.noBody;
+import static java.net.http.HttpRequest.BodyPublishers.ofByteArray;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class NettyServerTest {
+
+    private NettyServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testHttp1() throws IOException, InterruptedException {
+        startServer("true");
+
+        HttpResponse<String> response = send(HttpClient.Version.HTTP_1_1, "/api/text/5");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+        assertEquals("aaaaa", response.body());
+    }
+
+    @Test
+    void testHttp2Upgrade() throws IOException, InterruptedException {
+        startServer("true");
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+
+        // The first request upgrades the connection, the next ones are streams of it
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<String> response = httpClient.send(request("/api/text/5").build(),
+                                                            HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+            assertEquals("aaaaa", response.body());
+        }
+        HttpResponse<String> streamed = httpClient.send(request("/api/text/100000").build(),
+                                                        HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpClient.Version.HTTP_2, streamed.version());
+        assertEquals(100000, streamed.body().length());
+    }
+
+    @Test
+    void testHttp2PriorKnowledge() throws IOException {
+        startServer("true");
+
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            out.write("PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            // An empty SETTINGS frame
+            out.write(new byte[]{0, 0, 0, 4, 0, 0, 0, 0, 0});
+            out.flush();
+
+            // The server's preface is a SETTINGS frame
+            byte[] frameHeader = new byte[9];
+            new DataInputStream(socket.getInputStream()).readFully(frameHeader);
+            assertEquals(4, frameHeader[3]);
+        }
+    }
+
+    @Test
+    void testHttp2Disabled() throws IOException, InterruptedException {
+        startServer("false");
+
+        HttpResponse<String> response = send(HttpClient.Version.HTTP_2, "/api/text/5");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(HttpClient.Version.HTTP_1_1, response.version());
+    }
+
+    @Test
+    void testCompressesOnlyLargeBodies() throws IOException, InterruptedException {
+        startServer("true");
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<byte[]> small = httpClient.send(request("/api/text/100").header("Accept-Encoding", "gzip")
+                                                                            .build(),
+                                                     HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> large = httpClient.send(request("/api/text/5000").header("Accept-Encoding", "gzip")
+                                                                             .build(),
+                                                     HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(Optional.empty(), small.headers().firstValue("Content-Encoding"));
+        assertEquals(Optional.of("100"), small.headers().firstValue("Content-Length"));
+        assertEquals(100, small.body().length);
+        assertEquals(Optional.of("gzip"), large.headers().firstValue("Content-Encoding"));
+        assertTrue(large.body().length < 5000);
+    }
+
+    @Test
+    void testHeadRequest() throws IOException, InterruptedException {
+        startServer("false");
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<String> response = httpClient.send(request("/api/text/5").method("HEAD",
+                                                                                      noBody()).build(),
+                                                         HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertNotEquals(Optional.of("0"), response.headers().firstValue("Content-Length"));
+        assertEquals("", response.body());
+        // The connection is still in step with the requests on it
+        assertEquals("aaaaa", httpClient.send(request("/api/text/5").build(),
+                                              HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    @Test
+    void testStopStopsDeployment() {
+        startServer("true");
+        ResteasyDeployment deployment = spy(server.getDeployment());
+        server.setDeployment(deployment);
+
+        server.stop();
+        server = null;
+
+        verify(deployment).stop();
+    }
+
+    @Test
+    void testStreamsBodiesOfStreamedPaths() throws IOException, InterruptedException {
+        startServer("true");
+        byte[] body = new byte[1_000_000];
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        HttpResponse<String> streamed = httpClient.send(request("/api/text/streamed").POST(ofByteArray(body)).build(),
+                                                        HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> continued = httpClient.send(request("/api/text/streamed").expectContinue(true)
+                                                                                      .POST(ofByteArray(body)).build(),
+                                                         HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> aggregated = httpClient.send(request("/api/text/aggregated").POST(ofByteArray(body))
+                                                                                         .build(),
+                                                          HttpResponse.BodyHandlers.ofString());
+
+        assertEquals("1000000", streamed.body());
+        assertEquals("1000000", continued.body());
+        // Bodies of other requests are still aggregated, up to shortener.server.max-request-bytes
+        assertEquals(413, aggregated.statusCode());
+    }
+
+    @Test
+    void testStreamsBodiesOverHttp2() throws IOException, InterruptedException {
+        startServer("true");
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        httpClient.send(request("/api/text/5").build(), HttpResponse.BodyHandlers.ofString());
+
+        HttpResponse<String> streamed = httpClient.send(request("/api/text/streamed")
+                                                                .POST(ofByteArray(new byte[1_000_000])).build(),
+                                                        HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(HttpClient.Version.HTTP_2, streamed.version());
+        assertEquals("1000000", streamed.body());
+    }
+
+    private void startServer(String http2Enabled) {
+        ApplicationProperties properties = ApplicationProperties.getInstance()
+                                                                .with("shortener.server.port", "0")
+                                                                .with("shortener.server.http2.enabled", http2Enabled)
+                                                                .with("shortener.server.compression-min-bytes",
+                                                                      "1024")
+                                                                .with("shortener.server.max-request-bytes", "65536");
+        server = new NettyServer(LoggerFactory.getLogger(NettyServer.class), properties, List.of());
+        server.setRootResourcePath("/api");
+        server.setStreamedRequestPaths(Set.of("/text/streamed"));
+        server.getDeployment().getResources().add(new TextResource());
+        server.start();
+    }
+
+    private HttpResponse<String> send(HttpClient.Version version, String path)
+            throws IOException, InterruptedException {
+        HttpClient httpClient = HttpClient.newBuilder().version(version).build();
+        return httpClient.send(request(path).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path));
+    }
+
+    @Path("/text")
+    public static class TextResource {
+
+        @GET
+        @Path("/{length}")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String getText(@PathParam("length") int length) {
+            return "a".repeat(length);
+        }
+
+        @POST
+        @Path("/{name:streamed|aggregated}")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String countBytes(InputStream body) throws IOException {
+            long count = 0;
+            byte[] buffer = new byte[4096];
+            for (int read; (read = body.read(buffer)) >= 0; ) {
+                count += read;
+            }
+            return Long.toString(count);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.shortener.services;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.daos.ClickStatsDAO;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.sharding.ShardRouter;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClickStatsServiceTest {
+
+    private final static long KEY = 123456789L;
+    private final static String SHORTENED_CHARS = new Base62Encoder().encode(KEY);
+
+    @Mock
+    private SessionFactory mockSessionFactory;
+
+    @Mock
+    private Session mockSession;
+
+    @Mock
+    private Transaction mockTransaction;
+
+    @Mock
+    private UrlDataEntityDAO mockUrlDataEntityDAO;
+
+    @Mock
+    private ClickStatsDAO mockClickStatsDAO;
+
+    @Mock
+    private ClickRecorder mockClickRecorder;
+
+    private ClickStatsService clickStatsService;
+
+    @BeforeEach
+    void setUp() {
+        clickStatsService = new ClickStatsService(new ShardRouter(mockSessionFactory), mockUrlDataEntityDAO,
+                                                  mockClickStatsDAO, mockClickRecorder);
+    }
+
+    @Test
+    void testGetClickStatsStored() throws SessionOpenException {
+        ClickStatsEntity stored = new ClickStatsEntity(SHORTENED_CHARS, 5, Instant.ofEpochSecond(10),
+                                                       Instant.ofEpochSecond(20));
+        mockSession();
+        when(mockClickStatsDAO.getClickStats(SHORTENED_CHARS, mockSession)).thenReturn(stored);
+        when(mockClickRecorder.getUnflushedClicks(SHORTENED_CHARS))
+                .thenReturn(new ClickStatsEntity(SHORTENED_CHARS, 0, null, null));
+
+        assertSame(stored, clickStatsService.getClickStats(SHORTENED_CHARS));
+        verify(mockUrlDataEntityDAO, never()).getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession);
+        verify(mockSession).close();
+    }
+
+    @Test
+    void testGetClickStatsIncludesUnflushed() throws SessionOpenException {
+        mockSession();
+        when(mockClickStatsDAO.getClickStats(SHORTENED_CHARS, mockSession))
+                .thenReturn(new ClickStatsEntity(SHORTENED_CHARS, 5, Instant.ofEpochSecond(10),
+                                                 Instant.ofEpochSecond(20)));
+        when(mockClickRecorder.getUnflushedClicks(SHORTENED_CHARS))
+                .thenReturn(new ClickStatsEntity(SHORTENED_CHARS, 2, Instant.ofEpochSecond(30),
+                                                 Instant.ofEpochSecond(40)));
+
+        ClickStatsEntity result = clickStatsService.getClickStats(SHORTENED_CHARS);
+
+        assertEquals(7, result.getClickCount());
+        assertEquals(Instant.ofEpochSecond(10), result.getFirstClickedAt());
+        assertEquals(Instant.ofEpochSecond(40), result.getLastClickedAt());
+    }
+
+    @Test
+    void testGetClickStatsNeverClicked() throws SessionOpenException {
+        ClickStatsEntity unflushed = new ClickStatsEntity(SHORTENED_CHARS, 0, null, null);
+        mockSession();
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession))
+                .thenReturn(new UrlDataEntity("http://example.com", SHORTENED_CHARS, KEY));
+        when(mockClickRecorder.getUnflushedClicks(SHORTENED_CHARS)).thenReturn(unflushed);
+
+        assertSame(unflushed, clickStatsService.getClickStats(SHORTENED_CHARS));
+    }
+
+    @Test
+    void testGetClickStatsUnknownUrl() throws SessionOpenException {
+        mockSession();
+
+        assertNull(clickStatsService.getClickStats(SHORTENED_CHARS));
+        verify(mockTransaction).commit();
+    }
+
+    @Test
+    void testGetClickStatsThrows() {
+        when(mockSessionFactory.openSession()).thenThrow(new HibernateException("Testing"));
+
+        assertThrows(SessionOpenException.class, () -> clickStatsService.getClickStats(SHORTENED_CHARS));
+    }
+
+    private void mockSession() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+    }
+}
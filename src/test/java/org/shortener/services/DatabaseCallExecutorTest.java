@@ -0,0 +1,93 @@
+package org.shortener.services;
+
+import org.junit.jupiter.api.Test;
+import org.shortener.exceptions.SessionOpenException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseCallExecutorTest {
+
+    @Test
+    void testSubmitRunsOnCallingThread() {
+        try (DatabaseCallExecutor executor = new DatabaseCallExecutor(false, 1)) {
+            Thread caller = Thread.currentThread();
+
+            Thread runner = executor.submit(Thread::currentThread).toCompletableFuture().join();
+
+            assertSame(caller, runner);
+        }
+    }
+
+    @Test
+    void testSubmitRunsOnVirtualThread() {
+        try (DatabaseCallExecutor executor = new DatabaseCallExecutor(true, 1)) {
+            Thread runner = executor.submit(Thread::currentThread).toCompletableFuture().join();
+
+            assertNotSame(Thread.currentThread(), runner);
+            assertTrue(runner.isVirtual());
+        }
+    }
+
+    @Test
+    void testSubmitFailure() {
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            try (DatabaseCallExecutor executor = new DatabaseCallExecutor(virtualThreads, 1)) {
+                CompletableFuture<Object> future = executor.submit(() -> {
+                    throw new SessionOpenException("Example exception");
+                }).toCompletableFuture();
+
+                CompletionException e = assertThrows(CompletionException.class, future::join);
+                assertInstanceOf(SessionOpenException.class, e.getCause());
+            }
+        }
+    }
+
+    @Test
+    void testConcurrentCallsBounded() throws InterruptedException {
+        int maxConcurrentCalls = 2;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (DatabaseCallExecutor executor = new DatabaseCallExecutor(true, maxConcurrentCalls)) {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return running.decrementAndGet();
+                }).toCompletableFuture());
+            }
+
+            while (executor.getQueueLength() < futures.size() - maxConcurrentCalls) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            futures.forEach(CompletableFuture::join);
+        }
+
+        assertEquals(maxConcurrentCalls, maxRunning.get());
+    }
+
+    @Test
+    void testInvalidMaxConcurrentCalls() {
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseCallExecutor(false, 0));
+    }
+}
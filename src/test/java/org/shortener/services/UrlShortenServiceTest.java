@@ -4,21 +4,49 @@ import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
 import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.daos.UrlLookupDAO;
 import org.shortener.entities.UrlDataEntity;
 import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.ShortCodeGenerator;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.replication.ReplicaRouter;
+import org.shortener.sharding.ShardRouter;
+import org.shortener.writebehind.WriteBehindQueue;
 import org.slf4j.Logger;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -28,7 +56,8 @@ import static org.mockito.Mockito.when;
 class UrlShortenServiceTest {
 
     private final static String ORIGINAL_URL = "http://example.com";
-    private final static String SHORTENED_CHARS = "abc12345";
+    private final static long KEY = 123456789L;
+    private final static String SHORTENED_CHARS = new Base62Encoder().encode(KEY);
 
     @Mock
     private Logger mockLogger;
@@ -45,28 +74,56 @@ class UrlShortenServiceTest {
     @Mock
     private UrlDataEntityDAO mockUrlDataEntityDAO;
 
-    @InjectMocks
+    @Mock
+    private UrlLookupDAO mockUrlLookupDAO;
+
+    @Mock
+    private ShortCodeGenerator mockShortCodeGenerator;
+
+    @Mock
+    private ClickRecorder mockClickRecorder;
+
+    @Spy
+    private UrlCache urlCache = new UrlCache(100, 1, 1, TimeUnit.MINUTES);
+
+    @Spy
+    private UrlExistenceFilter urlExistenceFilter = new UrlExistenceFilter(100, 0.01);
+
+    @Spy
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
     private UrlShortenService urlShortenService;
 
+    @BeforeEach
+    void setUp() {
+        urlShortenService = buildService(new ShardRouter(mockSessionFactory));
+    }
+
     @Test
     void testShortenUrlNewUrlSuccess() throws SessionOpenException {
         when(mockSessionFactory.openSession()).thenReturn(mockSession);
         when(mockSession.beginTransaction()).thenReturn(mockTransaction);
         doNothing().when(mockTransaction).commit();
         when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession)).thenReturn(null);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
         doNothing().when(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), any(Session.class));
 
         String result = urlShortenService.shortenUrl(ORIGINAL_URL);
 
-        verify(mockSession, times(2)).beginTransaction();
-        verify(mockUrlDataEntityDAO).getUrlFromOriginalUrl(eq(ORIGINAL_URL), any(Session.class));
-        verify(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), any(Session.class));
-        assertEquals(8, result.length());
+        verify(mockSessionFactory, times(1)).openSession();
+        verify(mockSession, times(1)).beginTransaction();
+        verify(mockShortCodeGenerator, times(1)).generateKey();
+        verify(mockUrlDataEntityDAO).getUrlFromOriginalUrl(ORIGINAL_URL, mockSession);
+        verify(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), eq(mockSession));
+        verify(mockTransaction).commit();
+        verify(mockSession).close();
+        verify(mockUrlDataEntityDAO, times(0)).getUrlFromShortenedUrl(anyLong(), any(), any());
+        assertEquals(SHORTENED_CHARS, result);
     }
 
     @Test
     void testShortenUrlExistingUrlSuccess() throws SessionOpenException {
-        UrlDataEntity existingUrlDataEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS);
+        UrlDataEntity existingUrlDataEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY);
         when(mockSessionFactory.openSession()).thenReturn(mockSession);
         when(mockSession.beginTransaction()).thenReturn(mockTransaction);
         doNothing().when(mockTransaction).commit();
@@ -75,10 +132,82 @@ class UrlShortenServiceTest {
         String result = urlShortenService.shortenUrl(ORIGINAL_URL);
 
         verify(mockUrlDataEntityDAO).getUrlFromOriginalUrl(ORIGINAL_URL, mockSession);
-        verify(mockLogger).info("Got existing shortened URL: {}", SHORTENED_CHARS);
+        verify(mockLogger).debug("Got existing shortened URL: {}", SHORTENED_CHARS);
         assertEquals(SHORTENED_CHARS, result);
     }
 
+    @Test
+    void testShortenUrlConcurrentlyStoredUrl() throws SessionOpenException {
+        UrlDataEntity concurrentlyStoredEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession)).thenReturn(null)
+                                                                                  .thenReturn(concurrentlyStoredEntity);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY + 1);
+        doThrow(new ConstraintViolationException("Duplicate", null, "url_shorten_original_url_hash_idx"))
+                .when(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), any(Session.class));
+
+        String result = urlShortenService.shortenUrl(ORIGINAL_URL);
+
+        verify(mockSessionFactory, times(1)).openSession();
+        verify(mockUrlDataEntityDAO, times(2)).getUrlFromOriginalUrl(ORIGINAL_URL, mockSession);
+        verify(mockTransaction).rollback();
+        verify(mockSession).clear();
+        verify(mockTransaction).commit();
+        assertEquals(SHORTENED_CHARS, result);
+    }
+
+    @Test
+    void testShortenUrlRetriesTakenKey() throws SessionOpenException {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession)).thenReturn(null);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY, KEY + 1);
+        doThrow(new ConstraintViolationException("Duplicate", null, "url_shorten_pkey"))
+                .doNothing()
+                .when(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), any(Session.class));
+
+        String result = urlShortenService.shortenUrl(ORIGINAL_URL);
+
+        String newCode = new Base62Encoder().encode(KEY + 1);
+        assertEquals(newCode, result);
+        verify(mockUrlDataEntityDAO, times(2)).saveUrl(any(UrlDataEntity.class), any(Session.class));
+        verify(mockTransaction).rollback();
+        verify(mockTransaction).commit();
+        assertEquals(ORIGINAL_URL, urlCache.get(newCode).getOriginalUrl());
+    }
+
+    @Test
+    void testShortenUrlKeysTakenFails() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession)).thenReturn(null);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY, KEY + 1);
+        doThrow(new ConstraintViolationException("Duplicate", null, "url_shorten_pkey"))
+                .when(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), any(Session.class));
+
+        assertThrows(SessionOpenException.class, () -> urlShortenService.shortenUrl(ORIGINAL_URL));
+
+        verify(mockUrlDataEntityDAO, times(2)).saveUrl(any(UrlDataEntity.class), any(Session.class));
+        verify(mockTransaction, never()).commit();
+    }
+
+    @Test
+    void testShortenUrlSaveFails() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession)).thenReturn(null);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+        doThrow(new HibernateException("Testing")).when(mockUrlDataEntityDAO)
+                                                  .saveUrl(any(UrlDataEntity.class), any(Session.class));
+
+        assertThrows(SessionOpenException.class, () -> urlShortenService.shortenUrl(ORIGINAL_URL));
+
+        verify(mockTransaction).rollback();
+        verify(mockTransaction, never()).commit();
+        verify(mockSession).close();
+    }
+
     @Test
     void testShortenUrlNewUrlThrow() {
         when(mockSessionFactory.openSession()).thenThrow(new HibernateException("Testing"));
@@ -88,16 +217,101 @@ class UrlShortenServiceTest {
         verifyNoInteractions(mockUrlDataEntityDAO);
     }
 
+    @Test
+    void testShortenUrlsSuccess() throws SessionOpenException {
+        String otherUrl = ORIGINAL_URL + "/other";
+        List<String> originalUrls = List.of(ORIGINAL_URL, otherUrl, otherUrl);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlsFromOriginalUrls(originalUrls, mockSession))
+                .thenReturn(List.of(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY)));
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY + 1);
+
+        List<String> result = urlShortenService.shortenUrls(originalUrls);
+
+        verify(mockShortCodeGenerator, times(1)).generateKey();
+        verify(mockUrlDataEntityDAO).saveUrls(anyList(), eq(mockSession));
+        verify(mockTransaction).commit();
+        String newCode = new Base62Encoder().encode(KEY + 1);
+        assertEquals(List.of(SHORTENED_CHARS, newCode, newCode), result);
+        assertEquals(otherUrl, urlCache.get(newCode).getOriginalUrl());
+    }
+
+    @Test
+    void testShortenUrlsConcurrentlyStoredUrl() throws SessionOpenException {
+        String otherUrl = ORIGINAL_URL + "/other";
+        List<String> originalUrls = List.of(ORIGINAL_URL, otherUrl);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlsFromOriginalUrls(originalUrls, mockSession))
+                .thenReturn(List.of())
+                .thenReturn(List.of(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY)));
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY + 1, KEY + 2);
+        List<List<UrlDataEntity>> savedEntities = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<UrlDataEntity> entities = invocation.getArgument(0);
+            savedEntities.add(List.copyOf(entities));
+            if (savedEntities.size() == 1) {
+                throw new ConstraintViolationException("Duplicate", null, "url_shorten_original_url_hash_idx");
+            }
+            return null;
+        }).when(mockUrlDataEntityDAO).saveUrls(anyList(), eq(mockSession));
+
+        List<String> result = urlShortenService.shortenUrls(originalUrls);
+
+        String newCode = new Base62Encoder().encode(KEY + 2);
+        verify(mockTransaction).rollback();
+        verify(mockSession).clear();
+        verify(mockTransaction).commit();
+        assertEquals(2, savedEntities.size());
+        assertEquals(1, savedEntities.get(1).size());
+        assertEquals(otherUrl, savedEntities.get(1).get(0).getOriginalUrl());
+        assertEquals(List.of(SHORTENED_CHARS, newCode), result);
+        assertNull(urlCache.get(new Base62Encoder().encode(KEY + 1)));
+        assertEquals(otherUrl, urlCache.get(newCode).getOriginalUrl());
+    }
+
+    @Test
+    void testShortenUrlsConstraintViolationWithoutConcurrentlyStoredUrl() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlsFromOriginalUrls(List.of(ORIGINAL_URL), mockSession)).thenReturn(List.of());
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+        doThrow(new ConstraintViolationException("Duplicate", null, "url_shorten_pkey"))
+                .when(mockUrlDataEntityDAO).saveUrls(anyList(), eq(mockSession));
+
+        assertThrows(SessionOpenException.class, () -> urlShortenService.shortenUrls(List.of(ORIGINAL_URL)));
+
+        verify(mockTransaction, times(2)).rollback();
+        verify(mockTransaction, never()).commit();
+    }
+
+    @Test
+    void testShortenUrlsThrows() {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlsFromOriginalUrls(List.of(ORIGINAL_URL), mockSession))
+                .thenThrow(new HibernateException("Testing"));
+
+        assertThrows(SessionOpenException.class, () -> urlShortenService.shortenUrls(List.of(ORIGINAL_URL)));
+
+        verify(mockTransaction).rollback();
+    }
+
     @Test
     void testGetOriginalUrlSuccess() throws SessionOpenException {
-        UrlDataEntity urlDataEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS);
+        UrlDataEntity urlDataEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY);
         when(mockSessionFactory.openSession()).thenReturn(mockSession);
         when(mockSession.beginTransaction()).thenReturn(mockTransaction);
-        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(SHORTENED_CHARS, mockSession)).thenReturn(urlDataEntity);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession)).thenReturn(urlDataEntity);
 
         String result = urlShortenService.getOriginalUrl(SHORTENED_CHARS);
 
-        verify(mockUrlDataEntityDAO).getUrlFromShortenedUrl(SHORTENED_CHARS, mockSession);
+        verify(mockSession).setDefaultReadOnly(true);
+        verify(mockUrlDataEntityDAO).getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession);
+        verify(mockTransaction).commit();
+        verify(mockSession).close();
+        verify(mockClickRecorder).recordClick(SHORTENED_CHARS);
         assertEquals(ORIGINAL_URL, result);
     }
 
@@ -109,4 +323,331 @@ class UrlShortenServiceTest {
 
         verifyNoInteractions(mockUrlDataEntityDAO);
     }
+
+    @Test
+    void testGetOriginalUrlServedFromCache() throws SessionOpenException {
+        UrlDataEntity urlDataEntity = new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession)).thenReturn(urlDataEntity);
+
+        urlShortenService.getOriginalUrl(SHORTENED_CHARS);
+        String result = urlShortenService.getOriginalUrl(SHORTENED_CHARS);
+
+        verify(mockSessionFactory, times(1)).openSession();
+        verify(mockUrlDataEntityDAO, times(1)).getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession);
+        verify(mockClickRecorder, times(2)).recordClick(SHORTENED_CHARS);
+        assertEquals(ORIGINAL_URL, result);
+    }
+
+    @Test
+    void testGetOriginalUrlMissIsCached() throws SessionOpenException {
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession)).thenReturn(null);
+
+        urlShortenService.getOriginalUrl(SHORTENED_CHARS);
+        String result = urlShortenService.getOriginalUrl(SHORTENED_CHARS);
+
+        verify(mockUrlDataEntityDAO, times(1)).getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession);
+        verifyNoInteractions(mockClickRecorder);
+        assertNull(result);
+    }
+
+    @Test
+    void testGetOriginalUrlAsync() {
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        when(mockUrlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS)).thenReturn(lookup);
+
+        CompletableFuture<String> result = urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture();
+        assertFalse(result.isDone());
+        lookup.complete(ORIGINAL_URL);
+
+        assertEquals(ORIGINAL_URL, result.join());
+        assertEquals(ORIGINAL_URL, urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture().join());
+        verify(mockUrlLookupDAO, times(1)).getOriginalUrl(KEY, SHORTENED_CHARS);
+        verify(mockClickRecorder, times(2)).recordClick(SHORTENED_CHARS);
+        verifyNoInteractions(mockSessionFactory);
+    }
+
+    @Test
+    void testGetOriginalUrlAsyncMissIsCached() {
+        when(mockUrlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS)).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertNull(urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture().join());
+        assertNull(urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture().join());
+
+        verify(mockUrlLookupDAO, times(1)).getOriginalUrl(KEY, SHORTENED_CHARS);
+        verifyNoInteractions(mockClickRecorder);
+    }
+
+    @Test
+    void testGetOriginalUrlAsyncSkipsLookupOfUrlNotStored() {
+        urlExistenceFilter.markWarmed();
+
+        assertNull(urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture().join());
+
+        verifyNoInteractions(mockUrlLookupDAO);
+    }
+
+    @Test
+    void testGetOriginalUrlAsyncThrows() {
+        when(mockUrlLookupDAO.getOriginalUrl(KEY, SHORTENED_CHARS))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Testing")));
+
+        CompletableFuture<String> result = urlShortenService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture();
+
+        CompletionException e = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(SessionOpenException.class, e.getCause());
+        assertInstanceOf(IllegalStateException.class, e.getCause().getCause());
+        assertNull(urlCache.get(SHORTENED_CHARS));
+    }
+
+    @Test
+    void testShortenUrlSharded() throws SessionOpenException {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        ShardRouter shardRouter = new ShardRouter(List.of(mockSessionFactory, otherSessionFactory),
+                                                  new Base62Encoder());
+        int shard = shardRouter.getShardOfOriginalUrlHash(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL));
+        when(shardRouter.getShard(shard).openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+
+        String result = buildService(shardRouter).shortenUrl(ORIGINAL_URL);
+
+        assertEquals(shardRouter.getShortenedUrl(shard, KEY), result);
+        assertEquals(shard, shardRouter.getShardOfShortenedUrl(result));
+        verifyNoInteractions(shardRouter.getShard(1 - shard));
+    }
+
+    @Test
+    void testGetOriginalUrlSharded() throws SessionOpenException {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        ShardRouter shardRouter = new ShardRouter(List.of(mockSessionFactory, otherSessionFactory),
+                                                  new Base62Encoder());
+        UrlShortenService shardedService = buildService(shardRouter);
+        when(otherSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, "b" + SHORTENED_CHARS, mockSession))
+                .thenReturn(new UrlDataEntity(ORIGINAL_URL, "b" + SHORTENED_CHARS, KEY));
+
+        assertEquals(ORIGINAL_URL, shardedService.getOriginalUrl("b" + SHORTENED_CHARS));
+
+        verifyNoInteractions(mockSessionFactory);
+    }
+
+    @Test
+    void testGetOriginalUrlFromReplica() throws SessionOpenException {
+        SessionFactory replicaSessionFactory = mock(SessionFactory.class);
+        UrlShortenService replicatedService = buildReplicatedService(replicaSessionFactory);
+        when(replicaSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession))
+                .thenReturn(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY));
+
+        assertEquals(ORIGINAL_URL, replicatedService.getOriginalUrl(SHORTENED_CHARS));
+
+        verify(mockSession).setDefaultReadOnly(true);
+        verifyNoInteractions(mockSessionFactory);
+        assertEquals(0, metricsRegistry.counter("shortener_db_replica_fallbacks_total", "").sum());
+    }
+
+    @Test
+    void testGetOriginalUrlMissingFromReplicaReadFromPrimary() throws SessionOpenException {
+        SessionFactory replicaSessionFactory = mock(SessionFactory.class);
+        Session replicaSession = mock(Session.class);
+        UrlShortenService replicatedService = buildReplicatedService(replicaSessionFactory);
+        when(replicaSessionFactory.openSession()).thenReturn(replicaSession);
+        when(replicaSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        // Just stored on the primary, not yet replicated
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession))
+                .thenReturn(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY));
+
+        assertEquals(ORIGINAL_URL, replicatedService.getOriginalUrl(SHORTENED_CHARS));
+
+        verify(mockUrlDataEntityDAO).getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, replicaSession);
+        assertEquals(1, metricsRegistry.counter("shortener_db_replica_fallbacks_total", "").sum());
+    }
+
+    @Test
+    void testGetOriginalUrlReplicaFailingReadFromPrimary() throws SessionOpenException {
+        SessionFactory replicaSessionFactory = mock(SessionFactory.class);
+        ReplicaRouter replicaRouter = new ReplicaRouter(mockLogger, List.of(replicaSessionFactory),
+                                                        ReplicaRouter.Selection.ROUND_ROBIN);
+        UrlShortenService replicatedService = new UrlShortenService(mockLogger, new ShardRouter(mockSessionFactory),
+                                                                    replicaRouter, null, mockUrlDataEntityDAO, null,
+                                                                    urlCache, urlExistenceFilter,
+                                                                    mockShortCodeGenerator, mockClickRecorder,
+                                                                    metricsRegistry);
+        when(replicaSessionFactory.openSession()).thenThrow(new HibernateException("Testing"));
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromShortenedUrl(KEY, SHORTENED_CHARS, mockSession))
+                .thenReturn(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY));
+
+        assertEquals(ORIGINAL_URL, replicatedService.getOriginalUrl(SHORTENED_CHARS));
+
+        assertFalse(replicaRouter.getReplicas().get(0).isHealthy());
+        assertNull(replicaRouter.select());
+    }
+
+    @Test
+    void testGetOriginalUrlAsyncNotEnabled() {
+        UrlShortenService blockingService = new UrlShortenService(mockLogger, new ShardRouter(mockSessionFactory),
+                                                                  null, null, mockUrlDataEntityDAO, null, urlCache,
+                                                                  urlExistenceFilter, mockShortCodeGenerator,
+                                                                  mockClickRecorder, metricsRegistry);
+
+        assertTrue(urlShortenService.isNonBlockingLookupEnabled());
+        assertFalse(blockingService.isNonBlockingLookupEnabled());
+        assertThrows(IllegalStateException.class, () -> blockingService.getOriginalUrlAsync(SHORTENED_CHARS));
+    }
+
+    @Test
+    void testShortenUrlSkipsLookupOfUrlNotStored() throws SessionOpenException {
+        urlExistenceFilter.markWarmed();
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+
+        String result = urlShortenService.shortenUrl(ORIGINAL_URL);
+
+        verify(mockUrlDataEntityDAO, never()).getUrlFromOriginalUrl(any(), any());
+        verify(mockUrlDataEntityDAO).saveUrl(any(UrlDataEntity.class), eq(mockSession));
+        assertEquals(SHORTENED_CHARS, result);
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        assertTrue(urlExistenceFilter.mightContainOriginalUrlHash(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL)));
+    }
+
+    @Test
+    void testShortenUrlsSkipsLookupOfUrlsNotStored() throws SessionOpenException {
+        urlExistenceFilter.markWarmed();
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+
+        List<String> result = urlShortenService.shortenUrls(List.of(ORIGINAL_URL));
+
+        verify(mockUrlDataEntityDAO, never()).getUrlsFromOriginalUrls(any(), any());
+        verify(mockTransaction).commit();
+        assertEquals(List.of(SHORTENED_CHARS), result);
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+    }
+
+    @Test
+    void testGetOriginalUrlSkipsLookupOfInvalidCode() throws SessionOpenException {
+        assertNull(urlShortenService.getOriginalUrl("not/a/code"));
+        assertNull(urlShortenService.getOriginalUrl("aaaaaaaaaaaaaaaaa"));
+
+        verifyNoInteractions(mockSessionFactory);
+        verifyNoInteractions(mockClickRecorder);
+    }
+
+    @Test
+    void testGetOriginalUrlSkipsLookupOfCodeNotStored() throws SessionOpenException {
+        urlExistenceFilter.markWarmed();
+
+        assertNull(urlShortenService.getOriginalUrl(SHORTENED_CHARS));
+
+        verifyNoInteractions(mockSessionFactory);
+        verifyNoInteractions(mockClickRecorder);
+        assertEquals(1, urlExistenceFilter.getSkippedLookupCount());
+    }
+
+    @Test
+    void testShortenUrlWriteBehind() throws SessionOpenException {
+        WriteBehindQueue mockQueue = mock(WriteBehindQueue.class);
+        UrlShortenService writeBehindService = buildWriteBehindService(mockQueue);
+        urlExistenceFilter.markWarmed();
+        when(mockShortCodeGenerator.generateKey()).thenReturn(KEY);
+        when(mockQueue.enqueue(any(UrlDataEntity.class))).thenReturn(SHORTENED_CHARS);
+
+        String result = writeBehindService.shortenUrl(ORIGINAL_URL);
+
+        assertEquals(SHORTENED_CHARS, result);
+        verify(mockQueue).enqueue(any(UrlDataEntity.class));
+        verifyNoInteractions(mockSessionFactory);
+        verify(mockUrlDataEntityDAO, never()).saveUrl(any(), any());
+    }
+
+    @Test
+    void testShortenUrlWriteBehindReturnsPendingUrl() throws SessionOpenException {
+        WriteBehindQueue mockQueue = mock(WriteBehindQueue.class);
+        UrlShortenService writeBehindService = buildWriteBehindService(mockQueue);
+        when(mockQueue.getPendingShortenedUrl(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL))).thenReturn(SHORTENED_CHARS);
+
+        String result = writeBehindService.shortenUrl(ORIGINAL_URL);
+
+        assertEquals(SHORTENED_CHARS, result);
+        verify(mockQueue, never()).enqueue(any());
+        verifyNoInteractions(mockSessionFactory);
+        verifyNoInteractions(mockShortCodeGenerator);
+    }
+
+    @Test
+    void testShortenUrlWriteBehindReturnsStoredUrl() throws SessionOpenException {
+        WriteBehindQueue mockQueue = mock(WriteBehindQueue.class);
+        UrlShortenService writeBehindService = buildWriteBehindService(mockQueue);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockUrlDataEntityDAO.getUrlFromOriginalUrl(ORIGINAL_URL, mockSession))
+                .thenReturn(new UrlDataEntity(ORIGINAL_URL, SHORTENED_CHARS, KEY));
+
+        String result = writeBehindService.shortenUrl(ORIGINAL_URL);
+
+        assertEquals(SHORTENED_CHARS, result);
+        verify(mockSession).setDefaultReadOnly(true);
+        verify(mockQueue, never()).enqueue(any());
+    }
+
+    @Test
+    void testGetOriginalUrlWriteBehindPending() throws SessionOpenException {
+        WriteBehindQueue mockQueue = mock(WriteBehindQueue.class);
+        UrlShortenService writeBehindService = buildWriteBehindService(mockQueue);
+        when(mockQueue.getPendingOriginalUrl(SHORTENED_CHARS)).thenReturn(ORIGINAL_URL);
+
+        assertEquals(ORIGINAL_URL, writeBehindService.getOriginalUrl(SHORTENED_CHARS));
+        assertEquals(ORIGINAL_URL, writeBehindService.getOriginalUrlAsync(SHORTENED_CHARS).toCompletableFuture().join());
+
+        verifyNoInteractions(mockSessionFactory);
+        verifyNoInteractions(mockUrlLookupDAO);
+        verify(mockClickRecorder, times(2)).recordClick(SHORTENED_CHARS);
+    }
+
+    @Test
+    void testShortenUrlsWriteBehindReturnsPendingUrl() throws SessionOpenException {
+        WriteBehindQueue mockQueue = mock(WriteBehindQueue.class);
+        UrlShortenService writeBehindService = buildWriteBehindService(mockQueue);
+        when(mockSessionFactory.openSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        when(mockQueue.getPendingShortenedUrl(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL))).thenReturn(SHORTENED_CHARS);
+
+        List<String> result = writeBehindService.shortenUrls(List.of(ORIGINAL_URL));
+
+        assertEquals(List.of(SHORTENED_CHARS), result);
+        verify(mockUrlDataEntityDAO, never()).getUrlsFromOriginalUrls(any(), any());
+        verifyNoInteractions(mockShortCodeGenerator);
+    }
+
+    private UrlShortenService buildWriteBehindService(WriteBehindQueue writeBehindQueue) {
+        return new UrlShortenService(mockLogger, new ShardRouter(mockSessionFactory), null, writeBehindQueue,
+                                     mockUrlDataEntityDAO, mockUrlLookupDAO, urlCache, urlExistenceFilter,
+                                     mockShortCodeGenerator, mockClickRecorder, metricsRegistry);
+    }
+
+    private UrlShortenService buildReplicatedService(SessionFactory replicaSessionFactory) {
+        return new UrlShortenService(mockLogger, new ShardRouter(mockSessionFactory),
+                                     new ReplicaRouter(mockLogger, List.of(replicaSessionFactory),
+                                                       ReplicaRouter.Selection.ROUND_ROBIN),
+                                     null, mockUrlDataEntityDAO, null, urlCache, urlExistenceFilter,
+                                     mockShortCodeGenerator, mockClickRecorder, metricsRegistry);
+    }
+
+    private UrlShortenService buildService(ShardRouter shardRouter) {
+        return new UrlShortenService(mockLogger, shardRouter, null, null, mockUrlDataEntityDAO, mockUrlLookupDAO,
+                                     urlCache, urlExistenceFilter, mockShortCodeGenerator, mockClickRecorder,
+                                     metricsRegistry);
+    }
 }
@@ -0,0 +1,244 @@
+package org.shortener.services;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UrlTransferServiceTest {
+
+    private final static String ORIGINAL_URL = "http://example.com";
+    private final static String SHORTENED_CHARS = "abc12345";
+
+    @Mock
+    private Logger mockLogger;
+
+    @Mock
+    private SessionFactory mockSessionFactory;
+
+    @Mock
+    private StatelessSession mockSession;
+
+    @Mock
+    private Transaction mockTransaction;
+
+    @Mock
+    private UrlDataEntityDAO mockUrlDataEntityDAO;
+
+    @Spy
+    private UrlCache urlCache = new UrlCache(100, 1, 1, TimeUnit.MINUTES);
+
+    @Spy
+    private UrlExistenceFilter urlExistenceFilter = new UrlExistenceFilter(100, 0.01);
+
+    @Spy
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    private UrlTransferService urlTransferService;
+
+    @BeforeEach
+    void setUp() {
+        urlTransferService = new UrlTransferService(mockLogger, new ShardRouter(mockSessionFactory),
+                                                    mockUrlDataEntityDAO, urlCache, urlExistenceFilter,
+                                                    metricsRegistry);
+    }
+
+    @Test
+    void testExportUrls() throws SessionOpenException {
+        mockSession();
+        doAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(1);
+            consumer.accept(SHORTENED_CHARS, ORIGINAL_URL);
+            consumer.accept("other", ORIGINAL_URL + "/other");
+            return null;
+        }).when(mockUrlDataEntityDAO).forEachUrl(eq(mockSession), any());
+        Map<String, String> exported = new LinkedHashMap<>();
+
+        assertEquals(2, urlTransferService.exportUrls(exported::put));
+
+        assertEquals(Map.of(SHORTENED_CHARS, ORIGINAL_URL, "other", ORIGINAL_URL + "/other"), exported);
+        assertEquals(2, metricsRegistry.counter("shortener_urls_exported_total", "").sum());
+        verify(mockTransaction).commit();
+        verify(mockSession).close();
+    }
+
+    @Test
+    void testExportUrlsThrowingException() {
+        mockSession();
+        when(mockTransaction.isActive()).thenReturn(true);
+        doAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(1);
+            consumer.accept(SHORTENED_CHARS, ORIGINAL_URL);
+            return null;
+        }).when(mockUrlDataEntityDAO).forEachUrl(eq(mockSession), any());
+
+        assertThrows(SessionOpenException.class, () -> urlTransferService.exportUrls((shortenedUrl, originalUrl) -> {
+            throw new IllegalStateException("Client went away");
+        }));
+        verify(mockTransaction).rollback();
+        verify(mockSession).close();
+    }
+
+    @Test
+    void testImportUrlsSkipsStored() throws SessionOpenException {
+        mockSession();
+        UrlDataEntity fresh = buildEntity(ORIGINAL_URL, SHORTENED_CHARS);
+        UrlDataEntity storedCode = buildEntity(ORIGINAL_URL + "/code", "taken");
+        UrlDataEntity storedUrl = buildEntity(ORIGINAL_URL + "/stored", "free");
+        UrlDataEntity duplicate = buildEntity(ORIGINAL_URL, "duplicate");
+        doAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(3);
+            consumer.accept("taken", UrlDataEntity.hashOriginalUrl(ORIGINAL_URL + "/taken"));
+            consumer.accept("stored", UrlDataEntity.hashOriginalUrl(ORIGINAL_URL + "/stored"));
+            return null;
+        }).when(mockUrlDataEntityDAO).forEachStoredUrl(anyList(), anyList(), eq(mockSession), any());
+        urlCache.putMissing(SHORTENED_CHARS);
+
+        assertEquals(1, urlTransferService.importUrls(List.of(fresh, storedCode, storedUrl, duplicate)));
+
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(fresh), mockSession);
+        verify(mockTransaction).commit();
+        assertNull(urlCache.get(SHORTENED_CHARS));
+        assertEquals(1, metricsRegistry.counter("shortener_urls_imported_total", "").sum());
+        verify(mockSession).close();
+    }
+
+    @Test
+    void testImportUrlsWithFilter() throws SessionOpenException {
+        mockSession();
+        urlExistenceFilter.markWarmed();
+        UrlDataEntity fresh = buildEntity(ORIGINAL_URL, SHORTENED_CHARS);
+
+        assertEquals(1, urlTransferService.importUrls(List.of(fresh)));
+
+        verify(mockUrlDataEntityDAO).forEachStoredUrl(eq(List.of()), eq(List.of()), eq(mockSession), any());
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(fresh), mockSession);
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        assertTrue(urlExistenceFilter.mightContainOriginalUrlHash(fresh.getOriginalUrlHash()));
+    }
+
+    @Test
+    void testImportUrlsThrowingException() {
+        mockSession();
+        when(mockTransaction.isActive()).thenReturn(true);
+        UrlDataEntity fresh = buildEntity(ORIGINAL_URL, SHORTENED_CHARS);
+        doThrow(new HibernateException("Example exception")).when(mockUrlDataEntityDAO)
+                                                               .insertUrls(List.of(fresh), mockSession);
+        urlExistenceFilter.markWarmed();
+
+        assertThrows(SessionOpenException.class, () -> urlTransferService.importUrls(List.of(fresh)));
+
+        verify(mockTransaction).rollback();
+        verify(mockTransaction, never()).commit();
+        assertFalse(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_CHARS));
+        verify(mockSession).close();
+    }
+
+    @Test
+    void testImportUrlsPerShard() throws SessionOpenException {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        StatelessSession otherSession = mock(StatelessSession.class);
+        Transaction otherTransaction = mock(Transaction.class);
+        mockSession();
+        when(otherSessionFactory.openStatelessSession()).thenReturn(otherSession);
+        when(otherSession.beginTransaction()).thenReturn(otherTransaction);
+        ShardRouter shardRouter = new ShardRouter(List.of(mockSessionFactory, otherSessionFactory),
+                                                  new Base62Encoder());
+        urlTransferService = new UrlTransferService(mockLogger, shardRouter, mockUrlDataEntityDAO, urlCache,
+                                                    urlExistenceFilter, metricsRegistry);
+        urlExistenceFilter.markWarmed();
+        UrlDataEntity first = new UrlDataEntity(urlOfShard(shardRouter, 0, "first"), "a1234567",
+                                                shardRouter.getKeyOfShortenedUrl("a1234567"));
+        UrlDataEntity second = new UrlDataEntity(urlOfShard(shardRouter, 1, "second"), "b1234567",
+                                                 shardRouter.getKeyOfShortenedUrl("b1234567"));
+
+        assertEquals(2, urlTransferService.importUrls(List.of(second, first)));
+
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(first), mockSession);
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(second), otherSession);
+        verify(mockTransaction).commit();
+        verify(otherTransaction).commit();
+    }
+
+    @Test
+    void testImportUrlsSkipsMappingsRoutedToAnotherShard() throws SessionOpenException {
+        SessionFactory otherSessionFactory = mock(SessionFactory.class);
+        mockSession();
+        ShardRouter shardRouter = new ShardRouter(List.of(mockSessionFactory, otherSessionFactory),
+                                                  new Base62Encoder());
+        urlTransferService = new UrlTransferService(mockLogger, shardRouter, mockUrlDataEntityDAO, urlCache,
+                                                    urlExistenceFilter, metricsRegistry);
+        urlExistenceFilter.markWarmed();
+        UrlDataEntity routed = new UrlDataEntity(urlOfShard(shardRouter, 0, "routed"), "a1234567",
+                                                 shardRouter.getKeyOfShortenedUrl("a1234567"));
+        // A URL shortened on shard 1 would be stored again on shard 0 by a code of shard 0
+        UrlDataEntity storedElsewhere = new UrlDataEntity(urlOfShard(shardRouter, 1, "elsewhere"), "a7654321",
+                                                          shardRouter.getKeyOfShortenedUrl("a7654321"));
+        // A URL of shard 0 imported on shard 1 would not be found by shortening it, which would add a second code
+        UrlDataEntity shortenedElsewhere = new UrlDataEntity(urlOfShard(shardRouter, 0, "shortened"), "b1234567",
+                                                             shardRouter.getKeyOfShortenedUrl("b1234567"));
+
+        assertEquals(1, urlTransferService.importUrls(List.of(routed, storedElsewhere, shortenedElsewhere)));
+
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(routed), mockSession);
+        verify(otherSessionFactory, never()).openStatelessSession();
+        assertFalse(urlExistenceFilter.mightContainShortenedUrl("a7654321"));
+        assertFalse(urlExistenceFilter.mightContainShortenedUrl("b1234567"));
+    }
+
+    private static String urlOfShard(ShardRouter shardRouter, int shard, String path) {
+        for (int i = 0; ; i++) {
+            String originalUrl = ORIGINAL_URL + "/" + path + i;
+            if (shardRouter.getShardOfOriginalUrlHash(UrlDataEntity.hashOriginalUrl(originalUrl)) == shard) {
+                return originalUrl;
+            }
+        }
+    }
+
+    private UrlDataEntity buildEntity(String originalUrl, String shortenedUrl) {
+        return new UrlDataEntity(originalUrl, shortenedUrl,
+                                 new ShardRouter(mockSessionFactory).getKeyOfShortenedUrl(shortenedUrl));
+    }
+
+    private void mockSession() {
+        when(mockSessionFactory.openStatelessSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+    }
+}
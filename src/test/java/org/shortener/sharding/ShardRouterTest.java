@@ -0,0 +1,207 @@
+package org.shortener.sharding;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.shortener.analytics.ClickRecorder;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.HibernateConfiguration;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.generators.Base62Encoder;
+import org.shortener.generators.SnowflakeShortCodeGenerator;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.services.UrlShortenService;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class ShardRouterTest {
+
+    private final static String ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+    private final static Base62Encoder ENCODER = new Base62Encoder(ALPHABET, 1);
+
+    private final SessionFactory firstShard = mock(SessionFactory.class);
+
+    private final SessionFactory secondShard = mock(SessionFactory.class);
+
+    private final SessionFactory thirdShard = mock(SessionFactory.class);
+
+    @Test
+    void testSingleShard() {
+        ShardRouter shardRouter = new ShardRouter(firstShard);
+
+        assertEquals(1, shardRouter.getShardCount());
+        assertEquals("ba", shardRouter.getShortenedUrl(0, 62));
+        assertSame(firstShard, shardRouter.forShortenedUrl("zzz"));
+        assertSame(firstShard, shardRouter.forOriginalUrlHash(UrlDataEntity.hashOriginalUrl("http://example.com")));
+    }
+
+    @Test
+    void testShortenedUrlsRoutedByFirstCharacter() {
+        ShardRouter shardRouter = new ShardRouter(List.of(firstShard, secondShard, thirdShard), ENCODER);
+
+        assertEquals("1" + ENCODER.encode(12345), shardRouter.getShortenedUrl(1, 12345));
+        assertSame(firstShard, shardRouter.forShortenedUrl("012345"));
+        assertSame(secondShard, shardRouter.forShortenedUrl("112345"));
+        assertSame(thirdShard, shardRouter.forShortenedUrl("212345"));
+        // Characters past the number of shards wrap around, characters outside the alphabet are routed by value
+        assertSame(firstShard, shardRouter.forShortenedUrl("312345"));
+        assertEquals('-' % 3, shardRouter.getShardOfShortenedUrl("-12345"));
+    }
+
+    @Test
+    void testOriginalUrlHashesRoutedByDigest() {
+        ShardRouter shardRouter = new ShardRouter(List.of(firstShard, secondShard, thirdShard), ENCODER);
+
+        assertEquals(0, shardRouter.getShardOfOriginalUrlHash("00000003" + "0".repeat(56)));
+        assertEquals(2, shardRouter.getShardOfOriginalUrlHash("00000005" + "0".repeat(56)));
+        // The first 32 bits are read as unsigned, 0xffffffff is 4294967295
+        assertEquals(0, shardRouter.getShardOfOriginalUrlHash("ffffffff" + "0".repeat(56)));
+    }
+
+    @Test
+    void testInvalidNumberOfShards() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRouter(List.of(), ENCODER));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new ShardRouter(Collections.nCopies(63, firstShard), ENCODER));
+    }
+
+    @Test
+    void testKeyOfShortenedUrl() {
+        ShardRouter shardRouter = new ShardRouter(firstShard);
+
+        assertEquals(0, shardRouter.getKeyOfShortenedUrl("a"));
+        assertEquals(61, shardRouter.getKeyOfShortenedUrl("9"));
+        assertEquals(62, shardRouter.getKeyOfShortenedUrl("ba"));
+        assertEquals(63, shardRouter.getKeyOfShortenedUrl("bb"));
+        assertEquals(62 * 62, shardRouter.getKeyOfShortenedUrl("baa"));
+        assertEquals(Long.MAX_VALUE, shardRouter.getKeyOfShortenedUrl("k9viXaIfiWh"));
+    }
+
+    @Test
+    void testKeyOfGeneratedShortenedUrlIsItsKey() {
+        ShardRouter shardRouter = new ShardRouter(List.of(firstShard, secondShard, thirdShard), ENCODER);
+
+        for (long key : new long[]{0, 61, 62, 1L << 40, Long.MAX_VALUE}) {
+            for (int shard = 0; shard < 3; shard++) {
+                String shortenedUrl = shardRouter.getShortenedUrl(shard, key);
+
+                assertEquals(key, shardRouter.getKeyOfShortenedUrl(shortenedUrl));
+                assertEquals(shard, shardRouter.getShardOfShortenedUrl(shortenedUrl));
+                assertTrue(shardRouter.isValidShortenedUrl(shortenedUrl));
+            }
+        }
+    }
+
+    @Test
+    void testKeyOfShortenedUrlIsUniqueForShortCodes() {
+        ShardRouter shardRouter = new ShardRouter(firstShard);
+        String alphabet = Base62Encoder.DEFAULT_ALPHABET;
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < alphabet.length(); i++) {
+            keys.add(shardRouter.getKeyOfShortenedUrl(alphabet.substring(i, i + 1)));
+            for (int j = 0; j < alphabet.length(); j++) {
+                keys.add(shardRouter.getKeyOfShortenedUrl("" + alphabet.charAt(i) + alphabet.charAt(j)));
+            }
+        }
+
+        assertEquals(62 + 62 * 62, keys.size());
+        // Codes with a leading zero digit are never generated, so they do not take the key of the code without it
+        assertEquals(62 * 62, keys.stream().filter(key -> key >= 0 && key < 62 * 62).count());
+    }
+
+    @Test
+    void testKeyOfShortenedUrlFallsBackToDigest() {
+        ShardRouter shardRouter = new ShardRouter(firstShard);
+        ShardRouter shardedRouter = new ShardRouter(List.of(firstShard, secondShard, thirdShard), ENCODER);
+
+        assertTrue(shardRouter.getKeyOfShortenedUrl("my-code") < 0);
+        assertTrue(shardRouter.getKeyOfShortenedUrl("aa") < 0);
+        assertTrue(shardRouter.getKeyOfShortenedUrl("l" + "a".repeat(10)) < 0);
+        assertTrue(shardRouter.getKeyOfShortenedUrl("a".repeat(16)) < 0);
+        assertNotEquals(shardRouter.getKeyOfShortenedUrl("my-code"), shardRouter.getKeyOfShortenedUrl("my_code"));
+        assertEquals(shardRouter.getKeyOfShortenedUrl("my-code"), shardRouter.getKeyOfShortenedUrl("my-code"));
+        // A code carrying the character of no shard is not a generated one
+        assertTrue(shardedRouter.getKeyOfShortenedUrl("312345") < 0);
+        assertTrue(shardedRouter.getKeyOfShortenedUrl("-12345") < 0);
+    }
+
+    @Test
+    void testIsValidShortenedUrl() {
+        ShardRouter shardRouter = new ShardRouter(firstShard);
+        Base62Encoder customEncoder = new Base62Encoder("~!" + Base62Encoder.DEFAULT_ALPHABET.substring(2), 1);
+        ShardRouter customRouter = new ShardRouter(List.of(firstShard), customEncoder);
+
+        assertTrue(shardRouter.isValidShortenedUrl("abc123"));
+        assertTrue(shardRouter.isValidShortenedUrl("my-code_2"));
+        assertTrue(shardRouter.isValidShortenedUrl("a".repeat(16)));
+        assertFalse(shardRouter.isValidShortenedUrl("a".repeat(17)));
+        assertFalse(shardRouter.isValidShortenedUrl(""));
+        assertFalse(shardRouter.isValidShortenedUrl(null));
+        assertFalse(shardRouter.isValidShortenedUrl("a/b"));
+        assertFalse(shardRouter.isValidShortenedUrl("caf\u00e9"));
+        assertFalse(shardRouter.isValidShortenedUrl("~!c"));
+        assertTrue(customRouter.isValidShortenedUrl("~!c"));
+        assertEquals(1, customRouter.getKeyOfShortenedUrl("!"));
+    }
+
+    @Test
+    void testShardedDatabases() throws SessionOpenException {
+        // Two in-memory H2 databases stand in for Postgres shards
+        ShardRouter shardRouter = HibernateConfiguration.buildShardRouter(
+                ApplicationProperties.getInstance()
+                                     .with("shortener.db.shard-urls", "jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1,"
+                                                                      + "jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1")
+                                     .with("shortener.db.username", "sa")
+                                     .with("shortener.db.password", "")
+                                     .with("shortener.db.schema-action", "create")
+                                     .with("shortener.db.pool-size", "2"));
+        try {
+            UrlShortenService urlShortenService = new UrlShortenService(
+                    LoggerFactory.getLogger(ShardRouterTest.class), shardRouter, null, null, new UrlDataEntityDAO(),
+                    null, new UrlCache(1, 0, 0, TimeUnit.NANOSECONDS), UrlExistenceFilter.disabled(),
+                    new SnowflakeShortCodeGenerator(1, new Base62Encoder()), mock(ClickRecorder.class),
+                    new MetricsRegistry());
+            UrlDataEntityDAO urlDataEntityDAO = new UrlDataEntityDAO();
+
+            for (int i = 0; i < 20; i++) {
+                String originalUrl = "http://example.com/" + i;
+                String shortenedUrl = urlShortenService.shortenUrl(originalUrl);
+                int shard = shardRouter.getShardOfOriginalUrlHash(UrlDataEntity.hashOriginalUrl(originalUrl));
+                long key = shardRouter.getKeyOfShortenedUrl(shortenedUrl);
+
+                assertEquals(shard, shardRouter.getShardOfShortenedUrl(shortenedUrl));
+                assertTrue(key >= 0);
+                try (Session session = shardRouter.getShard(shard).openSession()) {
+                    assertNotNull(urlDataEntityDAO.getUrlFromShortenedUrl(key, shortenedUrl, session));
+                }
+                try (Session session = shardRouter.getShard(1 - shard).openSession()) {
+                    assertNull(urlDataEntityDAO.getUrlFromShortenedUrl(key, shortenedUrl, session));
+                }
+                assertEquals(originalUrl, urlShortenService.getOriginalUrl(shortenedUrl));
+                assertEquals(shortenedUrl, urlShortenService.shortenUrl(originalUrl));
+            }
+        } finally {
+            shardRouter.getShards().forEach(SessionFactory::close);
+        }
+    }
+}
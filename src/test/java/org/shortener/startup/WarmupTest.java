@@ -0,0 +1,88 @@
+package org.shortener.startup;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.shortener.caches.UrlCache;
+import org.shortener.configurations.ApplicationProperties;
+import org.shortener.configurations.HibernateConfiguration;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.ClickStatsEntity;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WarmupTest {
+
+    private ShardRouter shardRouter;
+    private UrlCache urlCache;
+    private Warmup warmup;
+
+    @BeforeEach
+    void setUp() {
+        // An in-memory H2 database stands in for Postgres
+        shardRouter = HibernateConfiguration.buildShardRouter(
+                ApplicationProperties.getInstance()
+                                     .with("shortener.db.url", "jdbc:h2:mem:warmup;DB_CLOSE_DELAY=-1")
+                                     .with("shortener.db.username", "sa")
+                                     .with("shortener.db.password", "")
+                                     .with("shortener.db.schema-action", "create")
+                                     .with("shortener.db.pool-size", "3"));
+        urlCache = new UrlCache(100, 1, 1, TimeUnit.MINUTES);
+        warmup = new Warmup(LoggerFactory.getLogger(WarmupTest.class), shardRouter, List.of(), new UrlDataEntityDAO(),
+                            urlCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardRouter.getShards().forEach(SessionFactory::close);
+    }
+
+    @Test
+    void testFillConnectionPools() {
+        assertTrue(warmup.fillConnectionPools(10_000));
+    }
+
+    @Test
+    void testPreloadMostClickedUrls() {
+        Instant now = Instant.now();
+        try (StatelessSession session = shardRouter.getShard(0).openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            session.insert(new UrlDataEntity("http://example.com/hot", "hot", keyOf("hot")));
+            session.insert(new UrlDataEntity("http://example.com/warm", "warm", keyOf("warm")));
+            session.insert(new UrlDataEntity("http://example.com/cold", "cold", keyOf("cold")));
+            session.insert(new UrlDataEntity("http://example.com/unclicked", "unclicked", keyOf("unclicked")));
+            session.insert(new ClickStatsEntity("hot", 30, now, now));
+            session.insert(new ClickStatsEntity("warm", 20, now, now));
+            session.insert(new ClickStatsEntity("cold", 10, now, now));
+            transaction.commit();
+        }
+
+        assertEquals(2, warmup.preloadMostClickedUrls(2));
+
+        assertEquals("http://example.com/hot", urlCache.get("hot").getOriginalUrl());
+        assertEquals("http://example.com/warm", urlCache.get("warm").getOriginalUrl());
+        assertNull(urlCache.get("cold"));
+        assertNull(urlCache.get("unclicked"));
+    }
+
+    @Test
+    void testPreloadNothing() {
+        assertEquals(0, warmup.preloadMostClickedUrls(0));
+    }
+
+    private long keyOf(String shortenedUrl) {
+        return shardRouter.getKeyOfShortenedUrl(shortenedUrl);
+    }
+}
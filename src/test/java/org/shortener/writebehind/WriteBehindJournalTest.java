@@ -0,0 +1,101 @@
+package org.shortener.writebehind;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindJournalTest {
+
+    private static final int SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRecoverUncommittedEntries() throws IOException {
+        Path path = directory.resolve("journal");
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, SIZE, false)) {
+            assertTrue(journal.recover().isEmpty());
+            WriteBehindJournal.Entry first = journal.append("abc12345", "http://example.com/1");
+            journal.append("abc12346", "http://example.com/2");
+            journal.commit(first.getEndPosition());
+        }
+
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, SIZE, false)) {
+            List<WriteBehindJournal.Entry> entries = journal.recover();
+
+            assertEquals(1, entries.size());
+            assertEquals("abc12346", entries.get(0).getShortenedUrl());
+            assertEquals("http://example.com/2", entries.get(0).getOriginalUrl());
+            assertEquals(WriteBehindJournal.RECORD_HEADER_SIZE + "abc12346\nhttp://example.com/2".length(),
+                         journal.getPendingBytes());
+        }
+    }
+
+    @Test
+    void testAppendContinuesAfterRecoveredEntries() throws IOException {
+        Path path = directory.resolve("journal");
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, SIZE, false)) {
+            journal.recover();
+            journal.append("abc12345", "http://example.com/1");
+        }
+
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, SIZE, false)) {
+            journal.recover();
+            journal.append("abc12346", "http://example.com/2");
+        }
+
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, SIZE, false)) {
+            List<WriteBehindJournal.Entry> entries = journal.recover();
+
+            assertEquals(List.of("abc12345", "abc12346"),
+                         entries.stream().map(WriteBehindJournal.Entry::getShortenedUrl).toList());
+        }
+    }
+
+    @Test
+    void testFullUntilCommitted() throws IOException {
+        try (WriteBehindJournal journal = new WriteBehindJournal(directory.resolve("journal"), 128, true)) {
+            journal.recover();
+            WriteBehindJournal.Entry first = journal.append("abc12345", "http://example.com/1");
+            WriteBehindJournal.Entry second = journal.append("abc12346", "http://example.com/2");
+            assertNotNull(second);
+
+            assertNull(journal.append("abc12347", "http://example.com/3"));
+
+            journal.commit(first.getEndPosition());
+
+            assertNotNull(journal.append("abc12347", "http://example.com/3"));
+        }
+    }
+
+    @Test
+    void testEntriesWrapAroundTheRing() throws IOException {
+        Path path = directory.resolve("journal");
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, 128, false)) {
+            journal.recover();
+            for (int i = 0; i < 10; i++) {
+                WriteBehindJournal.Entry entry = journal.append("code" + i, "http://example.com/" + i);
+                assertNotNull(entry);
+                journal.commit(entry.getEndPosition());
+            }
+            journal.append("lastcode", "http://example.com/last");
+        }
+
+        try (WriteBehindJournal journal = new WriteBehindJournal(path, 128, false)) {
+            List<WriteBehindJournal.Entry> entries = journal.recover();
+
+            assertEquals(1, entries.size());
+            assertEquals("lastcode", entries.get(0).getShortenedUrl());
+            assertEquals("http://example.com/last", entries.get(0).getOriginalUrl());
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.shortener.writebehind;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.shortener.caches.UrlCache;
+import org.shortener.caches.UrlExistenceFilter;
+import org.shortener.daos.UrlDataEntityDAO;
+import org.shortener.entities.UrlDataEntity;
+import org.shortener.exceptions.SessionOpenException;
+import org.shortener.metrics.MetricsRegistry;
+import org.shortener.sharding.ShardRouter;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindQueueTest {
+
+    private static final String ORIGINAL_URL = "http://example.com";
+    private static final String SHORTENED_URL = "abc12345";
+
+    @Mock
+    private Logger mockLogger;
+
+    @Mock
+    private SessionFactory mockSessionFactory;
+
+    @Mock
+    private StatelessSession mockSession;
+
+    @Mock
+    private Transaction mockTransaction;
+
+    @Mock
+    private UrlDataEntityDAO mockUrlDataEntityDAO;
+
+    @TempDir
+    Path directory;
+
+    private final UrlCache urlCache = new UrlCache(100, 1, 1, TimeUnit.MINUTES);
+    private final UrlExistenceFilter urlExistenceFilter = new UrlExistenceFilter(100, 0.01);
+
+    private WriteBehindJournal journal;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new WriteBehindJournal(directory.resolve("journal"), 4096, false);
+        queue = buildQueue(journal, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.close();
+    }
+
+    @Test
+    void testEnqueuedMappingIsPending() throws SessionOpenException {
+        String result = queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+
+        assertEquals(SHORTENED_URL, result);
+        assertEquals(ORIGINAL_URL, queue.getPendingOriginalUrl(SHORTENED_URL));
+        assertEquals(SHORTENED_URL, queue.getPendingShortenedUrl(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL)));
+        assertTrue(journal.getPendingBytes() > 0);
+    }
+
+    @Test
+    void testEnqueueSameUrlReturnsPendingMapping() throws SessionOpenException {
+        queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+
+        String result = queue.enqueue(buildEntity(ORIGINAL_URL, "abc99999"));
+
+        assertEquals(SHORTENED_URL, result);
+        assertNull(queue.getPendingOriginalUrl("abc99999"));
+    }
+
+    @Test
+    void testEnqueueFailsWhenFull() throws SessionOpenException {
+        queue.enqueue(buildEntity(ORIGINAL_URL + "/1", "abc00001"));
+        queue.enqueue(buildEntity(ORIGINAL_URL + "/2", "abc00002"));
+
+        assertThrows(SessionOpenException.class,
+                     () -> queue.enqueue(buildEntity(ORIGINAL_URL + "/3", "abc00003")));
+    }
+
+    @Test
+    void testWriteStoresAndCachesMappings() throws SessionOpenException {
+        when(mockSessionFactory.openStatelessSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+
+        queue.write(List.of(journal.recover().get(0)));
+
+        verify(mockUrlDataEntityDAO).insertUrls(
+                argThat(entities -> entities.size() == 1 && SHORTENED_URL.equals(entities.get(0).getShortenedUrl())),
+                eq(mockSession));
+        verify(mockTransaction).commit();
+        assertNull(queue.getPendingOriginalUrl(SHORTENED_URL));
+        assertNull(queue.getPendingShortenedUrl(UrlDataEntity.hashOriginalUrl(ORIGINAL_URL)));
+        assertEquals(ORIGINAL_URL, urlCache.get(SHORTENED_URL).getOriginalUrl());
+        assertTrue(urlExistenceFilter.mightContainShortenedUrl(SHORTENED_URL));
+        assertEquals(0, journal.getPendingBytes());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testWriteDropsMappingStoredWithAnotherCode() throws SessionOpenException {
+        when(mockSessionFactory.openStatelessSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        doAnswer(invocation -> {
+            invocation.getArgument(3, BiConsumer.class).accept("storedCode", UrlDataEntity.hashOriginalUrl(ORIGINAL_URL));
+            return null;
+        }).when(mockUrlDataEntityDAO).forEachStoredUrl(any(), any(), any(), any());
+        queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+
+        queue.write(List.of(journal.recover().get(0)));
+
+        verify(mockUrlDataEntityDAO).insertUrls(List.of(), mockSession);
+        verify(mockLogger).error("Dropped pending shortened URL {}, its URL was stored as {} by another writer",
+                                 SHORTENED_URL, "storedCode");
+        assertNull(queue.getPendingOriginalUrl(SHORTENED_URL));
+        assertNull(urlCache.get(SHORTENED_URL));
+    }
+
+    @Test
+    void testFailedWriteKeepsMappingsPending() throws SessionOpenException {
+        when(mockSessionFactory.openStatelessSession()).thenThrow(new HibernateException("Testing"));
+        queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+        List<WriteBehindJournal.Entry> batch = journal.recover();
+
+        assertThrows(SessionOpenException.class, () -> queue.write(batch));
+
+        verify(mockUrlDataEntityDAO, never()).insertUrls(any(), any());
+        assertEquals(ORIGINAL_URL, queue.getPendingOriginalUrl(SHORTENED_URL));
+        assertTrue(journal.getPendingBytes() > 0);
+    }
+
+    @Test
+    void testRecoversPendingMappingsFromJournal() throws IOException, SessionOpenException {
+        queue.enqueue(buildEntity(ORIGINAL_URL, SHORTENED_URL));
+        queue.close();
+
+        queue = buildQueue(new WriteBehindJournal(directory.resolve("journal"), 4096, false), 2);
+
+        assertEquals(ORIGINAL_URL, queue.getPendingOriginalUrl(SHORTENED_URL));
+        verify(mockLogger).info("Recovered {} pending mappings from the write-behind journal", 1);
+    }
+
+    @Test
+    void testWritesMappingsInJournalOrder() throws IOException, InterruptedException {
+        when(mockSessionFactory.openStatelessSession()).thenReturn(mockSession);
+        when(mockSession.beginTransaction()).thenReturn(mockTransaction);
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<UrlDataEntity> entities = invocation.getArgument(0);
+            entities.forEach(entity -> written.add(entity.getShortenedUrl()));
+            return null;
+        }).when(mockUrlDataEntityDAO).insertUrls(any(), any());
+        queue.close();
+        journal = new WriteBehindJournal(directory.resolve("ordered"), 1 << 16, false);
+        queue = buildQueue(journal, 1000);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        queue.enqueue(buildEntity(ORIGINAL_URL + "/" + thread + "/" + i,
+                                                    "c" + thread + "x" + i));
+                    } catch (SessionOpenException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Files.copy(directory.resolve("ordered"), directory.resolve("copy"));
+        List<String> journaled = new ArrayList<>();
+        try (WriteBehindJournal copy = new WriteBehindJournal(directory.resolve("copy"), 1 << 16, false)) {
+            copy.recover().forEach(entry -> journaled.add(entry.getShortenedUrl()));
+        }
+
+        queue.start();
+        queue.close();
+
+        assertEquals(400, journaled.size());
+        assertEquals(journaled, written);
+        assertEquals(0, journal.getPendingBytes());
+    }
+
+    private WriteBehindQueue buildQueue(WriteBehindJournal journal, int capacity) {
+        return new WriteBehindQueue(mockLogger, new ShardRouter(mockSessionFactory), mockUrlDataEntityDAO, urlCache,
+                                    urlExistenceFilter, journal, capacity, 10, 10, new MetricsRegistry());
+    }
+
+    private UrlDataEntity buildEntity(String originalUrl, String shortenedUrl) {
+        return new UrlDataEntity(originalUrl, shortenedUrl,
+                                 new ShardRouter(mockSessionFactory).getKeyOfShortenedUrl(shortenedUrl));
+    }
+}